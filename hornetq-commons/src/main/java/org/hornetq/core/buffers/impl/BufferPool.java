@@ -0,0 +1,382 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.buffers.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * A pool of buffers in power of two size classes, from {@link #MIN_BUFFER_SIZE} up to the maximum
+ * size given to the constructor.
+ * <p>
+ * The buffers returned by {@link #createBuffer(int)} are dynamic buffers with a reference count of
+ * one. Whoever holds the last reference calls {@link #release(HornetQBuffer)} and the memory goes
+ * back to the pool, so the buffer must not be used after that. A buffer which is never released is
+ * simply garbage collected, the pool only keeps the memory it is given back. Requests over the
+ * maximum size are not pooled, and releasing them does nothing.
+ * <p>
+ * With {@link #setLeakDetection(boolean) leak detection} on, the pool remembers where each buffer
+ * in use was created, so tests can check that everything was released.
+ */
+public final class BufferPool
+{
+   public static final int MIN_BUFFER_SIZE = 64;
+
+   private final boolean direct;
+
+   private final int maxBufferSize;
+
+   private final int maxPooledBuffers;
+
+   private final Queue<ChannelBuffer>[] freeBuffers;
+
+   private final AtomicInteger[] freeCounts;
+
+   private final AtomicLong created = new AtomicLong();
+
+   private final AtomicLong createdBytes = new AtomicLong();
+
+   private final AtomicLong reused = new AtomicLong();
+
+   private final AtomicLong released = new AtomicLong();
+
+   private final AtomicLong unpooled = new AtomicLong();
+
+   private final AtomicLong unpooledBytes = new AtomicLong();
+
+   private volatile Map<PooledChannelBuffer, Exception> buffersInUse;
+
+   /**
+    * @param direct whether the pooled memory is allocated outside of the heap
+    * @param maxBufferSize the largest buffer to pool, rounded up to a power of two
+    * @param maxPooledBuffers how many free buffers to keep for each size
+    */
+   @SuppressWarnings("unchecked")
+   public BufferPool(final boolean direct, final int maxBufferSize, final int maxPooledBuffers)
+   {
+      if (maxBufferSize < MIN_BUFFER_SIZE)
+      {
+         throw new IllegalArgumentException("The maximum buffer size must be at least " + MIN_BUFFER_SIZE);
+      }
+
+      this.direct = direct;
+      this.maxBufferSize = sizeOf(sizeClass(maxBufferSize));
+      this.maxPooledBuffers = maxPooledBuffers;
+
+      int classes = sizeClass(this.maxBufferSize) + 1;
+
+      freeBuffers = new Queue[classes];
+      freeCounts = new AtomicInteger[classes];
+
+      for (int i = 0; i < classes; i++)
+      {
+         freeBuffers[i] = new ConcurrentLinkedQueue<ChannelBuffer>();
+         freeCounts[i] = new AtomicInteger();
+      }
+   }
+
+   // Public --------------------------------------------------------
+
+   public HornetQBuffer createBuffer(final int size)
+   {
+      return new ChannelBufferWrapper(createChannelBuffer(size));
+   }
+
+   public ChannelBuffer createChannelBuffer(final int size)
+   {
+      if (size > maxBufferSize)
+      {
+         unpooled.incrementAndGet();
+         unpooledBytes.addAndGet(size);
+
+         return ChannelBuffers.dynamicBuffer(size);
+      }
+
+      int sizeClass = sizeClass(size);
+
+      ChannelBuffer segment = freeBuffers[sizeClass].poll();
+
+      if (segment != null)
+      {
+         freeCounts[sizeClass].decrementAndGet();
+
+         reused.incrementAndGet();
+      }
+      else
+      {
+         int capacity = sizeOf(sizeClass);
+
+         segment = direct ? ChannelBuffers.directBuffer(capacity) : ChannelBuffers.buffer(capacity);
+
+         created.incrementAndGet();
+         createdBytes.addAndGet(capacity);
+      }
+
+      PooledChannelBuffer buffer = new PooledChannelBuffer(this, segment, direct);
+
+      Map<PooledChannelBuffer, Exception> inUse = buffersInUse;
+
+      if (inUse != null)
+      {
+         inUse.put(buffer, new Exception("Buffer of " + size + " bytes created here was not released"));
+      }
+
+      return buffer;
+   }
+
+   /**
+    * Adds a reference to a pooled buffer, which will then need one more release.
+    */
+   public static void retain(final HornetQBuffer buffer)
+   {
+      ChannelBuffer channelBuffer = buffer.channelBuffer();
+
+      if (channelBuffer instanceof PooledChannelBuffer)
+      {
+         ((PooledChannelBuffer)channelBuffer).retain();
+      }
+   }
+
+   /**
+    * @return {@code true} if the buffer came from a pool and this was its last reference
+    */
+   public static boolean release(final HornetQBuffer buffer)
+   {
+      return release(buffer.channelBuffer());
+   }
+
+   /**
+    * @return {@code true} if the buffer came from a pool and this was its last reference
+    */
+   public static boolean release(final ChannelBuffer buffer)
+   {
+      if (buffer instanceof PooledChannelBuffer)
+      {
+         return ((PooledChannelBuffer)buffer).release();
+      }
+
+      return false;
+   }
+
+   public static boolean isPooled(final HornetQBuffer buffer)
+   {
+      return buffer.channelBuffer() instanceof PooledChannelBuffer;
+   }
+
+   public boolean isDirect()
+   {
+      return direct;
+   }
+
+   public int getMaxBufferSize()
+   {
+      return maxBufferSize;
+   }
+
+   /**
+    * @return the number of pooled buffers for which new memory was allocated
+    */
+   public long getCreatedCount()
+   {
+      return created.get();
+   }
+
+   /**
+    * @return the bytes allocated for pooled buffers
+    */
+   public long getCreatedBytes()
+   {
+      return createdBytes.get();
+   }
+
+   /**
+    * @return the number of buffers that reused memory from the pool
+    */
+   public long getReusedCount()
+   {
+      return reused.get();
+   }
+
+   public long getReleasedCount()
+   {
+      return released.get();
+   }
+
+   /**
+    * @return the number of buffers too large for the pool
+    */
+   public long getUnpooledCount()
+   {
+      return unpooled.get();
+   }
+
+   public long getUnpooledBytes()
+   {
+      return unpooledBytes.get();
+   }
+
+   /**
+    * @return the number of pooled buffers created and not released yet
+    */
+   public long getInUseCount()
+   {
+      return created.get() + reused.get() - released.get();
+   }
+
+   /**
+    * @return the number of free buffers kept by the pool
+    */
+   public int getFreeCount()
+   {
+      int count = 0;
+
+      for (AtomicInteger freeCount : freeCounts)
+      {
+         count += freeCount.get();
+      }
+
+      return count;
+   }
+
+   /**
+    * Starts or stops remembering where the buffers in use were created. Only the buffers created
+    * while the detection is on are tracked.
+    */
+   public void setLeakDetection(final boolean detectLeaks)
+   {
+      if (detectLeaks)
+      {
+         if (buffersInUse == null)
+         {
+            buffersInUse = Collections.synchronizedMap(new IdentityHashMap<PooledChannelBuffer, Exception>());
+         }
+      }
+      else
+      {
+         buffersInUse = null;
+      }
+   }
+
+   public boolean isLeakDetection()
+   {
+      return buffersInUse != null;
+   }
+
+   /**
+    * @return for each tracked buffer not released yet, an exception with the stack where it was
+    *         created
+    */
+   public List<Exception> getLeaks()
+   {
+      Map<PooledChannelBuffer, Exception> inUse = buffersInUse;
+
+      if (inUse == null)
+      {
+         return Collections.emptyList();
+      }
+
+      synchronized (inUse)
+      {
+         return new ArrayList<Exception>(inUse.values());
+      }
+   }
+
+   /**
+    * Drops the free buffers, the memory in use goes back to the pool as usual.
+    */
+   public void clear()
+   {
+      for (int i = 0; i < freeBuffers.length; i++)
+      {
+         while (freeBuffers[i].poll() != null)
+         {
+            freeCounts[i].decrementAndGet();
+         }
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "BufferPool[direct=" + direct +
+         ", maxBufferSize=" +
+         maxBufferSize +
+         ", created=" +
+         getCreatedCount() +
+         ", reused=" +
+         getReusedCount() +
+         ", unpooled=" +
+         getUnpooledCount() +
+         ", inUse=" +
+         getInUseCount() +
+         ", free=" +
+         getFreeCount() +
+         "]";
+   }
+
+   // Package protected ---------------------------------------------
+
+   void recycle(final PooledChannelBuffer buffer)
+   {
+      released.incrementAndGet();
+
+      Map<PooledChannelBuffer, Exception> inUse = buffersInUse;
+
+      if (inUse != null)
+      {
+         inUse.remove(buffer);
+      }
+
+      ChannelBuffer segment = buffer.segment();
+
+      int sizeClass = sizeClass(segment.capacity());
+
+      if (freeCounts[sizeClass].incrementAndGet() <= maxPooledBuffers)
+      {
+         freeBuffers[sizeClass].offer(segment);
+      }
+      else
+      {
+         freeCounts[sizeClass].decrementAndGet();
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private static int sizeClass(final int size)
+   {
+      if (size <= MIN_BUFFER_SIZE)
+      {
+         return 0;
+      }
+
+      return Integer.numberOfLeadingZeros(MIN_BUFFER_SIZE - 1) - Integer.numberOfLeadingZeros(size - 1);
+   }
+
+   private static int sizeOf(final int sizeClass)
+   {
+      return MIN_BUFFER_SIZE << sizeClass;
+   }
+}
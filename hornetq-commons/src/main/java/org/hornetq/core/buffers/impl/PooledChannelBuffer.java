@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.buffers.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
+import org.jboss.netty.buffer.DynamicChannelBuffer;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
+
+/**
+ * A dynamic buffer starting on a segment taken from a {@link BufferPool}.
+ * <p>
+ * The buffer is reference counted, and the segment goes back to the pool when the count drops to
+ * zero. If the buffer has to grow past the segment the extra capacity is allocated outside of the
+ * pool, so the segment is only ever used by this buffer until it is released.
+ */
+final class PooledChannelBuffer extends DynamicChannelBuffer
+{
+   private static final AtomicIntegerFieldUpdater<PooledChannelBuffer> REFERENCES =
+      AtomicIntegerFieldUpdater.newUpdater(PooledChannelBuffer.class, "references");
+
+   private final BufferPool pool;
+
+   private final ChannelBuffer segment;
+
+   private final ChannelBufferFactory growthFactory;
+
+   private volatile int references = 1;
+
+   PooledChannelBuffer(final BufferPool pool, final ChannelBuffer segment, final boolean direct)
+   {
+      super(ByteOrder.BIG_ENDIAN, segment.capacity(), new SegmentFactory(segment));
+      this.pool = pool;
+      this.segment = segment;
+      growthFactory = direct ? DirectChannelBufferFactory.getInstance() : HeapChannelBufferFactory.getInstance();
+   }
+
+   @Override
+   public ChannelBufferFactory factory()
+   {
+      return growthFactory;
+   }
+
+   ChannelBuffer segment()
+   {
+      return segment;
+   }
+
+   int references()
+   {
+      return references;
+   }
+
+   void retain()
+   {
+      for (;;)
+      {
+         int current = references;
+
+         if (current <= 0)
+         {
+            throw new IllegalStateException("The buffer was already released");
+         }
+
+         if (REFERENCES.compareAndSet(this, current, current + 1))
+         {
+            return;
+         }
+      }
+   }
+
+   /**
+    * @return {@code true} if this was the last reference and the segment went back to the pool
+    */
+   boolean release()
+   {
+      for (;;)
+      {
+         int current = references;
+
+         if (current <= 0)
+         {
+            throw new IllegalStateException("The buffer was already released");
+         }
+
+         if (REFERENCES.compareAndSet(this, current, current - 1))
+         {
+            if (current == 1)
+            {
+               pool.recycle(this);
+
+               return true;
+            }
+
+            return false;
+         }
+      }
+   }
+
+   /**
+    * Hands out the pooled segment to the constructor of {@link DynamicChannelBuffer}.
+    */
+   private static final class SegmentFactory implements ChannelBufferFactory
+   {
+      private final ChannelBuffer segment;
+
+      SegmentFactory(final ChannelBuffer segment)
+      {
+         this.segment = segment;
+      }
+
+      public ChannelBuffer getBuffer(final int capacity)
+      {
+         return segment;
+      }
+
+      public ChannelBuffer getBuffer(final ByteOrder endianness, final int capacity)
+      {
+         return segment;
+      }
+
+      public ChannelBuffer getBuffer(final byte[] array, final int offset, final int length)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      public ChannelBuffer getBuffer(final ByteOrder endianness,
+                                     final byte[] array,
+                                     final int offset,
+                                     final int length)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      public ChannelBuffer getBuffer(final ByteBuffer nioBuffer)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      public ByteOrder getDefaultOrder()
+      {
+         return segment.order();
+      }
+   }
+}
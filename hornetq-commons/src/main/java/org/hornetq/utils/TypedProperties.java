@@ -25,13 +25,13 @@ import static org.hornetq.utils.DataConstants.NULL;
 import static org.hornetq.utils.DataConstants.SHORT;
 import static org.hornetq.utils.DataConstants.STRING;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQPropertyConversionException;
 import org.hornetq.api.core.SimpleString;
 
@@ -42,6 +42,19 @@ import org.hornetq.api.core.SimpleString;
  * This implementation follows section 3.5.4 of the <i>Java Message Service<i> specification
  * (Version 1.1 April 12, 2002).
  * <p>
+ * The properties are kept in parallel arrays of keys, types and values, primitive values being held
+ * unboxed, so that setting a property doesn't allocate anything once the arrays are large enough.
+ * They are scanned when looked up, until there are enough of them to be worth a hash index.
+ * <p>
+ * The properties read by {@link #decode(HornetQBuffer)} are kept encoded. Single properties are
+ * looked up in the encoded bytes, which are written back as they are if nothing changed. The
+ * properties are only decoded into the arrays when one of them is changed or they are enumerated.
+ * <p>
+ * Every access holds the lock of the instance. A server message routed to several queues is shared
+ * by their references, so its properties are read by the consumers of each queue on their own
+ * threads while a divert or the paging store may be encoding them. Reads are not read-only either:
+ * enumerating the properties decodes them into the arrays.
+ * <p>
  * TODO - should have typed property getters and do conversions herein
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="mailto:clebert.suconic@jboss.com">Clebert Suconic</a>
@@ -51,7 +64,35 @@ public final class TypedProperties
 
    private static final SimpleString HQ_PROPNAME = new SimpleString("_HQ_");
 
-   private Map<SimpleString, PropertyValue> properties;
+   // Enough for the properties of most messages, growing the arrays costs more than a few unused slots
+   private static final int INITIAL_CAPACITY = 12;
+
+   // With more properties than this they are found through the index instead of being scanned
+   private static final int INDEX_THRESHOLD = 16;
+
+   // null until a property is put, the properties are encoded as null until then
+   private SimpleString[] keys;
+
+   private byte[] types;
+
+   // The values of primitive types, floating point values as their bits
+   private long[] primitives;
+
+   // The bytes and string values
+   private Object[] objects;
+
+   private int count;
+
+   // Open addressing table of the positions of the properties plus one
+   private int[] index;
+
+   // The properties as decoded, from their count on, until they are put in the arrays
+   private HornetQBuffer encoded;
+
+   // The bytes wrapped by encoded, scanned directly when looking up properties
+   private byte[] encodedData;
+
+   private int encodedCount;
 
    private volatile int size;
 
@@ -67,13 +108,34 @@ public final class TypedProperties
       // Note we don't include the attributes or anything else since they already included in the memory estimate
       // of the ServerMessage
 
-      return properties == null ? 0 : size + 2 * DataConstants.SIZE_INT * properties.size();
+      if (encoded != null)
+      {
+         return size + 2 * DataConstants.SIZE_INT * encodedCount;
+      }
+
+      return keys == null ? 0 : size + 2 * DataConstants.SIZE_INT * count;
    }
 
    public TypedProperties(final TypedProperties other)
    {
-      properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
-      size = other.size;
+      // other may be shared, see the class comment
+      synchronized (other)
+      {
+         if (other.keys != null)
+         {
+            keys = other.keys.clone();
+            types = other.types.clone();
+            primitives = other.primitives.clone();
+            objects = other.objects.clone();
+            index = other.index == null ? null : other.index.clone();
+         }
+         count = other.count;
+         encoded = other.encoded == null ? null : other.encoded.duplicate();
+         encodedData = other.encodedData;
+         encodedCount = other.encodedCount;
+         size = other.size;
+         internalProperties = other.internalProperties;
+      }
    }
 
    public boolean hasInternalProperties()
@@ -83,82 +145,89 @@ public final class TypedProperties
 
    public void putBooleanProperty(final SimpleString key, final boolean value)
    {
-      checkCreateProperties();
-      doPutValue(key, new BooleanValue(value));
+      doPutValue(key, BOOLEAN, value ? 1 : 0, null);
    }
 
    public void putByteProperty(final SimpleString key, final byte value)
    {
-      checkCreateProperties();
-      doPutValue(key, new ByteValue(value));
+      doPutValue(key, BYTE, value, null);
    }
 
    public void putBytesProperty(final SimpleString key, final byte[] value)
    {
-      checkCreateProperties();
-      doPutValue(key, value == null ? new NullValue() : new BytesValue(value));
+      doPutValue(key, value == null ? NULL : BYTES, 0, value);
    }
 
    public void putShortProperty(final SimpleString key, final short value)
    {
-      checkCreateProperties();
-      doPutValue(key, new ShortValue(value));
+      doPutValue(key, SHORT, value, null);
    }
 
    public void putIntProperty(final SimpleString key, final int value)
    {
-      checkCreateProperties();
-      doPutValue(key, new IntValue(value));
+      doPutValue(key, INT, value, null);
    }
 
    public void putLongProperty(final SimpleString key, final long value)
    {
-      checkCreateProperties();
-      doPutValue(key, new LongValue(value));
+      doPutValue(key, LONG, value, null);
    }
 
    public void putFloatProperty(final SimpleString key, final float value)
    {
-      checkCreateProperties();
-      doPutValue(key, new FloatValue(value));
+      doPutValue(key, FLOAT, Float.floatToIntBits(value), null);
    }
 
    public void putDoubleProperty(final SimpleString key, final double value)
    {
-      checkCreateProperties();
-      doPutValue(key, new DoubleValue(value));
+      doPutValue(key, DOUBLE, Double.doubleToLongBits(value), null);
    }
 
    public void putSimpleStringProperty(final SimpleString key, final SimpleString value)
    {
-      checkCreateProperties();
-      doPutValue(key, value == null ? new NullValue() : new StringValue(value));
+      doPutValue(key, value == null ? NULL : STRING, 0, value);
    }
 
    public void putNullValue(final SimpleString key)
    {
-      checkCreateProperties();
-      doPutValue(key, new NullValue());
+      doPutValue(key, NULL, 0, null);
    }
 
    public void putCharProperty(final SimpleString key, final char value)
    {
-      checkCreateProperties();
-      doPutValue(key, new CharValue(value));
+      doPutValue(key, CHAR, value, null);
    }
 
    public void putTypedProperties(final TypedProperties otherProps)
    {
-      if (otherProps == null || otherProps.properties == null)
+      if (otherProps == null)
       {
          return;
       }
 
-      checkCreateProperties();
-      Set<Entry<SimpleString, PropertyValue>> otherEntries = otherProps.properties.entrySet();
-      for (Entry<SimpleString, PropertyValue> otherEntry : otherEntries)
+      // Copied first, so that the two locks are never held together
+      TypedProperties copy;
+
+      synchronized (otherProps)
+      {
+         otherProps.decodeEncodedProperties();
+
+         if (otherProps.keys == null)
+         {
+            return;
+         }
+
+         copy = new TypedProperties(otherProps);
+      }
+
+      synchronized (this)
       {
-         doPutValue(otherEntry.getKey(), otherEntry.getValue());
+         checkCreateProperties();
+
+         for (int i = 0; i < copy.count; i++)
+         {
+            setValue(copy.keys[i], copy.types[i], copy.primitives[i], copy.objects[i]);
+         }
       }
    }
 
@@ -425,28 +494,40 @@ public final class TypedProperties
       return doRemoveProperty(key);
    }
 
-   public boolean containsProperty(final SimpleString key)
+   public synchronized boolean containsProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return false;
-
+      }
+      else if (encoded != null)
+      {
+         return findEncodedValue(key) >= 0;
       }
       else
       {
-         return properties.containsKey(key);
+         return keys != null && find(key) >= 0;
       }
    }
 
-   public Set<SimpleString> getPropertyNames()
+   public synchronized Set<SimpleString> getPropertyNames()
    {
-      if (size == 0)
+      decodeEncodedProperties();
+
+      if (count == 0)
       {
          return Collections.emptySet();
       }
       else
       {
-         return properties.keySet();
+         Set<SimpleString> names = new HashSet<SimpleString>(count * 2);
+
+         for (int i = 0; i < count; i++)
+         {
+            names.add(keys[i]);
+         }
+
+         return names;
       }
    }
 
@@ -454,108 +535,65 @@ public final class TypedProperties
    {
       byte b = buffer.readByte();
 
+      keys = null;
+      types = null;
+      primitives = null;
+      objects = null;
+      index = null;
+      count = 0;
+
       if (b == DataConstants.NULL)
       {
-         properties = null;
+         encoded = null;
+         encodedData = null;
+         size = 0;
       }
       else
       {
-         int numHeaders = buffer.readInt();
+         // The properties are only located here, they are decoded when needed
+         int start = buffer.readerIndex();
 
-         properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
-         size = 0;
+         int numHeaders = buffer.readInt();
 
          for (int i = 0; i < numHeaders; i++)
          {
             int len = buffer.readInt();
-            byte[] data = new byte[len];
-            buffer.readBytes(data);
-            SimpleString key = new SimpleString(data);
 
-            byte type = buffer.readByte();
+            if (!internalProperties && isInternal(buffer, buffer.readerIndex(), len))
+            {
+               internalProperties = true;
+            }
+
+            buffer.skipBytes(len);
 
-            PropertyValue val;
+            int valueSize = getValueSize(buffer.readByte());
 
-            switch (type)
+            if (valueSize < 0)
             {
-               case NULL:
-               {
-                  val = new NullValue();
-                  doPutValue(key, val);
-                  break;
-               }
-               case CHAR:
-               {
-                  val = new CharValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BOOLEAN:
-               {
-                  val = new BooleanValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTE:
-               {
-                  val = new ByteValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTES:
-               {
-                  val = new BytesValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case SHORT:
-               {
-                  val = new ShortValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case INT:
-               {
-                  val = new IntValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case LONG:
-               {
-                  val = new LongValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case FLOAT:
-               {
-                  val = new FloatValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case DOUBLE:
-               {
-                  val = new DoubleValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case STRING:
-               {
-                  val = new StringValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               default:
-               {
-                  throw HornetQUtilBundle.BUNDLE.invalidType(type);
-               }
+               valueSize = DataConstants.SIZE_INT + buffer.getInt(buffer.readerIndex());
             }
+
+            buffer.skipBytes(valueSize);
          }
+
+         byte[] data = new byte[buffer.readerIndex() - start];
+         buffer.getBytes(start, data);
+
+         encoded = HornetQBuffers.wrappedBuffer(data);
+         encodedData = data;
+         encodedCount = numHeaders;
+         size = data.length - DataConstants.SIZE_INT;
       }
    }
 
    public synchronized void encode(final HornetQBuffer buffer)
    {
-      if (properties == null)
+      if (encoded != null)
+      {
+         buffer.writeByte(DataConstants.NOT_NULL);
+         buffer.writeBytes(encoded, 0, encoded.capacity());
+      }
+      else if (keys == null)
       {
          buffer.writeByte(DataConstants.NULL);
       }
@@ -563,23 +601,22 @@ public final class TypedProperties
       {
          buffer.writeByte(DataConstants.NOT_NULL);
 
-         buffer.writeInt(properties.size());
+         buffer.writeInt(count);
 
-         for (Map.Entry<SimpleString, PropertyValue> entry : properties.entrySet())
+         for (int i = 0; i < count; i++)
          {
-            SimpleString s = entry.getKey();
-            byte[] data = s.getData();
+            byte[] data = keys[i].getData();
             buffer.writeInt(data.length);
             buffer.writeBytes(data);
 
-            entry.getValue().write(buffer);
+            writeValue(buffer, types[i], primitives[i], objects[i]);
          }
       }
    }
 
    public int getEncodeSize()
    {
-      if (properties == null)
+      if (keys == null && encoded == null)
       {
          return DataConstants.SIZE_BYTE;
       }
@@ -589,474 +626,567 @@ public final class TypedProperties
       }
    }
 
-   public void clear()
+   public synchronized void clear()
    {
-      if (properties != null)
+      decodeEncodedProperties();
+
+      if (keys != null)
       {
-         properties.clear();
+         Arrays.fill(keys, 0, count, null);
+         Arrays.fill(objects, 0, count, null);
+         count = 0;
+         index = null;
+         size = 0;
       }
    }
 
    @Override
-   public String toString()
+   public synchronized String toString()
    {
-      return "TypedProperties[" + properties + "]";
+      decodeEncodedProperties();
+
+      if (keys == null)
+      {
+         return "TypedProperties[null]";
+      }
+
+      StringBuilder sb = new StringBuilder("TypedProperties[{");
+
+      for (int i = 0; i < count; i++)
+      {
+         if (i > 0)
+         {
+            sb.append(", ");
+         }
+         sb.append(keys[i]).append('=').append(toValue(types[i], primitives[i], objects[i]));
+      }
+
+      return sb.append("}]").toString();
    }
 
    // Private ------------------------------------------------------------------------------------
 
    private void checkCreateProperties()
    {
-      if (properties == null)
+      decodeEncodedProperties();
+
+      if (keys == null)
       {
-         properties = new HashMap<SimpleString, PropertyValue>();
+         allocate(INITIAL_CAPACITY);
       }
    }
 
-   private synchronized void doPutValue(final SimpleString key, final PropertyValue value)
+   private void allocate(final int capacity)
    {
-      if (key.startsWith(HQ_PROPNAME))
-      {
-         internalProperties = true;
-      }
-
-      PropertyValue oldValue = properties.put(key, value);
-      if (oldValue != null)
-      {
-         size += value.encodeSize() - oldValue.encodeSize();
-      }
-      else
-      {
-         size += SimpleString.sizeofString(key) + value.encodeSize();
-      }
+      keys = new SimpleString[capacity];
+      types = new byte[capacity];
+      primitives = new long[capacity];
+      objects = new Object[capacity];
    }
 
-   private synchronized Object doRemoveProperty(final SimpleString key)
+   private void grow(final int capacity)
    {
-      if (properties == null)
-      {
-         return null;
-      }
+      SimpleString[] oldKeys = keys;
+      byte[] oldTypes = types;
+      long[] oldPrimitives = primitives;
+      Object[] oldObjects = objects;
 
-      PropertyValue val = properties.remove(key);
+      allocate(capacity);
 
-      if (val == null)
-      {
-         return null;
-      }
-      else
-      {
-         size -= SimpleString.sizeofString(key) + val.encodeSize();
+      System.arraycopy(oldKeys, 0, keys, 0, count);
+      System.arraycopy(oldTypes, 0, types, 0, count);
+      System.arraycopy(oldPrimitives, 0, primitives, 0, count);
+      System.arraycopy(oldObjects, 0, objects, 0, count);
+   }
 
-         return val.getValue();
-      }
+   private synchronized void doPutValue(final SimpleString key, final byte type, final long primitive, final Object object)
+   {
+      checkCreateProperties();
+
+      setValue(key, type, primitive, object);
    }
 
-   private synchronized Object doGetProperty(final Object key)
+   private void setValue(final SimpleString key, final byte type, final long primitive, final Object object)
    {
-      if (size == 0)
+      if (key.startsWith(HQ_PROPNAME))
       {
-         return null;
+         internalProperties = true;
       }
 
-      PropertyValue val = properties.get(key);
+      int position = find(key);
 
-      if (val == null)
+      if (position >= 0)
       {
-         return null;
+         size += valueSize(type, object) - valueSize(types[position], objects[position]);
       }
       else
       {
-         return val.getValue();
-      }
-   }
-
-   // Inner classes ------------------------------------------------------------------------------
+         if (count == keys.length)
+         {
+            grow(count * 2);
+         }
 
-   private static abstract class PropertyValue
-   {
-      abstract Object getValue();
+         position = count++;
 
-      abstract void write(HornetQBuffer buffer);
+         keys[position] = key;
 
-      abstract int encodeSize();
+         if (index != null && count * 2 <= index.length)
+         {
+            addToIndex(index, position);
+         }
+         else if (count > INDEX_THRESHOLD)
+         {
+            buildIndex();
+         }
 
-      @Override
-      public String toString()
-      {
-         return "" + getValue();
+         size += SimpleString.sizeofString(key) + valueSize(type, object);
       }
+
+      types[position] = type;
+      primitives[position] = primitive;
+      objects[position] = object;
    }
 
-   private static final class NullValue extends PropertyValue
+   private synchronized Object doRemoveProperty(final SimpleString key)
    {
-      public NullValue()
-      {
-      }
+      decodeEncodedProperties();
 
-      @Override
-      public Object getValue()
+      if (keys == null)
       {
          return null;
       }
 
-      @Override
-      public void write(final HornetQBuffer buffer)
-      {
-         buffer.writeByte(DataConstants.NULL);
-      }
+      int position = find(key);
 
-      @Override
-      public int encodeSize()
+      if (position < 0)
       {
-         return DataConstants.SIZE_BYTE;
+         return null;
       }
 
-   }
+      Object value = toValue(types[position], primitives[position], objects[position]);
 
-   private static final class BooleanValue extends PropertyValue
-   {
-      final boolean val;
+      size -= SimpleString.sizeofString(key) + valueSize(types[position], objects[position]);
 
-      public BooleanValue(final boolean val)
-      {
-         this.val = val;
-      }
+      int moved = count - position - 1;
 
-      public BooleanValue(final HornetQBuffer buffer)
-      {
-         val = buffer.readBoolean();
-      }
+      System.arraycopy(keys, position + 1, keys, position, moved);
+      System.arraycopy(types, position + 1, types, position, moved);
+      System.arraycopy(primitives, position + 1, primitives, position, moved);
+      System.arraycopy(objects, position + 1, objects, position, moved);
 
-      @Override
-      public Object getValue()
-      {
-         return val;
-      }
+      count--;
+
+      keys[count] = null;
+      objects[count] = null;
 
-      @Override
-      public void write(final HornetQBuffer buffer)
+      if (count > INDEX_THRESHOLD)
       {
-         buffer.writeByte(DataConstants.BOOLEAN);
-         buffer.writeBoolean(val);
+         buildIndex();
       }
-
-      @Override
-      public int encodeSize()
+      else
       {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_BOOLEAN;
+         index = null;
       }
 
+      return value;
    }
 
-   private static final class ByteValue extends PropertyValue
+   private synchronized Object doGetProperty(final SimpleString key)
    {
-      final byte val;
-
-      public ByteValue(final byte val)
+      if (size == 0)
       {
-         this.val = val;
+         return null;
       }
 
-      public ByteValue(final HornetQBuffer buffer)
+      if (encoded != null)
       {
-         val = buffer.readByte();
+         return getEncodedProperty(key);
       }
 
-      @Override
-      public Object getValue()
-      {
-         return val;
-      }
+      int position = find(key);
 
-      @Override
-      public void write(final HornetQBuffer buffer)
+      if (position < 0)
       {
-         buffer.writeByte(DataConstants.BYTE);
-         buffer.writeByte(val);
+         return null;
       }
-
-      @Override
-      public int encodeSize()
+      else
       {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_BYTE;
+         return toValue(types[position], primitives[position], objects[position]);
       }
    }
 
-   private static final class BytesValue extends PropertyValue
+   private Object getEncodedProperty(final SimpleString key)
    {
-      final byte[] val;
+      int position = findEncodedValue(key);
 
-      public BytesValue(final byte[] val)
+      if (position < 0)
       {
-         this.val = val;
+         return null;
       }
 
-      public BytesValue(final HornetQBuffer buffer)
-      {
-         int len = buffer.readInt();
-         val = new byte[len];
-         buffer.readBytes(val);
-      }
+      encoded.readerIndex(position);
 
-      @Override
-      public Object getValue()
-      {
-         return val;
-      }
+      return readValue(encoded);
+   }
 
-      @Override
-      public void write(final HornetQBuffer buffer)
-      {
-         buffer.writeByte(DataConstants.BYTES);
-         buffer.writeInt(val.length);
-         buffer.writeBytes(val);
-      }
+   /**
+    * @return the position of the property, or -1 if there is no such property
+    */
+   private int find(final SimpleString key)
+   {
+      int hash = key.hashCode();
 
-      @Override
-      public int encodeSize()
+      if (index != null)
       {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_INT + val.length;
-      }
+         int mask = index.length - 1;
 
-   }
+         for (int i = spread(hash) & mask;; i = i + 1 & mask)
+         {
+            int position = index[i] - 1;
 
-   private static final class ShortValue extends PropertyValue
-   {
-      final short val;
+            if (position < 0)
+            {
+               return -1;
+            }
 
-      public ShortValue(final short val)
-      {
-         this.val = val;
+            if (matches(keys[position], key, hash))
+            {
+               return position;
+            }
+         }
       }
 
-      public ShortValue(final HornetQBuffer buffer)
+      // The keys are often the same constants, which are found without dereferencing any key
+      for (int i = 0; i < count; i++)
       {
-         val = buffer.readShort();
+         if (keys[i] == key)
+         {
+            return i;
+         }
       }
 
-      @Override
-      public Object getValue()
+      for (int i = 0; i < count; i++)
       {
-         return val;
+         if (matches(keys[i], key, hash))
+         {
+            return i;
+         }
       }
 
-      @Override
-      public void write(final HornetQBuffer buffer)
-      {
-         buffer.writeByte(DataConstants.SHORT);
-         buffer.writeShort(val);
-      }
+      return -1;
+   }
 
-      @Override
-      public int encodeSize()
-      {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_SHORT;
-      }
+   private static boolean matches(final SimpleString candidate, final SimpleString key, final int hash)
+   {
+      // The hash codes are cached by the keys, comparing them first is cheaper
+      return candidate == key || candidate.hashCode() == hash && candidate.equals(key);
    }
 
-   private static final class IntValue extends PropertyValue
+   private void buildIndex()
    {
-      final int val;
+      index = new int[Integer.highestOneBit(count) * 4];
 
-      public IntValue(final int val)
+      for (int i = 0; i < count; i++)
       {
-         this.val = val;
+         addToIndex(index, i);
       }
+   }
 
-      public IntValue(final HornetQBuffer buffer)
-      {
-         val = buffer.readInt();
-      }
+   private void addToIndex(final int[] table, final int position)
+   {
+      int mask = table.length - 1;
 
-      @Override
-      public Object getValue()
-      {
-         return val;
-      }
+      int i = spread(keys[position].hashCode()) & mask;
 
-      @Override
-      public void write(final HornetQBuffer buffer)
+      while (table[i] != 0)
       {
-         buffer.writeByte(DataConstants.INT);
-         buffer.writeInt(val);
+         i = i + 1 & mask;
       }
 
-      @Override
-      public int encodeSize()
-      {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_INT;
-      }
+      table[i] = position + 1;
    }
 
-   private static final class LongValue extends PropertyValue
+   private static int spread(final int hash)
    {
-      final long val;
+      return hash ^ hash >>> 16;
+   }
 
-      public LongValue(final long val)
+   /**
+    * Puts the encoded properties in the arrays.
+    */
+   private void decodeEncodedProperties()
+   {
+      if (encoded == null)
       {
-         this.val = val;
+         return;
       }
 
-      public LongValue(final HornetQBuffer buffer)
-      {
-         val = buffer.readLong();
-      }
+      HornetQBuffer buffer = encoded;
 
-      @Override
-      public Object getValue()
-      {
-         return val;
-      }
+      encoded = null;
+      encodedData = null;
 
-      @Override
-      public void write(final HornetQBuffer buffer)
-      {
-         buffer.writeByte(DataConstants.LONG);
-         buffer.writeLong(val);
-      }
+      buffer.readerIndex(DataConstants.SIZE_INT);
 
-      @Override
-      public int encodeSize()
+      allocate(Math.max(INITIAL_CAPACITY, encodedCount));
+      count = 0;
+      size = 0;
+
+      for (int i = 0; i < encodedCount; i++)
       {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_LONG;
+         SimpleString key = buffer.readSimpleString();
+
+         byte type = buffer.readByte();
+
+         long primitive = readPrimitive(type, buffer);
+
+         setValue(key, type, primitive, readObject(type, buffer));
       }
    }
 
-   private static final class FloatValue extends PropertyValue
+   /**
+    * @return the position of the type of the value of the property in the encoded properties, or
+    *         -1 if there is no such property
+    */
+   private int findEncodedValue(final SimpleString key)
    {
-      final float val;
+      byte[] data = encodedData;
 
-      public FloatValue(final float val)
-      {
-         this.val = val;
-      }
+      byte[] keyData = key.getData();
 
-      public FloatValue(final HornetQBuffer buffer)
-      {
-         val = Float.intBitsToFloat(buffer.readInt());
-      }
+      int position = DataConstants.SIZE_INT;
 
-      @Override
-      public Object getValue()
+      for (int i = 0; i < encodedCount; i++)
       {
-         return val;
-      }
+         int len = getInt(data, position);
 
-      @Override
-      public void write(final HornetQBuffer buffer)
-      {
-         buffer.writeByte(DataConstants.FLOAT);
-         buffer.writeInt(Float.floatToIntBits(val));
-      }
+         position += DataConstants.SIZE_INT;
 
-      @Override
-      public int encodeSize()
-      {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_FLOAT;
+         boolean found = len == keyData.length && matches(data, position, keyData);
+
+         position += len;
+
+         if (found)
+         {
+            return position;
+         }
+
+         int valueSize = getValueSize(data[position++]);
+
+         if (valueSize < 0)
+         {
+            valueSize = DataConstants.SIZE_INT + getInt(data, position);
+         }
+
+         position += valueSize;
       }
 
+      return -1;
    }
 
-   private static final class DoubleValue extends PropertyValue
+   private static int getInt(final byte[] data, final int position)
    {
-      final double val;
+      return (data[position] & 0xff) << 24 |
+             (data[position + 1] & 0xff) << 16 |
+             (data[position + 2] & 0xff) << 8 |
+             data[position + 3] & 0xff;
+   }
 
-      public DoubleValue(final double val)
+   private static boolean matches(final byte[] data, final int position, final byte[] other)
+   {
+      for (int i = 0; i < other.length; i++)
       {
-         this.val = val;
+         if (data[position + i] != other[i])
+         {
+            return false;
+         }
       }
 
-      public DoubleValue(final HornetQBuffer buffer)
-      {
-         val = Double.longBitsToDouble(buffer.readLong());
-      }
+      return true;
+   }
 
-      @Override
-      public Object getValue()
-      {
-         return val;
-      }
+   private static boolean isInternal(final HornetQBuffer buffer, final int position, final int length)
+   {
+      byte[] prefix = HQ_PROPNAME.getData();
 
-      @Override
-      public void write(final HornetQBuffer buffer)
+      if (length < prefix.length)
       {
-         buffer.writeByte(DataConstants.DOUBLE);
-         buffer.writeLong(Double.doubleToLongBits(val));
+         return false;
       }
 
-      @Override
-      public int encodeSize()
+      for (int i = 0; i < prefix.length; i++)
       {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_DOUBLE;
+         if (buffer.getByte(position + i) != prefix[i])
+         {
+            return false;
+         }
       }
+
+      return true;
    }
 
-   private static final class CharValue extends PropertyValue
+   /**
+    * @return the encoded size of a value of the given type, or -1 for the bytes and strings which
+    *         are preceded by their length
+    */
+   private static int getValueSize(final byte type)
    {
-      final char val;
-
-      public CharValue(final char val)
-      {
-         this.val = val;
+      switch (type)
+      {
+         case NULL:
+            return 0;
+         case BOOLEAN:
+            return DataConstants.SIZE_BOOLEAN;
+         case BYTE:
+            return DataConstants.SIZE_BYTE;
+         case CHAR:
+         case SHORT:
+            return DataConstants.SIZE_SHORT;
+         case INT:
+            return DataConstants.SIZE_INT;
+         case FLOAT:
+            return DataConstants.SIZE_FLOAT;
+         case LONG:
+            return DataConstants.SIZE_LONG;
+         case DOUBLE:
+            return DataConstants.SIZE_DOUBLE;
+         case BYTES:
+         case STRING:
+            return -1;
+         default:
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
       }
+   }
 
-      public CharValue(final HornetQBuffer buffer)
+   private static int valueSize(final byte type, final Object object)
+   {
+      if (type == BYTES)
       {
-         val = (char)buffer.readShort();
+         return DataConstants.SIZE_BYTE + DataConstants.SIZE_INT + ((byte[])object).length;
       }
-
-      @Override
-      public Object getValue()
+      else if (type == STRING)
       {
-         return val;
+         return DataConstants.SIZE_BYTE + SimpleString.sizeofString((SimpleString)object);
       }
-
-      @Override
-      public void write(final HornetQBuffer buffer)
+      else
       {
-         buffer.writeByte(DataConstants.CHAR);
-         buffer.writeShort((short)val);
+         return DataConstants.SIZE_BYTE + getValueSize(type);
       }
+   }
 
-      @Override
-      public int encodeSize()
-      {
-         return DataConstants.SIZE_BYTE + DataConstants.SIZE_CHAR;
-      }
+   private static Object readValue(final HornetQBuffer buffer)
+   {
+      byte type = buffer.readByte();
+
+      long primitive = readPrimitive(type, buffer);
+
+      return toValue(type, primitive, readObject(type, buffer));
    }
 
-   private static final class StringValue extends PropertyValue
+   private static long readPrimitive(final byte type, final HornetQBuffer buffer)
    {
-      final SimpleString val;
+      switch (type)
+      {
+         case NULL:
+         case BYTES:
+         case STRING:
+            return 0;
+         case BOOLEAN:
+            return buffer.readBoolean() ? 1 : 0;
+         case BYTE:
+            return buffer.readByte();
+         case SHORT:
+            return buffer.readShort();
+         case CHAR:
+            return (char)buffer.readShort();
+         case INT:
+         case FLOAT:
+            return buffer.readInt();
+         case LONG:
+         case DOUBLE:
+            return buffer.readLong();
+         default:
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
 
-      public StringValue(final SimpleString val)
+   private static Object readObject(final byte type, final HornetQBuffer buffer)
+   {
+      if (type == BYTES)
       {
-         this.val = val;
+         byte[] bytes = new byte[buffer.readInt()];
+         buffer.readBytes(bytes);
+         return bytes;
       }
-
-      public StringValue(final HornetQBuffer buffer)
+      else if (type == STRING)
       {
-         val = buffer.readSimpleString();
+         return buffer.readSimpleString();
       }
-
-      @Override
-      public Object getValue()
+      else
       {
-         return val;
+         return null;
       }
+   }
 
-      @Override
-      public void write(final HornetQBuffer buffer)
-      {
-         buffer.writeByte(DataConstants.STRING);
-         buffer.writeSimpleString(val);
+   private static void writeValue(final HornetQBuffer buffer, final byte type, final long primitive, final Object object)
+   {
+      buffer.writeByte(type);
+
+      switch (type)
+      {
+         case NULL:
+            break;
+         case BOOLEAN:
+            buffer.writeBoolean(primitive != 0);
+            break;
+         case BYTE:
+            buffer.writeByte((byte)primitive);
+            break;
+         case CHAR:
+         case SHORT:
+            buffer.writeShort((short)primitive);
+            break;
+         case INT:
+         case FLOAT:
+            buffer.writeInt((int)primitive);
+            break;
+         case LONG:
+         case DOUBLE:
+            buffer.writeLong(primitive);
+            break;
+         case BYTES:
+            byte[] bytes = (byte[])object;
+            buffer.writeInt(bytes.length);
+            buffer.writeBytes(bytes);
+            break;
+         default:
+            buffer.writeSimpleString((SimpleString)object);
       }
+   }
 
-      @Override
-      public int encodeSize()
-      {
-         return DataConstants.SIZE_BYTE + SimpleString.sizeofString(val);
+   private static Object toValue(final byte type, final long primitive, final Object object)
+   {
+      switch (type)
+      {
+         case BOOLEAN:
+            return primitive != 0;
+         case BYTE:
+            return (byte)primitive;
+         case SHORT:
+            return (short)primitive;
+         case CHAR:
+            return (char)primitive;
+         case INT:
+            return (int)primitive;
+         case LONG:
+            return primitive;
+         case FLOAT:
+            return Float.intBitsToFloat((int)primitive);
+         case DOUBLE:
+            return Double.longBitsToDouble(primitive);
+         default:
+            // null, bytes and strings
+            return object;
       }
    }
 }
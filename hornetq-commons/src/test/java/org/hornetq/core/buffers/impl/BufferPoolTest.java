@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.buffers.impl;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BufferPoolTest extends Assert
+{
+
+   @Test
+   public void testReleasedMemoryIsReused()
+   {
+      BufferPool pool = new BufferPool(false, 1024, 10);
+
+      HornetQBuffer buffer = pool.createBuffer(100);
+
+      assertTrue(BufferPool.isPooled(buffer));
+      assertEquals(128, buffer.capacity());
+
+      ChannelBuffer segment = ((PooledChannelBuffer)buffer.channelBuffer()).segment();
+
+      assertTrue(BufferPool.release(buffer));
+
+      HornetQBuffer other = pool.createBuffer(128);
+
+      assertSame(segment, ((PooledChannelBuffer)other.channelBuffer()).segment());
+      assertEquals(0, other.readerIndex());
+      assertEquals(0, other.writerIndex());
+
+      assertEquals(1, pool.getCreatedCount());
+      assertEquals(128, pool.getCreatedBytes());
+      assertEquals(1, pool.getReusedCount());
+      assertEquals(1, pool.getInUseCount());
+
+      BufferPool.release(other);
+
+      assertEquals(0, pool.getInUseCount());
+      assertEquals(1, pool.getFreeCount());
+   }
+
+   @Test
+   public void testSizeClasses()
+   {
+      BufferPool pool = new BufferPool(false, 1000, 10);
+
+      assertEquals(1024, pool.getMaxBufferSize());
+
+      assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.createBuffer(0).capacity());
+      assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.createBuffer(1).capacity());
+      assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.createBuffer(64).capacity());
+      assertEquals(128, pool.createBuffer(65).capacity());
+      assertEquals(1024, pool.createBuffer(1024).capacity());
+
+      HornetQBuffer large = pool.createBuffer(1025);
+
+      assertFalse(BufferPool.isPooled(large));
+      assertFalse(BufferPool.release(large));
+      assertEquals(1, pool.getUnpooledCount());
+      assertEquals(1025, pool.getUnpooledBytes());
+   }
+
+   @Test
+   public void testGrowPastTheSegment()
+   {
+      BufferPool pool = new BufferPool(true, 1024, 10);
+
+      HornetQBuffer buffer = pool.createBuffer(64);
+
+      ChannelBuffer segment = ((PooledChannelBuffer)buffer.channelBuffer()).segment();
+
+      for (int i = 0; i < 100; i++)
+      {
+         buffer.writeLong(i);
+      }
+
+      HornetQBuffer copy = buffer.copy();
+
+      for (int i = 0; i < 100; i++)
+      {
+         assertEquals(i, buffer.readLong());
+      }
+
+      assertFalse(BufferPool.isPooled(copy));
+
+      BufferPool.release(buffer);
+
+      HornetQBuffer other = pool.createBuffer(64);
+
+      assertSame(segment, ((PooledChannelBuffer)other.channelBuffer()).segment());
+      assertEquals(BufferPool.MIN_BUFFER_SIZE, other.capacity());
+
+      // The copy doesn't share the memory given back to the pool
+      other.writeLong(-1);
+      assertEquals(0, copy.getLong(0));
+   }
+
+   @Test
+   public void testReferenceCount()
+   {
+      BufferPool pool = new BufferPool(false, 1024, 10);
+
+      HornetQBuffer buffer = pool.createBuffer(10);
+
+      BufferPool.retain(buffer);
+
+      assertFalse(BufferPool.release(buffer));
+      assertEquals(1, pool.getInUseCount());
+
+      assertTrue(BufferPool.release(buffer));
+      assertEquals(0, pool.getInUseCount());
+
+      try
+      {
+         BufferPool.release(buffer);
+         fail("Released twice");
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+
+      try
+      {
+         BufferPool.retain(buffer);
+         fail("Retained after release");
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+
+      // Not pooled, nothing to do
+      HornetQBuffer unpooled = HornetQBuffers.dynamicBuffer(10);
+      BufferPool.retain(unpooled);
+      assertFalse(BufferPool.release(unpooled));
+   }
+
+   @Test
+   public void testMaxFreeBuffers()
+   {
+      BufferPool pool = new BufferPool(false, 1024, 2);
+
+      HornetQBuffer[] buffers = new HornetQBuffer[5];
+
+      for (int i = 0; i < buffers.length; i++)
+      {
+         buffers[i] = pool.createBuffer(100);
+      }
+
+      for (HornetQBuffer buffer : buffers)
+      {
+         BufferPool.release(buffer);
+      }
+
+      assertEquals(2, pool.getFreeCount());
+      assertEquals(5, pool.getReleasedCount());
+
+      pool.clear();
+
+      assertEquals(0, pool.getFreeCount());
+   }
+
+   @Test
+   public void testLeakDetection()
+   {
+      BufferPool pool = new BufferPool(false, 1024, 10);
+
+      HornetQBuffer untracked = pool.createBuffer(10);
+
+      pool.setLeakDetection(true);
+
+      assertTrue(pool.isLeakDetection());
+
+      HornetQBuffer released = pool.createBuffer(10);
+      HornetQBuffer leaked = pool.createBuffer(20);
+
+      BufferPool.release(released);
+      BufferPool.release(untracked);
+
+      assertEquals(1, pool.getLeaks().size());
+
+      boolean createdHere = false;
+
+      for (StackTraceElement element : pool.getLeaks().get(0).getStackTrace())
+      {
+         createdHere |= element.getMethodName().equals("testLeakDetection");
+      }
+
+      assertTrue(createdHere);
+
+      BufferPool.release(leaked);
+
+      assertTrue(pool.getLeaks().isEmpty());
+
+      pool.setLeakDetection(false);
+
+      assertFalse(pool.isLeakDetection());
+      assertTrue(pool.getLeaks().isEmpty());
+   }
+}
@@ -13,6 +13,8 @@
 
 package org.hornetq.api.core.client;
 
+import java.util.Collection;
+
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
@@ -88,6 +90,19 @@ public interface ClientProducer
     */
    void send(String address, Message message) throws HornetQException;
 
+   /**
+    * Sends messages to the address specified in {@link ClientSession#createProducer(String)} or
+    * similar methods, in as few packets as possible. <br>
+    * <br>
+    * The messages are confirmed together: this will block until the server confirms them if any of
+    * them would have blocked when sent with {@link #send(Message)}. If the session auto-commits its
+    * sends, the server routes the messages of each packet in a single transaction, so either all
+    * of them or none are sent. Large messages are sent on their own, in order with the others.
+    * @param messages the messages to send
+    * @throws HornetQException if an exception occurs while sending the messages
+    */
+   void send(Collection<? extends Message> messages) throws HornetQException;
+
    /**
     * Closes the ClientProducer. If already closed nothing is done.
     *
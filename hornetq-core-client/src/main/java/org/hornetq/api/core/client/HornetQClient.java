@@ -46,6 +46,10 @@ public final class HornetQClient
 
    public static final int DEFAULT_CONSUMER_MAX_RATE = -1;
 
+   public static final int DEFAULT_CONSUMER_MIN_WINDOW_SIZE = 64 * 1024;
+
+   public static final int DEFAULT_CONSUMER_MAX_WINDOW_SIZE = -1;
+
    public static final int DEFAULT_CONFIRMATION_WINDOW_SIZE = -1;
 
    public static final int DEFAULT_PRODUCER_WINDOW_SIZE = 64 * 1024;
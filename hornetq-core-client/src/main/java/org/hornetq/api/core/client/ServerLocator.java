@@ -225,6 +225,44 @@ public interface ServerLocator
     */
    void setConsumerWindowSize(int consumerWindowSize);
 
+   /**
+    * Returns the smallest window size an adaptive consumer window can shrink to.
+    *
+    * Value is in bytes, default value is {@link HornetQClient#DEFAULT_CONSUMER_MIN_WINDOW_SIZE}.
+    *
+    * @return the minimum window size of adaptive consumer windows
+    * @see #setConsumerMaxWindowSize(int)
+    */
+   int getConsumerMinWindowSize();
+
+   /**
+    * Sets the smallest window size an adaptive consumer window can shrink to.
+    *
+    * @param consumerMinWindowSize minimum window size (in bytes) of adaptive consumer windows
+    */
+   void setConsumerMinWindowSize(int consumerMinWindowSize);
+
+   /**
+    * Returns the largest window size an adaptive consumer window can grow to.
+    *
+    * Value is in bytes, default value is {@link HornetQClient#DEFAULT_CONSUMER_MAX_WINDOW_SIZE}.
+    *
+    * @return the maximum window size of adaptive consumer windows
+    */
+   int getConsumerMaxWindowSize();
+
+   /**
+    * Sets the largest window size an adaptive consumer window can grow to.
+    * <p>
+    * Value must be -1 (to use the fixed consumer window size) or greater than 0. In the latter case,
+    * the window of each consumer starts at the consumer window size and is then sized between the
+    * minimum and maximum window sizes from how fast the consumer goes through its messages and the
+    * round trip to the server. This has no effect on consumers with a window size of -1, 0 or 1.
+    *
+    * @param consumerMaxWindowSize maximum window size (in bytes) of adaptive consumer windows
+    */
+   void setConsumerMaxWindowSize(int consumerMaxWindowSize);
+
    /**
     * Returns the maximum rate of message consumption for consumers created through this factory.
     *
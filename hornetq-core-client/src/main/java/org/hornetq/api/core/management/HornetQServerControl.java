@@ -159,6 +159,36 @@ public interface HornetQServerControl
     */
    int getJournalCompactPercentage();
 
+   /**
+    * Returns the number of compactings of the message journal since the server was started.
+    */
+   long getJournalCompactCount();
+
+   /**
+    * Returns the time (in nanoseconds) the message journal was locked by the last compacting.
+    */
+   long getJournalLastCompactPauseTime();
+
+   /**
+    * Returns the longest time (in nanoseconds) the message journal was locked by a compacting.
+    */
+   long getJournalMaxCompactPauseTime();
+
+   /**
+    * Returns the time (in nanoseconds) the message journal was locked by all the compactings.
+    */
+   long getJournalTotalCompactPauseTime();
+
+   /**
+    * Returns how many times the message journal had to wait for the next file to be created or opened.
+    */
+   long getJournalFileWaitCount();
+
+   /**
+    * Returns the time (in nanoseconds) the message journal waited for the next file.
+    */
+   long getJournalFileWaitTime();
+
    /**
     * Returns whether this server is using persistence and store data.
     */
@@ -82,6 +82,16 @@ public interface QueueControl
     */
    long getMessagesAdded();
 
+   /**
+    * Returns the number of messages moved from this queue to other nodes of the cluster since it was created.
+    */
+   long getMessagesRedistributed();
+
+   /**
+    * Returns the number of messages per second currently moved from this queue to other nodes of the cluster.
+    */
+   double getRedistributionRate();
+
    /**
     * Returns the expiry address associated to this queue.
     */
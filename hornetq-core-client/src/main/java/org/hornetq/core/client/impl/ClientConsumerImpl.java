@@ -16,6 +16,7 @@ package org.hornetq.core.client.impl;
 import java.io.File;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
@@ -34,6 +35,7 @@ import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerCloseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerFlowCreditMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerWindowSizeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
@@ -65,6 +67,13 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
    private static final int NUM_PRIORITIES = 10;
 
+   private static final int INITIAL_PENDING_INDIVIDUAL_ACKS = 16;
+
+   /**
+    * First server version understanding {@link SessionConsumerWindowSizeMessage}
+    */
+   private static final int CONSUMER_WINDOW_SIZE_VERSION = 124;
+
    public static final SimpleString FORCED_DELIVERY_MESSAGE = new SimpleString("_hornetq.forced.delivery.seq");
 
    // Attributes
@@ -94,7 +103,12 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
    // Number of pending calls on flow control
    private final ReusableLatch pendingFlowControl = new ReusableLatch(0);
 
-   private final int clientWindowSize;
+   private volatile int clientWindowSize;
+
+   /**
+    * null unless the window of this consumer is adaptive
+    */
+   private final ConsumerWindowSizer windowSizer;
 
    private final int ackBatchSize;
 
@@ -130,6 +144,16 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
    private volatile ClientMessageInternal lastAckedMessage;
 
+   private int individualAckBytes;
+
+   /**
+    * IDs of the messages acknowledged individually which haven't been sent yet, guarded by the
+    * consumer as they are flushed by the session's threads too
+    */
+   private long[] pendingIndividualAcks = new long[INITIAL_PENDING_INDIVIDUAL_ACKS];
+
+   private int pendingIndividualAckCount;
+
    private boolean stopped = false;
 
    private long forceDeliveryCount;
@@ -149,6 +173,7 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
                              final SimpleString filterString,
                              final boolean browseOnly,
                              final int clientWindowSize,
+                             final ConsumerWindowSizer windowSizer,
                              final int ackBatchSize,
                              final TokenBucketLimiter rateLimiter,
                              final Executor executor,
@@ -175,6 +200,8 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
       this.clientWindowSize = clientWindowSize;
 
+      this.windowSizer = windowSizer;
+
       this.ackBatchSize = ackBatchSize;
 
       this.queueInfo = queueInfo;
@@ -213,6 +240,8 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
          startSlowConsumer();
       }
 
+      flushIndividualAcksIfIdle();
+
       receiverThread = Thread.currentThread();
 
       // To verify if deliveryForced was already call
@@ -414,6 +443,77 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
       return receive(0, true);
    }
 
+   public ClientMessage receiveBuffered() throws HornetQException
+   {
+      if (Thread.currentThread() != onMessageThread)
+      {
+         throw new IllegalStateException("Buffered messages can only be received by the message handler");
+      }
+
+      if (largeMessageReceived != null)
+      {
+         largeMessageReceived.discardBody();
+         largeMessageReceived = null;
+      }
+
+      if (rateLimiter != null)
+      {
+         rateLimiter.limit();
+      }
+
+      while (true)
+      {
+         ClientMessageInternal message;
+
+         synchronized (this)
+         {
+            if (closing || stopped)
+            {
+               return null;
+            }
+
+            message = buffer.poll();
+         }
+
+         if (message == null)
+         {
+            return null;
+         }
+
+         session.workDone();
+
+         if (message.containsProperty(ClientConsumerImpl.FORCED_DELIVERY_MESSAGE))
+         {
+            continue;
+         }
+
+         boolean expired = message.isExpired();
+
+         flowControlBeforeConsumption(message);
+
+         if (clientWindowSize == 0)
+         {
+            startSlowConsumer();
+         }
+
+         if (expired)
+         {
+            message.discardBody();
+
+            session.expire(id, message.getMessageID());
+
+            continue;
+         }
+
+         if (message.isLargeMessage())
+         {
+            largeMessageReceived = message;
+         }
+
+         return message;
+      }
+   }
+
    public MessageHandler getMessageHandler() throws HornetQException
    {
       checkClosed();
@@ -529,6 +629,13 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
       lastAckedMessage = null;
 
+      synchronized (this)
+      {
+         individualAckBytes = 0;
+
+         pendingIndividualAckCount = 0;
+      }
+
       creditsToSend = 0;
 
       failedOver = true;
@@ -584,6 +691,11 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
          return;
       }
 
+      if (windowSizer != null)
+      {
+         windowSizer.messageReceived(System.nanoTime());
+      }
+
       if (message.getMessage().getBooleanProperty(Message.HDR_LARGE_COMPRESSED))
       {
          handleCompressedMessage(message);
@@ -692,6 +804,11 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
          return;
       }
 
+      if (windowSizer != null)
+      {
+         windowSizer.messageReceived(System.nanoTime());
+      }
+
       // Flow control for the first packet, we will have others
       ClientLargeMessageInternal currentChunkMessage = (ClientLargeMessageInternal)packet.getLargeMessage();
 
@@ -843,11 +960,46 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
          flushAcks();
       }
 
-      session.individualAcknowledge(id, message.getMessageID());
+      if (session.isBlockOnAcknowledge())
+      {
+         session.individualAcknowledge(id, message.getMessageID());
+
+         return;
+      }
+
+      long[] messageIDs = null;
+
+      synchronized (this)
+      {
+         if (pendingIndividualAckCount == pendingIndividualAcks.length)
+         {
+            pendingIndividualAcks = Arrays.copyOf(pendingIndividualAcks, pendingIndividualAckCount * 2);
+         }
+
+         pendingIndividualAcks[pendingIndividualAckCount++] = message.getMessageID();
+
+         individualAckBytes += message.getEncodeSize();
+
+         if (individualAckBytes >= ackBatchSize)
+         {
+            messageIDs = takePendingIndividualAcks();
+         }
+      }
+
+      if (messageIDs != null)
+      {
+         session.individualAcknowledge(id, messageIDs);
+      }
+      else
+      {
+         flushIndividualAcksIfIdle();
+      }
    }
 
    public void flushAcks() throws HornetQException
    {
+      flushIndividualAcks();
+
       if (lastAckedMessage != null)
       {
          doAck(lastAckedMessage);
@@ -894,13 +1046,29 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
                   HornetQClientLogger.LOGGER.debug("Sending " + messageBytes + " from flow-control");
                }
 
-               final int credits = creditsToSend;
+               int credits = creditsToSend;
 
                creditsToSend = 0;
 
+               if (windowSizer != null)
+               {
+                  credits += resizeWindow(credits);
+               }
+
                if (credits > 0)
                {
                   sendCredits(credits);
+
+                  if (windowSizer != null)
+                  {
+                     windowSizer.creditsSent(buffer.isEmpty(), System.nanoTime());
+                  }
+               }
+               else
+               {
+                  // the window shrank by more than what was consumed, the rest is held back from the
+                  // next credits
+                  creditsToSend = credits;
                }
             }
          }
@@ -991,6 +1159,47 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
    /**
     * @param credits
     */
+   /**
+    * @return by how much the window changed, which is added to the credits sent back
+    */
+   private int resizeWindow(final int consumedBytes)
+   {
+      int previous = windowSizer.getWindowSize();
+
+      int window = windowSizer.update(consumedBytes, System.nanoTime());
+
+      if (window != previous)
+      {
+         clientWindowSize = window >> 1;
+
+         if (session.getVersion() >= CONSUMER_WINDOW_SIZE_VERSION)
+         {
+            sendWindowSize(window);
+         }
+      }
+
+      return window - previous;
+   }
+
+   private void sendWindowSize(final int windowSize)
+   {
+      pendingFlowControl.countUp();
+      flowControlExecutor.execute(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               channel.send(new SessionConsumerWindowSizeMessage(id, windowSize));
+            }
+            finally
+            {
+               pendingFlowControl.countDown();
+            }
+         }
+      });
+   }
+
    private void sendCredits(final int credits)
    {
       pendingFlowControl.countUp();
@@ -1143,6 +1352,13 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
                {
                   message.discardBody();
                }
+
+               if (largeMessageReceived != null)
+               {
+                  // the last large message the handler took with receiveBuffered
+                  largeMessageReceived.discardBody();
+                  largeMessageReceived = null;
+               }
             }
             else
             {
@@ -1154,6 +1370,8 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
             {
                startSlowConsumer();
             }
+
+            flushIndividualAcksIfIdle();
          }
       }
    }
@@ -1228,8 +1446,53 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
       buffer.clear();
    }
 
+   /**
+    * The individual acks are held back only while there are more buffered messages to go through,
+    * so they are sent as soon as the consumer runs out of work.
+    */
+   private void flushIndividualAcksIfIdle() throws HornetQException
+   {
+      if (buffer.isEmpty())
+      {
+         flushIndividualAcks();
+      }
+   }
+
+   private void flushIndividualAcks() throws HornetQException
+   {
+      long[] messageIDs = takePendingIndividualAcks();
+
+      // sent outside of the lock, the packet may block on the connection
+      if (messageIDs != null)
+      {
+         session.individualAcknowledge(id, messageIDs);
+      }
+   }
+
+   /**
+    * @return the individual acks to send, {@code null} if there are none
+    */
+   private synchronized long[] takePendingIndividualAcks()
+   {
+      if (pendingIndividualAckCount == 0)
+      {
+         return null;
+      }
+
+      long[] messageIDs = Arrays.copyOf(pendingIndividualAcks, pendingIndividualAckCount);
+
+      pendingIndividualAckCount = 0;
+
+      individualAckBytes = 0;
+
+      return messageIDs;
+   }
+
    private void doAck(final ClientMessageInternal message) throws HornetQException
    {
+      // anything acknowledged individually has to be gone from the server's delivering list first
+      flushIndividualAcks();
+
       ackBytes = 0;
 
       lastAckedMessage = null;
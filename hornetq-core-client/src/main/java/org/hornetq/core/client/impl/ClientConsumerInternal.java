@@ -62,6 +62,16 @@ public interface ClientConsumerInternal extends ClientConsumer
 
    int getBufferSize();
 
+   /**
+    * Takes the next message already buffered so that the message handler can process it within its
+    * current call, as when delivering a batch of messages in one transaction.
+    * <p>
+    * This can only be called from the thread running the message handler.
+    * @return the message, or {@code null} if there is no message buffered or the consumer is being
+    *         stopped or closed
+    */
+   ClientMessage receiveBuffered() throws HornetQException;
+
    void cleanUp() throws HornetQException;
 
    void acknowledge(ClientMessage message) throws HornetQException;
@@ -15,6 +15,9 @@ package org.hornetq.core.client.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -28,6 +31,7 @@ import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
@@ -48,6 +52,11 @@ public class ClientProducerImpl implements ClientProducerInternal
 {
    // Constants ------------------------------------------------------------------------------------
 
+   /**
+    * First server version understanding {@link SessionSendBatchMessage}
+    */
+   private static final int SEND_BATCH_VERSION = 124;
+
    // Attributes -----------------------------------------------------------------------------------
 
    private final SimpleString address;
@@ -145,6 +154,23 @@ public class ClientProducerImpl implements ClientProducerInternal
       send(SimpleString.toSimpleString(address), message);
    }
 
+   public void send(final Collection<? extends Message> messages) throws HornetQException
+   {
+      checkClosed();
+
+      if (session.getVersion() < SEND_BATCH_VERSION)
+      {
+         for (Message message : messages)
+         {
+            doSend(null, message);
+         }
+
+         return;
+      }
+
+      doSend(messages);
+   }
+
    public synchronized void close() throws HornetQException
    {
       if (closed)
@@ -218,79 +244,175 @@ public class ClientProducerImpl implements ClientProducerInternal
       {
          MessageInternal msgI = (MessageInternal)msg;
 
-         ClientProducerCredits theCredits;
+         boolean isLarge = isLargeMessage(msgI);
 
-         boolean isLarge;
+         ClientProducerCredits theCredits = prepareMessage(address, msgI, isLarge);
+
+         boolean sendBlocking = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
 
-         // a note about the second check on the writerIndexSize,
-         // If it's a server's message, it means this is being done through the bridge or some special consumer on the
-         // server's on which case we can't' convert the message into large at the servers
-         if (msgI.getBodyInputStream() != null || msgI.isLargeMessage() ||
-            msgI.getBodyBuffer().writerIndex() > minLargeMessageSize && ! msgI.isServerMessage())
+         session.workDone();
+
+         if (isLarge)
          {
-            isLarge = true;
+            largeMessageSend(sendBlocking, msgI, theCredits);
          }
          else
          {
-            isLarge = false;
+            sendRegularMessage(msgI, sendBlocking, theCredits);
          }
+      }
+      finally
+      {
+         session.endCall();
+      }
+   }
 
-         if (address != null)
+   private void doSend(final Collection<? extends Message> messages) throws HornetQException
+   {
+      session.startCall();
+
+      try
+      {
+         List<MessageInternal> batch = new ArrayList<MessageInternal>();
+
+         int batchSize = 0;
+
+         boolean batchBlocking = false;
+
+         for (Message msg : messages)
          {
-            if (!isLarge)
-            {
-               session.setAddress(msg, address);
-            }
-            else
+            MessageInternal msgI = (MessageInternal)msg;
+
+            boolean isLarge = isLargeMessage(msgI);
+
+            // a batch is no bigger than the chunks of a large message
+            if (!batch.isEmpty() && (isLarge || batchSize >= minLargeMessageSize))
             {
-               msg.setAddress(address);
+               sendBatch(batch, batchBlocking);
+
+               batch = new ArrayList<MessageInternal>();
+
+               batchSize = 0;
+
+               batchBlocking = false;
             }
 
-            // Anonymous
-            theCredits = session.getCredits(address, true);
-         }
-         else
-         {
-            if (!isLarge)
+            ClientProducerCredits theCredits = prepareMessage(null, msgI, isLarge);
+
+            boolean sendBlocking = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
+
+            session.workDone();
+
+            if (isLarge)
             {
-               session.setAddress(msg, this.address);
+               largeMessageSend(sendBlocking, msgI, theCredits);
             }
             else
             {
-               msg.setAddress(this.address);
-            }
+               int encodeSize = msgI.getEncodeSize();
 
-            theCredits = credits;
-         }
+               try
+               {
+                  theCredits.acquireCredits(encodeSize);
+               }
+               catch (InterruptedException e)
+               {
+                  throw new HornetQInterruptedException(e);
+               }
 
-         if (rateLimiter != null)
-         {
-            // Rate flow control
+               batch.add(msgI);
+
+               batchSize += encodeSize;
 
-            rateLimiter.limit();
+               batchBlocking |= sendBlocking;
+            }
          }
 
-         if (groupID != null)
+         if (!batch.isEmpty())
          {
-            msgI.putStringProperty(Message.HDR_GROUP_ID, groupID);
+            sendBatch(batch, batchBlocking);
          }
+      }
+      finally
+      {
+         session.endCall();
+      }
+   }
 
-         boolean sendBlocking = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
+   private boolean isLargeMessage(final MessageInternal msgI)
+   {
+      // a note about the second check on the writerIndexSize,
+      // If it's a server's message, it means this is being done through the bridge or some special consumer on the
+      // server's on which case we can't' convert the message into large at the servers
+      return msgI.getBodyInputStream() != null || msgI.isLargeMessage() ||
+             msgI.getBodyBuffer().writerIndex() > minLargeMessageSize && !msgI.isServerMessage();
+   }
 
-         session.workDone();
+   /**
+    * Sets the address and group of a message about to be sent, and waits for the rate limiter.
+    *
+    * @return the credits of the address the message is sent to
+    */
+   private ClientProducerCredits prepareMessage(final SimpleString address,
+                                                final MessageInternal msgI,
+                                                final boolean isLarge)
+   {
+      ClientProducerCredits theCredits;
 
-         if (isLarge)
+      if (address != null)
+      {
+         if (!isLarge)
          {
-            largeMessageSend(sendBlocking, msgI, theCredits);
+            session.setAddress(msgI, address);
          }
          else
          {
-            sendRegularMessage(msgI, sendBlocking, theCredits);
+            msgI.setAddress(address);
          }
+
+         // Anonymous
+         theCredits = session.getCredits(address, true);
       }
-      finally
+      else
       {
-         session.endCall();
+         if (!isLarge)
+         {
+            session.setAddress(msgI, this.address);
+         }
+         else
+         {
+            msgI.setAddress(this.address);
+         }
+
+         theCredits = credits;
+      }
+
+      if (rateLimiter != null)
+      {
+         // Rate flow control
+
+         rateLimiter.limit();
+      }
+
+      if (groupID != null)
+      {
+         msgI.putStringProperty(Message.HDR_GROUP_ID, groupID);
+      }
+
+      return theCredits;
+   }
+
+   private void sendBatch(final List<MessageInternal> batch, final boolean sendBlocking) throws HornetQException
+   {
+      SessionSendBatchMessage packet = new SessionSendBatchMessage(batch, sendBlocking);
+
+      if (sendBlocking)
+      {
+         channel.sendBlocking(packet, PacketImpl.NULL_RESPONSE);
+      }
+      else
+      {
+         channel.sendBatched(packet);
       }
    }
 
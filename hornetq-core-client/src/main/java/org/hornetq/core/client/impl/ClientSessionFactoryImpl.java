@@ -65,11 +65,11 @@ import org.hornetq.core.remoting.FailureListener;
 import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.core.version.Version;
 import org.hornetq.spi.core.protocol.ProtocolType;
-import org.hornetq.spi.core.remoting.BufferHandler;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.spi.core.remoting.Connector;
 import org.hornetq.spi.core.remoting.ConnectorFactory;
+import org.hornetq.spi.core.remoting.PacketHandler;
 import org.hornetq.utils.ClassloadingUtil;
 import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.ConfigurationHelper;
@@ -879,6 +879,8 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
                                                                      ackBatchSize,
                                                                      serverLocator.getConsumerWindowSize(),
                                                                      serverLocator.getConsumerMaxRate(),
+                                                                     serverLocator.getConsumerMinWindowSize(),
+                                                                     serverLocator.getConsumerMaxWindowSize(),
                                                                      serverLocator.getConfirmationWindowSize(),
                                                                      serverLocator.getProducerWindowSize(),
                                                                      serverLocator.getProducerMaxRate(),
@@ -1645,7 +1647,7 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
 
    }
 
-   private class DelegatingBufferHandler implements BufferHandler
+   private class DelegatingBufferHandler implements PacketHandler
    {
       public void bufferReceived(final Object connectionID, final HornetQBuffer buffer)
       {
@@ -1656,6 +1658,16 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
             theConn.bufferReceived(connectionID, buffer);
          }
       }
+
+      public void packetReceived(final Object connectionID, final Packet packet)
+      {
+         CoreRemotingConnection theConn = connection;
+
+         if (theConn != null && connectionID == theConn.getID())
+         {
+            theConn.packetReceived(connectionID, packet);
+         }
+      }
    }
 
    private final class DelegatingFailureListener implements FailureListener
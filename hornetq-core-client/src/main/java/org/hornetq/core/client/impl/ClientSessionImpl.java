@@ -63,12 +63,14 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionDeleteQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionExpireMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionForceConsumerDelivery;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeRangesMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionUniqueAddMetaDataMessage;
@@ -102,6 +104,11 @@ import org.hornetq.utils.XidCodecSupport;
  */
 final class ClientSessionImpl implements ClientSessionInternal, FailureListener, CommandConfirmationHandler
 {
+   /**
+    * First server version understanding {@link SessionIndividualAcknowledgeRangesMessage}
+    */
+   private static final int INDIVIDUAL_ACKNOWLEDGE_RANGES_VERSION = 124;
+
    private final Map<String, String> metadata = new HashMap<String, String>();
 
    private final ClientSessionFactoryInternal sessionFactory;
@@ -145,6 +152,10 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
    private final int consumerMaxRate;
 
+   private final int consumerMinWindowSize;
+
+   private final int consumerMaxWindowSize;
+
    private final int confirmationWindowSize;
 
    private final int producerMaxRate;
@@ -207,6 +218,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                             final int ackBatchSize,
                             final int consumerWindowSize,
                             final int consumerMaxRate,
+                            final int consumerMinWindowSize,
+                            final int consumerMaxWindowSize,
                             final int confirmationWindowSize,
                             final int producerWindowSize,
                             final int producerMaxRate,
@@ -259,6 +272,10 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
       this.consumerMaxRate = consumerMaxRate;
 
+      this.consumerMinWindowSize = consumerMinWindowSize;
+
+      this.consumerMaxWindowSize = consumerMaxWindowSize;
+
       this.confirmationWindowSize = confirmationWindowSize;
 
       this.producerMaxRate = producerMaxRate;
@@ -845,6 +862,47 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       }
    }
 
+   public void individualAcknowledge(final long consumerID, final long[] messageIDs) throws HornetQException
+   {
+      if (preAcknowledge || messageIDs.length == 0)
+      {
+         return;
+      }
+
+      if (messageIDs.length == 1 || version < INDIVIDUAL_ACKNOWLEDGE_RANGES_VERSION)
+      {
+         for (long messageID : messageIDs)
+         {
+            individualAcknowledge(consumerID, messageID);
+         }
+
+         return;
+      }
+
+      checkClosed();
+
+      SessionIndividualAcknowledgeRangesMessage message = new SessionIndividualAcknowledgeRangesMessage(consumerID,
+                                                                                                        messageIDs,
+                                                                                                        blockOnAcknowledge);
+
+      startCall();
+      try
+      {
+         if (blockOnAcknowledge)
+         {
+            channel.sendBlocking(message, PacketImpl.NULL_RESPONSE);
+         }
+         else
+         {
+            channel.sendBatched(message);
+         }
+      }
+      finally
+      {
+         endCall();
+      }
+   }
+
    public void expire(final long consumerID, final long messageID) throws HornetQException
    {
       checkClosed();
@@ -1328,6 +1386,15 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
          sendAckHandler.sendAcknowledged(ssm.getMessage());
       }
+      else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+      {
+         SessionSendBatchMessage ssbm = (SessionSendBatchMessage)packet;
+
+         for (Message message : ssbm.getMessages())
+         {
+            sendAckHandler.sendAcknowledged(message);
+         }
+      }
       else if (packet.getType() == PacketImpl.SESS_SEND_CONTINUATION)
       {
          SessionSendContinuationMessage scm = (SessionSendContinuationMessage) packet;
@@ -1868,13 +1935,29 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                                                                               browseOnly,
                                                                               true);
 
+      long start = System.nanoTime();
+
       SessionQueueQueryResponseMessage queueInfo = (SessionQueueQueryResponseMessage)channel.sendBlocking(request, PacketImpl.SESS_QUEUEQUERY_RESP);
 
       // The actual windows size that gets used is determined by the user since
       // could be overridden on the queue settings
       // The value we send is just a hint
 
-      int clientWindowSize = calcWindowSize(windowSize);
+      int initialCredits = windowSize;
+
+      ConsumerWindowSizer windowSizer = null;
+
+      // -1, 0 and 1 have their own meaning and are never adapted
+      if (consumerMaxWindowSize > 0 && windowSize > 1)
+      {
+         long now = System.nanoTime();
+
+         windowSizer = new ConsumerWindowSizer(windowSize, consumerMinWindowSize, consumerMaxWindowSize, now - start, now);
+
+         initialCredits = windowSizer.getWindowSize();
+      }
+
+      int clientWindowSize = calcWindowSize(initialCredits);
 
       ClientConsumerInternal consumer = new ClientConsumerImpl(this,
                                                                consumerID,
@@ -1882,6 +1965,7 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                                                                filterString,
                                                                browseOnly,
                                                                clientWindowSize,
+                                                               windowSizer,
                                                                ackBatchSize,
                                                                consumerMaxRate > 0 ? new TokenBucketLimiterImpl(maxRate,
                                                                                                                 false)
@@ -1900,7 +1984,7 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
       if (windowSize != 0)
       {
-         channel.send(new SessionConsumerFlowCreditMessage(consumerID, windowSize));
+         channel.send(new SessionConsumerFlowCreditMessage(consumerID, initialCredits));
       }
 
       return consumer;
@@ -37,6 +37,12 @@ public interface ClientSessionInternal extends ClientSession
 
    void individualAcknowledge(long consumerID, long messageID) throws HornetQException;
 
+   /**
+    * Acknowledges several messages of a consumer at once, sending a single packet when the server
+    * supports it.
+    */
+   void individualAcknowledge(long consumerID, long[] messageIDs) throws HornetQException;
+
    boolean isCacheLargeMessageClient();
 
    int getMinLargeMessageSize();
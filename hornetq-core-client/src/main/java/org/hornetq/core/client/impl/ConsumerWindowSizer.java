@@ -0,0 +1,129 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.client.impl;
+
+/**
+ * Sizes the flow control window of a consumer from the rate it consumes messages at and the round
+ * trip to the server.
+ * <p>
+ * Credits are given back every half window, and take a round trip before the messages they pay for
+ * arrive, so the window has to hold at least twice what the consumer goes through during a round
+ * trip for the consumer never to wait. The window is sized to twice that, bounded by the min and
+ * max window sizes and by halving or doubling at each update.
+ * <p>
+ * Round trips are sampled when credits are sent while the consumer has nothing buffered, as the
+ * time until the next message arrives, and smoothed the same way TCP does.
+ */
+public final class ConsumerWindowSizer
+{
+   private static final int HEADROOM = 4;
+
+   private static final int ROUND_TRIP_SMOOTHING = 8;
+
+   private final int minWindowSize;
+
+   private final int maxWindowSize;
+
+   private int windowSize;
+
+   private long roundTrip;
+
+   private long lastUpdate;
+
+   private volatile long creditsSentTime = -1;
+
+   /**
+    * @param roundTrip first estimate of the round trip to the server, in nanoseconds
+    */
+   public ConsumerWindowSizer(final int windowSize,
+                              final int minWindowSize,
+                              final int maxWindowSize,
+                              final long roundTrip,
+                              final long now)
+   {
+      // a window of 1 has its own meaning, and half a window must still be a valid credit
+      this.minWindowSize = Math.max(minWindowSize, 2);
+
+      this.maxWindowSize = Math.max(maxWindowSize, this.minWindowSize);
+
+      this.windowSize = Math.min(Math.max(windowSize, this.minWindowSize), this.maxWindowSize);
+
+      this.roundTrip = roundTrip;
+
+      lastUpdate = now;
+   }
+
+   public synchronized int getWindowSize()
+   {
+      return windowSize;
+   }
+
+   public synchronized long getRoundTrip()
+   {
+      return roundTrip;
+   }
+
+   /**
+    * @param starving whether the consumer has no message left to go through
+    */
+   public void creditsSent(final boolean starving, final long now)
+   {
+      if (starving)
+      {
+         creditsSentTime = now;
+      }
+   }
+
+   public void messageReceived(final long now)
+   {
+      if (creditsSentTime != -1)
+      {
+         synchronized (this)
+         {
+            if (creditsSentTime != -1)
+            {
+               roundTrip += (now - creditsSentTime - roundTrip) / ROUND_TRIP_SMOOTHING;
+
+               creditsSentTime = -1;
+            }
+         }
+      }
+   }
+
+   /**
+    * @param consumedBytes the bytes consumed since the last update
+    * @return the new window size
+    */
+   public synchronized int update(final int consumedBytes, final long now)
+   {
+      long elapsed = now - lastUpdate;
+
+      lastUpdate = now;
+
+      if (elapsed <= 0)
+      {
+         return windowSize;
+      }
+
+      double target = HEADROOM * roundTrip * (consumedBytes / (double)elapsed);
+
+      target = Math.max(target, windowSize / 2d);
+
+      target = Math.min(target, windowSize * 2d);
+
+      windowSize = (int)Math.min(Math.max(target, minWindowSize), maxWindowSize);
+
+      return windowSize;
+   }
+}
@@ -139,6 +139,10 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
    private int consumerMaxRate;
 
+   private int consumerMinWindowSize;
+
+   private int consumerMaxWindowSize;
+
    private int confirmationWindowSize;
 
    private int producerWindowSize;
@@ -433,6 +437,10 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
       consumerMaxRate = HornetQClient.DEFAULT_CONSUMER_MAX_RATE;
 
+      consumerMinWindowSize = HornetQClient.DEFAULT_CONSUMER_MIN_WINDOW_SIZE;
+
+      consumerMaxWindowSize = HornetQClient.DEFAULT_CONSUMER_MAX_WINDOW_SIZE;
+
       confirmationWindowSize = HornetQClient.DEFAULT_CONFIRMATION_WINDOW_SIZE;
 
       producerWindowSize = HornetQClient.DEFAULT_PRODUCER_WINDOW_SIZE;
@@ -992,6 +1000,28 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       this.consumerWindowSize = consumerWindowSize;
    }
 
+   public int getConsumerMinWindowSize()
+   {
+      return consumerMinWindowSize;
+   }
+
+   public void setConsumerMinWindowSize(final int consumerMinWindowSize)
+   {
+      checkWrite();
+      this.consumerMinWindowSize = consumerMinWindowSize;
+   }
+
+   public int getConsumerMaxWindowSize()
+   {
+      return consumerMaxWindowSize;
+   }
+
+   public void setConsumerMaxWindowSize(final int consumerMaxWindowSize)
+   {
+      checkWrite();
+      this.consumerMaxWindowSize = consumerMaxWindowSize;
+   }
+
    public int getConsumerMaxRate()
    {
       return consumerMaxRate;
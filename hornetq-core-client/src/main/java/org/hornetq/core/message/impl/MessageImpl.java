@@ -432,6 +432,18 @@ public abstract class MessageImpl implements MessageInternal
       decode();
    }
 
+   public synchronized void decodeFromSharedBuffer(final HornetQBuffer buffer)
+   {
+      this.buffer = buffer;
+
+      decode();
+
+      // The buffer belongs to the other message too
+      copied = false;
+
+      bufferUsed = true;
+   }
+
    public void bodyChanged()
    {
       // If the body is changed we must copy the buffer otherwise can affect the previously sent message
@@ -522,6 +534,23 @@ public abstract class MessageImpl implements MessageInternal
       }
    }
 
+   public synchronized HornetQBuffer getSharedBuffer()
+   {
+      HornetQBuffer buff = encodeToBuffer();
+
+      // From now on this message must copy the buffer before changing it
+      copied = false;
+
+      bufferUsed = true;
+
+      // The duplicate has its own indexes, as this message keeps moving the ones of the buffer
+      HornetQBuffer shared = buff.duplicate();
+
+      shared.setIndex(0, endOfMessagePosition);
+
+      return shared;
+   }
+
    public void setAddressTransient(final SimpleString address)
    {
       this.address = address;
@@ -35,6 +35,21 @@ public interface MessageInternal extends Message
 {
    void decodeFromBuffer(HornetQBuffer buffer);
 
+   /**
+    * Decodes the message from a buffer returned by {@link #getSharedBuffer()} on another message.
+    */
+   void decodeFromSharedBuffer(HornetQBuffer buffer);
+
+   /**
+    * Writes the message the way it is persisted, {@link #getEncodeSize()} bytes long.
+    */
+   void encode(HornetQBuffer buffer);
+
+   /**
+    * Reads a message written by {@link #encode(HornetQBuffer)}.
+    */
+   void decode(HornetQBuffer buffer);
+
    int getEndOfMessagePosition();
 
    int getEndOfBodyPosition();
@@ -49,6 +64,12 @@ public interface MessageInternal extends Message
 
    HornetQBuffer getEncodedBuffer();
 
+   /**
+    * Returns the encoded message without copying it, for another message to decode from. Both
+    * messages copy the buffer before changing it.
+    */
+   HornetQBuffer getSharedBuffer();
+
    int getHeadersAndPropertiesEncodeSize();
 
    HornetQBuffer getWholeBuffer();
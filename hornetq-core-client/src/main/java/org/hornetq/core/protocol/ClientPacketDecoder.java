@@ -70,4 +70,15 @@ public class ClientPacketDecoder extends PacketDecoder
       return packet;
    }
 
+   @Override
+   public Packet decode(final Packet packet)
+   {
+      if (packet.getType() == SESS_RECEIVE_MSG)
+      {
+         return ((SessionReceiveMessage)packet).copyPassedByReference(new ClientMessageImpl());
+      }
+
+      return super.decode(packet);
+   }
+
 }
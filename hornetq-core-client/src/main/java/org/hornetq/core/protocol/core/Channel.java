@@ -15,6 +15,7 @@ package org.hornetq.core.protocol.core;
 import java.util.concurrent.locks.Lock;
 
 import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveFileContinuationMessage;
 
 /**
  * A channel is a way of interleaving data meant for different endpoints over the same {@link org.hornetq.core.protocol.core.CoreRemotingConnection}.
@@ -64,6 +65,17 @@ public interface Channel
     */
    boolean sendAndFlush(Packet packet);
 
+   /**
+    * sends a large message continuation letting the transport write the body straight from its
+    * file. When that is not possible, because of the transport or because the packet may have to
+    * be resent after a failover, the body is read from the file and sent as with
+    * {@link #send(Packet)}.
+    *
+    * @param packet the packet to send
+    * @return false if the packet was rejected by an outgoing interceptor; true if the send was successful
+    */
+   boolean sendFileRegion(SessionReceiveFileContinuationMessage packet);
+
    /**
     * sends a packet on this channel and then blocks until a response is received or a timeout occurs.
     *
@@ -15,13 +15,14 @@ package org.hornetq.core.protocol.core;
 
 import org.hornetq.core.security.HornetQPrincipal;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.spi.core.remoting.PacketHandler;
 
 
 /**
  * Extension of RemotingConnection for the HornetQ core protocol
  * @author Tim Fox
  */
-public interface CoreRemotingConnection extends RemotingConnection
+public interface CoreRemotingConnection extends RemotingConnection, PacketHandler
 {
 
    /** The client protocol used  on the communication.
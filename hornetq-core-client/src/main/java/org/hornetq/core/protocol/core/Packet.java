@@ -84,4 +84,13 @@ public interface Packet
    boolean isRequiresConfirmations();
 
    boolean isAsyncExec();
+
+   /**
+    * Prepares the packet to be handed as it is to the other side of an in-VM connection, instead of
+    * being encoded. The other side turns it into the packet it would have decoded with
+    * {@link org.hornetq.core.protocol.core.impl.PacketDecoder#decode(Packet)}.
+    *
+    * @return false if the packet has to be encoded
+    */
+   boolean prepareToPassByReference();
 }
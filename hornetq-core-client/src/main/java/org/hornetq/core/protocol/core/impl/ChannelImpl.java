@@ -35,7 +35,9 @@ import org.hornetq.core.protocol.core.CoreRemotingConnection;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.PacketsConfirmedMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveFileContinuationMessage;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.spi.core.remoting.Connection;
 
 /**
  * A ChannelImpl
@@ -221,30 +223,17 @@ public final class ChannelImpl implements Channel
             HornetQClientLogger.LOGGER.trace("Sending packet nonblocking " + packet + " on channeID=" + id);
          }
 
-         HornetQBuffer buffer = packet.encode(connection);
+         Connection transportConnection = connection.getTransportConnection();
+
+         boolean byReference = passByReference(transportConnection, packet);
+
+         HornetQBuffer buffer = byReference ? null : packet.encode(connection);
 
          lock.lock();
 
          try
          {
-            if (failingOver)
-            {
-               // TODO - don't hardcode this timeout
-               try
-               {
-                  failoverCondition.await(10000, TimeUnit.MILLISECONDS);
-               }
-               catch (InterruptedException e)
-               {
-                  throw new HornetQInterruptedException(e);
-               }
-            }
-
-            // Sanity check
-            if (transferring)
-            {
-               throw new IllegalStateException("Cannot send a packet while channel is doing failover");
-            }
+            waitForFailover();
 
             if (resendCache != null && packet.isRequiresConfirmations())
             {
@@ -264,7 +253,73 @@ public final class ChannelImpl implements Channel
 
          // The actual send must be outside the lock, or with OIO transport, the write can block if the tcp
          // buffer is full, preventing any incoming buffers being handled and blocking failover
-         connection.getTransportConnection().write(buffer, flush, batch);
+         if (byReference)
+         {
+            transportConnection.writePacket(packet, connection, flush);
+         }
+         else
+         {
+            transportConnection.write(buffer, flush, batch);
+         }
+
+         return true;
+      }
+   }
+
+   public boolean sendFileRegion(final SessionReceiveFileContinuationMessage packet)
+   {
+      Connection transportConnection = connection.getTransportConnection();
+
+      if (resendCache != null && packet.isRequiresConfirmations() || !transportConnection.isFileRegionSupported())
+      {
+         try
+         {
+            return send(packet, false, false);
+         }
+         finally
+         {
+            // The body was read from the file when the packet was encoded
+            packet.getAfterWrite().run();
+         }
+      }
+
+      if (invokeInterceptors(packet, interceptors, connection) != null)
+      {
+         packet.getAfterWrite().run();
+
+         return false;
+      }
+
+      synchronized (sendLock)
+      {
+         packet.setChannelID(id);
+
+         if (isTrace)
+         {
+            HornetQClientLogger.LOGGER.trace("Sending file region " + packet + " on channeID=" + id);
+         }
+
+         HornetQBuffer header = packet.encodeHeader(connection);
+
+         HornetQBuffer trailer = packet.encodeTrailer(connection);
+
+         lock.lock();
+
+         try
+         {
+            waitForFailover();
+         }
+         finally
+         {
+            lock.unlock();
+         }
+
+         transportConnection.writeFileRegion(header,
+                                             packet.getFile(),
+                                             packet.getPosition(),
+                                             packet.getLength(),
+                                             trailer,
+                                             packet.getAfterWrite());
 
          return true;
       }
@@ -301,7 +356,11 @@ public final class ChannelImpl implements Channel
       {
          packet.setChannelID(id);
 
-         final HornetQBuffer buffer = packet.encode(connection);
+         final Connection transportConnection = connection.getTransportConnection();
+
+         final boolean byReference = passByReference(transportConnection, packet);
+
+         final HornetQBuffer buffer = byReference ? null : packet.encode(connection);
 
          lock.lock();
 
@@ -339,7 +398,14 @@ public final class ChannelImpl implements Channel
                resendCache.add(packet);
             }
 
-            connection.getTransportConnection().write(buffer, false, false);
+            if (byReference)
+            {
+               transportConnection.writePacket(packet, connection, false);
+            }
+            else
+            {
+               transportConnection.write(buffer, false, false);
+            }
 
             long toWait = connection.getBlockingCallTimeout();
 
@@ -633,6 +699,16 @@ public final class ChannelImpl implements Channel
       }
    }
 
+   /**
+    * Packets are passed by reference only when the channel doesn't keep them for resending, as the
+    * confirmations count the bytes of the encoded packets.
+    */
+   private boolean passByReference(final Connection transportConnection, final Packet packet)
+   {
+      return resendCache == null && transportConnection.isPacketPassingSupported() &&
+         packet.prepareToPassByReference();
+   }
+
    private void doWrite(final Packet packet)
    {
       final HornetQBuffer buffer = packet.encode(connection);
@@ -640,6 +716,29 @@ public final class ChannelImpl implements Channel
       connection.getTransportConnection().write(buffer, false, false);
    }
 
+   // This must be called with the lock held
+   private void waitForFailover()
+   {
+      if (failingOver)
+      {
+         // TODO - don't hardcode this timeout
+         try
+         {
+            failoverCondition.await(10000, TimeUnit.MILLISECONDS);
+         }
+         catch (InterruptedException e)
+         {
+            throw new HornetQInterruptedException(e);
+         }
+      }
+
+      // Sanity check
+      if (transferring)
+      {
+         throw new IllegalStateException("Cannot send a packet while channel is doing failover");
+      }
+   }
+
    private void clearUpTo(final int lastReceivedCommandID)
    {
       final int numberToClear = 1 + lastReceivedCommandID - firstStoredCommandID;
@@ -35,11 +35,13 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_BINDINGQUERY_R
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CLOSE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_COMMIT;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CONSUMER_CLOSE;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CONSUMER_WINDOW_SIZE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CREATECONSUMER;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_EXPIRED;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_FLOWTOKEN;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_FORCE_CONSUMER_DELIVERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_PRODUCER_CREDITS;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_PRODUCER_FAIL_CREDITS;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_PRODUCER_REQUEST_CREDITS;
@@ -47,6 +49,7 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_QUEUEQUERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_QUEUEQUERY_RESP;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_RECEIVE_CONTINUATION;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_ROLLBACK;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_BATCH;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_CONTINUATION;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_START;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_STOP;
@@ -98,17 +101,20 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionCloseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerCloseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerFlowCreditMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerWindowSizeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionCreateConsumerMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionDeleteQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionExpireMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionForceConsumerDelivery;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeRangesMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionProducerCreditsFailMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionProducerCreditsMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionUniqueAddMetaDataMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionXACommitMessage;
@@ -136,6 +142,17 @@ public abstract class PacketDecoder implements Serializable
 {
    public abstract Packet decode(final HornetQBuffer in);
 
+   /**
+    * Returns the packet to handle for a packet passed by reference by the other side of an in-VM
+    * connection.
+    *
+    * @see Packet#prepareToPassByReference()
+    */
+   public Packet decode(final Packet packet)
+   {
+      return packet;
+   }
+
    public Packet decode(byte packetType)
    {
       Packet packet;
@@ -337,6 +354,11 @@ public abstract class PacketDecoder implements Serializable
             packet = new SessionConsumerFlowCreditMessage();
             break;
          }
+         case SESS_CONSUMER_WINDOW_SIZE:
+         {
+            packet = new SessionConsumerWindowSizeMessage();
+            break;
+         }
          case SESS_CONSUMER_CLOSE:
          {
             packet = new SessionConsumerCloseMessage();
@@ -347,6 +369,11 @@ public abstract class PacketDecoder implements Serializable
             packet = new SessionIndividualAcknowledgeMessage();
             break;
          }
+         case SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES:
+         {
+            packet = new SessionIndividualAcknowledgeRangesMessage();
+            break;
+         }
          case NULL_RESPONSE:
          {
             packet = new NullResponseMessage();
@@ -362,6 +389,11 @@ public abstract class PacketDecoder implements Serializable
             packet = new SessionSendContinuationMessage();
             break;
          }
+         case SESS_SEND_BATCH:
+         {
+            packet = new SessionSendBatchMessage();
+            break;
+         }
          case SESS_PRODUCER_REQUEST_CREDITS:
          {
             packet = new SessionRequestProducerCreditsMessage();
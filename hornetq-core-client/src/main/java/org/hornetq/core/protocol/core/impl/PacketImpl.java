@@ -149,6 +149,12 @@ public class PacketImpl implements Packet
 
    public static final byte SESS_PRODUCER_FAIL_CREDITS = 82;
 
+   public static final byte SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES = 83;
+
+   public static final byte SESS_CONSUMER_WINDOW_SIZE = 84;
+
+   public static final byte SESS_SEND_BATCH = 85;
+
    // Replication
 
    public static final byte REPLICATION_RESPONSE = 90;
@@ -236,7 +242,7 @@ public class PacketImpl implements Packet
 
    public HornetQBuffer encode(final RemotingConnection connection)
    {
-      HornetQBuffer buffer = connection.createBuffer(PacketImpl.INITIAL_PACKET_SIZE);
+      HornetQBuffer buffer = connection.createBuffer(getExpectedEncodeSize());
 
       // The standard header fields
 
@@ -284,6 +290,14 @@ public class PacketImpl implements Packet
    {
    }
 
+   /**
+    * @return the size of the buffer to encode this packet into, the buffer grows if needed
+    */
+   protected int getExpectedEncodeSize()
+   {
+      return PacketImpl.INITIAL_PACKET_SIZE;
+   }
+
    public void decodeRest(final HornetQBuffer buffer)
    {
    }
@@ -298,6 +312,11 @@ public class PacketImpl implements Packet
       return false;
    }
 
+   public boolean prepareToPassByReference()
+   {
+      return false;
+   }
+
    @Override
    public String toString()
    {
@@ -482,53 +482,68 @@ public class RemotingConnectionImpl implements CoreRemotingConnection
    {
       try
       {
-         final Packet packet = packetDecoder.decode(buffer);
+         receivePacket(packetDecoder.decode(buffer));
+      }
+      catch (Exception e)
+      {
+         HornetQClientLogger.LOGGER.errorDecodingPacket(e);
+      }
+   }
 
-         if (isTrace)
-         {
-            HornetQClientLogger.LOGGER.trace("handling packet " + packet);
-         }
+   public void packetReceived(final Object connectionID, final Packet packet)
+   {
+      try
+      {
+         receivePacket(packetDecoder.decode(packet));
+      }
+      catch (Exception e)
+      {
+         HornetQClientLogger.LOGGER.errorDecodingPacket(e);
+      }
+   }
 
-         if (packet.isAsyncExec() && executor != null)
-         {
-            executing = true;
+   private void receivePacket(final Packet packet)
+   {
+      if (isTrace)
+      {
+         HornetQClientLogger.LOGGER.trace("handling packet " + packet);
+      }
+
+      if (packet.isAsyncExec() && executor != null)
+      {
+         executing = true;
 
-            executor.execute(new Runnable()
+         executor.execute(new Runnable()
+         {
+            public void run()
             {
-               public void run()
+               try
                {
-                  try
-                  {
-                     doBufferReceived(packet);
-                  }
-                  catch (Throwable t)
-                  {
-                     HornetQClientLogger.LOGGER.errorHandlingPacket(t, packet);
-                  }
-
-                  executing = false;
+                  doBufferReceived(packet);
+               }
+               catch (Throwable t)
+               {
+                  HornetQClientLogger.LOGGER.errorHandlingPacket(t, packet);
                }
-            });
-         }
-         else
-         {
-            //To prevent out of order execution if interleaving sync and async operations on same connection
-            while (executing)
-            {
-               Thread.yield();
-            }
-
-            // Pings must always be handled out of band so we can send pings back to the client quickly
-            // otherwise they would get in the queue with everything else which might give an intolerable delay
-            doBufferReceived(packet);
-         }
 
-         dataReceived = true;
+               executing = false;
+            }
+         });
       }
-      catch (Exception e)
+      else
       {
-         HornetQClientLogger.LOGGER.errorDecodingPacket(e);
+         //To prevent out of order execution if interleaving sync and async operations on same connection
+         while (executing)
+         {
+            Thread.yield();
+         }
+
+         // Pings must always be handled out of band so we can send pings back to the client quickly
+         // otherwise they would get in the queue with everything else which might give an intolerable delay
+         doBufferReceived(packet);
       }
+
+      dataReceived = true;
    }
 
    private void doBufferReceived(final Packet packet)
@@ -13,6 +13,7 @@
 
 package org.hornetq.core.protocol.core.impl.wireformat;
 
+import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.Message;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
@@ -28,6 +29,9 @@ public abstract class MessagePacket extends PacketImpl
 {
    protected MessageInternal message;
 
+   // the encoded message, when the packet is passed by reference
+   private HornetQBuffer sharedBuffer;
+
    public MessagePacket(final byte type, final MessageInternal message)
    {
       super(type);
@@ -40,4 +44,29 @@ public abstract class MessagePacket extends PacketImpl
       return message;
    }
 
+   /**
+    * Shares the encoded message with the packet the other side of an in-VM connection will make
+    * out of this one.
+    *
+    * @return the position right after the encoded message
+    */
+   protected int shareMessage()
+   {
+      sharedBuffer = message.getSharedBuffer();
+
+      return sharedBuffer.writerIndex();
+   }
+
+   /**
+    * Decodes the message of this packet from the message shared by a packet passed by reference.
+    */
+   protected void decodeSharedMessage(final MessagePacket packet)
+   {
+      channelID = packet.getChannelID();
+
+      size = packet.getPacketSize();
+
+      message.decodeFromSharedBuffer(packet.sharedBuffer);
+   }
+
 }
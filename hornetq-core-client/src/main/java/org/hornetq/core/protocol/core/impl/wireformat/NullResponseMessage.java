@@ -31,4 +31,10 @@ public class NullResponseMessage extends PacketImpl
    {
       return true;
    }
+
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
 }
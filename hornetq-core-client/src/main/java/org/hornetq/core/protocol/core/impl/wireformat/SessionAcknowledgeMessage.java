@@ -80,6 +80,12 @@ public class SessionAcknowledgeMessage extends PacketImpl
       requiresResponse = buffer.readBoolean();
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
    @Override
    public int hashCode()
    {
@@ -64,6 +64,12 @@ public class SessionConsumerFlowCreditMessage extends PacketImpl
       credits = buffer.readInt();
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
    @Override
    public String toString()
    {
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+
+/**
+ * Tells the server the window size a consumer with an adaptive window is now using.
+ * <p>
+ * This is only informational, the window itself is changed through the credits sent with
+ * {@link SessionConsumerFlowCreditMessage}.
+ */
+public class SessionConsumerWindowSizeMessage extends PacketImpl
+{
+   private long consumerID;
+
+   private int windowSize;
+
+   public SessionConsumerWindowSizeMessage(final long consumerID, final int windowSize)
+   {
+      super(SESS_CONSUMER_WINDOW_SIZE);
+      this.consumerID = consumerID;
+      this.windowSize = windowSize;
+   }
+
+   public SessionConsumerWindowSizeMessage()
+   {
+      super(SESS_CONSUMER_WINDOW_SIZE);
+   }
+
+   // Public --------------------------------------------------------
+
+   public long getConsumerID()
+   {
+      return consumerID;
+   }
+
+   public int getWindowSize()
+   {
+      return windowSize;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeLong(consumerID);
+      buffer.writeInt(windowSize);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      consumerID = buffer.readLong();
+      windowSize = buffer.readInt();
+   }
+
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", consumerID=" + consumerID + ", windowSize=" + windowSize + "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + (int)(consumerID ^ (consumerID >>> 32));
+      result = prime * result + windowSize;
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionConsumerWindowSizeMessage))
+         return false;
+      SessionConsumerWindowSizeMessage other = (SessionConsumerWindowSizeMessage)obj;
+      if (consumerID != other.consumerID)
+         return false;
+      if (windowSize != other.windowSize)
+         return false;
+      return true;
+   }
+}
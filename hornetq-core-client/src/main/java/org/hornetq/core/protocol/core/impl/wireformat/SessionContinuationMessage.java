@@ -83,6 +83,18 @@ public abstract class SessionContinuationMessage extends PacketImpl
       buffer.writeBoolean(continues);
    }
 
+   @Override
+   protected int getExpectedEncodeSize()
+   {
+      if (body == null)
+      {
+         return super.getExpectedEncodeSize();
+      }
+
+      // Room for the fields the subclasses add after the body
+      return SESSION_CONTINUATION_BASE_SIZE + body.length + DataConstants.SIZE_LONG + DataConstants.SIZE_BOOLEAN;
+   }
+
    @Override
    public void decodeRest(final HornetQBuffer buffer)
    {
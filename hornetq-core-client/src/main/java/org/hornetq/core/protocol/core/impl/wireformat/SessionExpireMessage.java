@@ -75,6 +75,12 @@ public class SessionExpireMessage extends PacketImpl
       messageID = buffer.readLong();
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
    @Override
    public int hashCode()
    {
@@ -88,6 +88,12 @@ public class SessionIndividualAcknowledgeMessage extends PacketImpl
       requiresResponse = buffer.readBoolean();
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
    @Override
    public int hashCode()
    {
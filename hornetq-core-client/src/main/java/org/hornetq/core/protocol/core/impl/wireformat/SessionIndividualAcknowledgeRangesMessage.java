@@ -0,0 +1,198 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.Arrays;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+
+/**
+ * Acknowledges a set of messages delivered to a consumer, like as many
+ * {@link SessionIndividualAcknowledgeMessage}s would.
+ * <p>
+ * The message IDs are sorted and written as ranges of consecutive IDs.
+ */
+public class SessionIndividualAcknowledgeRangesMessage extends PacketImpl
+{
+   // Constants -----------------------------------------------------
+
+   // Attributes ----------------------------------------------------
+
+   private long consumerID;
+
+   private long[] messageIDs;
+
+   private boolean requiresResponse;
+
+   // Static --------------------------------------------------------
+
+   // Constructors --------------------------------------------------
+
+   /**
+    * @param messageIDs the IDs to acknowledge, sorted in place
+    */
+   public SessionIndividualAcknowledgeRangesMessage(final long consumerID,
+                                                    final long[] messageIDs,
+                                                    final boolean requiresResponse)
+   {
+      super(SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES);
+
+      this.consumerID = consumerID;
+
+      Arrays.sort(messageIDs);
+
+      this.messageIDs = messageIDs;
+
+      this.requiresResponse = requiresResponse;
+   }
+
+   public SessionIndividualAcknowledgeRangesMessage()
+   {
+      super(SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES);
+   }
+
+   // Public --------------------------------------------------------
+
+   public long getConsumerID()
+   {
+      return consumerID;
+   }
+
+   public long[] getMessageIDs()
+   {
+      return messageIDs;
+   }
+
+   public boolean isRequiresResponse()
+   {
+      return requiresResponse;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeLong(consumerID);
+
+      buffer.writeInt(messageIDs.length);
+
+      buffer.writeInt(countRanges());
+
+      int i = 0;
+
+      while (i < messageIDs.length)
+      {
+         int end = endOfRange(i);
+
+         buffer.writeLong(messageIDs[i]);
+
+         buffer.writeInt(end - i);
+
+         i = end;
+      }
+
+      buffer.writeBoolean(requiresResponse);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      consumerID = buffer.readLong();
+
+      messageIDs = new long[buffer.readInt()];
+
+      int ranges = buffer.readInt();
+
+      int pos = 0;
+
+      for (int i = 0; i < ranges; i++)
+      {
+         long first = buffer.readLong();
+
+         int count = buffer.readInt();
+
+         for (int j = 0; j < count; j++)
+         {
+            messageIDs[pos++] = first + j;
+         }
+      }
+
+      requiresResponse = buffer.readBoolean();
+   }
+
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + (int)(consumerID ^ (consumerID >>> 32));
+      result = prime * result + Arrays.hashCode(messageIDs);
+      result = prime * result + (requiresResponse ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionIndividualAcknowledgeRangesMessage))
+         return false;
+      SessionIndividualAcknowledgeRangesMessage other = (SessionIndividualAcknowledgeRangesMessage)obj;
+      if (consumerID != other.consumerID)
+         return false;
+      if (!Arrays.equals(messageIDs, other.messageIDs))
+         return false;
+      if (requiresResponse != other.requiresResponse)
+         return false;
+      return true;
+   }
+
+   // Private -------------------------------------------------------
+
+   private int countRanges()
+   {
+      int ranges = 0;
+
+      for (int i = 0; i < messageIDs.length; i = endOfRange(i))
+      {
+         ranges++;
+      }
+
+      return ranges;
+   }
+
+   /**
+    * @return the index after the last ID following messageIDs[start] without gap
+    */
+   private int endOfRange(final int start)
+   {
+      int end = start + 1;
+
+      while (end < messageIDs.length && messageIDs[end] == messageIDs[end - 1] + 1)
+      {
+         end++;
+      }
+
+      return end;
+   }
+}
@@ -65,6 +65,12 @@ public class SessionProducerCreditsMessage extends PacketImpl
       address = buffer.readSimpleString();
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      return true;
+   }
+
    @Override
    public int hashCode()
    {
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * A {@link SessionReceiveContinuationMessage} whose body is a region of a file.
+ * <p>
+ * The transport may write the body straight from the file, between the buffers returned by
+ * {@link #encodeHeader(RemotingConnection)} and {@link #encodeTrailer(RemotingConnection)}. The
+ * bytes on the wire are the same as for a regular continuation, so the receiving side doesn't know
+ * the difference. When the packet is encoded as a whole the body is read from the file.
+ */
+public class SessionReceiveFileContinuationMessage extends SessionReceiveContinuationMessage
+{
+
+   // Attributes ----------------------------------------------------
+
+   private final FileChannel file;
+
+   private final long position;
+
+   private final int length;
+
+   private final Runnable afterWrite;
+
+   // Constructors --------------------------------------------------
+
+   /**
+    * @param afterWrite called once the file is no longer needed by this packet
+    */
+   public SessionReceiveFileContinuationMessage(final long consumerID,
+                                                final FileChannel file,
+                                                final long position,
+                                                final int length,
+                                                final boolean continues,
+                                                final Runnable afterWrite)
+   {
+      super(consumerID, null, continues, false);
+      this.file = file;
+      this.position = position;
+      this.length = length;
+      this.afterWrite = afterWrite;
+   }
+
+   // Public --------------------------------------------------------
+
+   public FileChannel getFile()
+   {
+      return file;
+   }
+
+   public long getPosition()
+   {
+      return position;
+   }
+
+   public int getLength()
+   {
+      return length;
+   }
+
+   public Runnable getAfterWrite()
+   {
+      return afterWrite;
+   }
+
+   /**
+    * @return the packet up to the length of the body
+    */
+   public HornetQBuffer encodeHeader(final RemotingConnection connection)
+   {
+      HornetQBuffer buffer = connection.createBuffer(PACKET_HEADERS_SIZE + DataConstants.SIZE_INT);
+
+      size = SESSION_RECEIVE_CONTINUATION_BASE_SIZE + length;
+
+      // The length doesn't include the actual length byte
+      buffer.writeInt(size - DataConstants.SIZE_INT);
+      buffer.writeByte(getType());
+      buffer.writeLong(getChannelID());
+      buffer.writeInt(length);
+
+      return buffer;
+   }
+
+   /**
+    * @return the packet after the body
+    */
+   public HornetQBuffer encodeTrailer(final RemotingConnection connection)
+   {
+      HornetQBuffer buffer = connection.createBuffer(DataConstants.SIZE_BOOLEAN + DataConstants.SIZE_LONG);
+
+      buffer.writeBoolean(continues);
+      buffer.writeLong(getConsumerID());
+
+      return buffer;
+   }
+
+   @Override
+   public byte[] getBody()
+   {
+      readBody();
+
+      return super.getBody();
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      readBody();
+
+      super.encodeRest(buffer);
+   }
+
+   @Override
+   protected int getExpectedEncodeSize()
+   {
+      return SESSION_RECEIVE_CONTINUATION_BASE_SIZE + length;
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", consumerID=" + getConsumerID() + ", position=" + position + ", length=" + length + "]";
+   }
+
+   // Private -------------------------------------------------------
+
+   private synchronized void readBody()
+   {
+      if (body != null)
+      {
+         return;
+      }
+
+      ByteBuffer bodyBuffer = ByteBuffer.allocate(length);
+
+      try
+      {
+         while (bodyBuffer.hasRemaining())
+         {
+            if (file.read(bodyBuffer, position + bodyBuffer.position()) < 0)
+            {
+               throw new EOFException("Reached the end of the file before " + length + " bytes at " + position);
+            }
+         }
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e.getMessage(), e);
+      }
+
+      body = bodyBuffer.array();
+   }
+}
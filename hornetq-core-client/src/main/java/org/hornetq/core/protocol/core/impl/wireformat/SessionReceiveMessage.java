@@ -58,6 +58,23 @@ public class SessionReceiveMessage extends MessagePacket
       return deliveryCount;
    }
 
+   /**
+    * @return the packet the other side would have decoded if this packet had been encoded, with
+    *         {@code message} sharing the body of the message delivered
+    */
+   public SessionReceiveMessage copyPassedByReference(final MessageInternal message)
+   {
+      SessionReceiveMessage copy = new SessionReceiveMessage(consumerID, message, deliveryCount);
+
+      copy.decodeSharedMessage(this);
+
+      // Position the buffer for reading, as decode does
+      message.getWholeBuffer().setIndex(PACKET_HEADERS_SIZE + DataConstants.SIZE_INT,
+                                        message.getEndOfBodyPosition());
+
+      return copy;
+   }
+
    @Override
    public HornetQBuffer encode(final RemotingConnection connection)
    {
@@ -87,6 +104,14 @@ public class SessionReceiveMessage extends MessagePacket
       return buffer;
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      size = shareMessage() + DataConstants.SIZE_LONG + DataConstants.SIZE_INT;
+
+      return true;
+   }
+
    @Override
    public void decode(final HornetQBuffer buffer)
    {
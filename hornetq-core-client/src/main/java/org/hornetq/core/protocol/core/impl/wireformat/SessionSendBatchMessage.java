@@ -0,0 +1,160 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * Sends several regular messages at once, like as many {@link SessionSendMessage}s would, and
+ * confirms them all with one response.
+ * <p>
+ * The messages are written the way they are persisted, one after the other. The receiving side
+ * keeps them encoded until they are decoded with {@link #decodeMessage(MessageInternal)}.
+ */
+public class SessionSendBatchMessage extends PacketImpl
+{
+   // Constants -----------------------------------------------------
+
+   // Attributes ----------------------------------------------------
+
+   private List<MessageInternal> messages;
+
+   private int messageCount;
+
+   private HornetQBuffer encodedMessages;
+
+   private boolean requiresResponse;
+
+   // Static --------------------------------------------------------
+
+   // Constructors --------------------------------------------------
+
+   public SessionSendBatchMessage(final List<MessageInternal> messages, final boolean requiresResponse)
+   {
+      super(SESS_SEND_BATCH);
+
+      this.messages = messages;
+
+      messageCount = messages.size();
+
+      this.requiresResponse = requiresResponse;
+   }
+
+   public SessionSendBatchMessage()
+   {
+      super(SESS_SEND_BATCH);
+   }
+
+   // Public --------------------------------------------------------
+
+   /**
+    * @return the messages sent, {@code null} on the receiving side
+    */
+   public List<MessageInternal> getMessages()
+   {
+      return messages;
+   }
+
+   public int getMessageCount()
+   {
+      return messageCount;
+   }
+
+   public boolean isRequiresResponse()
+   {
+      return requiresResponse;
+   }
+
+   /**
+    * Decodes the next message of the batch into {@code message}.
+    */
+   public void decodeMessage(final MessageInternal message)
+   {
+      message.decode(encodedMessages);
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeBoolean(requiresResponse);
+
+      buffer.writeInt(messageCount);
+
+      for (MessageInternal message : messages)
+      {
+         message.encode(buffer);
+      }
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      requiresResponse = buffer.readBoolean();
+
+      messageCount = buffer.readInt();
+
+      encodedMessages = buffer.readSlice(buffer.readableBytes());
+   }
+
+   @Override
+   protected int getExpectedEncodeSize()
+   {
+      int size = PACKET_HEADERS_SIZE + DataConstants.SIZE_BOOLEAN + DataConstants.SIZE_INT;
+
+      for (MessageInternal message : messages)
+      {
+         size += message.getEncodeSize();
+      }
+
+      return size;
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", messageCount=" + messageCount + ", requiresResponse=" + requiresResponse + "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + messageCount;
+      result = prime * result + (requiresResponse ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionSendBatchMessage))
+         return false;
+      SessionSendBatchMessage other = (SessionSendBatchMessage)obj;
+      if (messageCount != other.messageCount)
+         return false;
+      if (requiresResponse != other.requiresResponse)
+         return false;
+      return true;
+   }
+}
@@ -46,6 +46,19 @@ public class SessionSendMessage extends MessagePacket
       return requiresResponse;
    }
 
+   /**
+    * @return the packet the other side would have decoded if this packet had been encoded, with
+    *         {@code message} sharing the body of the message sent
+    */
+   public SessionSendMessage copyPassedByReference(final MessageInternal message)
+   {
+      SessionSendMessage copy = new SessionSendMessage(message, requiresResponse);
+
+      copy.decodeSharedMessage(this);
+
+      return copy;
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -80,6 +93,14 @@ public class SessionSendMessage extends MessagePacket
       return buffer;
    }
 
+   @Override
+   public boolean prepareToPassByReference()
+   {
+      size = shareMessage() + DataConstants.SIZE_BOOLEAN;
+
+      return true;
+   }
+
    @Override
    public void decodeRest(final HornetQBuffer buffer)
    {
@@ -13,6 +13,7 @@
 package org.hornetq.core.remoting.impl.netty;
 
 import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
 import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.core.client.HornetQClientMessageBundle;
@@ -69,7 +70,15 @@ class HornetQChannelHandler extends SimpleChannelHandler
    {
       ChannelBuffer buffer = (ChannelBuffer)e.getMessage();
 
-      handler.bufferReceived(e.getChannel().getId(), new ChannelBufferWrapper(buffer));
+      try
+      {
+         handler.bufferReceived(e.getChannel().getId(), new ChannelBufferWrapper(buffer));
+      }
+      finally
+      {
+         // The packet was decoded from a pooled frame only if it doesn't keep the buffer
+         BufferPool.release(buffer);
+      }
    }
 
    @Override
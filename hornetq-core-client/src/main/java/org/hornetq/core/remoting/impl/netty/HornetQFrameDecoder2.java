@@ -13,6 +13,8 @@
 
 package org.hornetq.core.remoting.impl.netty;
 
+import org.hornetq.core.buffers.impl.BufferPool;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.utils.DataConstants;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -31,8 +33,24 @@ import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
  */
 public class HornetQFrameDecoder2 extends SimpleChannelUpstreamHandler
 {
+   private final BufferPool bufferPool;
+
    private ChannelBuffer previousData = ChannelBuffers.EMPTY_BUFFER;
 
+   public HornetQFrameDecoder2()
+   {
+      this(null);
+   }
+
+   /**
+    * @param bufferPool where the frames of the packets that are fully copied when decoded are taken
+    *           from, may be {@code null}. {@link HornetQChannelHandler} releases them once handled.
+    */
+   public HornetQFrameDecoder2(final BufferPool bufferPool)
+   {
+      this.bufferPool = bufferPool;
+   }
+
    // SimpleChannelUpstreamHandler overrides
    // -------------------------------------------------------------------------------------
 
@@ -163,13 +181,49 @@ public class HornetQFrameDecoder2 extends SimpleChannelUpstreamHandler
          // Convert to dynamic buffer (this requires copy)
          // XXX Tune this value: Increasing the initial capacity of the dynamic
          // buffer might reduce the chance of additional memory copy.
-         ChannelBuffer frame = ChannelBuffers.dynamicBuffer(length + DataConstants.SIZE_INT);
+         ChannelBuffer frame;
+         if (bufferPool != null && readableBytes > DataConstants.SIZE_INT &&
+             isCopiedWhenDecoded(in.getByte(in.readerIndex() + DataConstants.SIZE_INT)))
+         {
+            frame = bufferPool.createChannelBuffer(length + DataConstants.SIZE_INT);
+         }
+         else
+         {
+            frame = ChannelBuffers.dynamicBuffer(length + DataConstants.SIZE_INT);
+         }
          frame.writeBytes(in, length + DataConstants.SIZE_INT);
          frame.skipBytes(DataConstants.SIZE_INT);
          Channels.fireMessageReceived(ctx, frame);
       }
    }
 
+   /**
+    * Messages keep the buffer they were decoded from, so only packets which copy everything they
+    * read can have their frame reused.
+    */
+   private static boolean isCopiedWhenDecoded(final byte packetType)
+   {
+      switch (packetType)
+      {
+         case PacketImpl.PING:
+         case PacketImpl.NULL_RESPONSE:
+         case PacketImpl.SESS_ACKNOWLEDGE:
+         case PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE:
+         case PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES:
+         case PacketImpl.SESS_EXPIRED:
+         case PacketImpl.SESS_COMMIT:
+         case PacketImpl.SESS_FLOWTOKEN:
+         case PacketImpl.SESS_CONSUMER_WINDOW_SIZE:
+         case PacketImpl.SESS_PRODUCER_REQUEST_CREDITS:
+         case PacketImpl.SESS_PRODUCER_CREDITS:
+         case PacketImpl.SESS_SEND_CONTINUATION:
+         case PacketImpl.SESS_RECEIVE_CONTINUATION:
+            return true;
+         default:
+            return false;
+      }
+   }
+
    private void append(final ChannelBuffer in, final int length)
    {
       // Need more data to decode the first message. This can happen when
@@ -13,17 +13,22 @@
 
 package org.hornetq.core.remoting.impl.netty;
 
+import java.nio.channels.FileChannel;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQInterruptedException;
 import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
 import org.hornetq.core.security.HornetQPrincipal;
 import org.hornetq.core.client.HornetQClientLogger;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.spi.core.remoting.ReadyListener;
@@ -31,6 +36,10 @@ import org.hornetq.utils.ConcurrentHashSet;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.DefaultFileRegion;
+import org.jboss.netty.handler.codec.http.HttpMessageEncoder;
 import org.jboss.netty.handler.ssl.SslHandler;
 
 /**
@@ -44,6 +53,10 @@ public class NettyConnection implements Connection
    // Constants -----------------------------------------------------
    private static final int BATCHING_BUFFER_SIZE = 8192;
 
+   private static final int MIN_ADAPTIVE_BATCH_SIZE = 1024;
+
+   private static final int MAX_ADAPTIVE_BATCH_SIZE = 64 * 1024;
+
    // Attributes ----------------------------------------------------
 
    private final Channel channel;
@@ -64,6 +77,26 @@ public class NettyConnection implements Connection
 
    private final Set<ReadyListener> readyListeners = new ConcurrentHashSet<ReadyListener>();
 
+   private final BufferPool bufferPool;
+
+   private final boolean adaptiveBatching;
+
+   // Only counted with adaptive batching
+   private final AtomicInteger pendingWrites = new AtomicInteger();
+
+   // The size at which the batch buffer is written, it only changes with adaptive batching
+   private volatile int batchSize = BATCHING_BUFFER_SIZE;
+
+   // The following are only changed while holding the write lock
+
+   private volatile int batchedPackets;
+
+   private volatile long flushCount;
+
+   private volatile long flushedBytes;
+
+   private volatile long flushedPackets;
+
    // Static --------------------------------------------------------
 
    // Constructors --------------------------------------------------
@@ -73,6 +106,35 @@ public class NettyConnection implements Connection
                            final ConnectionLifeCycleListener listener,
                            boolean batchingEnabled,
                            boolean directDeliver)
+   {
+      this(configuration, channel, listener, batchingEnabled, directDeliver, null);
+   }
+
+   /**
+    * @param bufferPool where the buffers written by this connection are taken from, may be
+    *           {@code null}
+    */
+   public NettyConnection(final Map<String, Object> configuration,
+                           final Channel channel,
+                           final ConnectionLifeCycleListener listener,
+                           boolean batchingEnabled,
+                           boolean directDeliver,
+                           final BufferPool bufferPool)
+   {
+      this(configuration, channel, listener, batchingEnabled, directDeliver, bufferPool, false);
+   }
+
+   /**
+    * @param adaptiveBatching if {@code true} the batched writes are held only while previous writes
+    *           are in progress, and the size at which they are written adapts to the load
+    */
+   public NettyConnection(final Map<String, Object> configuration,
+                           final Channel channel,
+                           final ConnectionLifeCycleListener listener,
+                           boolean batchingEnabled,
+                           boolean directDeliver,
+                           final BufferPool bufferPool,
+                           final boolean adaptiveBatching)
    {
       this.configuration = configuration;
 
@@ -83,6 +145,10 @@ public class NettyConnection implements Connection
       this.batchingEnabled = batchingEnabled;
 
       this.directDeliver = directDeliver;
+
+      this.bufferPool = bufferPool;
+
+      this.adaptiveBatching = batchingEnabled && adaptiveBatching;
    }
 
    // Public --------------------------------------------------------
@@ -126,11 +192,70 @@ public class NettyConnection implements Connection
       listener.connectionDestroyed(getID());
    }
 
+   /**
+    * The buffer is released once written if it comes from the pool, so it must not be used after
+    * being passed to one of the write methods.
+    */
    public HornetQBuffer createBuffer(final int size)
    {
+      if (bufferPool != null)
+      {
+         return bufferPool.createBuffer(size);
+      }
+
       return new ChannelBufferWrapper(ChannelBuffers.dynamicBuffer(size));
    }
 
+   public BufferPool getBufferPool()
+   {
+      return bufferPool;
+   }
+
+   public boolean isAdaptiveBatching()
+   {
+      return adaptiveBatching;
+   }
+
+   /**
+    * @return the size in bytes at which the batched packets are written
+    */
+   public int getBatchSize()
+   {
+      return batchSize;
+   }
+
+   /**
+    * @return the number of times packets were written to the channel
+    */
+   public long getFlushCount()
+   {
+      return flushCount;
+   }
+
+   public long getFlushedBytes()
+   {
+      return flushedBytes;
+   }
+
+   public long getFlushedPackets()
+   {
+      return flushedPackets;
+   }
+
+   public double getBytesPerFlush()
+   {
+      long flushes = flushCount;
+
+      return flushes == 0 ? 0 : (double)flushedBytes / flushes;
+   }
+
+   public double getPacketsPerFlush()
+   {
+      long flushes = flushCount;
+
+      return flushes == 0 ? 0 : (double)flushedPackets / flushes;
+   }
+
    public Object getID()
    {
       return channel.getId();
@@ -150,9 +275,9 @@ public class NettyConnection implements Connection
          {
             if (batchBuffer != null && batchBuffer.readable())
             {
-               channel.write(batchBuffer.channelBuffer());
+               writeBatchBuffer();
 
-               batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = createBatchBuffer();
             }
          }
          finally
@@ -180,56 +305,82 @@ public class NettyConnection implements Connection
             {
                // Lazily create batch buffer
 
-               batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = createBatchBuffer();
             }
 
+            int packets = 1;
+
             if (batchBuffer != null)
             {
                batchBuffer.writeBytes(buffer, 0, buffer.writerIndex());
 
-               if (batchBuffer.writerIndex() >= BATCHING_BUFFER_SIZE || !batched || flush)
+               BufferPool.release(buffer);
+
+               batchedPackets++;
+
+               boolean full = batchBuffer.writerIndex() >= batchSize;
+
+               // With adaptive batching there is no point waiting if nothing is being written
+               boolean drained = adaptiveBatching && pendingWrites.get() == 0;
+
+               if (full || drained || !batched || flush)
                {
                   // If the batch buffer is full or it's flush param or not batched then flush the buffer
 
+                  if (adaptiveBatching && batched && !flush)
+                  {
+                     adaptBatchSize(full, drained);
+                  }
+
                   buffer = batchBuffer;
+
+                  packets = batchedPackets;
+
+                  batchedPackets = 0;
                }
                else
                {
-                  return;
+                  buffer = null;
                }
 
-               if (!batched || flush)
+               if (buffer != null)
                {
-                  batchBuffer = null;
-               }
-               else
-               {
-                  // Create a new buffer
+                  if (!batched || flush)
+                  {
+                     batchBuffer = null;
+                  }
+                  else
+                  {
+                     // Create a new buffer
 
-                  batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+                     batchBuffer = createBatchBuffer();
+                  }
                }
             }
 
-            ChannelFuture future = channel.write(buffer.channelBuffer());
-
-            if (flush)
+            if (buffer != null)
             {
-               while (true)
+               ChannelFuture future = writeAndRelease(buffer, packets);
+
+               if (flush)
                {
-                  try
+                  while (true)
                   {
-                     boolean ok = future.await(10000);
+                     try
+                     {
+                        boolean ok = future.await(10000);
+
+                        if (!ok)
+                        {
+                           HornetQClientLogger.LOGGER.timeoutFlushingPacket();
+                        }
 
-                     if (!ok)
+                        break;
+                     }
+                     catch (InterruptedException e)
                      {
-                        HornetQClientLogger.LOGGER.timeoutFlushingPacket();
+                        throw new HornetQInterruptedException(e);
                      }
-
-                     break;
-                  }
-                  catch (InterruptedException e)
-                  {
-                     throw new HornetQInterruptedException(e);
                   }
                }
             }
@@ -243,6 +394,76 @@ public class NettyConnection implements Connection
       {
          throw new HornetQInterruptedException(e);
       }
+
+      if (adaptiveBatching)
+      {
+         // The writes in progress may have completed while the lock was held
+         flushIfDrained();
+      }
+   }
+
+   public boolean isFileRegionSupported()
+   {
+      // SSL and HTTP need to see the bytes they are sending
+      ChannelPipeline pipeline = channel.getPipeline();
+
+      return pipeline.get(SslHandler.class) == null && pipeline.get(HttpMessageEncoder.class) == null;
+   }
+
+   public void writeFileRegion(final HornetQBuffer header,
+                               final FileChannel file,
+                               final long position,
+                               final int count,
+                               final HornetQBuffer trailer,
+                               final Runnable afterWrite)
+   {
+      try
+      {
+         writeLock.acquire();
+
+         try
+         {
+            if (batchBuffer != null && batchBuffer.readable())
+            {
+               // What was batched before has to go first
+               writeBatchBuffer();
+
+               batchBuffer = null;
+            }
+
+            writeAndRelease(header, 0);
+
+            ChannelFuture future = channel.write(new DefaultFileRegion(file, position, count, false));
+
+            future.addListener(new ChannelFutureListener()
+            {
+               public void operationComplete(final ChannelFuture future)
+               {
+                  afterWrite.run();
+               }
+            });
+
+            writeAndRelease(trailer, 0);
+         }
+         finally
+         {
+            writeLock.release();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new HornetQInterruptedException(e);
+      }
+   }
+
+   public boolean isPacketPassingSupported()
+   {
+      return false;
+   }
+
+   public void writePacket(final Packet packet, final RemotingConnection connection, final boolean flush)
+   {
+      write(packet.encode(connection), flush, false);
    }
 
    public String getRemoteAddress()
@@ -308,6 +529,111 @@ public class NettyConnection implements Connection
 
    // Private -------------------------------------------------------
 
+   private HornetQBuffer createBatchBuffer()
+   {
+      if (bufferPool != null)
+      {
+         return bufferPool.createBuffer(batchSize);
+      }
+
+      return HornetQBuffers.dynamicBuffer(batchSize);
+   }
+
+   /**
+    * Grows the batches when they fill up while the channel is busy, and shrinks them when the
+    * channel drains before they are anywhere near full.
+    */
+   private void adaptBatchSize(final boolean full, final boolean drained)
+   {
+      if (full && (!drained || !channel.isWritable()))
+      {
+         batchSize = Math.min(batchSize * 2, MAX_ADAPTIVE_BATCH_SIZE);
+      }
+      else if (drained && batchBuffer.writerIndex() < batchSize / 4)
+      {
+         batchSize = Math.max(batchSize / 2, MIN_ADAPTIVE_BATCH_SIZE);
+      }
+   }
+
+   // This must be called with the write lock held
+   private void writeBatchBuffer()
+   {
+      int packets = batchedPackets;
+
+      batchedPackets = 0;
+
+      writeAndRelease(batchBuffer, packets);
+   }
+
+   /**
+    * Writes what was batched if no write is in progress any more. The write lock is not waited for,
+    * as whoever holds it checks again after releasing it.
+    */
+   private void flushIfDrained()
+   {
+      while (pendingWrites.get() == 0 && batchedPackets > 0 && writeLock.tryAcquire())
+      {
+         try
+         {
+            if (pendingWrites.get() == 0 && batchBuffer != null && batchBuffer.readable())
+            {
+               writeBatchBuffer();
+
+               batchBuffer = null;
+            }
+         }
+         finally
+         {
+            writeLock.release();
+         }
+      }
+   }
+
+   /**
+    * Netty reads the buffer until the write completes, so a pooled buffer is only released then.
+    *
+    * @param packets the number of packets in the buffer, for the statistics
+    */
+   private ChannelFuture writeAndRelease(final HornetQBuffer buffer, final int packets)
+   {
+      if (packets > 0)
+      {
+         flushCount++;
+         flushedBytes += buffer.readableBytes();
+         flushedPackets += packets;
+      }
+
+      final boolean pooled = BufferPool.isPooled(buffer);
+
+      if (adaptiveBatching)
+      {
+         pendingWrites.incrementAndGet();
+      }
+
+      ChannelFuture future = channel.write(buffer.channelBuffer());
+
+      if (pooled || adaptiveBatching)
+      {
+         future.addListener(new ChannelFutureListener()
+         {
+            public void operationComplete(final ChannelFuture future)
+            {
+               if (pooled)
+               {
+                  BufferPool.release(buffer);
+               }
+
+               if (adaptiveBatching && pendingWrites.decrementAndGet() == 0)
+               {
+                  flushIfDrained();
+               }
+            }
+         });
+      }
+
+      return future;
+   }
+
    // Inner classes -------------------------------------------------
 
 }
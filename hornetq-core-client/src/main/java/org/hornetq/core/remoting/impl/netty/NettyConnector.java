@@ -40,6 +40,7 @@ import javax.net.ssl.SSLException;
 import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.core.remoting.impl.ssl.SSLSupport;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.core.client.HornetQClientMessageBundle;
 import org.hornetq.core.server.HornetQComponent;
@@ -152,6 +153,10 @@ public class NettyConnector extends AbstractConnector
 
    private final long batchDelay;
 
+   private final boolean adaptiveBatching;
+
+   private final BufferPool bufferPool;
+
    private final ConcurrentMap<Object, Connection> connections = new ConcurrentHashMap<Object, Connection>();
 
    private final String servletPath;
@@ -308,6 +313,34 @@ public class NettyConnector extends AbstractConnector
          TransportConstants.DEFAULT_BATCH_DELAY,
          configuration);
 
+      adaptiveBatching = ConfigurationHelper.getBooleanProperty(TransportConstants.ADAPTIVE_BATCHING_PROP_NAME,
+         TransportConstants.DEFAULT_ADAPTIVE_BATCHING,
+         configuration);
+
+      // The HTTP handler holds on to the buffers written until it can send them in a request
+      if (!httpEnabled && ConfigurationHelper.getBooleanProperty(TransportConstants.USE_BUFFER_POOL_PROP_NAME,
+         TransportConstants.DEFAULT_USE_BUFFER_POOL,
+         configuration))
+      {
+         boolean direct = ConfigurationHelper.getBooleanProperty(TransportConstants.BUFFER_POOL_DIRECT_PROP_NAME,
+            TransportConstants.DEFAULT_BUFFER_POOL_DIRECT,
+            configuration);
+
+         int maxBufferSize = ConfigurationHelper.getIntProperty(TransportConstants.BUFFER_POOL_MAX_BUFFER_SIZE_PROP_NAME,
+            TransportConstants.DEFAULT_BUFFER_POOL_MAX_BUFFER_SIZE,
+            configuration);
+
+         int maxFreeBuffers = ConfigurationHelper.getIntProperty(TransportConstants.BUFFER_POOL_MAX_FREE_BUFFERS_PROP_NAME,
+            TransportConstants.DEFAULT_BUFFER_POOL_MAX_FREE_BUFFERS,
+            configuration);
+
+         bufferPool = new BufferPool(direct, maxBufferSize, maxFreeBuffers);
+      }
+      else
+      {
+         bufferPool = null;
+      }
+
       connectTimeoutMillis = ConfigurationHelper.getIntProperty(TransportConstants.NETTY_CONNECT_TIMEOUT,
          TransportConstants.DEFAULT_NETTY_CONNECT_TIMEOUT,
          configuration);
@@ -492,7 +525,7 @@ public class NettyConnector extends AbstractConnector
                handlers.add(new HttpHandler());
             }
 
-            handlers.add(new HornetQFrameDecoder2());
+            handlers.add(new HornetQFrameDecoder2(bufferPool));
 
             handlers.add(new HornetQClientChannelHandler(channelGroup, handler, new Listener()));
 
@@ -566,6 +599,15 @@ public class NettyConnector extends AbstractConnector
       return channelFactory != null;
    }
 
+   /**
+    * @return the pool of the buffers written and read by the connections, {@code null} if they are
+    *         not pooled
+    */
+   public BufferPool getBufferPool()
+   {
+      return bufferPool;
+   }
+
    public Connection createConnection()
    {
       if (channelFactory == null)
@@ -665,7 +707,13 @@ public class NettyConnector extends AbstractConnector
 
          // No acceptor on a client connection
          Listener connectionListener = new Listener();
-         NettyConnection conn = new NettyConnection(configuration, ch, connectionListener, !httpEnabled && batchDelay > 0, false);
+         NettyConnection conn = new NettyConnection(configuration,
+                                                   ch,
+                                                   connectionListener,
+                                                   !httpEnabled && (batchDelay > 0 || adaptiveBatching),
+                                                   false,
+                                                   bufferPool,
+                                                   adaptiveBatching);
          connectionListener.connectionCreated(null, conn, ProtocolType.CORE);
 
          return conn;
@@ -92,8 +92,18 @@ public class TransportConstants
 
    public static final String BATCH_DELAY = "batch-delay";
 
+   public static final String ADAPTIVE_BATCHING_PROP_NAME = "adaptive-batching";
+
    public static final String DIRECT_DELIVER = "direct-deliver";
 
+   public static final String USE_BUFFER_POOL_PROP_NAME = "use-buffer-pool";
+
+   public static final String BUFFER_POOL_DIRECT_PROP_NAME = "buffer-pool-direct";
+
+   public static final String BUFFER_POOL_MAX_BUFFER_SIZE_PROP_NAME = "buffer-pool-max-buffer-size";
+
+   public static final String BUFFER_POOL_MAX_FREE_BUFFERS_PROP_NAME = "buffer-pool-max-free-buffers";
+
    public static final String CLUSTER_CONNECTION = "cluster-connection";
 
    public static final String STOMP_CONSUMERS_CREDIT = "stomp-consumer-credits";
@@ -157,8 +167,18 @@ public class TransportConstants
 
    public static final long DEFAULT_BATCH_DELAY = 0;
 
+   public static final boolean DEFAULT_ADAPTIVE_BATCHING = false;
+
    public static final boolean DEFAULT_DIRECT_DELIVER = true;
 
+   public static final boolean DEFAULT_USE_BUFFER_POOL = true;
+
+   public static final boolean DEFAULT_BUFFER_POOL_DIRECT = false;
+
+   public static final int DEFAULT_BUFFER_POOL_MAX_BUFFER_SIZE = 128 * 1024;
+
+   public static final int DEFAULT_BUFFER_POOL_MAX_FREE_BUFFERS = 32;
+
    public static final Set<String> ALLOWABLE_CONNECTOR_KEYS;
 
    public static final Set<String> ALLOWABLE_ACCEPTOR_KEYS;
@@ -195,7 +215,12 @@ public class TransportConstants
       allowableAcceptorKeys.add(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME);
       allowableAcceptorKeys.add(TransportConstants.NIO_REMOTING_THREADS_PROPNAME);
       allowableAcceptorKeys.add(TransportConstants.BATCH_DELAY);
+      allowableAcceptorKeys.add(TransportConstants.ADAPTIVE_BATCHING_PROP_NAME);
       allowableAcceptorKeys.add(TransportConstants.DIRECT_DELIVER);
+      allowableAcceptorKeys.add(TransportConstants.USE_BUFFER_POOL_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.BUFFER_POOL_DIRECT_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.BUFFER_POOL_MAX_BUFFER_SIZE_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.BUFFER_POOL_MAX_FREE_BUFFERS_PROP_NAME);
       allowableAcceptorKeys.add(TransportConstants.CLUSTER_CONNECTION);
       allowableAcceptorKeys.add(TransportConstants.STOMP_CONSUMERS_CREDIT);
       allowableAcceptorKeys.add(TransportConstants.STOMP_MIN_LARGE_MESSAGE_SIZE);
@@ -229,6 +254,11 @@ public class TransportConstants
       allowableConnectorKeys.add(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME);
       allowableConnectorKeys.add(TransportConstants.NIO_REMOTING_THREADS_PROPNAME);
       allowableConnectorKeys.add(TransportConstants.BATCH_DELAY);
+      allowableConnectorKeys.add(TransportConstants.ADAPTIVE_BATCHING_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.USE_BUFFER_POOL_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.BUFFER_POOL_DIRECT_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.BUFFER_POOL_MAX_BUFFER_SIZE_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.BUFFER_POOL_MAX_FREE_BUFFERS_PROP_NAME);
       allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropMaskPassword());
       allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropPasswordCodec());
       allowableConnectorKeys.add(TransportConstants.NETTY_CONNECT_TIMEOUT);
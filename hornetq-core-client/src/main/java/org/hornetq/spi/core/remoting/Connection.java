@@ -13,9 +13,13 @@
 
 package org.hornetq.spi.core.remoting;
 
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.security.HornetQPrincipal;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 
 /**
  * The connection used by a channel to write data to.
@@ -55,6 +59,45 @@ public interface Connection
     */
    void write(HornetQBuffer buffer);
 
+   /**
+    * @return true if {@link #writeFileRegion(HornetQBuffer, FileChannel, long, int, HornetQBuffer, Runnable)}
+    *         can transfer the content of a file without copying it through the heap
+    */
+   boolean isFileRegionSupported();
+
+   /**
+    * writes the header, {@code count} bytes of the file starting at {@code position} and then the
+    * trailer, with nothing else written to the connection in between.
+    * <p>
+    * The file is read after this method returns, so it must be kept open until {@code afterWrite}
+    * is called.
+    *
+    * @param afterWrite called once the file content has been written, or failed to be written
+    */
+   void writeFileRegion(HornetQBuffer header,
+                        FileChannel file,
+                        long position,
+                        int count,
+                        HornetQBuffer trailer,
+                        Runnable afterWrite);
+
+   /**
+    * @return true if {@link #writePacket(Packet, RemotingConnection, boolean)} can hand packets to
+    *         the other side without encoding them
+    */
+   boolean isPacketPassingSupported();
+
+   /**
+    * writes a packet prepared with {@link Packet#prepareToPassByReference()}, in order with the
+    * buffers written to the connection. Connections which can't pass packets encode it and write
+    * the buffer instead.
+    *
+    * @param packet     the packet to hand over
+    * @param connection the connection to encode the packet for
+    * @param flush      whether to return only once the packet has been handled by the other side
+    */
+   void writePacket(Packet packet, RemotingConnection connection, boolean flush);
+
    /**
     * Closes the connection.
     */
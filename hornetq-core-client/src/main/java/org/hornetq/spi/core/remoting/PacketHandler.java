@@ -0,0 +1,32 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.spi.core.remoting;
+
+import org.hornetq.core.protocol.core.Packet;
+
+/**
+ * A {@link BufferHandler} that also handles the packets passed by reference by the other side of an
+ * in-VM connection, which are not encoded.
+ *
+ * @see Connection#writePacket(Packet, boolean)
+ */
+public interface PacketHandler extends BufferHandler
+{
+   /**
+    * called by the connection when a packet passed by reference is received.
+    *
+    * @param connectionID the connection the packet was received on
+    * @param packet       the packet as it was sent
+    */
+   void packetReceived(Object connectionID, Packet packet);
+}
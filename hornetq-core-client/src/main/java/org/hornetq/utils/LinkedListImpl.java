@@ -50,6 +50,20 @@ public class LinkedListImpl<E> implements LinkedList<E>
    }
 
    public void addHead(E e)
+   {
+      addHeadNode(e);
+   }
+
+   public void addTail(E e)
+   {
+      addTailNode(e);
+   }
+
+   /**
+    * Same as {@link #addHead(Object)}, returning the node holding the element so it can be
+    * removed later with {@link #removeNode(Node)}.
+    */
+   public Node<E> addHeadNode(E e)
    {
       Node<E> node = new Node<E>(e);
 
@@ -70,13 +84,19 @@ public class LinkedListImpl<E> implements LinkedList<E>
       }
 
       size++;
+
+      return node;
    }
 
-   public void addTail(E e)
+   /**
+    * Same as {@link #addTail(Object)}, returning the node holding the element so it can be
+    * removed later with {@link #removeNode(Node)}.
+    */
+   public Node<E> addTailNode(E e)
    {
       if (size == 0)
       {
-         addHead(e);
+         return addHeadNode(e);
       }
       else
       {
@@ -89,9 +109,31 @@ public class LinkedListImpl<E> implements LinkedList<E>
          tail = node;
 
          size++;
+
+         return node;
       }
    }
 
+   /**
+    * Removes the element held by the node without iterating the list, the iterators are moved
+    * on as if it had been removed through one of them.
+    * <p>
+    * The nodes are not tracked after {@link #clear()}, they must not be used anymore then.
+    *
+    * @return false if the element had already been removed from the list
+    */
+   public boolean removeNode(Node<E> node)
+   {
+      if (node.prev == null)
+      {
+         return false;
+      }
+
+      removeAfter(node.prev);
+
+      return true;
+   }
+
    public E poll()
    {
       Node<E> ret = head.next;
@@ -248,7 +290,10 @@ public class LinkedListImpl<E> implements LinkedList<E>
       throw new IllegalStateException("Cannot find iter to remove");
    }
 
-   private static final class Node<E>
+   /**
+    * The node holding an element, used as a handle to remove it later.
+    */
+   public static final class Node<E>
    {
       Node<E> next;
 
@@ -258,6 +303,19 @@ public class LinkedListImpl<E> implements LinkedList<E>
 
       int iterCount;
 
+      public E getValue()
+      {
+         return val;
+      }
+
+      /**
+       * @return true once the element has been removed from the list
+       */
+      public boolean isRemoved()
+      {
+         return prev == null;
+      }
+
       Node(E e)
       {
          val = e;
@@ -87,6 +87,55 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
       size++;
    }
 
+   /**
+    * Same as {@link #addHead(Object, int)}, returning the node holding the element so it can be
+    * removed later with {@link #removeNode(LinkedListImpl.Node, int)}.
+    */
+   public LinkedListImpl.Node<T> addHeadNode(final T t, final int priority)
+   {
+      checkHighest(priority);
+
+      size++;
+
+      return levels[priority].addHeadNode(t);
+   }
+
+   /**
+    * Same as {@link #addTail(Object, int)}, returning the node holding the element so it can be
+    * removed later with {@link #removeNode(LinkedListImpl.Node, int)}.
+    */
+   public LinkedListImpl.Node<T> addTailNode(final T t, final int priority)
+   {
+      checkHighest(priority);
+
+      size++;
+
+      return levels[priority].addTailNode(t);
+   }
+
+   /**
+    * Removes an element without iterating the list.
+    *
+    * @param priority the priority the element was added with
+    * @return false if the element had already been removed from the list
+    */
+   public boolean removeNode(final LinkedListImpl.Node<T> node, final int priority)
+   {
+      if (!levels[priority].removeNode(node))
+      {
+         return false;
+      }
+
+      while (highestPriority >= 0 && levels[highestPriority].size() == 0)
+      {
+         highestPriority--;
+      }
+
+      size--;
+
+      return true;
+   }
+
    public T poll()
    {
       T t = null;
@@ -225,6 +225,170 @@ public class TypedPropertiesTest
       Assert.assertEquals(props.getEncodeSize(), buffer.writerIndex());
    }
 
+   @Test
+   public void testGetDecodedPropertyWithoutDecodingAll() throws Exception
+   {
+      SimpleString other = RandomUtil.randomSimpleString();
+      byte[] bytes = RandomUtil.randomBytes();
+      props.putIntProperty(other, 1);
+      props.putBytesProperty(new SimpleString("bytes"), bytes);
+      props.putSimpleStringProperty(key, new SimpleString("value"));
+      props.putNullValue(new SimpleString("null"));
+
+      TypedProperties decodedProps = encodeDecode(props);
+
+      Assert.assertEquals(props.getEncodeSize(), decodedProps.getEncodeSize());
+      Assert.assertEquals(props.getMemoryOffset(), decodedProps.getMemoryOffset());
+      Assert.assertTrue(decodedProps.containsProperty(key));
+      Assert.assertTrue(decodedProps.containsProperty(new SimpleString("null")));
+      Assert.assertFalse(decodedProps.containsProperty(RandomUtil.randomSimpleString()));
+      Assert.assertEquals(new SimpleString("value"), decodedProps.getSimpleStringProperty(key));
+      Assert.assertEquals(1, decodedProps.getIntProperty(other).intValue());
+      CoreUnitTestCase.assertEqualsByteArrays(bytes, decodedProps.getBytesProperty(new SimpleString("bytes")));
+      Assert.assertNull(decodedProps.getProperty(new SimpleString("null")));
+      Assert.assertNull(decodedProps.getProperty(RandomUtil.randomSimpleString()));
+
+      // Encoded again as it was decoded
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+      HornetQBuffer reencoded = HornetQBuffers.dynamicBuffer(1024);
+      decodedProps.encode(reencoded);
+
+      Assert.assertEquals(buffer.writerIndex(), reencoded.writerIndex());
+      for (int i = 0; i < buffer.writerIndex(); i++)
+      {
+         Assert.assertEquals(buffer.getByte(i), reencoded.getByte(i));
+      }
+
+      TypedPropertiesTest.assertEqualsTypeProperties(props, decodedProps);
+   }
+
+   @Test
+   public void testChangeDecodedProperties() throws Exception
+   {
+      SimpleString other = RandomUtil.randomSimpleString();
+      props.putIntProperty(other, 1);
+      props.putLongProperty(key, 2);
+
+      TypedProperties decodedProps = encodeDecode(props);
+      TypedProperties copy = new TypedProperties(decodedProps);
+
+      decodedProps.putIntProperty(other, 10);
+      decodedProps.removeProperty(key);
+
+      Assert.assertEquals(10, decodedProps.getIntProperty(other).intValue());
+      Assert.assertFalse(decodedProps.containsProperty(key));
+      Assert.assertEquals(1, decodedProps.getPropertyNames().size());
+
+      TypedPropertiesTest.assertEqualsTypeProperties(decodedProps, encodeDecode(decodedProps));
+
+      // The copy still has the properties as they were decoded
+      Assert.assertEquals(1, copy.getIntProperty(other).intValue());
+      Assert.assertEquals(2, copy.getLongProperty(key).longValue());
+      TypedPropertiesTest.assertEqualsTypeProperties(props, copy);
+
+      TypedProperties merged = new TypedProperties();
+      merged.putTypedProperties(encodeDecode(props));
+      TypedPropertiesTest.assertEqualsTypeProperties(props, merged);
+   }
+
+   @Test
+   public void testInternalPropertiesOfDecodedProperties() throws Exception
+   {
+      props.putIntProperty(key, 1);
+
+      Assert.assertFalse(encodeDecode(props).hasInternalProperties());
+
+      props.putIntProperty(new SimpleString("_HQ_internal"), 2);
+
+      TypedProperties decodedProps = encodeDecode(props);
+
+      Assert.assertTrue(decodedProps.hasInternalProperties());
+      Assert.assertEquals(2, decodedProps.getIntProperty(new SimpleString("_HQ_internal")).intValue());
+   }
+
+   @Test
+   public void testManyProperties() throws Exception
+   {
+      final int numProperties = 100;
+
+      for (int i = 0; i < numProperties; i++)
+      {
+         props.putIntProperty(new SimpleString("key" + i), i);
+      }
+
+      for (int i = 0; i < numProperties; i += 2)
+      {
+         props.putLongProperty(new SimpleString("key" + i), -i);
+      }
+
+      for (int i = 0; i < numProperties; i += 3)
+      {
+         Assert.assertNotNull(props.removeProperty(new SimpleString("key" + i)));
+      }
+
+      Assert.assertEquals(numProperties - (numProperties + 2) / 3, props.getPropertyNames().size());
+
+      for (int i = 0; i < numProperties; i++)
+      {
+         SimpleString name = new SimpleString("key" + i);
+
+         if (i % 3 == 0)
+         {
+            Assert.assertFalse(props.containsProperty(name));
+         }
+         else if (i % 2 == 0)
+         {
+            Assert.assertEquals(Long.valueOf(-i), props.getProperty(name));
+         }
+         else
+         {
+            Assert.assertEquals(Integer.valueOf(i), props.getProperty(name));
+         }
+      }
+
+      TypedPropertiesTest.assertEqualsTypeProperties(props, encodeDecode(props));
+   }
+
+   @Test
+   public void testPrimitiveValues() throws Exception
+   {
+      props.putBooleanProperty(new SimpleString("boolean"), true);
+      props.putByteProperty(new SimpleString("byte"), Byte.MIN_VALUE);
+      props.putShortProperty(new SimpleString("short"), Short.MIN_VALUE);
+      props.putCharProperty(new SimpleString("char"), Character.MAX_VALUE);
+      props.putIntProperty(new SimpleString("int"), Integer.MIN_VALUE);
+      props.putLongProperty(new SimpleString("long"), Long.MIN_VALUE);
+      props.putFloatProperty(new SimpleString("float"), -1.5f);
+      props.putDoubleProperty(new SimpleString("double"), Double.NaN);
+
+      for (TypedProperties properties : new TypedProperties[] { props, encodeDecode(props), new TypedProperties(props) })
+      {
+         Assert.assertEquals(Boolean.TRUE, properties.getBooleanProperty(new SimpleString("boolean")));
+         Assert.assertEquals(Byte.MIN_VALUE, properties.getByteProperty(new SimpleString("byte")).byteValue());
+         Assert.assertEquals(Short.MIN_VALUE, properties.getShortProperty(new SimpleString("short")).shortValue());
+         Assert.assertEquals(Character.MAX_VALUE, properties.getCharProperty(new SimpleString("char")).charValue());
+         Assert.assertEquals(Integer.MIN_VALUE, properties.getIntProperty(new SimpleString("int")).intValue());
+         Assert.assertEquals(Long.MIN_VALUE, properties.getLongProperty(new SimpleString("long")).longValue());
+         Assert.assertEquals(-1.5f, properties.getFloatProperty(new SimpleString("float")), 0);
+         Assert.assertTrue(properties.getDoubleProperty(new SimpleString("double")).isNaN());
+      }
+   }
+
+   @Test
+   public void testEncodeSizeAfterClear() throws Exception
+   {
+      props.putSimpleStringProperty(key, RandomUtil.randomSimpleString());
+
+      props.clear();
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      Assert.assertEquals(props.getEncodeSize(), buffer.writerIndex());
+      Assert.assertTrue(encodeDecode(props).getPropertyNames().isEmpty());
+   }
+
    @Test
    public void testEncodeDecodeEmpty() throws Exception
    {
@@ -241,6 +405,19 @@ public class TypedPropertiesTest
       TypedPropertiesTest.assertEqualsTypeProperties(emptyProps, decodedProps);
    }
 
+   private static TypedProperties encodeDecode(final TypedProperties props)
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      Assert.assertEquals(buffer.writerIndex(), buffer.readerIndex());
+
+      return decodedProps;
+   }
+
    @Before
    public void setUp() throws Exception
    {
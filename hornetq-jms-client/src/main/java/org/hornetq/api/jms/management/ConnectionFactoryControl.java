@@ -133,6 +133,26 @@ public interface ConnectionFactoryControl
     */
    void setConsumerWindowSize(int consumerWindowSize);
 
+   /**
+    * @see ServerLocator#getConsumerMinWindowSize()
+    */
+   int getConsumerMinWindowSize();
+
+   /**
+    * @see ServerLocator#setConsumerMinWindowSize(int)
+    */
+   void setConsumerMinWindowSize(int consumerMinWindowSize);
+
+   /**
+    * @see ServerLocator#getConsumerMaxWindowSize()
+    */
+   int getConsumerMaxWindowSize();
+
+   /**
+    * @see ServerLocator#setConsumerMaxWindowSize(int)
+    */
+   void setConsumerMaxWindowSize(int consumerMaxWindowSize);
+
    /**
     * @see ServerLocator#getProducerMaxRate()
     */
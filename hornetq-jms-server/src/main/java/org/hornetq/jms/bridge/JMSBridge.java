@@ -98,6 +98,20 @@ public interface JMSBridge extends HornetQComponent
 
    void setAddMessageIDInHeader(boolean value);
 
+   int getLanes();
+
+   void setLanes(int lanes);
+
+   long getMessagesForwarded();
+
+   long getBatchesForwarded();
+
+   double getAverageBatchTime();
+
+   double getThroughput();
+
+   long getLag();
+
    boolean isPaused();
 
    boolean isFailed();
@@ -87,6 +87,20 @@ public interface JMSBridgeControl extends HornetQComponentControl
 
    void setAddMessageIDInHeader(boolean value);
 
+   int getLanes();
+
+   void setLanes(int lanes);
+
+   long getMessagesForwarded();
+
+   long getBatchesForwarded();
+
+   double getAverageBatchTime();
+
+   double getThroughput();
+
+   long getLag();
+
    boolean isPaused();
 
    boolean isFailed();
@@ -158,6 +158,41 @@ public class JMSBridgeControlImpl extends StandardMBean implements JMSBridgeCont
       return bridge.isPaused();
    }
 
+   public int getLanes()
+   {
+      return bridge.getLanes();
+   }
+
+   public void setLanes(final int lanes)
+   {
+      bridge.setLanes(lanes);
+   }
+
+   public long getMessagesForwarded()
+   {
+      return bridge.getMessagesForwarded();
+   }
+
+   public long getBatchesForwarded()
+   {
+      return bridge.getBatchesForwarded();
+   }
+
+   public double getAverageBatchTime()
+   {
+      return bridge.getAverageBatchTime();
+   }
+
+   public double getThroughput()
+   {
+      return bridge.getThroughput();
+   }
+
+   public long getLag()
+   {
+      return bridge.getLag();
+   }
+
    public void setAddMessageIDInHeader(final boolean value)
    {
       bridge.setAddMessageIDInHeader(value);
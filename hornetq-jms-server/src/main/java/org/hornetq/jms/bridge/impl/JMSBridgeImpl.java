@@ -25,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -112,7 +113,9 @@ public final class JMSBridgeImpl implements JMSBridge
    private final Object stoppingGuard = new Object();
    private boolean stopping = false;
 
-   private final LinkedList<Message> messages;
+   private int lanes = 1;
+
+   private ForwardingLane[] forwardingLanes;
 
    private ConnectionFactoryFactory sourceCff;
 
@@ -130,25 +133,21 @@ public final class JMSBridgeImpl implements JMSBridge
 
    private Destination targetDestination;
 
-   private Session sourceSession;
-
-   private Session targetSession;
-
-   private MessageConsumer sourceConsumer;
+   private ExecutorService executor;
 
-   private MessageProducer targetProducer;
+   private volatile boolean paused;
 
-   private BatchTimeChecker timeChecker;
+   private volatile boolean failed;
 
-   private ExecutorService executor;
+   private final AtomicLong messagesForwarded = new AtomicLong();
 
-   private long batchExpiryTime;
+   private final AtomicLong batchesForwarded = new AtomicLong();
 
-   private boolean paused;
+   private final AtomicLong batchesTime = new AtomicLong();
 
-   private Transaction tx;
+   private volatile long lag;
 
-   private boolean failed;
+   private volatile long startTime;
 
    private int forwardMode;
 
@@ -175,7 +174,6 @@ public final class JMSBridgeImpl implements JMSBridge
     */
    public JMSBridgeImpl()
    {
-      messages = new LinkedList<Message>();
       executor = createExecutor();
    }
 
@@ -338,6 +336,19 @@ public final class JMSBridgeImpl implements JMSBridge
 
       checkParams();
 
+      forwardingLanes = new ForwardingLane[lanes];
+
+      for (int i = 0; i < lanes; i++)
+      {
+         forwardingLanes[i] = new ForwardingLane(i);
+      }
+
+      messagesForwarded.set(0);
+      batchesForwarded.set(0);
+      batchesTime.set(0);
+      lag = 0;
+      startTime = System.currentTimeMillis();
+
       TransactionManager tm = getTm();
 
       // There may already be a JTA transaction associated to the thread
@@ -379,25 +390,27 @@ public final class JMSBridgeImpl implements JMSBridge
 
       started = true;
 
-      if (maxBatchTime != -1)
+      for (ForwardingLane lane : forwardingLanes)
       {
-         if (JMSBridgeImpl.trace)
+         if (maxBatchTime != -1)
          {
-            HornetQJMSServerLogger.LOGGER.trace("Starting time checker thread");
-         }
+            if (JMSBridgeImpl.trace)
+            {
+               HornetQJMSServerLogger.LOGGER.trace("Starting time checker thread");
+            }
 
-         timeChecker = new BatchTimeChecker();
+            lane.batchExpiryTime = System.currentTimeMillis() + maxBatchTime;
 
-         executor.execute(timeChecker);
-         batchExpiryTime = System.currentTimeMillis() + maxBatchTime;
+            executor.execute(new BatchTimeChecker(lane));
 
-         if (JMSBridgeImpl.trace)
-         {
-            HornetQJMSServerLogger.LOGGER.trace("Started time checker thread");
+            if (JMSBridgeImpl.trace)
+            {
+               HornetQJMSServerLogger.LOGGER.trace("Started time checker thread");
+            }
          }
-      }
 
-      executor.execute(new SourceReceiver());
+         executor.execute(new SourceReceiver(lane));
+      }
 
       if (JMSBridgeImpl.trace)
       {
@@ -463,29 +476,32 @@ public final class JMSBridgeImpl implements JMSBridge
             throw new Exception("fail to stop JMS Bridge");
          }
 
-         if (tx != null)
+         for (ForwardingLane lane : forwardingLanes == null ? new ForwardingLane[0] : forwardingLanes)
          {
-            // Terminate any transaction
-            if (JMSBridgeImpl.trace)
-            {
-               HornetQJMSServerLogger.LOGGER.trace("Rolling back remaining tx");
-            }
-
-            try
-            {
-               tx.rollback();
-            }
-            catch (Exception ignore)
+            if (lane.tx != null)
             {
+               // Terminate any transaction
                if (JMSBridgeImpl.trace)
                {
-                  HornetQJMSServerLogger.LOGGER.trace("Failed to rollback", ignore);
+                  HornetQJMSServerLogger.LOGGER.trace("Rolling back remaining tx");
                }
-            }
 
-            if (JMSBridgeImpl.trace)
-            {
-               HornetQJMSServerLogger.LOGGER.trace("Rolled back remaining tx");
+               try
+               {
+                  lane.tx.rollback();
+               }
+               catch (Exception ignore)
+               {
+                  if (JMSBridgeImpl.trace)
+                  {
+                     HornetQJMSServerLogger.LOGGER.trace("Failed to rollback", ignore);
+                  }
+               }
+
+               if (JMSBridgeImpl.trace)
+               {
+                  HornetQJMSServerLogger.LOGGER.trace("Rolled back remaining tx");
+               }
             }
          }
 
@@ -793,6 +809,51 @@ public final class JMSBridgeImpl implements JMSBridge
       addMessageIDInHeader = value;
    }
 
+   public synchronized int getLanes()
+   {
+      return lanes;
+   }
+
+   public synchronized void setLanes(final int lanes)
+   {
+      checkBridgeNotStarted();
+      JMSBridgeImpl.checkLanes(lanes);
+
+      this.lanes = lanes;
+
+      // The executor is sized for the lanes, a new one is created on start
+      executor.shutdown();
+   }
+
+   public long getMessagesForwarded()
+   {
+      return messagesForwarded.get();
+   }
+
+   public long getBatchesForwarded()
+   {
+      return batchesForwarded.get();
+   }
+
+   public double getAverageBatchTime()
+   {
+      long batches = batchesForwarded.get();
+
+      return batches == 0 ? 0 : (double)batchesTime.get() / batches;
+   }
+
+   public double getThroughput()
+   {
+      long elapsed = System.currentTimeMillis() - startTime;
+
+      return startTime == 0 || elapsed <= 0 ? 0 : messagesForwarded.get() * 1000d / elapsed;
+   }
+
+   public long getLag()
+   {
+      return lag;
+   }
+
    public synchronized boolean isPaused()
    {
       return paused;
@@ -843,6 +904,11 @@ public final class JMSBridgeImpl implements JMSBridge
       checkMaxBatchSize(maxBatchSize);
       checkValidValue(maxBatchTime, "maxBatchTime");
       checkNotNull(qualityOfServiceMode, "qualityOfServiceMode");
+      checkLanes(lanes);
+      if (lanes > 1 && subName != null)
+      {
+         throw new IllegalArgumentException("A durable subscription can only be forwarded by one lane");
+      }
    }
 
    /**
@@ -892,20 +958,28 @@ public final class JMSBridgeImpl implements JMSBridge
       }
    }
 
-   private void enlistResources(final Transaction tx) throws Exception
+   private static void checkLanes(final int lanes)
+   {
+      if (!(lanes >= 1))
+      {
+         throw new IllegalArgumentException("lanes must be >= 1");
+      }
+   }
+
+   private void enlistResources(final ForwardingLane lane) throws Exception
    {
       if (JMSBridgeImpl.trace)
       {
          HornetQJMSServerLogger.LOGGER.trace("Enlisting resources in tx");
       }
 
-      XAResource resSource = ((XASession)sourceSession).getXAResource();
+      XAResource resSource = ((XASession)lane.sourceSession).getXAResource();
 
-      tx.enlistResource(resSource);
+      lane.tx.enlistResource(resSource);
 
-      XAResource resDest = ((XASession)targetSession).getXAResource();
+      XAResource resDest = ((XASession)lane.targetSession).getXAResource();
 
-      tx.enlistResource(resDest);
+      lane.tx.enlistResource(resDest);
 
       if (JMSBridgeImpl.trace)
       {
@@ -913,18 +987,18 @@ public final class JMSBridgeImpl implements JMSBridge
       }
    }
 
-   private void delistResources(final Transaction tx)
+   private void delistResources(final ForwardingLane lane)
    {
       if (JMSBridgeImpl.trace)
       {
          HornetQJMSServerLogger.LOGGER.trace("Delisting resources from tx");
       }
 
-      XAResource resSource = ((XASession)sourceSession).getXAResource();
+      XAResource resSource = ((XASession)lane.sourceSession).getXAResource();
 
       try
       {
-         tx.delistResource(resSource, XAResource.TMSUCCESS);
+         lane.tx.delistResource(resSource, XAResource.TMSUCCESS);
       }
       catch (Exception e)
       {
@@ -934,11 +1008,11 @@ public final class JMSBridgeImpl implements JMSBridge
          }
       }
 
-      XAResource resDest = ((XASession)targetSession).getXAResource();
+      XAResource resDest = ((XASession)lane.targetSession).getXAResource();
 
       try
       {
-         tx.delistResource(resDest, XAResource.TMSUCCESS);
+         lane.tx.delistResource(resDest, XAResource.TMSUCCESS);
       }
       catch (Exception e)
       {
@@ -1142,137 +1216,178 @@ public final class JMSBridgeImpl implements JMSBridge
 
          targetDestination = targetDestinationFactory.createDestination();
 
+         if (forwardingLanes.length > 1 && sourceDestination instanceof Topic)
+         {
+            // Each lane would have its own subscription and forward every message once per lane
+            HornetQJMSServerLogger.LOGGER.bridgeTopicForwardedByOneLane(forwardingLanes.length);
+
+            forwardingLanes = new ForwardingLane[] { forwardingLanes[0] };
+         }
+
          if (forwardMode == JMSBridgeImpl.FORWARD_MODE_LOCALTX)
          {
-            // We simply use a single local transacted session for consuming and sending
+            // We simply use a single connection, and a local transacted session per lane for consuming and sending
 
             sourceConn = createConnection(sourceUsername, sourcePassword, sourceCff, clientID, false);
-            sourceSession = sourceConn.createSession(true, Session.SESSION_TRANSACTED);
+
+            targetConn = sourceConn;
          }
-         else
+         else if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
          {
-            if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
+            if (JMSBridgeImpl.trace)
             {
-               // Create an XASession for consuming from the source
-               if (JMSBridgeImpl.trace)
-               {
-                  HornetQJMSServerLogger.LOGGER.trace("Creating XA source session");
-               }
-
-               sourceConn = createConnection(sourceUsername, sourcePassword, sourceCff, clientID, true);
-               sourceSession = ((XAConnection)sourceConn).createXASession();
+               HornetQJMSServerLogger.LOGGER.trace("Creating XA source and dest connections");
             }
-            else
+
+            sourceConn = createConnection(sourceUsername, sourcePassword, sourceCff, clientID, true);
+
+            targetConn = createConnection(targetUsername, targetPassword, targetCff, null, true);
+         }
+         else
+         {
+            if (JMSBridgeImpl.trace)
             {
-               if (JMSBridgeImpl.trace)
-               {
-                  HornetQJMSServerLogger.LOGGER.trace("Creating non XA source session");
-               }
+               HornetQJMSServerLogger.LOGGER.trace("Creating non XA source and dest connections");
+            }
 
-               // Create a standard session for consuming from the source
+            sourceConn = createConnection(sourceUsername, sourcePassword, sourceCff, clientID, false);
 
-               // We use ack mode client ack
+            targetConn = createConnection(targetUsername, targetPassword, targetCff, null, false);
+         }
 
-               sourceConn = createConnection(sourceUsername, sourcePassword, sourceCff, clientID, false);
-               sourceSession = sourceConn.createSession(false, Session.CLIENT_ACKNOWLEDGE);
-            }
+         for (ForwardingLane lane : forwardingLanes)
+         {
+            setupLane(lane);
          }
 
-         if (subName == null)
+         return true;
+      }
+      catch (Exception e)
+      {
+         // We shouldn't log this, as it's expected when trying to connect when target/source is not available
+
+         // If this fails we should attempt to cleanup or we might end up in some weird state
+
+         // Adding a log.warn, so the use may see the cause of the failure and take actions
+         HornetQJMSServerLogger.LOGGER.bridgeConnectError(e);
+
+         cleanup();
+
+         return false;
+      }
+   }
+
+   /**
+    * Creates the sessions of a lane, each lane consumes from the source and sends to the target
+    * independently of the others.
+    */
+   private void setupLane(final ForwardingLane lane) throws Exception
+   {
+      if (forwardMode == JMSBridgeImpl.FORWARD_MODE_LOCALTX)
+      {
+         lane.sourceSession = sourceConn.createSession(true, Session.SESSION_TRANSACTED);
+      }
+      else
+      {
+         if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
          {
-            if (selector == null)
-            {
-               sourceConsumer = sourceSession.createConsumer(sourceDestination);
-            }
-            else
+            // Create an XASession for consuming from the source
+            if (JMSBridgeImpl.trace)
             {
-               sourceConsumer = sourceSession.createConsumer(sourceDestination, selector, false);
+               HornetQJMSServerLogger.LOGGER.trace("Creating XA source session");
             }
+
+            lane.sourceSession = ((XAConnection)sourceConn).createXASession();
          }
          else
          {
-            // Durable subscription
-            if (selector == null)
-            {
-               sourceConsumer = sourceSession.createDurableSubscriber((Topic)sourceDestination, subName);
-            }
-            else
+            if (JMSBridgeImpl.trace)
             {
-               sourceConsumer = sourceSession.createDurableSubscriber((Topic)sourceDestination, subName, selector, false);
+               HornetQJMSServerLogger.LOGGER.trace("Creating non XA source session");
             }
-         }
 
-         // Now the sending session
+            // Create a standard session for consuming from the source
 
-         if (forwardMode == JMSBridgeImpl.FORWARD_MODE_LOCALTX)
+            // We use ack mode client ack
+
+            lane.sourceSession = sourceConn.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+         }
+      }
+
+      if (subName == null)
+      {
+         if (selector == null)
          {
-             targetConn = sourceConn;
-             targetSession = sourceSession;
+            lane.sourceConsumer = lane.sourceSession.createConsumer(sourceDestination);
          }
          else
          {
-            if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
-            {
-               if (JMSBridgeImpl.trace)
-               {
-                  HornetQJMSServerLogger.LOGGER.trace("Creating XA dest session");
-               }
-
-               // Create an XA sesion for sending to the destination
+            lane.sourceConsumer = lane.sourceSession.createConsumer(sourceDestination, selector, false);
+         }
+      }
+      else
+      {
+         // Durable subscription
+         if (selector == null)
+         {
+            lane.sourceConsumer = lane.sourceSession.createDurableSubscriber((Topic)sourceDestination, subName);
+         }
+         else
+         {
+            lane.sourceConsumer = lane.sourceSession.createDurableSubscriber((Topic)sourceDestination, subName, selector, false);
+         }
+      }
 
-               targetConn = createConnection(targetUsername, targetPassword, targetCff, null, true);
+      // Now the sending session
 
-               targetSession = ((XAConnection)targetConn).createXASession();
-            }
-            else
+      if (forwardMode == JMSBridgeImpl.FORWARD_MODE_LOCALTX)
+      {
+         lane.targetSession = lane.sourceSession;
+      }
+      else
+      {
+         if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
+         {
+            if (JMSBridgeImpl.trace)
             {
-               if (JMSBridgeImpl.trace)
-               {
-                  HornetQJMSServerLogger.LOGGER.trace("Creating non XA dest session");
-               }
-
-               // Create a standard session for sending to the target
-
-               // If batch size > 1 we use a transacted session since is more efficient
-
-               boolean transacted = maxBatchSize > 1;
+               HornetQJMSServerLogger.LOGGER.trace("Creating XA dest session");
+            }
 
-               targetConn = createConnection(targetUsername, targetPassword, targetCff, null, false);
+            // Create an XA sesion for sending to the destination
 
-               targetSession = targetConn.createSession(transacted, transacted ? Session.SESSION_TRANSACTED
-                  : Session.AUTO_ACKNOWLEDGE);
-            }
+            lane.targetSession = ((XAConnection)targetConn).createXASession();
          }
-
-         if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
+         else
          {
             if (JMSBridgeImpl.trace)
             {
-               HornetQJMSServerLogger.LOGGER.trace("Starting JTA transaction");
+               HornetQJMSServerLogger.LOGGER.trace("Creating non XA dest session");
             }
 
-            tx = startTx();
+            // Create a standard session for sending to the target
 
-            enlistResources(tx);
-         }
+            // If batch size > 1 we use a transacted session since is more efficient
 
-         targetProducer = targetSession.createProducer(null);
+            boolean transacted = maxBatchSize > 1;
 
-         return true;
+            lane.targetSession = targetConn.createSession(transacted, transacted ? Session.SESSION_TRANSACTED
+               : Session.AUTO_ACKNOWLEDGE);
+         }
       }
-      catch (Exception e)
-      {
-         // We shouldn't log this, as it's expected when trying to connect when target/source is not available
-
-         // If this fails we should attempt to cleanup or we might end up in some weird state
 
-         // Adding a log.warn, so the use may see the cause of the failure and take actions
-         HornetQJMSServerLogger.LOGGER.bridgeConnectError(e);
+      if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
+      {
+         if (JMSBridgeImpl.trace)
+         {
+            HornetQJMSServerLogger.LOGGER.trace("Starting JTA transaction");
+         }
 
-         cleanup();
+         lane.tx = startTx();
 
-         return false;
+         enlistResources(lane);
       }
+
+      lane.targetProducer = lane.targetSession.createProducer(null);
    }
 
    private void cleanup()
@@ -1290,30 +1405,35 @@ public final class JMSBridgeImpl implements JMSBridge
          }
       }
 
-      if (tx != null)
+      for (ForwardingLane lane : forwardingLanes)
       {
-         try
-         {
-            delistResources(tx);
-         }
-         catch (Throwable ignore)
+         if (lane.tx != null)
          {
-            if (JMSBridgeImpl.trace)
+            try
             {
-               HornetQJMSServerLogger.LOGGER.trace("Failed to delist resources", ignore);
+               delistResources(lane);
             }
-         }
-         try
-         {
-            // Terminate the tx
-            tx.rollback();
-         }
-         catch (Throwable ignore)
-         {
-            if (JMSBridgeImpl.trace)
+            catch (Throwable ignore)
             {
-               HornetQJMSServerLogger.LOGGER.trace("Failed to rollback", ignore);
+               if (JMSBridgeImpl.trace)
+               {
+                  HornetQJMSServerLogger.LOGGER.trace("Failed to delist resources", ignore);
+               }
+            }
+            try
+            {
+               // Terminate the tx
+               lane.tx.rollback();
+            }
+            catch (Throwable ignore)
+            {
+               if (JMSBridgeImpl.trace)
+               {
+                  HornetQJMSServerLogger.LOGGER.trace("Failed to rollback", ignore);
+               }
             }
+
+            lane.tx = null;
          }
       }
 
@@ -1394,11 +1514,11 @@ public final class JMSBridgeImpl implements JMSBridge
       return false;
    }
 
-   private void sendBatch()
+   private void sendBatch(final ForwardingLane lane)
    {
       if (JMSBridgeImpl.trace)
       {
-         HornetQJMSServerLogger.LOGGER.trace("Sending batch of " + messages.size() + " messages");
+         HornetQJMSServerLogger.LOGGER.trace("Sending batch of " + lane.messages.size() + " messages on lane " + lane.id);
       }
 
       if (paused)
@@ -1414,19 +1534,19 @@ public final class JMSBridgeImpl implements JMSBridge
 
       if (forwardMode == JMSBridgeImpl.FORWARD_MODE_LOCALTX)
       {
-         sendBatchLocalTx();
+         sendBatchLocalTx(lane);
       }
       else if (forwardMode == JMSBridgeImpl.FORWARD_MODE_XA)
       {
-         sendBatchXA();
+         sendBatchXA(lane);
       }
       else
       {
-         sendBatchNonTransacted();
+         sendBatchNonTransacted(lane);
       }
    }
 
-   private void sendBatchNonTransacted()
+   private void sendBatchNonTransacted(final ForwardingLane lane)
    {
       try
       {
@@ -1439,7 +1559,7 @@ public final class JMSBridgeImpl implements JMSBridge
                HornetQJMSServerLogger.LOGGER.trace("Client acking source session");
             }
 
-            messages.getLast().acknowledge();
+            lane.messages.getLast().acknowledge();
 
             if (JMSBridgeImpl.trace)
             {
@@ -1447,7 +1567,7 @@ public final class JMSBridgeImpl implements JMSBridge
             }
          }
 
-         sendMessages();
+         sendMessages(lane);
 
          if (maxBatchSize > 1)
          {
@@ -1458,7 +1578,7 @@ public final class JMSBridgeImpl implements JMSBridge
                HornetQJMSServerLogger.LOGGER.trace("Committing target session");
             }
 
-            targetSession.commit();
+            lane.targetSession.commit();
 
             if (JMSBridgeImpl.trace)
             {
@@ -1478,7 +1598,7 @@ public final class JMSBridgeImpl implements JMSBridge
                HornetQJMSServerLogger.LOGGER.trace("Client acking source session");
             }
 
-            messages.getLast().acknowledge();
+            lane.messages.getLast().acknowledge();
 
             if (JMSBridgeImpl.trace)
             {
@@ -1486,8 +1606,7 @@ public final class JMSBridgeImpl implements JMSBridge
             }
          }
 
-         // Clear the messages
-         messages.clear();
+         batchForwarded(lane);
       }
       catch (Exception e)
       {
@@ -1497,34 +1616,33 @@ public final class JMSBridgeImpl implements JMSBridge
       }
    }
 
-   private void sendBatchXA()
+   private void sendBatchXA(final ForwardingLane lane)
    {
       try
       {
-         sendMessages();
+         sendMessages(lane);
 
          // Commit the JTA transaction and start another
 
-         delistResources(tx);
+         delistResources(lane);
 
          if (JMSBridgeImpl.trace)
          {
             HornetQJMSServerLogger.LOGGER.trace("Committing JTA transaction");
          }
 
-         tx.commit();
+         lane.tx.commit();
 
          if (JMSBridgeImpl.trace)
          {
             HornetQJMSServerLogger.LOGGER.trace("Committed JTA transaction");
          }
 
-         tx = startTx();
+         lane.tx = startTx();
 
-         enlistResources(tx);
+         enlistResources(lane);
 
-         // Clear the messages
-         messages.clear();
+         batchForwarded(lane);
       }
       catch (Exception e)
       {
@@ -1534,26 +1652,25 @@ public final class JMSBridgeImpl implements JMSBridge
       }
    }
 
-   private void sendBatchLocalTx()
+   private void sendBatchLocalTx(final ForwardingLane lane)
    {
       try
       {
-         sendMessages();
+         sendMessages(lane);
 
          if (JMSBridgeImpl.trace)
          {
             HornetQJMSServerLogger.LOGGER.trace("Committing source session");
          }
 
-         sourceSession.commit();
+         lane.sourceSession.commit();
 
          if (JMSBridgeImpl.trace)
          {
             HornetQJMSServerLogger.LOGGER.trace("Committed source session");
          }
 
-         // Clear the messages
-         messages.clear();
+         batchForwarded(lane);
       }
       catch (Exception e)
       {
@@ -1563,9 +1680,9 @@ public final class JMSBridgeImpl implements JMSBridge
       }
    }
 
-   private void sendMessages() throws Exception
+   private void sendMessages(final ForwardingLane lane) throws Exception
    {
-      Iterator<Message> iter = messages.iterator();
+      Iterator<Message> iter = lane.messages.iterator();
 
       Message msg = null;
 
@@ -1597,7 +1714,7 @@ public final class JMSBridgeImpl implements JMSBridge
             }
          }
 
-         targetProducer.send(targetDestination, msg, msg.getJMSDeliveryMode(), msg.getJMSPriority(), timeToLive);
+         lane.targetProducer.send(targetDestination, msg, msg.getJMSDeliveryMode(), msg.getJMSPriority(), timeToLive);
 
          if (JMSBridgeImpl.trace)
          {
@@ -1606,6 +1723,30 @@ public final class JMSBridgeImpl implements JMSBridge
       }
    }
 
+   /**
+    * Updates the metrics and clears the messages of a batch which was forwarded.
+    */
+   private void batchForwarded(final ForwardingLane lane) throws JMSException
+   {
+      long now = System.currentTimeMillis();
+
+      long timestamp = lane.messages.getLast().getJMSTimestamp();
+
+      if (timestamp != 0)
+      {
+         lag = now - timestamp;
+      }
+
+      messagesForwarded.addAndGet(lane.messages.size());
+
+      batchesForwarded.incrementAndGet();
+
+      batchesTime.addAndGet(now - lane.batchStartTime);
+
+      // Clear the messages
+      lane.messages.clear();
+   }
+
    private void handleFailureOnSend()
    {
       handleFailure(new FailureHandler());
@@ -1714,16 +1855,50 @@ public final class JMSBridgeImpl implements JMSBridge
    }
 
    /**
-    * Creates a 3-sized thread pool executor (1 thread for the sourceReceiver, 1 for the timeChecker
-    * and 1 for the eventual failureHandler)
+    * Creates a thread pool executor with 2 threads per lane (1 for the sourceReceiver and 1 for
+    * the timeChecker) and 1 for the eventual failureHandler
     */
    private ExecutorService createExecutor()
    {
-      return Executors.newFixedThreadPool(3);
+      return Executors.newFixedThreadPool(2 * lanes + 1);
    }
 
    // Inner classes ---------------------------------------------------------------
 
+   /**
+    * A lane consumes from the source and sends to the target with its own sessions, and so commits
+    * its batches independently of the other lanes.
+    * <p>
+    * With more than one lane, several batches are in flight at the same time. The messages of a
+    * group stay in order as long as the source delivers each group to a single consumer, as HornetQ
+    * does with JMSXGroupID.
+    */
+   private static final class ForwardingLane
+   {
+      final int id;
+
+      final LinkedList<Message> messages = new LinkedList<Message>();
+
+      Session sourceSession;
+
+      Session targetSession;
+
+      MessageConsumer sourceConsumer;
+
+      MessageProducer targetProducer;
+
+      Transaction tx;
+
+      long batchExpiryTime;
+
+      long batchStartTime;
+
+      ForwardingLane(final int id)
+      {
+         this.id = id;
+      }
+   }
+
    /**
     * We use a Thread which polls the sourceDestination instead of a MessageListener
     * to ensure that message delivery does not happen concurrently with
@@ -1732,9 +1907,13 @@ public final class JMSBridgeImpl implements JMSBridge
     */
    private final class SourceReceiver extends Thread
    {
-      SourceReceiver()
+      private final ForwardingLane lane;
+
+      SourceReceiver(final ForwardingLane lane)
       {
-         super("jmsbridge-source-receiver-thread");
+         super("jmsbridge-source-receiver-thread-" + lane.id);
+
+         this.lane = lane;
       }
 
       @Override
@@ -1742,13 +1921,13 @@ public final class JMSBridgeImpl implements JMSBridge
       {
          while (started)
          {
-            synchronized (lock)
+            synchronized (lane)
             {
                if (paused || failed)
                {
                   try
                   {
-                     lock.wait(500);
+                     lane.wait(500);
                   }
                   catch (InterruptedException e)
                   {
@@ -1760,7 +1939,7 @@ public final class JMSBridgeImpl implements JMSBridge
                Message msg = null;
                try
                {
-                  msg = sourceConsumer.receive(1000);
+                  msg = lane.sourceConsumer.receive(1000);
 
                   if (msg instanceof HornetQMessage)
                   {
@@ -1781,7 +1960,7 @@ public final class JMSBridgeImpl implements JMSBridge
                {
                   try
                   {
-                     lock.wait(500);
+                     lane.wait(500);
                   }
                   catch (InterruptedException e)
                   {
@@ -1799,23 +1978,28 @@ public final class JMSBridgeImpl implements JMSBridge
                   HornetQJMSServerLogger.LOGGER.trace(this + " received message " + msg);
                }
 
-               messages.add(msg);
+               if (lane.messages.isEmpty())
+               {
+                  lane.batchStartTime = System.currentTimeMillis();
+               }
 
-               batchExpiryTime = System.currentTimeMillis() + maxBatchTime;
+               lane.messages.add(msg);
+
+               lane.batchExpiryTime = System.currentTimeMillis() + maxBatchTime;
 
                if (JMSBridgeImpl.trace)
                {
-                  HornetQJMSServerLogger.LOGGER.trace(this + " rescheduled batchExpiryTime to " + batchExpiryTime);
+                  HornetQJMSServerLogger.LOGGER.trace(this + " rescheduled batchExpiryTime to " + lane.batchExpiryTime);
                }
 
-               if (maxBatchSize != -1 && messages.size() >= maxBatchSize)
+               if (maxBatchSize != -1 && lane.messages.size() >= maxBatchSize)
                {
                   if (JMSBridgeImpl.trace)
                   {
                      HornetQJMSServerLogger.LOGGER.trace(this + " maxBatchSize has been reached so sending batch");
                   }
 
-                  sendBatch();
+                  sendBatch(lane);
 
                   if (JMSBridgeImpl.trace)
                   {
@@ -1879,7 +2063,13 @@ public final class JMSBridgeImpl implements JMSBridge
          }
 
          // Clear the messages
-         messages.clear();
+         for (ForwardingLane lane : forwardingLanes)
+         {
+            synchronized (lane)
+            {
+               lane.messages.clear();
+            }
+         }
 
          cleanup();
 
@@ -1943,6 +2133,13 @@ public final class JMSBridgeImpl implements JMSBridge
 
    private class BatchTimeChecker implements Runnable
    {
+      private final ForwardingLane lane;
+
+      BatchTimeChecker(final ForwardingLane lane)
+      {
+         this.lane = lane;
+      }
+
       public void run()
       {
          if (JMSBridgeImpl.trace)
@@ -1950,11 +2147,11 @@ public final class JMSBridgeImpl implements JMSBridge
             HornetQJMSServerLogger.LOGGER.trace(this + " running");
          }
 
-         synchronized (lock)
+         synchronized (lane)
          {
             while (started)
             {
-               long toWait = batchExpiryTime - System.currentTimeMillis();
+               long toWait = lane.batchExpiryTime - System.currentTimeMillis();
 
                if (toWait <= 0)
                {
@@ -1963,16 +2160,16 @@ public final class JMSBridgeImpl implements JMSBridge
                      HornetQJMSServerLogger.LOGGER.trace(this + " waited enough");
                   }
 
-                  synchronized (lock)
+                  synchronized (lane)
                   {
-                     if (!failed && !messages.isEmpty())
+                     if (!failed && !lane.messages.isEmpty())
                      {
                         if (JMSBridgeImpl.trace)
                         {
                            HornetQJMSServerLogger.LOGGER.trace(this + " got some messages so sending batch");
                         }
 
-                        sendBatch();
+                        sendBatch(lane);
 
                         if (JMSBridgeImpl.trace)
                         {
@@ -1981,7 +2178,7 @@ public final class JMSBridgeImpl implements JMSBridge
                      }
                   }
 
-                  batchExpiryTime = System.currentTimeMillis() + maxBatchTime;
+                  lane.batchExpiryTime = System.currentTimeMillis() + maxBatchTime;
                }
                else
                {
@@ -1992,7 +2189,7 @@ public final class JMSBridgeImpl implements JMSBridge
                         HornetQJMSServerLogger.LOGGER.trace(this + " waiting for " + toWait);
                      }
 
-                     lock.wait(toWait);
+                     lane.wait(toWait);
 
                      if (JMSBridgeImpl.trace)
                      {
@@ -149,6 +149,18 @@ public class JMSConnectionFactoryControlImpl extends StandardMBean implements Co
       recreateCF();
    }
 
+   public void setConsumerMinWindowSize(int consumerMinWindowSize)
+   {
+      cfConfig.setConsumerMinWindowSize(consumerMinWindowSize);
+      recreateCF();
+   }
+
+   public void setConsumerMaxWindowSize(int consumerMaxWindowSize)
+   {
+      cfConfig.setConsumerMaxWindowSize(consumerMaxWindowSize);
+      recreateCF();
+   }
+
    public void setConsumerMaxRate(int consumerMaxRate)
    {
       cfConfig.setConsumerMaxRate(consumerMaxRate);
@@ -360,6 +372,16 @@ public class JMSConnectionFactoryControlImpl extends StandardMBean implements Co
       return cfConfig.getConsumerWindowSize();
    }
 
+   public int getConsumerMinWindowSize()
+   {
+      return cfConfig.getConsumerMinWindowSize();
+   }
+
+   public int getConsumerMaxWindowSize()
+   {
+      return cfConfig.getConsumerMaxWindowSize();
+   }
+
    public int getProducerMaxRate()
    {
       return cfConfig.getProducerMaxRate();
@@ -166,6 +166,11 @@ public interface HornetQJMSServerLogger extends BasicLogger
            format = Message.Format.MESSAGE_FORMAT)
    void xaRecoveryStartError(XARecoveryConfig e);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 122019, value = "JMS Bridge configured with {0} lanes forwards a topic, it will use a single lane so that the topic has a single subscription",
+           format = Message.Format.MESSAGE_FORMAT)
+   void bridgeTopicForwardedByOneLane(int lanes);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 124000, value = "key attribute missing for JMS configuration {0}" , format = Message.Format.MESSAGE_FORMAT)
    void jmsConfigMissingKey(Node e);
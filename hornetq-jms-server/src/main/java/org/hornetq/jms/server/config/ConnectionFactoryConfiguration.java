@@ -84,6 +84,14 @@ public interface ConnectionFactoryConfiguration extends EncodingSupport
 
    void setConsumerWindowSize(int consumerWindowSize);
 
+   int getConsumerMinWindowSize();
+
+   void setConsumerMinWindowSize(int consumerMinWindowSize);
+
+   int getConsumerMaxWindowSize();
+
+   void setConsumerMaxWindowSize(int consumerMaxWindowSize);
+
    int getConsumerMaxRate();
 
    void setConsumerMaxRate(int consumerMaxRate);
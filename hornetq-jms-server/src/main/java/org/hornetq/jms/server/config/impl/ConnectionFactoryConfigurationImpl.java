@@ -71,6 +71,10 @@ public class ConnectionFactoryConfigurationImpl implements ConnectionFactoryConf
 
    private int consumerWindowSize = HornetQClient.DEFAULT_CONSUMER_WINDOW_SIZE;
 
+   private int consumerMinWindowSize = HornetQClient.DEFAULT_CONSUMER_MIN_WINDOW_SIZE;
+
+   private int consumerMaxWindowSize = HornetQClient.DEFAULT_CONSUMER_MAX_WINDOW_SIZE;
+
    private int consumerMaxRate = HornetQClient.DEFAULT_CONSUMER_MAX_RATE;
 
    private int confirmationWindowSize = HornetQClient.DEFAULT_CONFIRMATION_WINDOW_SIZE;
@@ -281,6 +285,26 @@ public class ConnectionFactoryConfigurationImpl implements ConnectionFactoryConf
       this.consumerWindowSize = consumerWindowSize;
    }
 
+   public int getConsumerMinWindowSize()
+   {
+      return consumerMinWindowSize;
+   }
+
+   public void setConsumerMinWindowSize(final int consumerMinWindowSize)
+   {
+      this.consumerMinWindowSize = consumerMinWindowSize;
+   }
+
+   public int getConsumerMaxWindowSize()
+   {
+      return consumerMaxWindowSize;
+   }
+
+   public void setConsumerMaxWindowSize(final int consumerMaxWindowSize)
+   {
+      this.consumerMaxWindowSize = consumerMaxWindowSize;
+   }
+
    public int getConsumerMaxRate()
    {
       return consumerMaxRate;
@@ -589,6 +613,14 @@ public class ConnectionFactoryConfigurationImpl implements ConnectionFactoryConf
       groupID = BufferHelper.readNullableSimpleStringAsString(buffer);
 
       factoryType = JMSFactoryType.valueOf(buffer.readInt());
+
+      // the factories persisted before the adaptive windows end here
+      if (buffer.readable())
+      {
+         consumerMinWindowSize = buffer.readInt();
+
+         consumerMaxWindowSize = buffer.readInt();
+      }
    }
 
    @Override
@@ -677,6 +709,10 @@ public class ConnectionFactoryConfigurationImpl implements ConnectionFactoryConf
       BufferHelper.writeAsNullableSimpleString(buffer, groupID);
 
       buffer.writeInt(factoryType.intValue());
+
+      buffer.writeInt(consumerMinWindowSize);
+
+      buffer.writeInt(consumerMaxWindowSize);
    }
 
    @Override
@@ -786,7 +822,13 @@ public class ConnectionFactoryConfigurationImpl implements ConnectionFactoryConf
 
               BufferHelper.sizeOfNullableSimpleString(groupID) +
 
-              DataConstants.SIZE_INT; // factoryType
+              DataConstants.SIZE_INT +
+              // factoryType
+
+              DataConstants.SIZE_INT +
+              // consumerMinWindowSize
+
+              DataConstants.SIZE_INT; // consumerMaxWindowSize
 
       return size;
    }
@@ -236,6 +236,14 @@ final public class JMSServerConfigParserImpl implements JMSServerConfigParser
                                                                "consumer-window-size",
                                                                HornetQClient.DEFAULT_CONSUMER_WINDOW_SIZE,
                                                                Validators.MINUS_ONE_OR_GE_ZERO);
+      int consumerMinWindowSize = XMLConfigurationUtil.getInteger(e,
+                                                                  "consumer-min-window-size",
+                                                                  HornetQClient.DEFAULT_CONSUMER_MIN_WINDOW_SIZE,
+                                                                  Validators.GT_ZERO);
+      int consumerMaxWindowSize = XMLConfigurationUtil.getInteger(e,
+                                                                  "consumer-max-window-size",
+                                                                  HornetQClient.DEFAULT_CONSUMER_MAX_WINDOW_SIZE,
+                                                                  Validators.MINUS_ONE_OR_GT_ZERO);
       int producerWindowSize = XMLConfigurationUtil.getInteger(e,
                                                                "producer-window-size",
                                                                HornetQClient.DEFAULT_PRODUCER_WINDOW_SIZE,
@@ -391,6 +399,8 @@ final public class JMSServerConfigParserImpl implements JMSServerConfigParser
       cfConfig.setMinLargeMessageSize(minLargeMessageSize);
       cfConfig.setCompressLargeMessages(compressLargeMessages);
       cfConfig.setConsumerWindowSize(consumerWindowSize);
+      cfConfig.setConsumerMinWindowSize(consumerMinWindowSize);
+      cfConfig.setConsumerMaxWindowSize(consumerMaxWindowSize);
       cfConfig.setConsumerMaxRate(consumerMaxRate);
       cfConfig.setConfirmationWindowSize(confirmationWindowSize);
       cfConfig.setProducerWindowSize(producerWindowSize);
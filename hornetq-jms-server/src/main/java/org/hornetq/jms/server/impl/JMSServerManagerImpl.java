@@ -1388,6 +1388,8 @@ public class JMSServerManagerImpl implements JMSServerManager, ActivateCallback
       cf.setCacheLargeMessagesClient(cfConfig.isCacheLargeMessagesClient());
       cf.setMinLargeMessageSize(cfConfig.getMinLargeMessageSize());
       cf.setConsumerWindowSize(cfConfig.getConsumerWindowSize());
+      cf.setConsumerMinWindowSize(cfConfig.getConsumerMinWindowSize());
+      cf.setConsumerMaxWindowSize(cfConfig.getConsumerMaxWindowSize());
       cf.setConsumerMaxRate(cfConfig.getConsumerMaxRate());
       cf.setConfirmationWindowSize(cfConfig.getConfirmationWindowSize());
       cf.setProducerWindowSize(cfConfig.getProducerWindowSize());
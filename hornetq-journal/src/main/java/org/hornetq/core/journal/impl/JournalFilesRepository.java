@@ -22,6 +22,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.core.journal.SequentialFile;
@@ -61,6 +62,9 @@ public class JournalFilesRepository
 
    private final ConcurrentLinkedQueue<JournalFile> freeFiles = new ConcurrentLinkedQueue<JournalFile>();
 
+   // ConcurrentLinkedQueue.size() scans the whole queue
+   private final AtomicInteger freeFilesCount = new AtomicInteger(0);
+
    private final BlockingQueue<JournalFile> openedFiles = new LinkedBlockingQueue<JournalFile>();
 
    private final AtomicLong nextFileID = new AtomicLong(0);
@@ -77,6 +81,20 @@ public class JournalFilesRepository
 
    private final int userVersion;
 
+   // Maximum number of free files kept for reuse, -1 means they are only kept up to minFiles
+   private volatile int poolFiles = -1;
+
+   // Averages used to size the pre-filled files, in nanoseconds
+   private volatile long fileCreateTime;
+
+   private volatile long fileUseInterval;
+
+   private volatile long lastOpenFileTime;
+
+   private final AtomicLong fileWaitCount = new AtomicLong(0);
+
+   private final AtomicLong fileWaitTime = new AtomicLong(0);
+
    private Executor openFilesExecutor;
 
    private final Runnable pushOpenRunnable = new Runnable()
@@ -86,6 +104,8 @@ public class JournalFilesRepository
          try
          {
             pushOpenedFile();
+
+            fillPool();
          }
          catch (Exception e)
          {
@@ -132,12 +152,71 @@ public class JournalFilesRepository
       this.openFilesExecutor = fileExecutor;
    }
 
+   /**
+    * @param poolFiles the maximum number of free files kept for reuse, or -1 to keep them only while
+    *           there are less than {@code minFiles} files
+    */
+   public void setPoolFiles(final int poolFiles)
+   {
+      this.poolFiles = poolFiles;
+   }
+
+   public int getPoolFiles()
+   {
+      return poolFiles;
+   }
+
+   /**
+    * @return how many times the journal had to wait for a file to be created or opened when moving
+    *         to the next file
+    */
+   public long getFileWaitCount()
+   {
+      return fileWaitCount.get();
+   }
+
+   /**
+    * @return the total time the journal waited for files, in nanoseconds
+    */
+   public long getFileWaitTime()
+   {
+      return fileWaitTime.get();
+   }
+
+   /**
+    * When a pool is configured the files consumed during the time it takes to create a file are
+    * kept filled in advance, so the journal doesn't wait for the creation of the next file.
+    * @return the number of free files to keep ready
+    */
+   public int getReadyFilesTarget()
+   {
+      int pool = poolFiles;
+
+      if (pool <= 0)
+      {
+         return 0;
+      }
+
+      long interval = fileUseInterval;
+
+      long target = 1;
+
+      if (interval > 0)
+      {
+         target += (fileCreateTime + interval - 1) / interval;
+      }
+
+      return (int)Math.min(target, pool);
+   }
+
    public void clear() throws Exception
    {
       dataFiles.clear();
 
       freeFiles.clear();
 
+      freeFilesCount.set(0);
+
       for (JournalFile file : openedFiles)
       {
          try
@@ -204,8 +283,7 @@ public class JournalFilesRepository
 
    public void ensureMinFiles() throws Exception
    {
-      // FIXME - size() involves a scan
-      int filesToCreate = minFiles - (dataFiles.size() + freeFiles.size());
+      int filesToCreate = minFiles - (dataFiles.size() + freeFilesCount.get());
 
       if (filesToCreate > 0)
       {
@@ -213,6 +291,7 @@ public class JournalFilesRepository
          {
             // Keeping all files opened can be very costly (mainly on AIO)
             freeFiles.add(createFile(false, false, true, false, -1));
+            freeFilesCount.getAndIncrement();
          }
       }
 
@@ -365,7 +444,7 @@ public class JournalFilesRepository
 
    public int getFreeFilesCount()
    {
-      return freeFiles.size();
+      return freeFilesCount.get();
    }
    /**
     * @param file
@@ -401,8 +480,8 @@ public class JournalFilesRepository
          file.getFile().delete();
       }
       else
-      // FIXME - size() involves a scan!!!
-      if (!checkDelete || (freeFiles.size() + dataFiles.size() + 1 + openedFiles.size() < minFiles))
+      if (!checkDelete || (poolFiles < 0 ? freeFilesCount.get() + dataFiles.size() + 1 + openedFiles.size() < minFiles
+                                         : freeFilesCount.get() < poolFiles))
       {
          // Re-initialise it
 
@@ -419,6 +498,7 @@ public class JournalFilesRepository
          }
 
          freeFiles.add(jf);
+         freeFilesCount.getAndIncrement();
       }
       else
       {
@@ -427,10 +507,10 @@ public class JournalFilesRepository
             HornetQJournalLogger.LOGGER.trace("DataFiles.size() = " + dataFiles.size());
             HornetQJournalLogger.LOGGER.trace("openedFiles.size() = " + openedFiles.size());
             HornetQJournalLogger.LOGGER.trace("minfiles = " + minFiles);
-            HornetQJournalLogger.LOGGER.trace("Free Files = "  + freeFiles.size());
+            HornetQJournalLogger.LOGGER.trace("Free Files = "  + freeFilesCount.get());
             HornetQJournalLogger.LOGGER.trace("File " + file +
                       " being deleted as freeFiles.size() + dataFiles.size() + 1 + openedFiles.size() (" +
-                      (freeFiles.size() + dataFiles.size() + 1 + openedFiles.size()) +
+                      (freeFilesCount.get() + dataFiles.size() + 1 + openedFiles.size()) +
                       ") < minFiles (" + minFiles + ")" );
          }
          file.getFile().delete();
@@ -449,7 +529,9 @@ public class JournalFilesRepository
 
    public JournalFile getFreeFile()
    {
-      return freeFiles.remove();
+      JournalFile file = freeFiles.remove();
+      freeFilesCount.getAndDecrement();
+      return file;
    }
 
    // Opened files operations =======================================
@@ -471,6 +553,15 @@ public class JournalFilesRepository
          JournalFilesRepository.trace("enqueueOpenFile with openedFiles.size=" + openedFiles.size());
       }
 
+      long now = System.nanoTime();
+
+      if (lastOpenFileTime != 0)
+      {
+         fileUseInterval = average(fileUseInterval, now - lastOpenFileTime);
+      }
+
+      lastOpenFileTime = now;
+
       if (openFilesExecutor == null)
       {
          pushOpenRunnable.run();
@@ -480,15 +571,22 @@ public class JournalFilesRepository
          openFilesExecutor.execute(pushOpenRunnable);
       }
 
-      JournalFile nextFile = null;
+      JournalFile nextFile = openedFiles.poll();
 
-      while (nextFile == null)
+      if (nextFile == null)
       {
-         nextFile = openedFiles.poll(5, TimeUnit.SECONDS);
-         if (nextFile == null)
+         fileWaitCount.incrementAndGet();
+
+         while (nextFile == null)
          {
-            HornetQJournalLogger.LOGGER.errorOpeningFile(new Exception("trace"));
+            nextFile = openedFiles.poll(5, TimeUnit.SECONDS);
+            if (nextFile == null)
+            {
+               HornetQJournalLogger.LOGGER.errorOpeningFile(new Exception("trace"));
+            }
          }
+
+         fileWaitTime.addAndGet(System.nanoTime() - now);
       }
 
       if (JournalFilesRepository.trace)
@@ -518,6 +616,20 @@ public class JournalFilesRepository
       }
    }
 
+   /**
+    * Creates free files until there are as many as {@link #getReadyFilesTarget()}.
+    */
+   public void fillPool() throws Exception
+   {
+      int target = getReadyFilesTarget();
+
+      while (freeFilesCount.get() < target)
+      {
+         freeFiles.add(createFile(false, false, true, false, -1));
+         freeFilesCount.getAndIncrement();
+      }
+   }
+
    public void closeFile(final JournalFile file) throws Exception
    {
       fileFactory.deactivateBuffer();
@@ -546,6 +658,8 @@ public class JournalFilesRepository
       }
       else
       {
+         freeFilesCount.getAndDecrement();
+
          if (tmpCompactExtension)
          {
             SequentialFile sequentialFile = nextFile.getFile();
@@ -601,9 +715,13 @@ public class JournalFilesRepository
 
       if (init)
       {
+         long start = System.nanoTime();
+
          sequentialFile.fill(0, fileSize, JournalImpl.FILL_CHARACTER);
 
          JournalImpl.initFileHeader(fileFactory, sequentialFile, userVersion, fileID);
+
+         fileCreateTime = average(fileCreateTime, System.nanoTime() - start);
       }
 
       long position = sequentialFile.position();
@@ -652,6 +770,11 @@ public class JournalFilesRepository
       return fileName;
    }
 
+   private static long average(final long average, final long sample)
+   {
+      return average == 0 ? sample : (average * 3 + sample) / 4;
+   }
+
    private long generateFileID()
    {
       return nextFileID.incrementAndGet();
@@ -175,6 +175,17 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private final int compactMinFiles;
 
+   // Maximum number of files compacted by each automatic pass, 0 means all the files
+   private volatile int compactFilesPerPass = 0;
+
+   private volatile long compactCount;
+
+   private volatile long lastCompactPauseTime;
+
+   private volatile long maxCompactPauseTime;
+
+   private volatile long totalCompactPauseTime;
+
    private final SequentialFileFactory fileFactory;
 
    private final JournalFilesRepository filesRepository;
@@ -1396,6 +1407,15 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
 
    public void scheduleCompactAndBlock(int timeout) throws Exception
+   {
+      scheduleCompactAndBlock(timeout, false);
+   }
+
+   /**
+    * @param incremental if {@code true} only the files chosen by {@link #compactIncrementally()}
+    *           are compacted
+    */
+   public void scheduleCompactAndBlock(int timeout, final boolean incremental) throws Exception
    {
       final AtomicInteger errors = new AtomicInteger(0);
 
@@ -1412,7 +1432,14 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             try
             {
-               JournalImpl.this.compact();
+               if (incremental)
+               {
+                  JournalImpl.this.compactIncrementally();
+               }
+               else
+               {
+                  JournalImpl.this.compact();
+               }
             }
             catch (Throwable e)
             {
@@ -1464,6 +1491,9 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
          boolean previousReclaimValue = isAutoReclaim();
 
+         // time the journal was locked by this compacting
+         long pauseTime = 0;
+
       try
       {
          HornetQJournalLogger.LOGGER.debug("Starting compacting operation on journal");
@@ -1472,6 +1502,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
          // We need to guarantee that the journal is frozen for this short time
          // We don't freeze the journal as we compact, only for the short time where we replace records
+         long pauseStart = System.nanoTime();
          journalLock.writeLock().lock();
          try
          {
@@ -1518,6 +1549,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          finally
          {
             journalLock.writeLock().unlock();
+            pauseTime += System.nanoTime() - pauseStart;
          }
 
          Collections.sort(dataFilesToProcess, new JournalFileComparator());
@@ -1553,6 +1585,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
          SequentialFile controlFile = createControlFile(dataFilesToProcess, compactor.getNewDataFiles(), null);
 
+         pauseStart = System.nanoTime();
          journalLock.writeLock().lock();
          try
          {
@@ -1618,12 +1651,15 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          finally
          {
             journalLock.writeLock().unlock();
+            pauseTime += System.nanoTime() - pauseStart;
          }
 
          // At this point the journal is unlocked. We keep renaming files while the journal is already operational
          renameFiles(dataFilesToProcess, newDatafiles);
          deleteControlFile(controlFile);
 
+         compactFinished(pauseTime);
+
          HornetQJournalLogger.LOGGER.debug("Finished compacting on journal");
 
       }
@@ -1652,6 +1688,340 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    }
 
+   /**
+    * Compacts at most {@link #getCompactFilesPerPass()} of the oldest data files.
+    * <p>
+    * The compacted files take the ordering IDs of the files they replace, so only a prefix of the
+    * data files can be compacted on each pass. The prefix chosen is the one releasing the most space
+    * that doesn't leave any transaction open, what means every transaction with records on the
+    * prefix has its commit or rollback there too.
+    * <p>
+    * Unlike {@link #compact()}, the current records are kept while the files are being read. The
+    * journal is only locked to take the files and to swap the records living on them, so the
+    * exclusive phase is bounded by the size of the prefix and not by the size of the journal.
+    * @return {@code false} if there was no prefix worth compacting
+    */
+   protected synchronized boolean compactIncrementally() throws Exception
+   {
+      if (compactor != null)
+      {
+         throw new IllegalStateException("There is pending compacting operation");
+      }
+
+      compactorLock.writeLock().lock();
+      try
+      {
+         boolean previousReclaimValue = isAutoReclaim();
+
+         // time the journal was locked by this compacting
+         long pauseTime = 0;
+
+         List<JournalFile> candidates;
+
+         List<JournalFile> filesToProcess = null;
+
+         try
+         {
+            onCompactStart();
+
+            long pauseStart = System.nanoTime();
+            journalLock.writeLock().lock();
+            try
+            {
+               if (state != JournalState.LOADED)
+               {
+                  return false;
+               }
+
+               onCompactLockingTheJournal();
+
+               setAutoReclaim(false);
+
+               candidates = new ArrayList<JournalFile>(filesRepository.getDataFiles());
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+               pauseTime += System.nanoTime() - pauseStart;
+            }
+
+            Collections.sort(candidates, new JournalFileComparator());
+
+            if (candidates.size() > compactFilesPerPass)
+            {
+               candidates = candidates.subList(0, compactFilesPerPass);
+            }
+
+            int prefixSize = selectCompactPrefix(candidates);
+
+            if (prefixSize == 0)
+            {
+               trace("Finishing incremental compacting, nothing to process");
+               return false;
+            }
+
+            filesToProcess = new ArrayList<JournalFile>(candidates.subList(0, prefixSize));
+
+            Set<JournalFile> compactedFiles = new HashSet<JournalFile>(filesToProcess);
+
+            HornetQJournalLogger.LOGGER.debug("Starting incremental compacting on " + prefixSize + " files");
+
+            pauseStart = System.nanoTime();
+            journalLock.writeLock().lock();
+            try
+            {
+               if (state != JournalState.LOADED || !filesRepository.getDataFiles().containsAll(filesToProcess))
+               {
+                  return false;
+               }
+
+               onCompactLockingTheJournal();
+
+               for (JournalFile file : filesToProcess)
+               {
+                  filesRepository.removeDataFile(file);
+               }
+
+               compactor = new JournalCompactor(fileFactory,
+                                                this,
+                                                filesRepository,
+                                                Collections.<Long> emptySet(),
+                                                filesToProcess.get(0).getFileID());
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+               pauseTime += System.nanoTime() - pauseStart;
+            }
+
+            // The records added on these files can't be removed while the compactor is set,
+            // as deletes are only computed when the pending commands are replayed
+            for (Map.Entry<Long, JournalRecord> entry : records.entrySet())
+            {
+               if (compactedFiles.contains(entry.getValue().getAddFile()))
+               {
+                  compactor.addToRecordsSnaptshot(entry.getKey());
+               }
+            }
+
+            for (final JournalFile file : filesToProcess)
+            {
+               try
+               {
+                  JournalImpl.readJournalFile(fileFactory, file, compactor);
+               }
+               catch (Throwable e)
+               {
+                  HornetQJournalLogger.LOGGER.compactReadError(file);
+                  throw new Exception("Error on reading compacting for " + file, e);
+               }
+            }
+
+            compactor.flush();
+
+            onCompactDone();
+
+            JournalCompactor localCompactor = compactor;
+
+            List<JournalFile> newDatafiles = localCompactor.getNewDataFiles();
+
+            if (newDatafiles.size() > filesToProcess.size() || !localCompactor.getNewTransactions().isEmpty())
+            {
+               // The new files wouldn't fit on the ordering IDs of the prefix
+               HornetQJournalLogger.LOGGER.debug("Cancelling incremental compacting, " + newDatafiles.size() +
+                                                 " files would replace " + prefixSize);
+
+               cancelIncrementalCompact(filesToProcess);
+
+               return false;
+            }
+
+            SequentialFile controlFile = createControlFile(filesToProcess, newDatafiles, null);
+
+            pauseStart = System.nanoTime();
+            journalLock.writeLock().lock();
+            try
+            {
+               // Need to clear the compactor here, or the replay commands will send commands back (infinite loop)
+               compactor = null;
+
+               onCompactLockingTheJournal();
+
+               for (Map.Entry<Long, JournalRecord> newRecordEntry : localCompactor.getNewRecords().entrySet())
+               {
+                  JournalRecord liveRecord = records.get(newRecordEntry.getKey());
+
+                  if (liveRecord != null)
+                  {
+                     newRecordEntry.getValue().takeUpdateFiles(liveRecord, compactedFiles);
+                  }
+
+                  records.put(newRecordEntry.getKey(), newRecordEntry.getValue());
+               }
+
+               for (int i = newDatafiles.size() - 1; i >= 0; i--)
+               {
+                  filesRepository.addDataFileOnTop(newDatafiles.get(i));
+               }
+
+               localCompactor.replayPendingCommands();
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+               pauseTime += System.nanoTime() - pauseStart;
+            }
+
+            renameFiles(filesToProcess, newDatafiles);
+            deleteControlFile(controlFile);
+
+            compactFinished(pauseTime);
+
+            HornetQJournalLogger.LOGGER.debug("Finished incremental compacting, " + prefixSize + " files replaced by " +
+                                              newDatafiles.size());
+
+            return true;
+         }
+         finally
+         {
+            // An Exception was probably thrown, and the files were not swapped
+            if (compactor != null)
+            {
+               try
+               {
+                  compactor.flush();
+               }
+               catch (Throwable ignored)
+               {
+               }
+
+               cancelIncrementalCompact(filesToProcess);
+            }
+            setAutoReclaim(previousReclaimValue);
+         }
+      }
+      finally
+      {
+         compactorLock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Puts back the files taken by an incremental compacting, replaying the commands on the current
+    * records and discarding the files created by the compactor.
+    */
+   private void cancelIncrementalCompact(final List<JournalFile> processedFiles) throws Exception
+   {
+      JournalCompactor localCompactor = compactor;
+
+      journalLock.writeLock().lock();
+      try
+      {
+         compactor = null;
+
+         for (int i = processedFiles.size() - 1; i >= 0; i--)
+         {
+            filesRepository.addDataFileOnTop(processedFiles.get(i));
+         }
+
+         localCompactor.replayPendingCommands();
+      }
+      finally
+      {
+         journalLock.writeLock().unlock();
+      }
+
+      for (JournalFile file : localCompactor.getNewDataFiles())
+      {
+         file.getFile().delete();
+      }
+   }
+
+   /**
+    * Reads the candidate files looking for the boundaries where no transaction is left open, and
+    * chooses among them the one releasing the most space. At least one file needs to be released.
+    * @return the number of files to compact, 0 if none
+    */
+   private int selectCompactPrefix(final List<JournalFile> candidates) throws Exception
+   {
+      final Set<Long> openTransactions = new HashSet<Long>();
+
+      JournalReaderCallback transactionScanner = new JournalReaderCallbackAbstract()
+      {
+         @Override
+         public void onReadAddRecordTX(final long transactionID, final RecordInfo recordInfo)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadUpdateRecordTX(final long transactionID, final RecordInfo recordInfo)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadDeleteRecordTX(final long transactionID, final RecordInfo recordInfo)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadCommitRecord(final long transactionID, final int numberOfRecords)
+         {
+            openTransactions.remove(transactionID);
+         }
+
+         @Override
+         public void onReadRollbackRecord(final long transactionID)
+         {
+            openTransactions.remove(transactionID);
+         }
+      };
+
+      int prefixSize = 0;
+
+      long bestReclaimable = fileSize - 1;
+
+      long liveSize = 0;
+
+      for (int i = 0; i < candidates.size(); i++)
+      {
+         JournalFile file = candidates.get(i);
+
+         JournalImpl.readJournalFile(fileFactory, file, transactionScanner);
+
+         liveSize += file.getLiveSize();
+
+         long reclaimable = (i + 1L) * fileSize - liveSize;
+
+         if (openTransactions.isEmpty() && reclaimable > bestReclaimable)
+         {
+            bestReclaimable = reclaimable;
+            prefixSize = i + 1;
+         }
+      }
+
+      return prefixSize;
+   }
+
+   private void compactFinished(final long pauseTime)
+   {
+      compactCount++;
+      lastCompactPauseTime = pauseTime;
+      totalCompactPauseTime += pauseTime;
+      if (pauseTime > maxCompactPauseTime)
+      {
+         maxCompactPauseTime = pauseTime;
+      }
+   }
+
    /**
     * <p>Load data accordingly to the record layouts</p>
     *
@@ -2076,6 +2446,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          if (journalLock.readLock().tryLock(250, TimeUnit.MILLISECONDS))
             break;
       }
+      final List<JournalFile> reclaimedFiles = new ArrayList<JournalFile>();
       try
       {
          reclaimer.scan(getDataFiles());
@@ -2092,7 +2463,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
                filesRepository.removeDataFile(file);
 
-               filesRepository.addFreeFile(file, false);
+               reclaimedFiles.add(file);
             }
          }
       }
@@ -2101,6 +2472,13 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          journalLock.readLock().unlock();
       }
 
+      // the reclaimed files are reinitialized once the lock is released, so appends don't wait
+      // for their headers to be written. Reclaiming already runs on the compactor executor.
+      for (JournalFile file : reclaimedFiles)
+      {
+         filesRepository.addFreeFile(file, false);
+      }
+
       return false;
    }
 
@@ -2160,7 +2538,11 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             try
             {
-               JournalImpl.this.compact();
+               // when no prefix is worth compacting the garbage is further on the journal
+               if (compactFilesPerPass == 0 || !JournalImpl.this.compactIncrementally())
+               {
+                  JournalImpl.this.compact();
+               }
             }
             catch (Throwable e)
             {
@@ -2187,6 +2569,84 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       return autoReclaim;
    }
 
+   /**
+    * Sets the maximum number of files compacted by each automatic compacting. The files are taken
+    * from the oldest, and when none of them is worth compacting the whole journal is compacted.
+    * @param compactFilesPerPass 0 to always compact the whole journal
+    */
+   public void setCompactFilesPerPass(final int compactFilesPerPass)
+   {
+      this.compactFilesPerPass = compactFilesPerPass;
+   }
+
+   public int getCompactFilesPerPass()
+   {
+      return compactFilesPerPass;
+   }
+
+   /**
+    * Sets the maximum number of free files kept for reuse. When set, the files consumed while a new
+    * file is being created are kept filled in advance.
+    * @param poolFiles -1 to keep free files only while there are less than {@code minFiles} files
+    */
+   public void setPoolFiles(final int poolFiles)
+   {
+      filesRepository.setPoolFiles(poolFiles);
+   }
+
+   public int getPoolFiles()
+   {
+      return filesRepository.getPoolFiles();
+   }
+
+   /**
+    * @return how many times an append had to wait for the next file to be created or opened
+    */
+   public long getFileWaitCount()
+   {
+      return filesRepository.getFileWaitCount();
+   }
+
+   /**
+    * @return the total time appends waited for the next file, in nanoseconds
+    */
+   public long getFileWaitTime()
+   {
+      return filesRepository.getFileWaitTime();
+   }
+
+   /**
+    * @return the number of compactings completed
+    */
+   public long getCompactCount()
+   {
+      return compactCount;
+   }
+
+   /**
+    * @return the time the journal was locked by the last compacting, in nanoseconds
+    */
+   public long getLastCompactPauseTime()
+   {
+      return lastCompactPauseTime;
+   }
+
+   /**
+    * @return the longest time the journal was locked by a compacting, in nanoseconds
+    */
+   public long getMaxCompactPauseTime()
+   {
+      return maxCompactPauseTime;
+   }
+
+   /**
+    * @return the time the journal was locked by all the compactings, in nanoseconds
+    */
+   public long getTotalCompactPauseTime()
+   {
+      return totalCompactPauseTime;
+   }
+
    /* Only meant to be used in tests. */
    @Override
    public String debug() throws Exception
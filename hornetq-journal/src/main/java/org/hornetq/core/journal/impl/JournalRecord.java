@@ -15,6 +15,7 @@ package org.hornetq.core.journal.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.hornetq.api.core.Pair;
 
@@ -59,6 +60,36 @@ public class JournalRecord
       updateFile.addSize(size);
    }
 
+   JournalFile getAddFile()
+   {
+      return addFile;
+   }
+
+   /**
+    * Used by incremental compacting to carry the updates of the live record that are not on the
+    * compacted files. The counters on these files were incremented already.
+    */
+   void takeUpdateFiles(final JournalRecord liveRecord, final Set<JournalFile> compactedFiles)
+   {
+      if (liveRecord.updateFiles == null)
+      {
+         return;
+      }
+
+      for (Pair<JournalFile, Integer> update : liveRecord.updateFiles)
+      {
+         if (!compactedFiles.contains(update.getA()))
+         {
+            if (updateFiles == null)
+            {
+               updateFiles = new ArrayList<Pair<JournalFile, Integer>>();
+            }
+
+            updateFiles.add(update);
+         }
+      }
+   }
+
    void delete(final JournalFile file)
    {
       file.incNegCount(addFile);
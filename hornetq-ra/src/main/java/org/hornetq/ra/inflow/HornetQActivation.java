@@ -15,6 +15,9 @@ package org.hornetq.ra.inflow;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.jms.Destination;
@@ -45,6 +48,7 @@ import org.hornetq.ra.HornetQRABundle;
 import org.hornetq.ra.HornetQRALogger;
 import org.hornetq.ra.HornetQRaUtils;
 import org.hornetq.ra.HornetQResourceAdapter;
+import org.hornetq.utils.HornetQThreadFactory;
 import org.hornetq.utils.SensitiveDataCodec;
 
 /**
@@ -103,6 +107,17 @@ public class HornetQActivation
 
    private final List<HornetQMessageHandler> handlers = new ArrayList<HornetQMessageHandler>();
 
+   /** The number given to the next session */
+   private int sessionCount;
+
+   /** Adapts the number of sessions to the load when adaptiveSessions is set */
+   private ScheduledExecutorService sessionAdapter;
+
+   /** The session used to read the backlog of the destination when adaptiveSessions is set */
+   private ClientSessionFactory monitorFactory;
+
+   private ClientSession monitorSession;
+
    private HornetQConnectionFactory factory;
 
    // Whether we are in the failure recovery loop
@@ -303,28 +318,34 @@ public class HornetQActivation
       setupCF();
 
       setupDestination();
-      for (int i = 0; i < spec.getMaxSession(); i++)
+
+      sessionCount = 0;
+
+      int sessions = spec.isAdaptiveSessions() ? Math.min(spec.getMinSession(), spec.getMaxSession())
+                                               : spec.getMaxSession();
+
+      for (int i = 0; i < sessions; i++)
       {
-         ClientSession session = null;
+         handlers.add(createHandler());
+      }
 
-         try
-         {
-            ClientSessionFactory cf = factory.getServerLocator().createSessionFactory();
-            session = setupSession(cf);
-            HornetQMessageHandler handler = new HornetQMessageHandler(this, ra.getTM(), (ClientSessionInternal) session, cf,  i);
-            handler.setup();
-            session.start();
-            handlers.add(handler);
-         }
-         catch (Exception e)
+      if (spec.isAdaptiveSessions())
+      {
+         monitorFactory = factory.getServerLocator().createSessionFactory();
+         monitorSession = monitorFactory.createSession(spec.getUser(), spec.getPassword(), false, true, true, false, 0);
+
+         long interval = spec.getAdaptiveSessionsInterval();
+
+         sessionAdapter = Executors.newSingleThreadScheduledExecutor(new HornetQThreadFactory("HornetQ-activation-sessions",
+                                                                                             true,
+                                                                                             HornetQActivation.class.getClassLoader()));
+         sessionAdapter.scheduleWithFixedDelay(new Runnable()
          {
-            if (session != null)
+            public void run()
             {
-               session.close();
+               adaptSessions();
             }
-
-            throw e;
-         }
+         }, interval, interval, TimeUnit.MILLISECONDS);
       }
 
       resourceRecovery = ra.getRecoveryManager().register(factory, spec.getUser(), spec.getPassword());
@@ -344,7 +365,19 @@ public class HornetQActivation
          ra.getRecoveryManager().unRegister(resourceRecovery);
       }
 
-      for (HornetQMessageHandler handler : handlers)
+      if (sessionAdapter != null)
+      {
+         sessionAdapter.shutdown();
+         sessionAdapter = null;
+      }
+
+      closeMonitorSession();
+
+      final List<HornetQMessageHandler> handlersToTearDown = new ArrayList<HornetQMessageHandler>(handlers);
+
+      handlers.clear();
+
+      for (HornetQMessageHandler handler : handlersToTearDown)
       {
          handler.interruptConsumer();
       }
@@ -353,7 +386,7 @@ public class HornetQActivation
       {
          public void run()
          {
-            for (HornetQMessageHandler handler : handlers)
+            for (HornetQMessageHandler handler : handlersToTearDown)
             {
                handler.teardown();
             }
@@ -409,6 +442,142 @@ public class HornetQActivation
       HornetQRALogger.LOGGER.debug("Tearing down complete " + this);
    }
 
+   /**
+    * @return the number of sessions delivering messages to the endpoint
+    */
+   public synchronized int getSessionCount()
+   {
+      return handlers.size();
+   }
+
+   /**
+    * Adds or removes sessions so that the backlog of the destination can be delivered within
+    * the adaptive sessions interval, between the minimum and the maximum number of sessions.
+    */
+   protected void adaptSessions()
+   {
+      HornetQMessageHandler removed = null;
+
+      synchronized (this)
+      {
+         if (!deliveryActive.get() || handlers.isEmpty() || monitorSession == null)
+         {
+            return;
+         }
+
+         long deliveries = 0;
+         long deliveryTime = 0;
+
+         for (HornetQMessageHandler handler : handlers)
+         {
+            deliveries += handler.takeDeliveries();
+            deliveryTime += handler.takeDeliveryTime();
+         }
+
+         int current = handlers.size();
+
+         int target;
+
+         try
+         {
+            long backlog = monitorSession.queueQuery(handlers.get(0).getQueueName()).getMessageCount();
+
+            target = computeSessions(current,
+                                     Math.min(spec.getMinSession(), spec.getMaxSession()),
+                                     spec.getMaxSession(),
+                                     backlog,
+                                     deliveries,
+                                     deliveryTime,
+                                     spec.getAdaptiveSessionsInterval());
+         }
+         catch (HornetQException e)
+         {
+            HornetQRALogger.LOGGER.debug("Unable to read the backlog of " + spec.getDestination(), e);
+            return;
+         }
+
+         if (target != current && HornetQRALogger.LOGGER.isDebugEnabled())
+         {
+            HornetQRALogger.LOGGER.debug("Adapting the sessions of " + spec.getDestination() + " from " + current + " to " + target);
+         }
+
+         try
+         {
+            for (int i = current; i < target; i++)
+            {
+               handlers.add(createHandler());
+            }
+         }
+         catch (Exception e)
+         {
+            HornetQRALogger.LOGGER.debug("Unable to add a session to " + spec.getDestination(), e);
+         }
+
+         if (target < current)
+         {
+            removed = handlers.remove(handlers.size() - 1);
+         }
+      }
+
+      // The handler may be in the middle of a delivery, which is left to complete without holding the lock
+      if (removed != null)
+      {
+         removed.interruptConsumer();
+         removed.teardown();
+      }
+   }
+
+   /**
+    * Computes the number of sessions needed to deliver the backlog of the destination within one
+    * interval, from the average time taken by a delivery over the last interval. The number of
+    * sessions at most doubles at a time, and goes down one at a time when there is no backlog and
+    * the sessions were less than half busy.
+    *
+    * @param current       the number of sessions
+    * @param min           the minimum number of sessions
+    * @param max           the maximum number of sessions
+    * @param backlog       the number of messages in the queue
+    * @param deliveries    the number of messages delivered over the last interval
+    * @param deliveryTime  the time spent delivering those messages, in nanoseconds
+    * @param interval      the interval, in milliseconds
+    * @return the number of sessions to use
+    */
+   static int computeSessions(final int current,
+                              final int min,
+                              final int max,
+                              final long backlog,
+                              final long deliveries,
+                              final long deliveryTime,
+                              final long interval)
+   {
+      long intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+
+      long target = current;
+
+      if (backlog > 0)
+      {
+         if (deliveries == 0)
+         {
+            // Nothing was delivered while messages were waiting, the sessions are all busy
+            target = current * 2L;
+         }
+         else
+         {
+            long averageTime = deliveryTime / deliveries;
+
+            long needed = (backlog * averageTime + intervalNanos - 1) / intervalNanos;
+
+            target = Math.max(current, Math.min(needed, current * 2L));
+         }
+      }
+      else if (deliveryTime * 2 < intervalNanos * current)
+      {
+         target = current - 1;
+      }
+
+      return (int)Math.max(min, Math.min(max, target));
+   }
+
    protected void setupCF() throws Exception
    {
       if (spec.isHasBeenUpdated())
@@ -477,6 +646,52 @@ public class HornetQActivation
       }
    }
 
+   private HornetQMessageHandler createHandler() throws Exception
+   {
+      ClientSession session = null;
+
+      try
+      {
+         ClientSessionFactory cf = factory.getServerLocator().createSessionFactory();
+         session = setupSession(cf);
+         HornetQMessageHandler handler = new HornetQMessageHandler(this, ra.getTM(), (ClientSessionInternal) session, cf, sessionCount++);
+         handler.setup();
+         session.start();
+         return handler;
+      }
+      catch (Exception e)
+      {
+         if (session != null)
+         {
+            session.close();
+         }
+
+         throw e;
+      }
+   }
+
+   private void closeMonitorSession()
+   {
+      try
+      {
+         if (monitorSession != null)
+         {
+            monitorSession.close();
+         }
+         if (monitorFactory != null)
+         {
+            monitorFactory.close();
+         }
+      }
+      catch (Throwable t)
+      {
+         HornetQRALogger.LOGGER.debug("Error closing the monitoring session", t);
+      }
+
+      monitorSession = null;
+      monitorFactory = null;
+   }
+
    public SimpleString getAddress()
    {
       return destination.getSimpleAddress();
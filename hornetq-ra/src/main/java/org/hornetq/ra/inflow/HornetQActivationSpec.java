@@ -41,6 +41,12 @@ public class HornetQActivationSpec extends ConnectionFactoryProperties implement
 
    private static final int DEFAULT_MAX_SESSION = 15;
 
+   private static final int DEFAULT_MIN_SESSION = 1;
+
+   private static final long DEFAULT_ADAPTIVE_SESSIONS_INTERVAL = 5000;
+
+   private static final int DEFAULT_DELIVERY_BATCH_SIZE = 1;
+
    /** Whether trace is enabled */
    private static boolean trace = HornetQRALogger.LOGGER.isTraceEnabled();
 
@@ -83,6 +89,18 @@ public class HornetQActivationSpec extends ConnectionFactoryProperties implement
    /** The maximum number of sessions */
    private Integer maxSession;
 
+   /** The minimum number of sessions, when they are adapted to the load */
+   private Integer minSession;
+
+   /** Whether the number of sessions is adapted to the load, between minSession and maxSession */
+   private Boolean adaptiveSessions;
+
+   /** How often the number of sessions is adapted, in milliseconds */
+   private Long adaptiveSessionsInterval;
+
+   /** The maximum number of messages delivered in one transaction */
+   private Integer deliveryBatchSize;
+
    /** Transaction timeout */
    private Integer transactionTimeout;
 
@@ -562,6 +580,136 @@ public class HornetQActivationSpec extends ConnectionFactoryProperties implement
       maxSession = value;
    }
 
+   /**
+    * Get the minimum number of sessions, used when the sessions are adaptive
+    * @return The value
+    */
+   public Integer getMinSession()
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("getMinSession()");
+      }
+
+      if (minSession == null)
+      {
+         return DEFAULT_MIN_SESSION;
+      }
+
+      return minSession;
+   }
+
+   /**
+    * Set the minimum number of sessions, used when the sessions are adaptive
+    * @param value The value
+    */
+   public void setMinSession(final Integer value)
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("setMinSession(" + value + ")");
+      }
+
+      minSession = value;
+   }
+
+   /**
+    * Get whether the number of sessions is adapted to the backlog of the destination
+    * @return The value
+    */
+   public Boolean isAdaptiveSessions()
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("isAdaptiveSessions()");
+      }
+
+      return adaptiveSessions != null && adaptiveSessions;
+   }
+
+   /**
+    * Set whether the number of sessions is adapted to the backlog of the destination, between the
+    * minimum and the maximum number of sessions
+    * @param value The value
+    */
+   public void setAdaptiveSessions(final Boolean value)
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("setAdaptiveSessions(" + value + ")");
+      }
+
+      adaptiveSessions = value;
+   }
+
+   /**
+    * Get how often the number of sessions is adapted, in milliseconds
+    * @return The value
+    */
+   public Long getAdaptiveSessionsInterval()
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("getAdaptiveSessionsInterval()");
+      }
+
+      if (adaptiveSessionsInterval == null)
+      {
+         return DEFAULT_ADAPTIVE_SESSIONS_INTERVAL;
+      }
+
+      return adaptiveSessionsInterval;
+   }
+
+   /**
+    * Set how often the number of sessions is adapted, in milliseconds
+    * @param value The value
+    */
+   public void setAdaptiveSessionsInterval(final Long value)
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("setAdaptiveSessionsInterval(" + value + ")");
+      }
+
+      adaptiveSessionsInterval = value;
+   }
+
+   /**
+    * Get the maximum number of messages delivered between a single beforeDelivery and afterDelivery
+    * @return The value
+    */
+   public Integer getDeliveryBatchSize()
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("getDeliveryBatchSize()");
+      }
+
+      if (deliveryBatchSize == null)
+      {
+         return DEFAULT_DELIVERY_BATCH_SIZE;
+      }
+
+      return deliveryBatchSize;
+   }
+
+   /**
+    * Set the maximum number of messages delivered between a single beforeDelivery and
+    * afterDelivery, and so in the same transaction. Only the messages already received by the
+    * session are added to a batch, a batch is never held waiting for more messages.
+    * @param value The value
+    */
+   public void setDeliveryBatchSize(final Integer value)
+   {
+      if (HornetQActivationSpec.trace)
+      {
+         HornetQRALogger.LOGGER.trace("setDeliveryBatchSize(" + value + ")");
+      }
+
+      deliveryBatchSize = value;
+   }
+
    /**
     * Get the transaction timeout
     * @return The value
@@ -676,6 +824,16 @@ public class HornetQActivationSpec extends ConnectionFactoryProperties implement
       {
          throw new InvalidPropertyException("Destination is mandatory");
       }
+
+      if (getDeliveryBatchSize() < 1)
+      {
+         throw new InvalidPropertyException("deliveryBatchSize must be at least 1");
+      }
+
+      if (isAdaptiveSessions() && (getMinSession() < 1 || getMinSession() > getMaxSession()))
+      {
+         throw new InvalidPropertyException("minSession must be between 1 and maxSession");
+      }
    }
 
    public String getConnectorClassName()
@@ -738,6 +896,14 @@ public class HornetQActivationSpec extends ConnectionFactoryProperties implement
          buffer.append(" password=").append("****");
       }
       buffer.append(" maxSession=").append(maxSession);
+      if (isAdaptiveSessions())
+      {
+         buffer.append(" minSession=").append(getMinSession());
+      }
+      if (deliveryBatchSize != null)
+      {
+         buffer.append(" deliveryBatchSize=").append(deliveryBatchSize);
+      }
       buffer.append(')');
       return buffer.toString();
    }
@@ -782,10 +948,6 @@ public class HornetQActivationSpec extends ConnectionFactoryProperties implement
    {
    }
 
-   public void setMinSession(final Integer value)
-   {
-   }
-
    public void setMaxMessages(final Integer value)
    {
    }
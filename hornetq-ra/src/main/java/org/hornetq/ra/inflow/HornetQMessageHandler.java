@@ -13,6 +13,7 @@
 package org.hornetq.ra.inflow;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.InvalidClientIDException;
 import javax.jms.MessageListener;
@@ -29,6 +30,7 @@ import org.hornetq.api.core.client.ClientSession.QueueQuery;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.core.client.impl.ClientConsumerInternal;
+import org.hornetq.core.client.impl.ClientMessageInternal;
 import org.hornetq.core.client.impl.ClientSessionInternal;
 import org.hornetq.jms.client.HornetQDestination;
 import org.hornetq.jms.client.HornetQMessage;
@@ -55,6 +57,8 @@ public class HornetQMessageHandler implements MessageHandler
 
    private ClientConsumerInternal consumer;
 
+   private SimpleString queueName;
+
    /**
     * The endpoint
     */
@@ -74,6 +78,12 @@ public class HornetQMessageHandler implements MessageHandler
 
    private ClientSessionFactory cf;
 
+   private int deliveryBatchSize;
+
+   private final AtomicLong deliveries = new AtomicLong();
+
+   private final AtomicLong deliveryTime = new AtomicLong();
+
    public HornetQMessageHandler(final HornetQActivation activation,
                                 final TransactionManager tm,
                                 final ClientSessionInternal session,
@@ -111,7 +121,7 @@ public class HornetQMessageHandler implements MessageHandler
                                                " - client ID has not been set");
          }
 
-         SimpleString queueName = new SimpleString(HornetQDestination.createQueueNameForDurableSubscription(clientID,
+         queueName = new SimpleString(HornetQDestination.createQueueNameForDurableSubscription(clientID,
                                                                                                             subscriptionName));
 
          QueueQuery subResponse = session.queueQuery(queueName);
@@ -163,7 +173,6 @@ public class HornetQMessageHandler implements MessageHandler
       }
       else
       {
-         SimpleString queueName;
          if (activation.isTopic())
          {
             if (activation.getTopicTemporaryQueue() == null)
@@ -198,6 +207,7 @@ public class HornetQMessageHandler implements MessageHandler
          endpoint = endpointFactory.createEndpoint(null);
          useXA = false;
       }
+      deliveryBatchSize = spec.getDeliveryBatchSize();
       consumer.setMessageHandler(this);
    }
 
@@ -290,9 +300,10 @@ public class HornetQMessageHandler implements MessageHandler
          HornetQRALogger.LOGGER.trace("onMessage(" + message + ")");
       }
 
-      HornetQMessage msg = HornetQMessage.createMessage(message, session);
       boolean beforeDelivery = false;
 
+      long start = System.nanoTime();
+
       try
       {
          if (activation.getActivationSpec().getTransactionTimeout() > 0 && tm != null)
@@ -301,20 +312,25 @@ public class HornetQMessageHandler implements MessageHandler
          }
          endpoint.beforeDelivery(HornetQActivation.ONMESSAGE);
          beforeDelivery = true;
-         msg.doBeforeReceive();
 
-         //In the transacted case the message must be acked *before* onMessage is called
+         deliver(message);
 
-         if (transacted)
+         // The messages already buffered are delivered within the same transaction, up to the batch size
+         for (int delivered = 1; delivered < deliveryBatchSize; delivered++)
          {
-            message.acknowledge();
-         }
+            ClientMessage next = consumer.receiveBuffered();
 
-         ((MessageListener)endpoint).onMessage(msg);
+            if (next == null)
+            {
+               break;
+            }
 
-         if (!transacted)
-         {
-            message.acknowledge();
+            deliver(next);
+
+            if (next.isLargeMessage())
+            {
+               ((ClientMessageInternal)next).discardBody();
+            }
          }
 
          try
@@ -399,6 +415,8 @@ public class HornetQMessageHandler implements MessageHandler
       }
       finally
       {
+         deliveryTime.addAndGet(System.nanoTime() - start);
+
          try
          {
             session.resetIfNeeded();
@@ -411,4 +429,50 @@ public class HornetQMessageHandler implements MessageHandler
 
    }
 
+   /**
+    * @return the queue consumed by this handler
+    */
+   SimpleString getQueueName()
+   {
+      return queueName;
+   }
+
+   /**
+    * @return the number of messages delivered to the endpoint since the last call
+    */
+   long takeDeliveries()
+   {
+      return deliveries.getAndSet(0);
+   }
+
+   /**
+    * @return the time spent delivering messages to the endpoint since the last call, in nanoseconds
+    */
+   long takeDeliveryTime()
+   {
+      return deliveryTime.getAndSet(0);
+   }
+
+   private void deliver(final ClientMessage message) throws Exception
+   {
+      HornetQMessage msg = HornetQMessage.createMessage(message, session);
+
+      msg.doBeforeReceive();
+
+      //In the transacted case the message must be acked *before* onMessage is called
+
+      if (transacted)
+      {
+         message.acknowledge();
+      }
+
+      ((MessageListener)endpoint).onMessage(msg);
+
+      if (!transacted)
+      {
+         message.acknowledge();
+      }
+
+      deliveries.incrementAndGet();
+   }
 }
@@ -72,6 +72,8 @@ public final class ClusterConnectionConfiguration implements Serializable
 
    private final int clusterNotificationAttempts;
 
+   private long loadBalancingUpdatePeriod = HornetQDefaultConfiguration.getDefaultClusterLoadBalancingUpdatePeriod();
+
    public ClusterConnectionConfiguration(final String name,
                                          final String address,
                                          final String connectorName,
@@ -450,6 +452,20 @@ public final class ClusterConnectionConfiguration implements Serializable
       return clusterNotificationAttempts;
    }
 
+   /**
+    * @return how often (in ms) the nodes exchange the load of their queues, or -1 to load balance
+    *         messages in round robin
+    */
+   public long getLoadBalancingUpdatePeriod()
+   {
+      return loadBalancingUpdatePeriod;
+   }
+
+   public void setLoadBalancingUpdatePeriod(long loadBalancingUpdatePeriod)
+   {
+      this.loadBalancingUpdatePeriod = loadBalancingUpdatePeriod;
+   }
+
    @Override
    public int hashCode()
    {
@@ -468,6 +484,7 @@ public final class ClusterConnectionConfiguration implements Serializable
       result = prime * result + ((discoveryGroupName == null) ? 0 : discoveryGroupName.hashCode());
       result = prime * result + (duplicateDetection ? 1231 : 1237);
       result = prime * result + (forwardWhenNoConsumers ? 1231 : 1237);
+      result = prime * result + (int)(loadBalancingUpdatePeriod ^ (loadBalancingUpdatePeriod >>> 32));
       result = prime * result + maxHops;
       result = prime * result + (int)(maxRetryInterval ^ (maxRetryInterval >>> 32));
       result = prime * result + minLargeMessageSize;
@@ -532,6 +549,8 @@ public final class ClusterConnectionConfiguration implements Serializable
          return false;
       if (forwardWhenNoConsumers != other.forwardWhenNoConsumers)
          return false;
+      if (loadBalancingUpdatePeriod != other.loadBalancingUpdatePeriod)
+         return false;
       if (maxHops != other.maxHops)
          return false;
       if (maxRetryInterval != other.maxRetryInterval)
@@ -573,6 +573,18 @@ public interface Configuration extends Serializable
     */
    void setJournalCompactPercentage(int percentage);
 
+   /**
+    * Returns the maximum number of journal files compacted by each automatic compacting, 0 meaning
+    * the whole journal is compacted every time. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_FILES_PER_PASS}.
+    */
+   int getJournalCompactFilesPerPass();
+
+   /**
+    * Sets the maximum number of journal files compacted by each automatic compacting.
+    */
+   void setJournalCompactFilesPerPass(int journalCompactFilesPerPass);
+
    /**
     * Returns the number of journal files to pre-create. <br>
     * Default value is {@value HornetQDefaultConfiguration#DEFAULT_JOURNAL_MIN_FILES}.
@@ -584,6 +596,18 @@ public interface Configuration extends Serializable
     */
    void setJournalMinFiles(int files);
 
+   /**
+    * Returns the maximum number of free journal files kept for reuse, -1 meaning free files are only
+    * kept while there are less than {@link #getJournalMinFiles()} files. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_JOURNAL_POOL_FILES}.
+    */
+   int getJournalPoolFiles();
+
+   /**
+    * Sets the maximum number of free journal files kept for reuse.
+    */
+   void setJournalPoolFiles(int journalPoolFiles);
+
    // AIO and NIO need different values for these params
 
    /**
@@ -730,6 +754,19 @@ public interface Configuration extends Serializable
     */
    void setLargeMessagesDirectory(String directory);
 
+   /**
+    * Returns the size of the buffer aggregating the chunks of a large message being received
+    * before they are written to the large messages directory. <br>
+    * The writes are asynchronous; {@code 0} disables the buffer and each chunk is written as it arrives. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_LARGE_MESSAGE_WRITE_BUFFER_SIZE}.
+    */
+   int getLargeMessageWriteBufferSize();
+
+   /**
+    * Sets the size of the buffer aggregating the chunks of a large message being received.
+    */
+   void setLargeMessageWriteBufferSize(int largeMessageWriteBufferSize);
+
    // Other Properties ---------------------------------------------------------------------
 
    /**
@@ -124,6 +124,8 @@ public class ConfigurationImpl implements Configuration
 
    protected String largeMessagesDirectory = HornetQDefaultConfiguration.getDefaultLargeMessagesDir();
 
+   protected int largeMessageWriteBufferSize = HornetQDefaultConfiguration.getDefaultLargeMessageWriteBufferSize();
+
    protected String bindingsDirectory = HornetQDefaultConfiguration.getDefaultBindingsDirectory();
 
    protected boolean createBindingsDir = HornetQDefaultConfiguration.isDefaultCreateBindingsDir();
@@ -142,10 +144,14 @@ public class ConfigurationImpl implements Configuration
 
    protected int journalCompactPercentage = HornetQDefaultConfiguration.getDefaultJournalCompactPercentage();
 
+   protected int journalCompactFilesPerPass = HornetQDefaultConfiguration.getDefaultJournalCompactFilesPerPass();
+
    protected int journalFileSize = HornetQDefaultConfiguration.getDefaultJournalFileSize();
 
    protected int journalMinFiles = HornetQDefaultConfiguration.getDefaultJournalMinFiles();
 
+   protected int journalPoolFiles = HornetQDefaultConfiguration.getDefaultJournalPoolFiles();
+
    // AIO and NIO need different values for these attributes
 
    protected int journalMaxIO_AIO = HornetQDefaultConfiguration.getDefaultJournalMaxIoAio();
@@ -581,6 +587,16 @@ public class ConfigurationImpl implements Configuration
       journalMinFiles = files;
    }
 
+   public int getJournalPoolFiles()
+   {
+      return journalPoolFiles;
+   }
+
+   public void setJournalPoolFiles(final int journalPoolFiles)
+   {
+      this.journalPoolFiles = journalPoolFiles;
+   }
+
    public boolean isLogJournalWriteRate()
    {
       return logJournalWriteRate;
@@ -721,6 +737,16 @@ public class ConfigurationImpl implements Configuration
       largeMessagesDirectory = directory;
    }
 
+   public int getLargeMessageWriteBufferSize()
+   {
+      return largeMessageWriteBufferSize;
+   }
+
+   public void setLargeMessageWriteBufferSize(final int largeMessageWriteBufferSize)
+   {
+      this.largeMessageWriteBufferSize = largeMessageWriteBufferSize;
+   }
+
    public boolean isMessageCounterEnabled()
    {
       return messageCounterEnabled;
@@ -821,6 +847,16 @@ public class ConfigurationImpl implements Configuration
       journalCompactPercentage = percentage;
    }
 
+   public int getJournalCompactFilesPerPass()
+   {
+      return journalCompactFilesPerPass;
+   }
+
+   public void setJournalCompactFilesPerPass(final int journalCompactFilesPerPass)
+   {
+      this.journalCompactFilesPerPass = journalCompactFilesPerPass;
+   }
+
    public long getServerDumpInterval()
    {
       return serverDumpInterval;
@@ -1077,16 +1113,19 @@ public class ConfigurationImpl implements Configuration
       result = prime * result + journalBufferTimeout_NIO;
       result = prime * result + journalCompactMinFiles;
       result = prime * result + journalCompactPercentage;
+      result = prime * result + journalCompactFilesPerPass;
       result = prime * result + ((journalDirectory == null) ? 0 : journalDirectory.hashCode());
       result = prime * result + journalFileSize;
       result = prime * result + journalMaxIO_AIO;
       result = prime * result + journalMaxIO_NIO;
       result = prime * result + journalMinFiles;
+      result = prime * result + journalPoolFiles;
       result = prime * result + journalPerfBlastPages;
       result = prime * result + (journalSyncNonTransactional ? 1231 : 1237);
       result = prime * result + (journalSyncTransactional ? 1231 : 1237);
       result = prime * result + ((journalType == null) ? 0 : journalType.hashCode());
       result = prime * result + ((largeMessagesDirectory == null) ? 0 : largeMessagesDirectory.hashCode());
+      result = prime * result + largeMessageWriteBufferSize;
       result = prime * result + (logJournalWriteRate ? 1231 : 1237);
       result = prime * result + ((managementAddress == null) ? 0 : managementAddress.hashCode());
       result =
@@ -1279,6 +1318,8 @@ public class ConfigurationImpl implements Configuration
          return false;
       if (journalCompactPercentage != other.journalCompactPercentage)
          return false;
+      if (journalCompactFilesPerPass != other.journalCompactFilesPerPass)
+         return false;
       if (journalDirectory == null)
       {
          if (other.journalDirectory != null)
@@ -1294,6 +1335,8 @@ public class ConfigurationImpl implements Configuration
          return false;
       if (journalMinFiles != other.journalMinFiles)
          return false;
+      if (journalPoolFiles != other.journalPoolFiles)
+         return false;
       if (journalPerfBlastPages != other.journalPerfBlastPages)
          return false;
       if (journalSyncNonTransactional != other.journalSyncNonTransactional)
@@ -1309,6 +1352,8 @@ public class ConfigurationImpl implements Configuration
       }
       else if (!largeMessagesDirectory.equals(other.largeMessagesDirectory))
          return false;
+      if (largeMessageWriteBufferSize != other.largeMessageWriteBufferSize)
+         return false;
       if (logJournalWriteRate != other.logJournalWriteRate)
          return false;
       if (managementAddress == null)
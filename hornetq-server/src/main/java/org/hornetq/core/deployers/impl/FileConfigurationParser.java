@@ -131,6 +131,12 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
    private static final String REDISTRIBUTION_DELAY_NODE_NAME = "redistribution-delay";
 
+   private static final String REDISTRIBUTION_BATCH_SIZE_NODE_NAME = "redistribution-batch-size";
+
+   private static final String PARALLEL_DELIVERY_NODE_NAME = "parallel-delivery";
+
+   private static final String QUEUE_SHARDS_NODE_NAME = "queue-shards";
+
    private static final String SEND_TO_DLA_ON_NO_ROUTE = "send-to-dla-on-no-route";
 
    // Attributes ----------------------------------------------------
@@ -454,6 +460,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                                       config.getLargeMessagesDirectory(),
                                                                       Validators.NOT_NULL_OR_EMPTY));
 
+      config.setLargeMessageWriteBufferSize(getInteger(e, "large-message-write-buffer-size", config.getLargeMessageWriteBufferSize(), Validators.GE_ZERO));
+
       config.setBindingsDirectory(getString(e,
                                                                  "bindings-directory",
                                                                  config.getBindingsDirectory(),
@@ -557,6 +565,9 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       config.setJournalMinFiles(getInteger(e, "journal-min-files", config.getJournalMinFiles(), Validators.GT_ZERO));
 
+      config.setJournalPoolFiles(getInteger(e, "journal-pool-files", config.getJournalPoolFiles(),
+                                            Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setJournalCompactMinFiles(getInteger(e, "journal-compact-min-files", config.getJournalCompactMinFiles(),
                                                   Validators.GE_ZERO));
 
@@ -565,6 +576,9 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                                          config.getJournalCompactPercentage(),
                                                                          Validators.PERCENTAGE));
 
+      config.setJournalCompactFilesPerPass(getInteger(e, "journal-compact-files-per-pass",
+                                                      config.getJournalCompactFilesPerPass(), Validators.GE_ZERO));
+
       config.setLogJournalWriteRate(getBoolean(e,
                                                                     "log-journal-write-rate",
                                                                     HornetQDefaultConfiguration.isDefaultJournalLogWriteRate()));
@@ -854,6 +868,22 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
          {
             addressSettings.setRedistributionDelay(XMLUtil.parseLong(child));
          }
+         else if (REDISTRIBUTION_BATCH_SIZE_NODE_NAME.equalsIgnoreCase(name))
+         {
+            int batchSize = XMLUtil.parseInt(child);
+            Validators.GT_ZERO.validate(REDISTRIBUTION_BATCH_SIZE_NODE_NAME, batchSize);
+            addressSettings.setRedistributionBatchSize(batchSize);
+         }
+         else if (PARALLEL_DELIVERY_NODE_NAME.equalsIgnoreCase(name))
+         {
+            addressSettings.setParallelDelivery(XMLUtil.parseBoolean(child));
+         }
+         else if (QUEUE_SHARDS_NODE_NAME.equalsIgnoreCase(name))
+         {
+            int shards = XMLUtil.parseInt(child);
+            Validators.GT_ZERO.validate(QUEUE_SHARDS_NODE_NAME, shards);
+            addressSettings.setQueueShards(shards);
+         }
          else if (SEND_TO_DLA_ON_NO_ROUTE.equalsIgnoreCase(name))
          {
             addressSettings.setSendToDLAOnNoRoute(XMLUtil.parseBoolean(child));
@@ -1092,6 +1122,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       int clusterNotificationAttempts = getInteger(e, "notification-attempts", HornetQDefaultConfiguration.getDefaultClusterNotificationAttempts(), Validators.GT_ZERO);
 
+      long loadBalancingUpdatePeriod = getLong(e, "load-balancing-update-period", HornetQDefaultConfiguration.getDefaultClusterLoadBalancingUpdatePeriod(), Validators.MINUS_ONE_OR_GT_ZERO);
+
       String discoveryGroupName = null;
 
       List<String> staticConnectorNames = new ArrayList<String>();
@@ -1156,6 +1188,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                      clusterNotificationAttempts);
       }
 
+      config.setLoadBalancingUpdatePeriod(loadBalancingUpdatePeriod);
+
       mainConfig.getClusterConfigurations().add(config);
    }
 
@@ -1165,12 +1199,22 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
       String type = getString(node, "type", null, Validators.NOT_NULL_OR_EMPTY);
       String address = getString(node, "address", null, Validators.NOT_NULL_OR_EMPTY);
       Integer timeout = getInteger(node, "timeout", GroupingHandlerConfiguration.DEFAULT_TIMEOUT, Validators.GT_ZERO);
+      long groupTimeout = getLong(node,
+                                  "group-timeout",
+                                  GroupingHandlerConfiguration.DEFAULT_GROUP_TIMEOUT,
+                                  Validators.MINUS_ONE_OR_GT_ZERO);
+      long reaperPeriod = getLong(node,
+                                  "reaper-period",
+                                  GroupingHandlerConfiguration.DEFAULT_REAPER_PERIOD,
+                                  Validators.GT_ZERO);
       mainConfiguration.setGroupingHandlerConfiguration(new GroupingHandlerConfiguration(new SimpleString(name),
                                                                                          type.equals(GroupingHandlerConfiguration.TYPE.LOCAL.getType())
                                                                                                                                                        ? GroupingHandlerConfiguration.TYPE.LOCAL
                                                                                                                                                        : GroupingHandlerConfiguration.TYPE.REMOTE,
                                                                                          new SimpleString(address),
-                                                                                         timeout));
+                                                                                         timeout,
+                                                                                         groupTimeout,
+                                                                                         reaperPeriod));
    }
 
    private void parseBridgeConfiguration(final Element brNode, final Configuration mainConfig) throws Exception
@@ -398,6 +398,96 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public long getJournalCompactCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return storageManager.getJournalCompactCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalLastCompactPauseTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return storageManager.getJournalLastCompactPauseTime();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalMaxCompactPauseTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return storageManager.getJournalMaxCompactPauseTime();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalTotalCompactPauseTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return storageManager.getJournalTotalCompactPauseTime();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalFileWaitCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return storageManager.getJournalFileWaitCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalFileWaitTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return storageManager.getJournalFileWaitTime();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean isPersistenceEnabled()
    {
       checkStarted();
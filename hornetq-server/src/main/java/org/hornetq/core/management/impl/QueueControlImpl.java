@@ -257,6 +257,36 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
       }
    }
 
+   public long getMessagesRedistributed()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return queue.getMessagesRedistributed();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public double getRedistributionRate()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return queue.getRedistributionRate();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public long getID()
    {
       checkStarted();
@@ -909,6 +939,7 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
                obj.put("sessionID", serverConsumer.getSessionID());
                obj.put("browseOnly", serverConsumer.isBrowseOnly());
                obj.put("creationTime", serverConsumer.getCreationTime());
+               obj.put("windowSize", serverConsumer.getWindowSize());
 
                jsonArray.put(obj);
             }
@@ -63,6 +63,11 @@ public interface PagingStore extends HornetQComponent
 
    void applySetting(AddressSettings addressSettings);
 
+   /**
+    * @return the settings of the address, as last applied when the address settings changed
+    */
+   AddressSettings getAddressSettings();
+
    boolean isPaging();
 
    /** Schedules sync to the file storage. */
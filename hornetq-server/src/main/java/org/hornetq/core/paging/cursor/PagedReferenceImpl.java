@@ -49,6 +49,9 @@ public class PagedReferenceImpl implements PagedReference
 
    private final PageSubscription subscription;
 
+   // the queue holding the reference when it isn't the queue of the subscription
+   private final Queue queue;
+
    public ServerMessage getMessage()
    {
       return getPagedMessage().getMessage();
@@ -92,6 +95,19 @@ public class PagedReferenceImpl implements PagedReference
       }
       this.message = new WeakReference<PagedMessage>(message);
       this.subscription = subscription;
+      this.queue = null;
+   }
+
+   private PagedReferenceImpl(final PagedReferenceImpl other, final Queue queue)
+   {
+      this.position = other.position;
+      this.messageEstimate = other.messageEstimate;
+      this.message = new WeakReference<PagedMessage>(other.getPagedMessage());
+      this.subscription = other.subscription;
+      this.deliveryCount.set(other.deliveryCount.get());
+      this.persistedCount = other.persistedCount;
+      this.deliveryTime = other.deliveryTime;
+      this.queue = queue;
    }
 
    public boolean isPaged()
@@ -124,7 +140,7 @@ public class PagedReferenceImpl implements PagedReference
    @Override
    public MessageReference copy(final Queue queue)
    {
-      return new PagedReferenceImpl(this.position, this.getPagedMessage(), this.subscription);
+      return new PagedReferenceImpl(this, queue);
    }
 
    @Override
@@ -187,7 +203,7 @@ public class PagedReferenceImpl implements PagedReference
    @Override
    public Queue getQueue()
    {
-      return subscription.getQueue();
+      return queue != null ? queue : subscription.getQueue();
    }
 
    @Override
@@ -186,7 +186,7 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
             SequentialFileFactory factory = newFileFactory(guid);
 
-            AddressSettings settings = addressSettingsRepository.getMatch(address.toString());
+            AddressSettings settings = addressSettingsRepository.getMatch(address);
 
             PagingStore store = new PagingStoreImpl(address,
                                                     scheduledExecutor,
@@ -82,6 +82,8 @@ public class PagingStoreImpl implements PagingStore
    // Used to schedule sync threads
    private final PageSyncTimer syncTimer;
 
+   private volatile AddressSettings addressSettings;
+
    private long maxSize;
 
    private long pageSize;
@@ -183,6 +185,8 @@ public class PagingStoreImpl implements PagingStore
     */
    public void applySetting(final AddressSettings addressSettings)
    {
+      this.addressSettings = addressSettings;
+
       maxSize = addressSettings.getMaxSizeBytes();
 
       pageSize = addressSettings.getPageSizeBytes();
@@ -195,6 +199,11 @@ public class PagingStoreImpl implements PagingStore
       }
    }
 
+   public AddressSettings getAddressSettings()
+   {
+      return addressSettings;
+   }
+
    @Override
    public String toString()
    {
@@ -143,6 +143,14 @@ public interface StorageManager extends HornetQComponent
    /** Confirms that a large message was finished */
    void confirmPendingLargeMessage(long recordID) throws Exception;
 
+   /**
+    * Stores the link between a copy of a large message and the body it shares with other messages,
+    * on the same transaction as the message. Does nothing for messages not sharing their body.
+    * @param tx the transaction storing the message, or {@code null}
+    * @param paged whether the message is stored on a page instead of the journal
+    */
+   void storeLargeMessageBodyLink(Transaction tx, long messageID, boolean paged) throws Exception;
+
    void storeMessage(ServerMessage message) throws Exception;
 
    void storeReference(long queueID, long messageID, boolean last) throws Exception;
@@ -309,6 +317,37 @@ public interface StorageManager extends HornetQComponent
     */
    Journal getMessageJournal();
 
+   /**
+    * @return the number of compactings of the message journal completed since it was started
+    */
+   long getJournalCompactCount();
+
+   /**
+    * @return the time the message journal was locked by the last compacting, in nanoseconds
+    */
+   long getJournalLastCompactPauseTime();
+
+   /**
+    * @return the longest time the message journal was locked by a compacting, in nanoseconds
+    */
+   long getJournalMaxCompactPauseTime();
+
+   /**
+    * @return the time the message journal was locked by all the compactings, in nanoseconds
+    */
+   long getJournalTotalCompactPauseTime();
+
+   /**
+    * @return how many times the message journal had to wait for the next file to be created or
+    *         opened
+    */
+   long getJournalFileWaitCount();
+
+   /**
+    * @return the total time the message journal waited for the next file, in nanoseconds
+    */
+   long getJournalFileWaitTime();
+
    /**
     * @see JournalStorageManager#startReplication(ReplicationManager, PagingManager, String,
     *      boolean)
@@ -10,6 +10,7 @@ import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.ADD_REF
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.DUPLICATE_ID;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.HEURISTIC_COMPLETION;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.ID_COUNTER_RECORD;
+import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.LARGE_MESSAGE_BODY_LINK;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.PAGE_CURSOR_COMPLETE;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.PAGE_CURSOR_COUNTER_INC;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.PAGE_CURSOR_COUNTER_VALUE;
@@ -55,6 +56,7 @@ import org.hornetq.core.persistence.impl.journal.JournalStorageManager.LargeMess
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.PageCountRecord;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.PageCountRecordInc;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.PageUpdateTXEncoding;
+import org.hornetq.core.persistence.impl.journal.JournalStorageManager.LargeMessageBodyLinkEncoding;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.PendingLargeMessageEncoding;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.RefEncoding;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.ScheduledDeliveryEncoding;
@@ -478,6 +480,13 @@ public final class DescribeJournal
 
             return lmEncoding;
          }
+         case LARGE_MESSAGE_BODY_LINK:
+         {
+            LargeMessageBodyLinkEncoding linkEncoding = new LargeMessageBodyLinkEncoding();
+            linkEncoding.decode(buffer);
+
+            return linkEncoding;
+         }
          case ADD_LARGE_MESSAGE:
          {
 
@@ -66,4 +66,12 @@ public final class JournalRecordIds
    public static final byte PAGE_CURSOR_COUNTER_INC = 41;
 
    public static final byte PAGE_CURSOR_COMPLETE = 42;
+
+   /**
+    * Records a message using the body file of another large message.
+    * <p>
+    * Copies of large messages share the same file, and the file is only removed when the last of
+    * these records is deleted.
+    */
+   public static final byte LARGE_MESSAGE_BODY_LINK = 43;
 }
@@ -55,6 +55,7 @@ import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQIllegalStateException;
+import org.hornetq.api.core.HornetQInternalErrorException;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.Pair;
 import org.hornetq.api.core.SimpleString;
@@ -175,7 +176,7 @@ public class JournalStorageManager implements StorageManager
 
    private Journal bindingsJournal;
 
-   private final Journal originalMessageJournal;
+   private final JournalImpl originalMessageJournal;
 
    private final Journal originalBindingsJournal;
 
@@ -206,6 +207,12 @@ public class JournalStorageManager implements StorageManager
 
    private final String largeMessagesDirectory;
 
+   private final int largeMessageWriteBufferSize;
+
+   /** Write-behind buffers of the large messages being received, by message ID */
+   private final Map<Long, LargeMessageWriteBuffer> largeMessageWriteBuffers =
+      new ConcurrentHashMap<Long, LargeMessageWriteBuffer>();
+
    private boolean journalLoaded = false;
 
    // Persisted core configuration
@@ -217,6 +224,16 @@ public class JournalStorageManager implements StorageManager
 
    private final Set<Long> largeMessagesToDelete = new HashSet<Long>();
 
+   /**
+    * Large message bodies shared between copies of a message, keyed by the ID of the body file.
+    * Each value maps the messages using that body to their link.
+    */
+   private final Map<Long, Map<Long, LargeMessageBodyLink>> largeMessageBodyLinks =
+      new HashMap<Long, Map<Long, LargeMessageBodyLink>>();
+
+   /** messageID -> bodyID for every message on {@link #largeMessageBodyLinks} */
+   private final Map<Long, Long> largeMessageBodyIDs = new HashMap<Long, Long>();
+
    public JournalStorageManager(final Configuration config, final ExecutorFactory executorFactory)
    {
       this(config, executorFactory, null);
@@ -296,7 +313,7 @@ public class JournalStorageManager implements StorageManager
 
       idGenerator = new BatchingIDGenerator(0, JournalStorageManager.CHECKPOINT_BATCH_SIZE, this);
 
-      Journal localMessage = new JournalImpl(config.getJournalFileSize(),
+      JournalImpl localMessage = new JournalImpl(config.getJournalFileSize(),
          config.getJournalMinFiles(),
          config.getJournalCompactMinFiles(),
          config.getJournalCompactPercentage(),
@@ -306,11 +323,17 @@ public class JournalStorageManager implements StorageManager
          config.getJournalType() == JournalType.ASYNCIO ? config.getJournalMaxIO_AIO()
             : config.getJournalMaxIO_NIO());
 
+      localMessage.setCompactFilesPerPass(config.getJournalCompactFilesPerPass());
+
+      localMessage.setPoolFiles(config.getJournalPoolFiles());
+
       messageJournal = localMessage;
       originalMessageJournal = localMessage;
 
       largeMessagesDirectory = config.getLargeMessagesDirectory();
 
+      largeMessageWriteBufferSize = config.getLargeMessageWriteBufferSize();
+
       largeMessagesFactory = new NIOSequentialFileFactory(largeMessagesDirectory, false, criticalErrorListener);
 
       perfBlastPages = config.getJournalPerfBlastPages();
@@ -590,6 +613,11 @@ public class JournalStorageManager implements StorageManager
             continue;
          if (!started)
             return;
+         LargeMessageWriteBuffer writeBuffer = largeMessageWriteBuffers.get(id);
+         if (writeBuffer != null)
+         {
+            writeBuffer.flush();
+         }
          replicator.syncLargeMessageFile(seqFile, size, id);
       }
    }
@@ -620,7 +648,9 @@ public class JournalStorageManager implements StorageManager
          Long id = getLargeMessageIdFromFilename(filename);
          idList.add(id);
          SequentialFile seqFile = largeMessagesFactory.createSequentialFile(filename, 1);
-         long size = seqFile.size();
+         LargeMessageWriteBuffer writeBuffer = largeMessageWriteBuffers.get(id);
+         // bytes still on the write-behind buffer are part of the file to be synchronized
+         long size = writeBuffer == null ? seqFile.size() : writeBuffer.getSize();
          largeMessages.put(id, new Pair<String, Long>(filename, size));
       }
       replicator.sendLargeMessageIdListMessage(largeMessages);
@@ -797,6 +827,78 @@ public class JournalStorageManager implements StorageManager
       }
    }
 
+   // This should be accessed from this package only
+   void addBytesToLargeMessage(final LargeMessageWriteBuffer writeBuffer,
+                               final long messageId,
+                               final byte[] bytes) throws Exception
+   {
+      readLock();
+      try
+      {
+         writeBuffer.write(bytes);
+
+         if (isReplicated())
+         {
+            replicator.largeMessageWrite(messageId, bytes);
+         }
+      }
+      finally
+      {
+         readUnLock();
+      }
+   }
+
+   /**
+    * @return a write-behind buffer for the body of a large message being received, or {@code null}
+    *         if the chunks should be written as they arrive
+    */
+   LargeMessageWriteBuffer createLargeMessageWriteBuffer(final SequentialFile file, final long messageId) throws Exception
+   {
+      if (largeMessageWriteBufferSize <= 0)
+      {
+         return null;
+      }
+
+      LargeMessageWriteBuffer writeBuffer =
+         new LargeMessageWriteBuffer(this,
+                                     file,
+                                     executorFactory.getExecutor(),
+                                     largeMessagesFactory.calculateBlockSize(largeMessageWriteBufferSize));
+
+      largeMessageWriteBuffers.put(messageId, writeBuffer);
+
+      return writeBuffer;
+   }
+
+   /**
+    * Writes everything still buffered for the message and stops buffering.
+    */
+   void closeLargeMessageWriteBuffer(final LargeMessageWriteBuffer writeBuffer, final long messageId) throws Exception
+   {
+      try
+      {
+         writeBuffer.flush();
+      }
+      finally
+      {
+         largeMessageWriteBuffers.remove(messageId);
+      }
+   }
+
+   // Called from the executor of a LargeMessageWriteBuffer
+   void writeLargeMessageBuffer(final SequentialFile file, final ByteBuffer bytes) throws Exception
+   {
+      readLock();
+      try
+      {
+         file.writeDirect(bytes, false);
+      }
+      finally
+      {
+         readUnLock();
+      }
+   }
+
    public LargeServerMessage createLargeMessage(final long id, final MessageInternal message) throws Exception
    {
       readLock();
@@ -813,6 +915,8 @@ public class JournalStorageManager implements StorageManager
 
          largeMessage.setMessageID(id);
 
+         largeMessage.setWriteBehind();
+
          if (largeMessage.isDurable())
          {
             // We store a marker on the journal that the large file is pending
@@ -1539,6 +1643,23 @@ public class JournalStorageManager implements StorageManager
 
          final int totalSize = records.size();
 
+         List<LargeMessageBodyLinkEncoding> largeMessageBodyLinkRecords = new ArrayList<LargeMessageBodyLinkEncoding>();
+
+         // The links have to be known before any large message is parsed, as copies use the body of another message
+         for (RecordInfo record : records)
+         {
+            if (record.getUserRecordType() == JournalRecordIds.LARGE_MESSAGE_BODY_LINK)
+            {
+               LargeMessageBodyLinkEncoding link = new LargeMessageBodyLinkEncoding();
+
+               link.decode(HornetQBuffers.wrappedBuffer(record.data));
+
+               recoverLargeMessageBodyLink(record.id, link);
+
+               largeMessageBodyLinkRecords.add(link);
+            }
+         }
+
          for (int reccount = 0; reccount < totalSize; reccount++)
          {
             // It will show log.info only with large journals (more than 1 million records)
@@ -1571,6 +1692,11 @@ public class JournalStorageManager implements StorageManager
                   }
                   break;
                }
+               case JournalRecordIds.LARGE_MESSAGE_BODY_LINK:
+               {
+                  // already loaded before the messages
+                  break;
+               }
                case JournalRecordIds.ADD_LARGE_MESSAGE:
                {
                   LargeServerMessage largeMessage = parseLargeMessage(messages, buff);
@@ -1924,6 +2050,8 @@ public class JournalStorageManager implements StorageManager
             pageSubscriptions,
             pendingLargeMessages);
 
+         removeUnloadedLargeMessageBodyLinks(largeMessageBodyLinkRecords, messages);
+
          for (PageSubscription sub : pageSubscriptions.values())
          {
             sub.getCounter().processReload();
@@ -2376,10 +2504,40 @@ public class JournalStorageManager implements StorageManager
       return bindingsJournal;
    }
 
+   public long getJournalCompactCount()
+   {
+      return originalMessageJournal.getCompactCount();
+   }
+
+   public long getJournalLastCompactPauseTime()
+   {
+      return originalMessageJournal.getLastCompactPauseTime();
+   }
+
+   public long getJournalMaxCompactPauseTime()
+   {
+      return originalMessageJournal.getMaxCompactPauseTime();
+   }
+
+   public long getJournalTotalCompactPauseTime()
+   {
+      return originalMessageJournal.getTotalCompactPauseTime();
+   }
+
+   public long getJournalFileWaitCount()
+   {
+      return originalMessageJournal.getFileWaitCount();
+   }
+
+   public long getJournalFileWaitTime()
+   {
+      return originalMessageJournal.getFileWaitTime();
+   }
+
    // Package protected ---------------------------------------------
 
    // This should be accessed from this package only
-   void deleteLargeMessageFile(final LargeServerMessage largeServerMessage) throws HornetQException
+   void deleteLargeMessageFile(final LargeServerMessageImpl largeServerMessage) throws HornetQException
    {
       final SequentialFile file = largeServerMessage.getFile();
       if (file == null)
@@ -2387,6 +2545,13 @@ public class JournalStorageManager implements StorageManager
          return;
       }
 
+      final long bodyID = unlinkLargeMessageBody(largeServerMessage.getMessageID());
+      if (bodyID != largeServerMessage.getBodyID())
+      {
+         // the file is still used by other messages, or this copy was never linked to it
+         return;
+      }
+
       if (largeServerMessage.isDurable() && isReplicated())
       {
          readLock();
@@ -2396,7 +2561,7 @@ public class JournalStorageManager implements StorageManager
             {
                synchronized (largeMessagesToDelete)
                {
-                  largeMessagesToDelete.add(Long.valueOf(largeServerMessage.getMessageID()));
+                  largeMessagesToDelete.add(Long.valueOf(bodyID));
                }
                return;
             }
@@ -2417,7 +2582,7 @@ public class JournalStorageManager implements StorageManager
                {
                   if (replicator != null)
                   {
-                     replicator.largeMessageDelete(largeServerMessage.getMessageID());
+                     replicator.largeMessageDelete(bodyID);
                   }
                   file.delete();
                }
@@ -2428,7 +2593,7 @@ public class JournalStorageManager implements StorageManager
             }
             catch (Exception e)
             {
-               HornetQServerLogger.LOGGER.journalErrorDeletingMessage(e, largeServerMessage.getMessageID());
+               HornetQServerLogger.LOGGER.journalErrorDeletingMessage(e, bodyID);
             }
          }
 
@@ -2462,9 +2627,294 @@ public class JournalStorageManager implements StorageManager
       return largeMessagesFactory.createSequentialFile(messageID + extension.getExtension(), -1);
    }
 
+   /**
+    * @return the ID of the file holding the body of this message, which is the message ID itself
+    *         unless the message is a copy sharing the body of another message
+    */
+   long getLargeMessageBodyID(final long messageID)
+   {
+      synchronized (largeMessageBodyLinks)
+      {
+         Long bodyID = largeMessageBodyIDs.get(messageID);
+         return bodyID == null ? messageID : bodyID.longValue();
+      }
+   }
+
+   /**
+    * @return whether the message that created the body file is durable, which decides the name of
+    *         the file, or {@code defaultDurable} if the body is not shared
+    */
+   boolean isLargeMessageBodyDurable(final long bodyID, final boolean defaultDurable)
+   {
+      synchronized (largeMessageBodyLinks)
+      {
+         Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(bodyID);
+         LargeMessageBodyLink bodyLink = links == null ? null : links.get(bodyID);
+         return bodyLink == null ? defaultDurable : bodyLink.durable;
+      }
+   }
+
+   /**
+    * Makes a copy of a large message use the same body file instead of copying the file.
+    * <p>
+    * The first copy also links the message that created the body, so the file is kept until every
+    * message linked to it has been deleted. The links are only stored along with the messages, see
+    * {@link #storeLargeMessageBodyLink(Transaction, long, boolean)}.
+    * @param durable whether the copy is durable
+    * @param bodyDurable whether the message the copy was made from is durable
+    * @param bodyPaged whether the message the copy was made from is paged
+    */
+   void linkLargeMessageBody(final long bodyID,
+                             final long messageID,
+                             final boolean durable,
+                             final boolean bodyDurable,
+                             final boolean bodyPaged)
+   {
+      synchronized (largeMessageBodyLinks)
+      {
+         Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(bodyID);
+
+         if (links == null)
+         {
+            links = new HashMap<Long, LargeMessageBodyLink>();
+            largeMessageBodyLinks.put(bodyID, links);
+            links.put(bodyID, new LargeMessageBodyLink(bodyDurable, bodyPaged, -1));
+            largeMessageBodyIDs.put(bodyID, bodyID);
+         }
+
+         if (!links.containsKey(messageID))
+         {
+            links.put(messageID, new LargeMessageBodyLink(durable, false, -1));
+            largeMessageBodyIDs.put(messageID, bodyID);
+         }
+      }
+   }
+
+   /**
+    * Stores the links of a message and of the message that created its body, unless they are
+    * already stored. A link stored before the message was paged is updated, as the journal load
+    * would not find the message.
+    */
+   public void storeLargeMessageBodyLink(final Transaction tx, final long messageID, final boolean paged) throws Exception
+   {
+      readLock();
+      try
+      {
+         synchronized (largeMessageBodyLinks)
+         {
+            Long bodyID = largeMessageBodyIDs.get(messageID);
+
+            if (bodyID == null)
+            {
+               return;
+            }
+
+            Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(bodyID);
+
+            LargeMessageBodyLink link = links.get(messageID);
+
+            if (paged && !link.paged)
+            {
+               LargeMessageBodyLink previous = link.copy();
+
+               link.paged = true;
+
+               if (link.recordID >= 0)
+               {
+                  storeLargeMessageBodyLink(tx, bodyID, messageID, link, previous, true);
+               }
+            }
+
+            if (link.recordID < 0 && link.durable)
+            {
+               storeLargeMessageBodyLink(tx, bodyID, messageID, link, link.copy(), false);
+            }
+
+            LargeMessageBodyLink bodyLink = links.get(bodyID);
+
+            if (bodyLink != null && bodyLink.recordID < 0 && bodyLink.durable)
+            {
+               storeLargeMessageBodyLink(tx, bodyID, bodyID, bodyLink, bodyLink.copy(), false);
+            }
+         }
+      }
+      finally
+      {
+         readUnLock();
+      }
+   }
+
+   /**
+    * Removes the link between a message and its body.
+    * @return the ID of the body file if no other message is using it and the file can be deleted,
+    *         or -1 if the body is still used by other messages
+    */
+   private long unlinkLargeMessageBody(final long messageID) throws HornetQException
+   {
+      final long bodyID;
+      final long recordID;
+      final boolean lastLink;
+
+      synchronized (largeMessageBodyLinks)
+      {
+         Long linkedBodyID = largeMessageBodyIDs.remove(messageID);
+
+         if (linkedBodyID == null)
+         {
+            // a body that was never shared, unless this message was already unlinked from a shared body
+            return largeMessageBodyLinks.containsKey(messageID) ? -1 : messageID;
+         }
+
+         bodyID = linkedBodyID.longValue();
+
+         Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(bodyID);
+
+         recordID = links.remove(messageID).recordID;
+
+         lastLink = links.isEmpty();
+
+         if (lastLink)
+         {
+            largeMessageBodyLinks.remove(bodyID);
+         }
+      }
+
+      if (recordID >= 0)
+      {
+         readLock();
+         try
+         {
+            messageJournal.appendDeleteRecord(recordID, false, getContext(false));
+         }
+         catch (Exception e)
+         {
+            throw new HornetQInternalErrorException(e.getMessage(), e);
+         }
+         finally
+         {
+            readUnLock();
+         }
+      }
+
+      return lastLink ? bodyID : -1;
+   }
+
+   // This should be accessed from this package only
+   void recoverLargeMessageBodyLink(final long recordID, final LargeMessageBodyLinkEncoding encoding)
+   {
+      synchronized (largeMessageBodyLinks)
+      {
+         recoverLargeMessageBodyLink(new LargeMessageBodyLink(true, encoding.paged, recordID), encoding);
+      }
+   }
+
 
    // Private ----------------------------------------------------------------------------------
 
+   private void recoverLargeMessageBodyLink(final LargeMessageBodyLink link, final LargeMessageBodyLinkEncoding encoding)
+   {
+      Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(encoding.bodyID);
+
+      if (links == null)
+      {
+         links = new HashMap<Long, LargeMessageBodyLink>();
+         largeMessageBodyLinks.put(encoding.bodyID, links);
+      }
+
+      links.put(encoding.messageID, link);
+      largeMessageBodyIDs.put(encoding.messageID, encoding.bodyID);
+   }
+
+   private void storeLargeMessageBodyLink(final Transaction tx,
+                                          final long bodyID,
+                                          final long messageID,
+                                          final LargeMessageBodyLink link,
+                                          final LargeMessageBodyLink previous,
+                                          final boolean update) throws Exception
+   {
+      if (!update)
+      {
+         link.recordID = generateUniqueID();
+      }
+
+      LargeMessageBodyLinkEncoding encoding = new LargeMessageBodyLinkEncoding(messageID, bodyID, link.paged);
+
+      if (tx == null)
+      {
+         if (update)
+         {
+            messageJournal.appendUpdateRecord(link.recordID, JournalRecordIds.LARGE_MESSAGE_BODY_LINK, encoding,
+               false, getContext(false));
+         }
+         else
+         {
+            messageJournal.appendAddRecord(link.recordID, JournalRecordIds.LARGE_MESSAGE_BODY_LINK, encoding,
+               false, getContext(false));
+         }
+      }
+      else
+      {
+         if (update)
+         {
+            messageJournal.appendUpdateRecordTransactional(tx.getID(), link.recordID,
+               JournalRecordIds.LARGE_MESSAGE_BODY_LINK, encoding);
+         }
+         else
+         {
+            messageJournal.appendAddRecordTransactional(tx.getID(), link.recordID,
+               JournalRecordIds.LARGE_MESSAGE_BODY_LINK, encoding);
+         }
+
+         tx.setContainsPersistent();
+
+         installLargeMessageBodyLinkOnTX(tx, link, previous);
+      }
+   }
+
+   /**
+    * Removes the stored links of messages that were not loaded, as a copy that was never routed or
+    * whose transaction was rolled back or never completed, and deletes the bodies no longer used.
+    * The links of paged messages are kept, as the pages are not loaded yet.
+    */
+   private void removeUnloadedLargeMessageBodyLinks(final List<LargeMessageBodyLinkEncoding> linkRecords,
+                                                    final Map<Long, ServerMessage> messages) throws Exception
+   {
+      for (LargeMessageBodyLinkEncoding linkRecord : linkRecords)
+      {
+         if (linkRecord.paged || messages.containsKey(linkRecord.messageID))
+         {
+            continue;
+         }
+
+         synchronized (largeMessageBodyLinks)
+         {
+            Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(linkRecord.bodyID);
+
+            LargeMessageBodyLink link = links == null ? null : links.get(linkRecord.messageID);
+
+            if (link == null || link.paged)
+            {
+               // already removed, or paged by an update of the record
+               continue;
+            }
+         }
+
+         long bodyID = unlinkLargeMessageBody(linkRecord.messageID);
+
+         if (bodyID >= 0)
+         {
+            SequentialFile file = createFileForLargeMessage(bodyID, LargeMessageExtension.DURABLE);
+
+            if (file.exists())
+            {
+               HornetQServerLogger.LOGGER.largeMessageWithNoRef(bodyID);
+
+               file.delete();
+            }
+         }
+      }
+   }
+
    private void checkAndCreateDir(final String dir, final boolean create)
    {
       File f = new File(dir);
@@ -2499,9 +2949,11 @@ public class JournalStorageManager implements StorageManager
 
       messageEncoding.decode(buff);
 
-      if (largeMessage.containsProperty(Message.HDR_ORIG_MESSAGE_ID))
+      if (largeMessage.containsProperty(Message.HDR_ORIG_MESSAGE_ID) &&
+          getLargeMessageBodyID(largeMessage.getMessageID()) == largeMessage.getMessageID())
       {
          // for compatibility: couple with old behaviour, copying the old file to avoid message loss
+         // (copies linked to the body of the original message don't need this)
          long originalMessageID = largeMessage.getLongProperty(Message.HDR_ORIG_MESSAGE_ID);
 
          SequentialFile currentFile = createFileForLargeMessage(largeMessage.getMessageID(), true);
@@ -2545,6 +2997,35 @@ public class JournalStorageManager implements StorageManager
 
          Map<Long, ServerMessage> messages = new HashMap<Long, ServerMessage>();
 
+         // the links have to be known before the copies using them are parsed
+         for (RecordInfo record : preparedTransaction.records)
+         {
+            if (record.getUserRecordType() == JournalRecordIds.LARGE_MESSAGE_BODY_LINK)
+            {
+               LargeMessageBodyLinkEncoding encoding = new LargeMessageBodyLinkEncoding();
+
+               encoding.decode(HornetQBuffers.wrappedBuffer(record.data));
+
+               synchronized (largeMessageBodyLinks)
+               {
+                  Map<Long, LargeMessageBodyLink> links = largeMessageBodyLinks.get(encoding.bodyID);
+
+                  LargeMessageBodyLink previous = links == null ? null : links.get(encoding.messageID);
+
+                  if (previous == null)
+                  {
+                     previous = new LargeMessageBodyLink(true, false, -1);
+                  }
+
+                  LargeMessageBodyLink link = new LargeMessageBodyLink(true, encoding.paged, record.id);
+
+                  recoverLargeMessageBodyLink(link, encoding);
+
+                  installLargeMessageBodyLinkOnTX(tx, link, previous.copy());
+               }
+            }
+         }
+
          // Use same method as load message journal to prune out acks, so they don't get added.
          // Then have reacknowledge(tx) methods on queue, which needs to add the page size
 
@@ -2565,6 +3046,11 @@ public class JournalStorageManager implements StorageManager
 
                   break;
                }
+               case JournalRecordIds.LARGE_MESSAGE_BODY_LINK:
+               {
+                  // already loaded before the messages
+                  break;
+               }
                case JournalRecordIds.ADD_MESSAGE:
                {
                   ServerMessage message = new ServerMessageImpl(record.id, 50);
@@ -3173,6 +3659,51 @@ public class JournalStorageManager implements StorageManager
 
    }
 
+   public static class LargeMessageBodyLinkEncoding implements EncodingSupport
+   {
+      public long messageID;
+
+      public long bodyID;
+
+      public boolean paged;
+
+      public LargeMessageBodyLinkEncoding(final long messageID, final long bodyID, final boolean paged)
+      {
+         this.messageID = messageID;
+         this.bodyID = bodyID;
+         this.paged = paged;
+      }
+
+      public LargeMessageBodyLinkEncoding()
+      {
+      }
+
+      public void decode(final HornetQBuffer buffer)
+      {
+         messageID = buffer.readLong();
+         bodyID = buffer.readLong();
+         paged = buffer.readBoolean();
+      }
+
+      public void encode(final HornetQBuffer buffer)
+      {
+         buffer.writeLong(messageID);
+         buffer.writeLong(bodyID);
+         buffer.writeBoolean(paged);
+      }
+
+      public int getEncodeSize()
+      {
+         return DataConstants.SIZE_LONG * 2 + DataConstants.SIZE_BOOLEAN;
+      }
+
+      @Override
+      public String toString()
+      {
+         return "LargeMessageBodyLinkEncoding::MessageID=" + messageID + ", BodyID=" + bodyID + ", Paged=" + paged;
+      }
+   }
+
    public static class DeliveryCountUpdateEncoding implements EncodingSupport
    {
       public long queueID;
@@ -3798,4 +4329,68 @@ public class JournalStorageManager implements StorageManager
          }
       }
    }
+
+   private void installLargeMessageBodyLinkOnTX(final Transaction tx,
+                                                final LargeMessageBodyLink link,
+                                                final LargeMessageBodyLink previous)
+   {
+      TXLargeMessageBodyLinkOperation txoper = (TXLargeMessageBodyLinkOperation)tx.getProperty(TransactionPropertyIndexes.LARGE_MESSAGE_BODY_LINKS);
+      if (txoper == null)
+      {
+         txoper = new TXLargeMessageBodyLinkOperation();
+         tx.putProperty(TransactionPropertyIndexes.LARGE_MESSAGE_BODY_LINKS, txoper);
+         tx.addOperation(txoper);
+      }
+      txoper.storedLinks.add(new Pair<LargeMessageBodyLink, LargeMessageBodyLink>(link, previous));
+   }
+
+   /**
+    * Restores the links stored on a transaction that is rolled back, before the messages using
+    * them are deleted, so no record is deleted that was never stored.
+    */
+   final class TXLargeMessageBodyLinkOperation extends TransactionOperationAbstract
+   {
+      public List<Pair<LargeMessageBodyLink, LargeMessageBodyLink>> storedLinks =
+         new LinkedList<Pair<LargeMessageBodyLink, LargeMessageBodyLink>>();
+
+      @Override
+      public void beforeRollback(Transaction tx)
+      {
+         synchronized (largeMessageBodyLinks)
+         {
+            for (Pair<LargeMessageBodyLink, LargeMessageBodyLink> storedLink : storedLinks)
+            {
+               storedLink.getA().recordID = storedLink.getB().recordID;
+               storedLink.getA().paged = storedLink.getB().paged;
+            }
+         }
+      }
+   }
+
+   /**
+    * The link between a message and the body it uses, see {@link #largeMessageBodyLinks}.
+    */
+   private static final class LargeMessageBodyLink
+   {
+      /** whether the link is stored along with the message */
+      final boolean durable;
+
+      /** whether the message is paged, where the journal load doesn't find it */
+      boolean paged;
+
+      /** the {@link JournalRecordIds#LARGE_MESSAGE_BODY_LINK} record, -1 while not stored */
+      long recordID;
+
+      LargeMessageBodyLink(final boolean durable, final boolean paged, final long recordID)
+      {
+         this.durable = durable;
+         this.paged = paged;
+         this.recordID = recordID;
+      }
+
+      LargeMessageBodyLink copy()
+      {
+         return new LargeMessageBodyLink(durable, paged, recordID);
+      }
+   }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.persistence.impl.journal;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.hornetq.api.core.HornetQInternalErrorException;
+import org.hornetq.core.journal.SequentialFile;
+
+/**
+ * Write-behind buffer for the body of a large message being received.
+ * <p>
+ * The chunks sent by the producer are aggregated into writes of {@code bufferSize} bytes, and these
+ * writes are executed in order on an executor so the session receiving the chunks never waits on
+ * the disk. The body has to be {@link #flush() flushed} before the file is read.
+ * <p>
+ * Producer credits are held back through {@link #afterPendingWrites(Runnable)} while more than
+ * {@link #MAX_PENDING_BUFFERS} buffers are waiting to be written.
+ */
+final class LargeMessageWriteBuffer
+{
+   private static final int MAX_PENDING_BUFFERS = 4;
+
+   private final JournalStorageManager storageManager;
+
+   private final SequentialFile file;
+
+   private final Executor executor;
+
+   private final int bufferSize;
+
+   private ByteBuffer buffer;
+
+   // bytes submitted to the executor but not written yet
+   private long pendingBytes;
+
+   // size of the body, including what was not written yet
+   private long size;
+
+   private final List<Runnable> afterPendingWrites = new ArrayList<Runnable>();
+
+   private Exception failure;
+
+   LargeMessageWriteBuffer(final JournalStorageManager storageManager,
+                           final SequentialFile file,
+                           final Executor executor,
+                           final int bufferSize) throws Exception
+   {
+      this.storageManager = storageManager;
+      this.file = file;
+      this.executor = executor;
+      this.bufferSize = bufferSize;
+      this.size = file.size();
+      file.position(size);
+   }
+
+   public synchronized void write(final byte[] bytes) throws Exception
+   {
+      checkFailure();
+
+      int offset = 0;
+
+      while (offset < bytes.length)
+      {
+         if (buffer == null)
+         {
+            buffer = ByteBuffer.allocate(bufferSize);
+         }
+
+         int length = Math.min(buffer.remaining(), bytes.length - offset);
+
+         buffer.put(bytes, offset, length);
+
+         offset += length;
+
+         if (!buffer.hasRemaining())
+         {
+            submit();
+         }
+      }
+
+      size += bytes.length;
+   }
+
+   /**
+    * @return the size of the body including the bytes still buffered
+    */
+   public synchronized long getSize()
+   {
+      return size;
+   }
+
+   /**
+    * Writes whatever is buffered and waits for all the pending writes to complete.
+    */
+   public synchronized void flush() throws Exception
+   {
+      if (buffer != null && buffer.position() > 0)
+      {
+         submit();
+      }
+
+      while (pendingBytes > 0)
+      {
+         wait();
+      }
+
+      checkFailure();
+   }
+
+   /**
+    * Runs the task right away, or as soon as the writes pending are below the limit.
+    */
+   public void afterPendingWrites(final Runnable runnable)
+   {
+      synchronized (this)
+      {
+         if (pendingBytes > (long)bufferSize * MAX_PENDING_BUFFERS)
+         {
+            afterPendingWrites.add(runnable);
+            return;
+         }
+      }
+
+      runnable.run();
+   }
+
+   private void submit()
+   {
+      final ByteBuffer bytes = buffer;
+
+      buffer = null;
+
+      bytes.flip();
+
+      final int length = bytes.limit();
+
+      pendingBytes += length;
+
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               storageManager.writeLargeMessageBuffer(file, bytes);
+            }
+            catch (Exception e)
+            {
+               synchronized (LargeMessageWriteBuffer.this)
+               {
+                  failure = e;
+               }
+            }
+            finally
+            {
+               written(length);
+            }
+         }
+      });
+   }
+
+   private void written(final int length)
+   {
+      List<Runnable> toRun = null;
+
+      synchronized (this)
+      {
+         pendingBytes -= length;
+
+         if (pendingBytes <= (long)bufferSize * MAX_PENDING_BUFFERS && !afterPendingWrites.isEmpty())
+         {
+            toRun = new ArrayList<Runnable>(afterPendingWrites);
+            afterPendingWrites.clear();
+         }
+
+         notifyAll();
+      }
+
+      if (toRun != null)
+      {
+         for (Runnable runnable : toRun)
+         {
+            runnable.run();
+         }
+      }
+   }
+
+   private void checkFailure() throws HornetQInternalErrorException
+   {
+      if (failure != null)
+      {
+         throw new HornetQInternalErrorException(failure.getMessage(), failure);
+      }
+   }
+}
@@ -55,8 +55,31 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    // The actual copy is done when finishCopy is called
    private SequentialFile pendingCopy;
 
+   // ID of the file holding the body, resolved lazily as copies share the body of the original message
+   private long bodyID = -1;
+
+   // set when this message is a copy sharing the body of another message
+   // The link is only made when finishCopy is called, and stored with the message
+   private boolean pendingLink;
+
+   // durable and paged flags of the message this copy was made from, for the link of that message to the body
+   private boolean linkedFromDurable;
+
+   private boolean linkedFromPaged;
+
+   // set on copies made in memory, whose body file is named after the durability of the message
+   // that created it
+   private boolean sharedBody;
+
+   private boolean bodyDurable;
+
    private long bodySize = -1;
 
+   // set when the chunks received for this message should be written behind
+   private boolean writeBehind;
+
+   private LargeMessageWriteBuffer writeBuffer;
+
    private final AtomicInteger delayDeletionCount = new AtomicInteger(0);
 
    // Static --------------------------------------------------------
@@ -80,6 +103,9 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
       storageManager = copy.storageManager;
       file = fileCopy;
       bodySize = copy.bodySize;
+      bodyID = copy.getBodyID();
+      sharedBody = true;
+      bodyDurable = copy.isBodyDurable();
       setMessageID(newID);
    }
 
@@ -103,6 +129,15 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
       paged = true;
    }
 
+   /**
+    * Enables the write-behind of the chunks received through {@link #addBytes(byte[])}, if it is
+    * configured.
+    */
+   public void setWriteBehind()
+   {
+      writeBehind = true;
+   }
+
    @Override
    public synchronized void addBytes(final byte[] bytes) throws Exception
    {
@@ -113,11 +148,59 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
          file.open();
       }
 
-      storageManager.addBytesToLargeMessage(file, getMessageID(), bytes);
+      if (writeBehind && writeBuffer == null)
+      {
+         writeBuffer = storageManager.createLargeMessageWriteBuffer(file, getMessageID());
+         writeBehind = writeBuffer != null;
+      }
+
+      if (writeBuffer != null)
+      {
+         storageManager.addBytesToLargeMessage(writeBuffer, getMessageID(), bytes);
+      }
+      else
+      {
+         storageManager.addBytesToLargeMessage(file, getMessageID(), bytes);
+      }
 
       bodySize += bytes.length;
    }
 
+   public void afterPendingWrites(final Runnable runnable)
+   {
+      LargeMessageWriteBuffer currentBuffer;
+
+      synchronized (this)
+      {
+         currentBuffer = writeBuffer;
+      }
+
+      if (currentBuffer == null)
+      {
+         runnable.run();
+      }
+      else
+      {
+         currentBuffer.afterPendingWrites(runnable);
+      }
+   }
+
+   public synchronized void flushPendingWrites() throws Exception
+   {
+      if (writeBuffer != null)
+      {
+         try
+         {
+            storageManager.closeLargeMessageWriteBuffer(writeBuffer, getMessageID());
+         }
+         finally
+         {
+            writeBuffer = null;
+            writeBehind = false;
+         }
+      }
+   }
+
    public void encodeBody(final HornetQBuffer bufferOut, final BodyEncoder context, final int size)
    {
       try
@@ -269,6 +352,20 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
 
    public synchronized void releaseResources()
    {
+      if (writeBuffer != null)
+      {
+         try
+         {
+            storageManager.closeLargeMessageWriteBuffer(writeBuffer, getMessageID());
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.largeMessageErrorReleasingResources(e);
+         }
+         writeBuffer = null;
+         writeBehind = false;
+      }
+
       if (file != null && file.isOpen())
       {
          try
@@ -299,7 +396,7 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    @Override
    public synchronized ServerMessage copy()
    {
-      SequentialFile newfile = storageManager.createFileForLargeMessage(messageID, durable);
+      SequentialFile newfile = createFile();
 
       ServerMessage newMessage = new LargeServerMessageImpl(this,
                                                             properties,
@@ -318,7 +415,12 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    @Override
    public void finishCopy() throws Exception
    {
-      if (pendingCopy != null)
+      if (pendingLink)
+      {
+         storageManager.linkLargeMessageBody(getBodyID(), messageID, durable, linkedFromDurable, linkedFromPaged);
+         pendingLink = false;
+      }
+      else if (pendingCopy != null)
       {
          SequentialFile copyTo = createFile();
          try
@@ -342,27 +444,34 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    }
 
    /**
-    * The copy of the file itself will be done later by {@link LargeServerMessageImpl#finishCopy()}
+    * The copy shares the body file of this message, no data is copied.
+    * The link to the body is made later by {@link LargeServerMessageImpl#finishCopy()}, and stored
+    * along with the copy when it is routed
     * */
    @Override
    public synchronized ServerMessage copy(final long newID)
    {
-      try
-      {
-         SequentialFile newfile = storageManager.createFileForLargeMessage(newID, durable);
+      LargeServerMessageImpl newMessage = new LargeServerMessageImpl(this,
+                                                                     properties,
+                                                                     createFile(),
+                                                                     newID);
+      newMessage.pendingLink = true;
+      newMessage.linkedFromDurable = durable;
+      newMessage.linkedFromPaged = paged;
+      return newMessage;
+   }
 
-         LargeServerMessageImpl newMessage = new LargeServerMessageImpl(this,
-                                                               properties,
-                                                               newfile,
-                                                               newID);
-         newMessage.copyFrom(createFile());
-         return newMessage;
-      }
-      catch (Exception e)
+   /**
+    * @return the ID of the file holding the body of this message. It differs from the message ID on
+    *         copies sharing the body of another message.
+    */
+   public synchronized long getBodyID()
+   {
+      if (bodyID < 0 && messageID > 0)
       {
-         HornetQServerLogger.LOGGER.lareMessageErrorCopying(e, this);
-         return null;
+         bodyID = storageManager.getLargeMessageBodyID(messageID);
       }
+      return bodyID < 0 ? messageID : bodyID;
    }
 
    public SequentialFile getFile() throws HornetQException
@@ -423,7 +532,18 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
     */
    protected SequentialFile createFile()
    {
-      return storageManager.createFileForLargeMessage(getMessageID(), durable);
+      return storageManager.createFileForLargeMessage(getBodyID(), isBodyDurable());
+   }
+
+   private boolean isBodyDurable()
+   {
+      if (sharedBody)
+      {
+         return bodyDurable;
+      }
+      // a copy decoded from a page or loaded from the journal finds its body through the links
+      long id = getBodyID();
+      return id == messageID ? durable : storageManager.isLargeMessageBodyDurable(id, durable);
    }
 
    protected void openFile() throws Exception
@@ -18,6 +18,7 @@ import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.ACKNOWL
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.ADD_LARGE_MESSAGE;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.ADD_MESSAGE;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.ADD_REF;
+import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.LARGE_MESSAGE_BODY_LINK;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.PAGE_TRANSACTION;
 import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.QUEUE_BINDING_RECORD;
 
@@ -69,6 +70,7 @@ import org.hornetq.core.persistence.impl.journal.DescribeJournal.MessageDescribe
 import org.hornetq.core.persistence.impl.journal.DescribeJournal.ReferenceDescribe;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.AckDescribe;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.CursorAckRecordEncoding;
+import org.hornetq.core.persistence.impl.journal.JournalStorageManager.LargeMessageBodyLinkEncoding;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.PageUpdateTXEncoding;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.PersistentQueueBindingEncoding;
 import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
@@ -272,6 +274,11 @@ public final class XmlDataExporter
          {
             messages.put(info.id, ((MessageDescribe) o).msg);
          }
+         else if (info.getUserRecordType() == LARGE_MESSAGE_BODY_LINK)
+         {
+            // copies of large messages read their body from the file of the original message
+            storageManager.recoverLargeMessageBodyLink(info.id, (LargeMessageBodyLinkEncoding) o);
+         }
          else if (info.getUserRecordType() == ADD_REF)
          {
             ReferenceDescribe ref = (ReferenceDescribe) o;
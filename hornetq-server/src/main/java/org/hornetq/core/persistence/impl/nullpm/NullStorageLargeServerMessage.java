@@ -35,6 +35,17 @@ class NullStorageLargeServerMessage extends ServerMessageImpl implements LargeSe
    {
    }
 
+   @Override
+   public void afterPendingWrites(final Runnable runnable)
+   {
+      runnable.run();
+   }
+
+   @Override
+   public void flushPendingWrites()
+   {
+   }
+
    @Override
    public synchronized void addBytes(final byte[] bytes)
    {
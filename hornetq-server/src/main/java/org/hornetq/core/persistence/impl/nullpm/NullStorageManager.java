@@ -527,6 +527,11 @@ public class NullStorageManager implements StorageManager
    {
    }
 
+   @Override
+   public void storeLargeMessageBodyLink(final Transaction tx, final long messageID, final boolean paged) throws Exception
+   {
+   }
+
    @Override
    public void stop(final boolean ioCriticalError) throws Exception
    {
@@ -544,6 +549,42 @@ public class NullStorageManager implements StorageManager
       return null;
    }
 
+   @Override
+   public long getJournalCompactCount()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getJournalLastCompactPauseTime()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getJournalMaxCompactPauseTime()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getJournalTotalCompactPauseTime()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getJournalFileWaitCount()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getJournalFileWaitTime()
+   {
+      return 0;
+   }
+
    @Override
    public void startReplication(final ReplicationManager replicationManager, final PagingManager pagingManager,
                                 final String nodeID, final boolean autoFailBack) throws Exception
@@ -39,6 +39,12 @@ public interface Bindings
 
    void setRouteWhenNoConsumers(boolean takePriorityIntoAccount);
 
+   /**
+    * When set, messages are routed to the queue with the least loaded consumers rather than in
+    * round robin.
+    */
+   void setLoadBalanced(boolean loadBalanced);
+
    boolean redistribute(ServerMessage message, Queue originatingQueue, RoutingContext context) throws Exception;
 
    void route(ServerMessage message, RoutingContext context) throws Exception;
@@ -29,4 +29,6 @@ public interface QueueBinding extends Binding
    int consumerCount();
 
    Queue getQueue();
+
+   QueueLoad getLoad();
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The last known load of a queue, used to balance messages across the nodes of a cluster.
+ * <p>
+ * The backlog and consumer rate are refreshed periodically, sampled on the local node or gossiped
+ * by the remote node owning the queue. In between, the messages routed to the queue are added to
+ * the backlog so the least loaded queue doesn't take all the traffic until the next update.
+ */
+public final class QueueLoad
+{
+   /**
+    * Rate used for queues whose consumers haven't consumed anything yet, so they are ranked by their
+    * backlog alone.
+    */
+   private static final double MIN_CONSUMER_RATE = 1;
+
+   private volatile long backlog;
+
+   private volatile double consumerRate;
+
+   private final AtomicLong routedSinceUpdate = new AtomicLong();
+
+   private long lastMessagesAdded = -1;
+
+   private long lastBacklog;
+
+   private long lastSampleTime;
+
+   /**
+    * @return the messages waiting on the queue at the last update
+    */
+   public long getBacklog()
+   {
+      return backlog;
+   }
+
+   /**
+    * @return the messages per second consumed from the queue at the last update
+    */
+   public double getConsumerRate()
+   {
+      return consumerRate;
+   }
+
+   public void update(final long backlog, final double consumerRate)
+   {
+      this.backlog = backlog;
+
+      this.consumerRate = consumerRate;
+
+      routedSinceUpdate.set(0);
+   }
+
+   /**
+    * Updates the load of a local queue from its counters, the consumer rate being the messages added
+    * since the last sample which are not in the backlog anymore.
+    */
+   public synchronized void sample(final long messagesAdded, final long backlog)
+   {
+      long now = System.currentTimeMillis();
+
+      double rate = 0;
+
+      if (lastMessagesAdded != -1 && now > lastSampleTime)
+      {
+         long consumed = messagesAdded - lastMessagesAdded - (backlog - lastBacklog);
+
+         rate = Math.max(consumed, 0) * 1000d / (now - lastSampleTime);
+      }
+
+      lastMessagesAdded = messagesAdded;
+
+      lastBacklog = backlog;
+
+      lastSampleTime = now;
+
+      update(backlog, rate);
+   }
+
+   public void routed()
+   {
+      routedSinceUpdate.incrementAndGet();
+   }
+
+   /**
+    * @return how long (in seconds) the consumers would take to go through the estimated backlog
+    */
+   public double getDrainTime()
+   {
+      return (backlog + routedSinceUpdate.get()) / Math.max(consumerRate, MIN_CONSUMER_RATE);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "QueueLoad[backlog=" + backlog +
+             ", consumerRate=" +
+             consumerRate +
+             ", routedSinceUpdate=" +
+             routedSinceUpdate.get() +
+             "]";
+   }
+}
@@ -13,7 +13,10 @@
 package org.hornetq.core.postoffice.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.postoffice.Address;
@@ -31,7 +34,8 @@ public class AddressImpl implements Address
 
    private final boolean containsWildCard;
 
-   private final List<Address> linkedAddresses = new ArrayList<Address>();
+   // a wildcard can be linked to a lot of addresses, and these are iterated while routing
+   private final Set<Address> linkedAddresses = Collections.newSetFromMap(new ConcurrentHashMap<Address, Boolean>());
 
    public AddressImpl(final SimpleString address)
    {
@@ -57,15 +61,12 @@ public class AddressImpl implements Address
 
    public List<Address> getLinkedAddresses()
    {
-      return linkedAddresses;
+      return new ArrayList<Address>(linkedAddresses);
    }
 
    public void addLinkedAddress(final Address address)
    {
-      if(!linkedAddresses.contains(address))
-      {
-         linkedAddresses.add(address);
-      }
+      linkedAddresses.add(address);
    }
 
    public void removeLinkedAddress(final Address actualAddress)
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.postoffice.Address;
+
+/**
+ * Addresses indexed word by word, so the addresses a wildcard could match (or the wildcards which
+ * could match an address) are found by walking the words instead of going through all of them.
+ * <p>
+ * The lookups return candidates following the usual semantics ('*' is one word, '#' zero or more
+ * words), callers still have to check them with {@link Address#matches(Address)}.
+ * <p>
+ * This class is not thread safe, the {@link WildcardAddressManager} only uses it under its lock.
+ */
+final class AddressTrie
+{
+   private final Node root = new Node();
+
+   void put(final Address address)
+   {
+      Node node = root;
+
+      for (SimpleString word : address.getAddressParts())
+      {
+         Node child = node.children.get(word);
+
+         if (child == null)
+         {
+            child = new Node();
+
+            node.children.put(word, child);
+         }
+
+         node = child;
+      }
+
+      node.address = address;
+   }
+
+   void remove(final Address address)
+   {
+      remove(root, address.getAddressParts(), 0);
+   }
+
+   void clear()
+   {
+      root.children.clear();
+
+      root.address = null;
+   }
+
+   /**
+    * Collects the wildcard addresses of this trie which could match the words of a non wildcard
+    * address.
+    */
+   void collectWildcardsMatching(final SimpleString[] words, final Collection<Address> result)
+   {
+      collectWildcardsMatching(root, words, 0, result);
+   }
+
+   /**
+    * Collects the non wildcard addresses of this trie which could be matched by the words of a
+    * wildcard address.
+    */
+   void collectAddressesMatchedBy(final SimpleString[] pattern, final Collection<Address> result)
+   {
+      collectAddressesMatchedBy(root, pattern, 0, result);
+   }
+
+   /**
+    * @return true if the node doesn't hold anything anymore and can be pruned
+    */
+   private boolean remove(final Node node, final SimpleString[] words, final int pos)
+   {
+      if (pos == words.length)
+      {
+         node.address = null;
+      }
+      else
+      {
+         Node child = node.children.get(words[pos]);
+
+         if (child != null && remove(child, words, pos + 1))
+         {
+            node.children.remove(words[pos]);
+         }
+      }
+
+      return node.address == null && node.children.isEmpty();
+   }
+
+   private static void collectWildcardsMatching(final Node node,
+                                                final SimpleString[] words,
+                                                final int pos,
+                                                final Collection<Address> result)
+   {
+      Node anyWords = node.children.get(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
+
+      if (anyWords != null)
+      {
+         for (int next = pos; next <= words.length; next++)
+         {
+            collectWildcardsMatching(anyWords, words, next, result);
+         }
+      }
+
+      if (pos == words.length)
+      {
+         if (node.address != null)
+         {
+            result.add(node.address);
+         }
+
+         return;
+      }
+
+      Node child = node.children.get(words[pos]);
+
+      if (child != null)
+      {
+         collectWildcardsMatching(child, words, pos + 1, result);
+      }
+
+      Node singleWord = node.children.get(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING);
+
+      if (singleWord != null)
+      {
+         collectWildcardsMatching(singleWord, words, pos + 1, result);
+      }
+   }
+
+   private static void collectAddressesMatchedBy(final Node node,
+                                                 final SimpleString[] pattern,
+                                                 final int pos,
+                                                 final Collection<Address> result)
+   {
+      if (pos == pattern.length)
+      {
+         if (node.address != null)
+         {
+            result.add(node.address);
+         }
+
+         return;
+      }
+
+      SimpleString word = pattern[pos];
+
+      if (word.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+      {
+         // either the # is done, or it takes one more word and stays
+         collectAddressesMatchedBy(node, pattern, pos + 1, result);
+
+         for (Node child : node.children.values())
+         {
+            collectAddressesMatchedBy(child, pattern, pos, result);
+         }
+      }
+      else if (word.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
+      {
+         for (Node child : node.children.values())
+         {
+            collectAddressesMatchedBy(child, pattern, pos + 1, result);
+         }
+      }
+      else
+      {
+         Node child = node.children.get(word);
+
+         if (child != null)
+         {
+            collectAddressesMatchedBy(child, pattern, pos + 1, result);
+         }
+      }
+   }
+
+   private static final class Node
+   {
+      private final Map<SimpleString, Node> children = new HashMap<SimpleString, Node>();
+
+      private Address address;
+   }
+}
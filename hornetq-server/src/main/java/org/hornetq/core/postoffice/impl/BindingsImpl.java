@@ -30,6 +30,7 @@ import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.Bindings;
+import org.hornetq.core.postoffice.QueueBinding;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.Queue;
@@ -62,6 +63,8 @@ public final class BindingsImpl implements Bindings
 
    private volatile boolean routeWhenNoConsumers;
 
+   private volatile boolean loadBalanced;
+
    private final GroupingHandler groupingHandler;
 
    private final PagingStore pageStore;
@@ -80,6 +83,11 @@ public final class BindingsImpl implements Bindings
       this.routeWhenNoConsumers = routeWhenNoConsumers;
    }
 
+   public void setLoadBalanced(final boolean loadBalanced)
+   {
+      this.loadBalanced = loadBalanced;
+   }
+
    public Collection<Binding> getBindings()
    {
       return bindingsMap.values();
@@ -325,6 +333,16 @@ public final class BindingsImpl implements Bindings
                                   final SimpleString routingName,
                                   final List<Binding> bindings)
    {
+      if (loadBalanced && bindings.size() > 1)
+      {
+         Binding leastLoaded = getLeastLoadedBinding(message, routingName, bindings);
+
+         if (leastLoaded != null)
+         {
+            return leastLoaded;
+         }
+      }
+
       Integer ipos = routingNamePositions.get(routingName);
 
       int pos = ipos != null ? ipos : 0;
@@ -598,6 +616,75 @@ public final class BindingsImpl implements Bindings
       }
    }
 
+   /**
+    * Picks, among the bindings accepting the message, the queue whose consumers will get through their
+    * backlog first. Bindings with the same load are taken in round robin, starting after the last
+    * binding picked.
+    *
+    * @return {@code null} if no binding has matching consumers, the usual round robin then applies
+    */
+   private Binding getLeastLoadedBinding(final ServerMessage message,
+                                         final SimpleString routingName,
+                                         final List<Binding> bindings)
+   {
+      Integer ipos = routingNamePositions.get(routingName);
+
+      int pos = ipos != null ? ipos : 0;
+
+      int length = bindings.size();
+
+      Binding theBinding = null;
+
+      int theBindingPos = -1;
+
+      double leastDrainTime = Double.MAX_VALUE;
+
+      for (int i = 0; i < length; i++)
+      {
+         int bindingPos = (pos + i) % length;
+
+         Binding binding;
+         try
+         {
+            binding = bindings.get(bindingPos);
+         }
+         catch (IndexOutOfBoundsException e)
+         {
+            // This can occur if binding is removed while in route
+            return null;
+         }
+
+         Filter filter = binding.getFilter();
+
+         if ((filter == null || filter.match(message)) &&
+             (routeWhenNoConsumers || binding.isHighAcceptPriority(message)))
+         {
+            double drainTime = binding instanceof QueueBinding ? ((QueueBinding)binding).getLoad().getDrainTime() : 0;
+
+            if (drainTime < leastDrainTime)
+            {
+               theBinding = binding;
+
+               theBindingPos = bindingPos;
+
+               leastDrainTime = drainTime;
+            }
+         }
+      }
+
+      if (theBinding != null)
+      {
+         if (theBinding instanceof QueueBinding)
+         {
+            ((QueueBinding)theBinding).getLoad().routed();
+         }
+
+         routingNamePositions.put(routingName, incrementPos(theBindingPos, length));
+      }
+
+      return theBinding;
+   }
+
    private final int incrementPos(int pos, final int length)
    {
       pos++;
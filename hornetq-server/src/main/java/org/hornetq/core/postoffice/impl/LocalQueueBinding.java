@@ -17,6 +17,7 @@ import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.postoffice.BindingType;
 import org.hornetq.core.postoffice.QueueBinding;
+import org.hornetq.core.postoffice.QueueLoad;
 import org.hornetq.core.server.Bindable;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.RoutingContext;
@@ -38,6 +39,8 @@ public class LocalQueueBinding implements QueueBinding
 
    private final SimpleString clusterName;
 
+   private final QueueLoad load = new QueueLoad();
+
    public LocalQueueBinding(final SimpleString address, final Queue queue, final SimpleString nodeID)
    {
       this.address = address;
@@ -76,6 +79,11 @@ public class LocalQueueBinding implements QueueBinding
       return queue;
    }
 
+   public QueueLoad getLoad()
+   {
+      return load;
+   }
+
    public SimpleString getRoutingName()
    {
       return name;
@@ -62,6 +62,7 @@ import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.RoutingContextImpl;
 import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.core.server.impl.ShardedQueue;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
 import org.hornetq.core.server.management.NotificationListener;
@@ -349,8 +350,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
                      // We have a local queue
                      Queue queue = (Queue)binding.getBindable();
 
-                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress()
-                                                                                                 .toString());
+                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress());
 
                      long redistributionDelay = addressSettings.getRedistributionDelay();
 
@@ -419,8 +419,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
                      Queue queue = (Queue)binding.getBindable();
 
-                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress()
-                                                                                                 .toString());
+                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress());
 
                      long redistributionDelay = addressSettings.getRedistributionDelay();
 
@@ -565,6 +564,11 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
       return addressManager.getBinding(name);
    }
 
+   public Map<SimpleString, Binding> getAllBindings()
+   {
+      return addressManager.getBindings();
+   }
+
    public Bindings getMatchingBindings(final SimpleString address) throws Exception
    {
       return addressManager.getMatchingBindings(address);
@@ -650,7 +654,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
       {
          // Send to DLA if appropriate
 
-         AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
+         AddressSettings addressSettings = getAddressSettings(message, address);
 
          boolean sendToDLA = addressSettings.isSendToDLAOnNoRoute();
 
@@ -700,7 +704,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
    // HORNETQ-1029
    private void applyExpiryDelay(ServerMessage message, SimpleString address)
    {
-      long expirationOverride = addressSettingsRepository.getMatch(address.toString()).getExpiryDelay();
+      long expirationOverride = getAddressSettings(message, address).getExpiryDelay();
 
       // A -1 <expiry-delay> means don't do anything
       if (expirationOverride >= 0)
@@ -717,7 +721,10 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
    {
       setPagingStore(message);
 
-      MessageReference reference = message.createReference(queue);
+      // references are always held by one of the shards of a sharded queue
+      Queue target = queue instanceof ShardedQueue ? ((ShardedQueue)queue).getShard(message) : queue;
+
+      MessageReference reference = message.createReference(target);
 
       if (message.containsProperty(Message.HDR_SCHEDULED_DELIVERY_TIME))
       {
@@ -932,6 +939,24 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
       message.setPagingStore(store);
    }
 
+   /**
+    * The settings are resolved once per address and kept on its paging store (which the paging
+    * manager updates when they change), so routing doesn't go through the repository every time.
+    */
+   private AddressSettings getAddressSettings(final ServerMessage message, final SimpleString address)
+   {
+      PagingStore store = message.getPagingStore();
+
+      AddressSettings addressSettings = store == null ? null : store.getAddressSettings();
+
+      if (addressSettings == null)
+      {
+         addressSettings = addressSettingsRepository.getMatch(address);
+      }
+
+      return addressSettings;
+   }
+
    private void routeQueueInfo(final ServerMessage message, final Queue queue, final boolean applyFilters) throws Exception
    {
       if (!applyFilters || queue.getFilter() == null || queue.getFilter().match(message))
@@ -987,7 +1012,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
          {
             if (message.isLargeMessage())
             {
-               confirmLargeMessageSend(tx, message);
+               confirmLargeMessageSend(tx, message, true);
             }
 
             // We need to kick delivery so the Queues may check for the cursors case they are empty
@@ -1045,7 +1070,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
                   if (message.isLargeMessage())
                   {
-                     confirmLargeMessageSend(tx, message);
+                     confirmLargeMessageSend(tx, message, false);
                   }
                }
 
@@ -1105,7 +1130,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
     * @param message
     * @throws Exception
     */
-   private void confirmLargeMessageSend(Transaction tx, final ServerMessage message) throws Exception
+   private void confirmLargeMessageSend(Transaction tx, final ServerMessage message, final boolean paged) throws Exception
    {
       LargeServerMessage largeServerMessage = (LargeServerMessage)message;
       if (largeServerMessage.getPendingRecordID() >= 0)
@@ -1121,6 +1146,11 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
          }
          largeServerMessage.setPendingRecordID(-1);
       }
+
+      if (message.isDurable())
+      {
+         storageManager.storeLargeMessageBodyLink(tx, message.getMessageID(), paged);
+      }
    }
 
    /**
@@ -13,7 +13,11 @@
 package org.hornetq.core.postoffice.impl;
 
 import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -41,6 +45,12 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    static final SimpleString ANY_WORDS_SIMPLESTRING = new SimpleString("#");
 
+   /**
+    * The default number of addresses kept linked to the wildcards matching them after being routed to while having no
+    * binding of their own. Beyond that the oldest are dropped, and linked again the next time they are routed to.
+    */
+   public static final int DEFAULT_MAX_ROUTED_ADDRESSES = 1000;
+
    /**
     * These are all the addresses, we use this so we can link back from the actual address to its linked wilcard addresses
     * or vice versa
@@ -49,9 +59,31 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    private final Map<SimpleString, Address> wildCardAddresses = new ConcurrentHashMap<SimpleString, Address>();
 
+   /**
+    * The same addresses indexed by their words, so linking a new address only looks at the addresses it could match.
+    * Guarded by this manager's lock.
+    */
+   private final AddressTrie addressTrie = new AddressTrie();
+
+   private final AddressTrie wildCardAddressTrie = new AddressTrie();
+
+   /**
+    * The addresses with no binding of their own, only the ones copied from the wildcards matching them, in the order
+    * they were linked. Guarded by this manager's lock.
+    */
+   private final Set<SimpleString> routedAddresses = new LinkedHashSet<SimpleString>();
+
+   private final int maxRoutedAddresses;
+
    public WildcardAddressManager(final BindingsFactory bindingsFactory)
+   {
+      this(bindingsFactory, DEFAULT_MAX_ROUTED_ADDRESSES);
+   }
+
+   public WildcardAddressManager(final BindingsFactory bindingsFactory, final int maxRoutedAddresses)
    {
       super(bindingsFactory);
+      this.maxRoutedAddresses = maxRoutedAddresses;
    }
 
    @Override
@@ -79,6 +111,15 @@ public class WildcardAddressManager extends SimpleAddressManager
             }
          }
          bindings = super.getBindingsForRoutingAddress(address);
+         if (bindings == null)
+         {
+            // no wildcard matches it, don't keep the address around for every message routed to nowhere
+            removeAndUpdateAddressMap(add);
+         }
+         else if (!add.containsWildCard())
+         {
+            addRoutedAddress(address);
+         }
       }
       return bindings;
    }
@@ -106,12 +147,21 @@ public class WildcardAddressManager extends SimpleAddressManager
          }
          else
          {
+            removeRoutedAddress(binding.getAddress());
+            // the address may already have the wildcard bindings, if it had been routed to or bound before
+            Collection<Binding> current = super.getBindingsForRoutingAddress(binding.getAddress()).getBindings();
             for (Address destAdd : add.getLinkedAddresses())
             {
                Bindings bindings = super.getBindingsForRoutingAddress(destAdd.getAddress());
-               for (Binding b : bindings.getBindings())
+               if (bindings != null)
                {
-                  super.addMappingInternal(binding.getAddress(), b);
+                  for (Binding b : bindings.getBindings())
+                  {
+                     if (!current.contains(b))
+                     {
+                        super.addMappingInternal(binding.getAddress(), b);
+                     }
+                  }
                }
             }
          }
@@ -141,6 +191,11 @@ public class WildcardAddressManager extends SimpleAddressManager
             }
          }
          removeAndUpdateAddressMap(add);
+         if (!add.containsWildCard() && !hasDirectBindings(binding.getAddress()))
+         {
+            // only the wildcard bindings are left, so it can be dropped like any address that was just routed to
+            addRoutedAddress(binding.getAddress());
+         }
       }
       return binding;
    }
@@ -149,8 +204,67 @@ public class WildcardAddressManager extends SimpleAddressManager
    public void clear()
    {
       super.clear();
-      addresses.clear();
-      wildCardAddresses.clear();
+      synchronized (this)
+      {
+         addresses.clear();
+         wildCardAddresses.clear();
+         addressTrie.clear();
+         wildCardAddressTrie.clear();
+         routedAddresses.clear();
+      }
+   }
+
+   private boolean hasDirectBindings(final SimpleString address) throws Exception
+   {
+      Bindings bindings = super.getBindingsForRoutingAddress(address);
+      if (bindings != null)
+      {
+         for (Binding b : bindings.getBindings())
+         {
+            if (address.equals(b.getAddress()))
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   private synchronized void addRoutedAddress(final SimpleString address) throws Exception
+   {
+      if (!addresses.containsKey(address) || hasDirectBindings(address) || !routedAddresses.add(address))
+      {
+         return;
+      }
+      while (routedAddresses.size() > maxRoutedAddresses)
+      {
+         SimpleString eldest = routedAddresses.iterator().next();
+         routedAddresses.remove(eldest);
+         evictRoutedAddress(eldest);
+      }
+   }
+
+   private synchronized void removeRoutedAddress(final SimpleString address)
+   {
+      routedAddresses.remove(address);
+   }
+
+   private void evictRoutedAddress(final SimpleString address) throws Exception
+   {
+      Address add = addresses.get(address);
+      if (add == null)
+      {
+         return;
+      }
+      Bindings bindings = super.getBindingsForRoutingAddress(address);
+      if (bindings != null)
+      {
+         for (Binding b : new ArrayList<Binding>(bindings.getBindings()))
+         {
+            super.removeBindingInternal(address, b.getUniqueName());
+         }
+      }
+      removeAndUpdateAddressMap(add);
    }
 
    private Address getAddress(final SimpleString address)
@@ -184,27 +298,30 @@ public class WildcardAddressManager extends SimpleAddressManager
       {
          actualAddress = add;
          addAddress(address, actualAddress);
-      }
-      if (actualAddress.containsWildCard())
-      {
-         for (Address destAdd : addresses.values())
+         // any address added later links itself to this one, so the links only need to be made once
+         Set<Address> candidates = new HashSet<Address>();
+         if (actualAddress.containsWildCard())
          {
-            if (destAdd.matches(actualAddress))
+            addressTrie.collectAddressesMatchedBy(actualAddress.getAddressParts(), candidates);
+            for (Address destAdd : candidates)
             {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
+               if (destAdd.matches(actualAddress))
+               {
+                  destAdd.addLinkedAddress(actualAddress);
+                  actualAddress.addLinkedAddress(destAdd);
+               }
             }
          }
-      }
-      else
-      {
-         for (Address destAdd : wildCardAddresses.values())
+         else
          {
-            if (actualAddress.matches(destAdd))
+            wildCardAddressTrie.collectWildcardsMatching(actualAddress.getAddressParts(), candidates);
+            for (Address destAdd : candidates)
             {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-
+               if (actualAddress.matches(destAdd))
+               {
+                  destAdd.addLinkedAddress(actualAddress);
+                  actualAddress.addLinkedAddress(destAdd);
+               }
             }
          }
       }
@@ -216,10 +333,12 @@ public class WildcardAddressManager extends SimpleAddressManager
       if (actualAddress.containsWildCard())
       {
          wildCardAddresses.put(address, actualAddress);
+         wildCardAddressTrie.put(actualAddress);
       }
       else
       {
          addresses.put(address, actualAddress);
+         addressTrie.put(actualAddress);
       }
    }
 
@@ -247,11 +366,18 @@ public class WildcardAddressManager extends SimpleAddressManager
    {
       if (add.containsWildCard())
       {
-         wildCardAddresses.remove(add.getAddress());
+         if (wildCardAddresses.remove(add.getAddress()) != null)
+         {
+            wildCardAddressTrie.remove(add);
+         }
       }
       else
       {
-         addresses.remove(add.getAddress());
+         if (addresses.remove(add.getAddress()) != null)
+         {
+            addressTrie.remove(add);
+         }
+         routedAddresses.remove(add.getAddress());
       }
    }
 }
@@ -186,4 +186,15 @@ public class ServerPacketDecoder extends PacketDecoder
       return packet;
    }
 
+   @Override
+   public Packet decode(final Packet packet)
+   {
+      if (packet.getType() == SESS_SEND)
+      {
+         return ((SessionSendMessage)packet).copyPassedByReference(new ServerMessageImpl());
+      }
+
+      return super.decode(packet);
+   }
+
 }
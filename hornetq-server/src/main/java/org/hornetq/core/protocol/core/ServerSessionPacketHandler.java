@@ -23,11 +23,14 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CONSUMER_CLOSE
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CREATECONSUMER;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_EXPIRED;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_FLOWTOKEN;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CONSUMER_WINDOW_SIZE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_FORCE_CONSUMER_DELIVERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_QUEUEQUERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_ROLLBACK;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_BATCH;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_CONTINUATION;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_LARGE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_START;
@@ -45,6 +48,7 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_SET_TIMEOUT
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_START;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_SUSPEND;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.transaction.xa.XAResource;
@@ -68,14 +72,17 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionBindingQueryMessage
 import org.hornetq.core.protocol.core.impl.wireformat.SessionBindingQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerCloseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerFlowCreditMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionConsumerWindowSizeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionCreateConsumerMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionDeleteQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionExpireMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionForceConsumerDelivery;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeRangesMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
@@ -102,6 +109,7 @@ import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.QueueQueryResult;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.ServerSession;
+import org.hornetq.core.server.impl.ServerMessageImpl;
 import org.hornetq.spi.core.remoting.Connection;
 
 /**
@@ -424,6 +432,17 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   }
                   break;
                }
+               case SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES:
+               {
+                  SessionIndividualAcknowledgeRangesMessage message = (SessionIndividualAcknowledgeRangesMessage)packet;
+                  requiresResponse = message.isRequiresResponse();
+                  session.individualAcknowledge(message.getConsumerID(), message.getMessageIDs());
+                  if (requiresResponse)
+                  {
+                     response = new NullResponseMessage();
+                  }
+                  break;
+               }
                case SESS_CONSUMER_CLOSE:
                {
                   requiresResponse = true;
@@ -438,6 +457,12 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   session.receiveConsumerCredits(message.getConsumerID(), message.getCredits());
                   break;
                }
+               case SESS_CONSUMER_WINDOW_SIZE:
+               {
+                  SessionConsumerWindowSizeMessage message = (SessionConsumerWindowSizeMessage)packet;
+                  session.receiveConsumerWindowSize(message.getConsumerID(), message.getWindowSize());
+                  break;
+               }
                case SESS_SEND:
                {
                   SessionSendMessage message = (SessionSendMessage)packet;
@@ -449,6 +474,24 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   }
                   break;
                }
+               case SESS_SEND_BATCH:
+               {
+                  SessionSendBatchMessage message = (SessionSendBatchMessage)packet;
+                  requiresResponse = message.isRequiresResponse();
+                  List<ServerMessage> messages = new ArrayList<ServerMessage>(message.getMessageCount());
+                  for (int i = 0; i < message.getMessageCount(); i++)
+                  {
+                     ServerMessage msg = new ServerMessageImpl(-1, 50);
+                     message.decodeMessage(msg);
+                     messages.add(msg);
+                  }
+                  session.send(messages, direct);
+                  if (requiresResponse)
+                  {
+                     response = new NullResponseMessage();
+                  }
+                  break;
+               }
                case SESS_SEND_LARGE:
                {
                   SessionSendLargeMessage message = (SessionSendLargeMessage)packet;
@@ -12,12 +12,15 @@
  */
 package org.hornetq.core.protocol.core.impl;
 
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionProducerCreditsFailMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionProducerCreditsMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuationMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveFileContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.server.ServerMessage;
@@ -62,9 +65,39 @@ public final class CoreSessionCallback implements SessionCallback
    {
       Packet packet = new SessionReceiveContinuationMessage(consumerID, body, continues, requiresResponse);
 
-      channel.send(packet);
+      int size = 0;
+
+      if (channel.send(packet))
+      {
+         size = packet.getPacketSize();
+      }
+
+      return size;
+   }
+
+   public boolean isFileRegionSupported()
+   {
+      return channel.getConnection().getTransportConnection().isFileRegionSupported();
+   }
+
+   public int sendLargeMessageContinuation(long consumerID,
+                                           FileChannel file,
+                                           long position,
+                                           int length,
+                                           boolean continues,
+                                           Runnable afterWrite)
+   {
+      SessionReceiveFileContinuationMessage packet =
+         new SessionReceiveFileContinuationMessage(consumerID, file, position, length, continues, afterWrite);
+
+      int size = 0;
 
-      return packet.getPacketSize();
+      if (channel.sendFileRegion(packet))
+      {
+         size = packet.getPacketSize();
+      }
+
+      return size;
    }
 
    public int sendMessage(ServerMessage message, long consumerID, int deliveryCount)
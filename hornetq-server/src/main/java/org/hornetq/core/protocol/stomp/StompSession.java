@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.protocol.stomp;
 
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -177,6 +178,22 @@ public class StompSession implements SessionCallback
       return 0;
    }
 
+   public boolean isFileRegionSupported()
+   {
+      return false;
+   }
+
+   public int sendLargeMessageContinuation(long consumerID,
+                                           FileChannel file,
+                                           long position,
+                                           int length,
+                                           boolean continues,
+                                           Runnable afterWrite)
+   {
+      afterWrite.run();
+      return 0;
+   }
+
    public int sendLargeMessage(ServerMessage msg, long consumerID, long bodySize, int deliveryCount)
    {
       return 0;
@@ -46,6 +46,8 @@ public final class InVMAcceptor implements Acceptor
 {
    private final int id;
 
+   private final boolean passPacketsByReference;
+
    private final BufferHandler handler;
 
    private final ConnectionLifeCycleListener listener;
@@ -82,6 +84,10 @@ public final class InVMAcceptor implements Acceptor
 
       id = ConfigurationHelper.getIntProperty(TransportConstants.SERVER_ID_PROP_NAME, 0, configuration);
 
+      passPacketsByReference = ConfigurationHelper.getBooleanProperty(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME,
+                                                                      TransportConstants.DEFAULT_PASS_PACKETS_BY_REFERENCE,
+                                                                      configuration);
+
       executorFactory = new OrderedExecutorFactory(threadPool);
    }
 
@@ -213,7 +219,13 @@ public final class InVMAcceptor implements Acceptor
 
       Listener connectionListener = new Listener(connector);
 
-      InVMConnection inVMConnection = new InVMConnection(id, connectionID, remoteHandler, connectionListener, clientExecutor, defaultHornetQPrincipal);
+      InVMConnection inVMConnection = new InVMConnection(id,
+                                                         connectionID,
+                                                         remoteHandler,
+                                                         connectionListener,
+                                                         clientExecutor,
+                                                         defaultHornetQPrincipal,
+                                                         passPacketsByReference);
 
       connectionListener.connectionCreated(this, inVMConnection, ProtocolType.CORE);
    }
@@ -12,6 +12,10 @@
  */
 package org.hornetq.core.remoting.impl.invm;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -23,11 +27,14 @@ import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQInterruptedException;
 import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.security.HornetQPrincipal;
 import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.remoting.BufferHandler;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.spi.core.remoting.PacketHandler;
 import org.hornetq.spi.core.remoting.ReadyListener;
 import org.hornetq.utils.UUIDGenerator;
 
@@ -60,6 +67,8 @@ public class InVMConnection implements Connection
 
    private final HornetQPrincipal defaultHornetQPrincipal;
 
+   private final boolean passPacketsByReference;
+
    public InVMConnection(final int serverID,
                          final BufferHandler handler,
                          final ConnectionLifeCycleListener listener,
@@ -83,6 +92,23 @@ public class InVMConnection implements Connection
                          final ConnectionLifeCycleListener listener,
                          final Executor executor,
                          final HornetQPrincipal defaultHornetQPrincipal)
+   {
+      this(serverID,
+           id,
+           handler,
+           listener,
+           executor,
+           defaultHornetQPrincipal,
+           TransportConstants.DEFAULT_PASS_PACKETS_BY_REFERENCE);
+   }
+
+   public InVMConnection(final int serverID,
+                         final String id,
+                         final BufferHandler handler,
+                         final ConnectionLifeCycleListener listener,
+                         final Executor executor,
+                         final HornetQPrincipal defaultHornetQPrincipal,
+                         final boolean passPacketsByReference)
    {
       this.serverID = serverID;
 
@@ -95,6 +121,8 @@ public class InVMConnection implements Connection
       this.executor = executor;
 
       this.defaultHornetQPrincipal = defaultHornetQPrincipal;
+
+      this.passPacketsByReference = passPacketsByReference;
    }
 
    public void close()
@@ -136,45 +164,94 @@ public class InVMConnection implements Connection
       write(buffer, false, false);
    }
 
+   public boolean isFileRegionSupported()
+   {
+      // the buffers are handed to the other side as they are, there is nothing to save
+      return false;
+   }
+
+   public void writeFileRegion(final HornetQBuffer header,
+                               final FileChannel file,
+                               final long position,
+                               final int count,
+                               final HornetQBuffer trailer,
+                               final Runnable afterWrite)
+   {
+      // there is no transfer to save, the region is read and written as a buffer
+      try
+      {
+         HornetQBuffer buffer = HornetQBuffers.fixedBuffer(header.readableBytes() + count + trailer.readableBytes());
+
+         buffer.writeBytes(header, header.readableBytes());
+
+         ByteBuffer region = ByteBuffer.allocate(count);
+
+         while (region.hasRemaining())
+         {
+            if (file.read(region, position + region.position()) < 0)
+            {
+               throw new EOFException("Reached the end of the file before " + count + " bytes at " + position);
+            }
+         }
+
+         region.flip();
+
+         buffer.writeBytes(region);
+
+         buffer.writeBytes(trailer, trailer.readableBytes());
+
+         write(buffer, false, false);
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e.getMessage(), e);
+      }
+      finally
+      {
+         afterWrite.run();
+      }
+   }
+
+   public boolean isPacketPassingSupported()
+   {
+      return passPacketsByReference && handler instanceof PacketHandler;
+   }
+
+   public void writePacket(final Packet packet, final RemotingConnection connection, final boolean flush)
+   {
+      execute(new Delivery()
+      {
+         @Override
+         void deliver()
+         {
+            ((PacketHandler)handler).packetReceived(id, packet);
+         }
+      }, flush);
+   }
+
    public void write(final HornetQBuffer buffer, final boolean flush, final boolean batch)
    {
       final HornetQBuffer copied = buffer.copy(0, buffer.capacity());
 
       copied.setIndex(buffer.readerIndex(), buffer.writerIndex());
 
-      try
+      execute(new Delivery()
       {
-         executor.execute(new Runnable()
+         @Override
+         void deliver()
          {
-            public void run()
-            {
-               try
-               {
-                  if (!closed)
-                  {
-                     copied.readInt(); // read and discard
-                     if (isTrace)
-                     {
-                        HornetQServerLogger.LOGGER.trace(InVMConnection.this + "::Sending inVM packet");
-                     }
-                     handler.bufferReceived(id, copied);
-                  }
-               }
-               catch (Exception e)
-               {
-                  final String msg = "Failed to write to handler on connector " + this;
-                  HornetQServerLogger.LOGGER.errorWritingToInvmConnector(e, this);
-                  throw new IllegalStateException(msg, e);
-               }
-               finally
-               {
-                  if (isTrace)
-                  {
-                     HornetQServerLogger.LOGGER.trace(InVMConnection.this + "::packet sent done");
-                  }
-               }
-            }
-         });
+            copied.readInt(); // read and discard
+
+            handler.bufferReceived(id, copied);
+         }
+      }, flush);
+   }
+
+   private void execute(final Delivery delivery, final boolean flush)
+   {
+      try
+      {
+         executor.execute(delivery);
 
          if (flush && flushEnabled)
          {
@@ -256,5 +333,37 @@ public class InVMConnection implements Connection
       return "InVMConnection [serverID=" + serverID + ", id=" + id + "]";
    }
 
+   private abstract class Delivery implements Runnable
+   {
+      public void run()
+      {
+         try
+         {
+            if (!closed)
+            {
+               if (isTrace)
+               {
+                  HornetQServerLogger.LOGGER.trace(InVMConnection.this + "::Sending inVM packet");
+               }
+               deliver();
+            }
+         }
+         catch (Exception e)
+         {
+            final String msg = "Failed to write to handler on connector " + this;
+            HornetQServerLogger.LOGGER.errorWritingToInvmConnector(e, this);
+            throw new IllegalStateException(msg, e);
+         }
+         finally
+         {
+            if (isTrace)
+            {
+               HornetQServerLogger.LOGGER.trace(InVMConnection.this + "::packet sent done");
+            }
+         }
+      }
+
+      abstract void deliver();
+   }
 
 }
@@ -29,6 +29,7 @@ import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.utils.ConfigurationHelper;
 import org.hornetq.utils.OrderedExecutorFactory;
+import org.hornetq.utils.UUIDGenerator;
 
 /**
  * A InVMConnector
@@ -63,6 +64,8 @@ public class InVMConnector extends AbstractConnector
 
    protected final int id;
 
+   private final boolean passPacketsByReference;
+
    private final BufferHandler handler;
 
    private final ConnectionLifeCycleListener listener;
@@ -88,6 +91,10 @@ public class InVMConnector extends AbstractConnector
 
       id = ConfigurationHelper.getIntProperty(TransportConstants.SERVER_ID_PROP_NAME, 0, configuration);
 
+      passPacketsByReference = ConfigurationHelper.getBooleanProperty(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME,
+                                                                      TransportConstants.DEFAULT_PASS_PACKETS_BY_REFERENCE,
+                                                                      configuration);
+
       this.handler = handler;
 
       this.closeExecutor = closeExecutor;
@@ -174,7 +181,13 @@ public class InVMConnector extends AbstractConnector
                                                  final Executor serverExecutor)
    {
       // No acceptor on a client connection
-      InVMConnection inVMConnection = new InVMConnection(id, handler, listener, serverExecutor);
+      InVMConnection inVMConnection = new InVMConnection(id,
+                                                         UUIDGenerator.getInstance().generateSimpleStringUUID().toString(),
+                                                         handler,
+                                                         listener,
+                                                         serverExecutor,
+                                                         null,
+                                                         passPacketsByReference);
       listener.connectionCreated(null, inVMConnection, ProtocolType.CORE);
       return inVMConnection;
    }
@@ -28,6 +28,10 @@ public final class TransportConstants
 {
    public static final String SERVER_ID_PROP_NAME = "server-id";
 
+   public static final String PASS_PACKETS_BY_REFERENCE_PROP_NAME = "pass-packets-by-reference";
+
+   public static final boolean DEFAULT_PASS_PACKETS_BY_REFERENCE = false;
+
    public static final Set<String> ALLOWABLE_CONNECTOR_KEYS;
 
    public static final Set<String> ALLOWABLE_ACCEPTOR_KEYS;
@@ -36,6 +40,7 @@ public final class TransportConstants
    {
       Set<String> allowableAcceptorKeys = new HashSet<String>();
       allowableAcceptorKeys.add(TransportConstants.SERVER_ID_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME);
       allowableAcceptorKeys.add(org.hornetq.core.remoting.impl.netty.TransportConstants.CLUSTER_CONNECTION);
       allowableAcceptorKeys.add(HornetQDefaultConfiguration.getPropMaskPassword());
       allowableAcceptorKeys.add(HornetQDefaultConfiguration.getPropPasswordCodec());
@@ -44,6 +49,7 @@ public final class TransportConstants
 
       Set<String> allowableConnectorKeys = new HashSet<String>();
       allowableConnectorKeys.add(TransportConstants.SERVER_ID_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME);
       allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropMaskPassword());
       allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropPasswordCodec());
 
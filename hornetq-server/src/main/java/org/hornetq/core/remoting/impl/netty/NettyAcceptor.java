@@ -36,6 +36,7 @@ import org.hornetq.api.core.HornetQInterruptedException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.api.core.management.NotificationType;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.protocol.stomp.WebSocketServerHandler;
 import org.hornetq.core.remoting.impl.ssl.SSLSupport;
 import org.hornetq.core.security.HornetQPrincipal;
@@ -169,8 +170,12 @@ public class NettyAcceptor implements Acceptor
 
    private final long batchDelay;
 
+   private final boolean adaptiveBatching;
+
    private final boolean directDeliver;
 
+   private final BufferPool bufferPool;
+
 
    public NettyAcceptor(final Map<String, Object> configuration,
                         final BufferHandler handler,
@@ -305,9 +310,37 @@ public class NettyAcceptor implements Acceptor
                                                        TransportConstants.DEFAULT_BATCH_DELAY,
                                                        configuration);
 
+      adaptiveBatching = ConfigurationHelper.getBooleanProperty(TransportConstants.ADAPTIVE_BATCHING_PROP_NAME,
+                                                                TransportConstants.DEFAULT_ADAPTIVE_BATCHING,
+                                                                configuration);
+
       directDeliver = ConfigurationHelper.getBooleanProperty(TransportConstants.DIRECT_DELIVER,
                                                              TransportConstants.DEFAULT_DIRECT_DELIVER,
                                                              configuration);
+
+      // The HTTP handler holds on to the buffers written until it can send them in a response
+      if (!httpEnabled && ConfigurationHelper.getBooleanProperty(TransportConstants.USE_BUFFER_POOL_PROP_NAME,
+                                                                 TransportConstants.DEFAULT_USE_BUFFER_POOL,
+                                                                 configuration))
+      {
+         boolean direct = ConfigurationHelper.getBooleanProperty(TransportConstants.BUFFER_POOL_DIRECT_PROP_NAME,
+                                                                 TransportConstants.DEFAULT_BUFFER_POOL_DIRECT,
+                                                                 configuration);
+
+         int maxBufferSize = ConfigurationHelper.getIntProperty(TransportConstants.BUFFER_POOL_MAX_BUFFER_SIZE_PROP_NAME,
+                                                                TransportConstants.DEFAULT_BUFFER_POOL_MAX_BUFFER_SIZE,
+                                                                configuration);
+
+         int maxFreeBuffers = ConfigurationHelper.getIntProperty(TransportConstants.BUFFER_POOL_MAX_FREE_BUFFERS_PROP_NAME,
+                                                                 TransportConstants.DEFAULT_BUFFER_POOL_MAX_FREE_BUFFERS,
+                                                                 configuration);
+
+         bufferPool = new BufferPool(direct, maxBufferSize, maxFreeBuffers);
+      }
+      else
+      {
+         bufferPool = null;
+      }
    }
 
    public synchronized void start() throws Exception
@@ -408,7 +441,7 @@ public class NettyAcceptor implements Acceptor
             {
                // Core protocol uses its own optimised decoder
 
-               handlers.put("hornetq-decoder", new HornetQFrameDecoder2());
+               handlers.put("hornetq-decoder", new HornetQFrameDecoder2(bufferPool));
             }
             else if (protocol == ProtocolType.STOMP_WS)
             {
@@ -617,6 +650,15 @@ public class NettyAcceptor implements Acceptor
       return channelFactory != null;
    }
 
+   /**
+    * @return the pool of the buffers written and read by the connections, {@code null} if they are
+    *         not pooled
+    */
+   public BufferPool getBufferPool()
+   {
+      return bufferPool;
+   }
+
    public synchronized void pause()
    {
       if (paused)
@@ -692,7 +734,13 @@ public class NettyAcceptor implements Acceptor
       {
          Listener connectionListener = new Listener();
 
-         NettyConnection nc = new NettyConnection(configuration, e.getChannel(), connectionListener, !httpEnabled && batchDelay > 0, directDeliver);
+         NettyConnection nc = new NettyConnection(configuration,
+                                                  e.getChannel(),
+                                                  connectionListener,
+                                                  !httpEnabled && (batchDelay > 0 || adaptiveBatching),
+                                                  directDeliver,
+                                                  bufferPool,
+                                                  adaptiveBatching);
 
          connectionListener.connectionCreated(NettyAcceptor.this, nc, ProtocolType.CORE);
 
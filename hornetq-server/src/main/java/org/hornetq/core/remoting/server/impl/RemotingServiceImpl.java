@@ -37,6 +37,7 @@ import org.hornetq.api.core.Interceptor;
 import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.core.config.Configuration;
 import org.hornetq.core.protocol.core.CoreRemotingConnection;
+import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.CoreProtocolManagerFactory;
 import org.hornetq.core.protocol.stomp.StompProtocolManagerFactory;
 import org.hornetq.core.remoting.FailureListener;
@@ -57,9 +58,9 @@ import org.hornetq.spi.core.protocol.ProtocolType;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.remoting.Acceptor;
 import org.hornetq.spi.core.remoting.AcceptorFactory;
-import org.hornetq.spi.core.remoting.BufferHandler;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.spi.core.remoting.PacketHandler;
 import org.hornetq.utils.ClassloadingUtil;
 import org.hornetq.utils.ConfigurationHelper;
 import org.hornetq.utils.HornetQThreadFactory;
@@ -553,7 +554,7 @@ public class RemotingServiceImpl implements RemotingService, ConnectionLifeCycle
 
    // Inner classes -------------------------------------------------
 
-   private final class DelegatingBufferHandler implements BufferHandler
+   private final class DelegatingBufferHandler implements PacketHandler
    {
       public void bufferReceived(final Object connectionID, final HornetQBuffer buffer)
       {
@@ -571,6 +572,24 @@ public class RemotingServiceImpl implements RemotingService, ConnectionLifeCycle
             }
          }
       }
+
+      public void packetReceived(final Object connectionID, final Packet packet)
+      {
+         ConnectionEntry conn = connections.get(connectionID);
+
+         if (conn != null)
+         {
+            // Packets are only passed by reference on in-VM connections, which use the core protocol
+            ((CoreRemotingConnection)conn.connection).packetReceived(connectionID, packet);
+         }
+         else
+         {
+            if (HornetQServerLogger.LOGGER.isTraceEnabled())
+            {
+               HornetQServerLogger.LOGGER.trace("ConnectionID = " + connectionID + " was already closed, so ignoring packet");
+            }
+         }
+      }
    }
 
    private final class FailureCheckAndFlushThread extends Thread
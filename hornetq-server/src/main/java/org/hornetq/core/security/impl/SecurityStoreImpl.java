@@ -15,9 +15,15 @@ package org.hornetq.core.security.impl;
 
 import static org.hornetq.api.core.management.NotificationType.SECURITY_AUTHENTICATION_VIOLATION;
 
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.management.ManagementHelper;
@@ -33,11 +39,15 @@ import org.hornetq.core.server.management.NotificationService;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.HierarchicalRepositoryChangeListener;
 import org.hornetq.spi.core.security.HornetQSecurityManager;
-import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.TypedProperties;
 
 /**
  * The HornetQ SecurityStore implementation
+ * <p>
+ * Granted permissions and successful authentications are cached for the invalidation interval,
+ * each entry from the time it was checked. Once a permission entry expires it is still used for
+ * another interval while it is checked again on the executor, so the sessions of a user don't all
+ * wait on the security manager when their entries expire.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -60,11 +70,30 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
    private final HornetQSecurityManager securityManager;
 
-   private final ConcurrentMap<String, ConcurrentHashSet<SimpleString>> cache = new ConcurrentHashMap<String, ConcurrentHashSet<SimpleString>>();
+   private final ConcurrentMap<String, UserPermissions> cache = new ConcurrentHashMap<String, UserPermissions>();
+
+   // the permissions of sessions without a user, a map can't have a null key
+   private volatile UserPermissions anonymousPermissions;
+
+   private final ConcurrentMap<String, Authentication> authenticationCache = new ConcurrentHashMap<String, Authentication>();
 
    private final long invalidationInterval;
 
-   private volatile long lastCheck;
+   private final AtomicLong lastPurge = new AtomicLong(System.currentTimeMillis());
+
+   private final Executor executor;
+
+   private final AtomicLong hitCount = new AtomicLong();
+
+   private final AtomicLong staleHitCount = new AtomicLong();
+
+   private final AtomicLong missCount = new AtomicLong();
+
+   private final AtomicLong refreshCount = new AtomicLong();
+
+   private final AtomicLong authenticationHitCount = new AtomicLong();
+
+   private final AtomicLong authenticationMissCount = new AtomicLong();
 
    private final boolean securityEnabled;
 
@@ -86,6 +115,30 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
                             final String managementClusterUser,
                             final String managementClusterPassword,
                             final NotificationService notificationService)
+   {
+      this(securityRepository,
+           securityManager,
+           invalidationInterval,
+           securityEnabled,
+           managementClusterUser,
+           managementClusterPassword,
+           notificationService,
+           null);
+   }
+
+   /**
+    * @param notificationService can be <code>null</code>
+    * @param executor used to check expired permissions again in the background, can be
+    *           <code>null</code> to check them synchronously
+    */
+   public SecurityStoreImpl(final HierarchicalRepository<Set<Role>> securityRepository,
+                            final HornetQSecurityManager securityManager,
+                            final long invalidationInterval,
+                            final boolean securityEnabled,
+                            final String managementClusterUser,
+                            final String managementClusterPassword,
+                            final NotificationService notificationService,
+                            final Executor executor)
    {
       this.securityRepository = securityRepository;
       this.securityManager = securityManager;
@@ -94,6 +147,7 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
       this.managementClusterUser = managementClusterUser;
       this.managementClusterPassword = managementClusterPassword;
       this.notificationService = notificationService;
+      this.executor = executor;
       this.securityRepository.registerListener(this);
    }
 
@@ -128,6 +182,11 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
             }
          }
 
+         if (checkAuthenticationCached(user, password))
+         {
+            return;
+         }
+
          if (!securityManager.validateUser(user, password))
          {
             if (notificationService != null)
@@ -143,6 +202,11 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
             throw HornetQMessageBundle.BUNDLE.unableToValidateUser(user);
          }
+
+         if (user != null && invalidationInterval > 0)
+         {
+            authenticationCache.put(user, new Authentication(password, System.currentTimeMillis() + invalidationInterval));
+         }
       }
    }
 
@@ -156,7 +220,7 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
          }
 
          String user = session.getUsername();
-         if (checkCached(address, user, checkType))
+         if (checkCached(address, user, session.getPassword(), checkType))
          {
             // OK
             return;
@@ -190,14 +254,11 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
             throw HornetQMessageBundle.BUNDLE.userNoPermissions(session.getUsername(), checkType, saddress);
          }
          // if we get here we're granted, add to the cache
-         ConcurrentHashSet<SimpleString> set = new ConcurrentHashSet<SimpleString>();
-         ConcurrentHashSet<SimpleString> act = cache.putIfAbsent(user + "." + checkType.name(), set);
-         if (act != null)
+         if (invalidationInterval > 0)
          {
-            set = act;
+            getPermissions(user).get(checkType).put(address,
+                                                    new Permission(System.currentTimeMillis() + invalidationInterval));
          }
-         set.add(address);
-
       }
    }
 
@@ -208,6 +269,48 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
    // Public --------------------------------------------------------
 
+   /**
+    * @return the permission checks answered by a cached entry which hadn't expired
+    */
+   public long getHitCount()
+   {
+      return hitCount.get();
+   }
+
+   /**
+    * @return the permission checks answered by an expired entry while it was checked again
+    */
+   public long getStaleHitCount()
+   {
+      return staleHitCount.get();
+   }
+
+   /**
+    * @return the permission checks which went to the security manager
+    */
+   public long getMissCount()
+   {
+      return missCount.get();
+   }
+
+   /**
+    * @return the expired permissions checked again in the background
+    */
+   public long getRefreshCount()
+   {
+      return refreshCount.get();
+   }
+
+   public long getAuthenticationHitCount()
+   {
+      return authenticationHitCount.get();
+   }
+
+   public long getAuthenticationMissCount()
+   {
+      return authenticationMissCount.get();
+   }
+
    // Protected -----------------------------------------------------
 
    // Package Private -----------------------------------------------
@@ -216,32 +319,284 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
    private void invalidateCache()
    {
       cache.clear();
+      anonymousPermissions = null;
+      authenticationCache.clear();
+   }
+
+   private UserPermissions getPermissions(final String user)
+   {
+      UserPermissions permissions;
+
+      if (user == null)
+      {
+         permissions = anonymousPermissions;
+         if (permissions == null)
+         {
+            permissions = new UserPermissions();
+            anonymousPermissions = permissions;
+         }
+      }
+      else
+      {
+         permissions = cache.get(user);
+         if (permissions == null)
+         {
+            permissions = new UserPermissions();
+            UserPermissions act = cache.putIfAbsent(user, permissions);
+            if (act != null)
+            {
+               permissions = act;
+            }
+         }
+      }
+
+      return permissions;
    }
 
-   private boolean checkCached(final SimpleString dest, final String user, final CheckType checkType)
+   private boolean checkCached(final SimpleString dest,
+                               final String user,
+                               final String password,
+                               final CheckType checkType)
    {
+      if (invalidationInterval <= 0)
+      {
+         return false;
+      }
+
       long now = System.currentTimeMillis();
 
-      boolean granted = false;
+      purgeIfNeeded(now);
+
+      UserPermissions permissions = user == null ? anonymousPermissions : cache.get(user);
 
-      if (now - lastCheck > invalidationInterval)
+      if (permissions != null)
       {
-         invalidateCache();
+         ConcurrentMap<SimpleString, Permission> granted = permissions.get(checkType);
+
+         Permission permission = granted.get(dest);
+
+         if (permission != null)
+         {
+            if (now < permission.expiration)
+            {
+               hitCount.incrementAndGet();
+
+               return true;
+            }
 
-         lastCheck = now;
+            if (executor != null && now < permission.expiration + invalidationInterval)
+            {
+               if (permission.refreshing.compareAndSet(false, true))
+               {
+                  executor.execute(new PermissionRefresh(dest, user, password, checkType, granted, permission));
+               }
+
+               staleHitCount.incrementAndGet();
+
+               return true;
+            }
+         }
       }
-      else
+
+      missCount.incrementAndGet();
+
+      return false;
+   }
+
+   private boolean checkAuthenticationCached(final String user, final String password)
+   {
+      if (user == null || invalidationInterval <= 0)
       {
-         ConcurrentHashSet<SimpleString> act = cache.get(user + "." + checkType.name());
-         if (act != null)
+         return false;
+      }
+
+      Authentication authentication = authenticationCache.get(user);
+
+      if (authentication != null && System.currentTimeMillis() < authentication.expiration &&
+         (password == null ? authentication.password == null : password.equals(authentication.password)))
+      {
+         authenticationHitCount.incrementAndGet();
+
+         return true;
+      }
+
+      authenticationMissCount.incrementAndGet();
+
+      return false;
+   }
+
+   /**
+    * The entries are only replaced when checked again, the ones not used anymore (e.g. the
+    * addresses of temporary queues) are removed once per interval.
+    */
+   private void purgeIfNeeded(final long now)
+   {
+      long last = lastPurge.get();
+
+      if (now - last > invalidationInterval && lastPurge.compareAndSet(last, now))
+      {
+         if (executor != null)
+         {
+            executor.execute(new Runnable()
+            {
+               public void run()
+               {
+                  purge(System.currentTimeMillis());
+               }
+            });
+         }
+         else
          {
-            granted = act.contains(dest);
+            purge(now);
          }
       }
+   }
+
+   private void purge(final long now)
+   {
+      for (UserPermissions permissions : cache.values())
+      {
+         permissions.purge(now - invalidationInterval);
+      }
 
-      return granted;
+      UserPermissions anonymous = anonymousPermissions;
+
+      if (anonymous != null)
+      {
+         anonymous.purge(now - invalidationInterval);
+      }
+
+      Iterator<Authentication> iter = authenticationCache.values().iterator();
+
+      while (iter.hasNext())
+      {
+         if (iter.next().expiration <= now)
+         {
+            iter.remove();
+         }
+      }
    }
 
    // Inner class ---------------------------------------------------
 
+   private static final class Permission
+   {
+      volatile long expiration;
+
+      final AtomicBoolean refreshing = new AtomicBoolean();
+
+      Permission(final long expiration)
+      {
+         this.expiration = expiration;
+      }
+   }
+
+   /**
+    * The permissions granted to a user, by check type and then by address, so a check doesn't have
+    * to build a key.
+    */
+   private static final class UserPermissions extends EnumMap<CheckType, ConcurrentMap<SimpleString, Permission>>
+   {
+      private static final long serialVersionUID = 1L;
+
+      UserPermissions()
+      {
+         super(CheckType.class);
+
+         // never changed afterwards, so it's safe to read concurrently
+         for (CheckType checkType : CheckType.values())
+         {
+            put(checkType, new ConcurrentHashMap<SimpleString, Permission>());
+         }
+      }
+
+      void purge(final long expiredBefore)
+      {
+         for (Map<SimpleString, Permission> granted : values())
+         {
+            Iterator<Permission> iter = granted.values().iterator();
+
+            while (iter.hasNext())
+            {
+               if (iter.next().expiration <= expiredBefore)
+               {
+                  iter.remove();
+               }
+            }
+         }
+      }
+   }
+
+   private static final class Authentication
+   {
+      final String password;
+
+      final long expiration;
+
+      Authentication(final String password, final long expiration)
+      {
+         this.password = password;
+         this.expiration = expiration;
+      }
+   }
+
+   private final class PermissionRefresh implements Runnable
+   {
+      private final SimpleString address;
+
+      private final String user;
+
+      private final String password;
+
+      private final CheckType checkType;
+
+      private final ConcurrentMap<SimpleString, Permission> granted;
+
+      private final Permission permission;
+
+      PermissionRefresh(final SimpleString address,
+                        final String user,
+                        final String password,
+                        final CheckType checkType,
+                        final ConcurrentMap<SimpleString, Permission> granted,
+                        final Permission permission)
+      {
+         this.address = address;
+         this.user = user;
+         this.password = password;
+         this.checkType = checkType;
+         this.granted = granted;
+         this.permission = permission;
+      }
+
+      public void run()
+      {
+         refreshCount.incrementAndGet();
+
+         try
+         {
+            Set<Role> roles = securityRepository.getMatch(address);
+
+            if (securityManager.validateUserAndRole(user, password, roles, checkType))
+            {
+               permission.expiration = System.currentTimeMillis() + invalidationInterval;
+            }
+            else
+            {
+               // the next check goes to the security manager and reports the violation
+               granted.remove(address, permission);
+            }
+         }
+         catch (Throwable e)
+         {
+            HornetQServerLogger.LOGGER.debug("Couldn't check the permissions of " + user + " on " + address, e);
+
+            granted.remove(address, permission);
+         }
+         finally
+         {
+            permission.refreshing.set(false);
+         }
+      }
+   }
 }
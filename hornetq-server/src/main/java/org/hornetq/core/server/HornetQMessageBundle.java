@@ -315,4 +315,7 @@ public interface HornetQMessageBundle
 
    @Message(id = 119081, value =  "No Discovery Group configuration named {0} found", format = Message.Format.MESSAGE_FORMAT)
    HornetQException noDiscoveryGroupFound(DiscoveryGroupConfiguration dg);
+
+   @Message(id = 119082, value =  "group-timeout ({0}) must be greater than reaper-period ({1}) or the groups in use could lapse between renewals", format = Message.Format.MESSAGE_FORMAT)
+   IllegalArgumentException groupTimeoutNotGreaterThanReaperPeriod(Long groupTimeout, Long reaperPeriod);
 }
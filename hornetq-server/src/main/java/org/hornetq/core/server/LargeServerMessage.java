@@ -40,6 +40,18 @@ public interface LargeServerMessage extends ServerMessage, ReplicatedLargeMessag
    /** Close the files if opened */
    void releaseResources();
 
+   /**
+    * Runs the task once the chunks received so far are no longer holding too much memory waiting
+    * to be written to disk. Used to hold back producer credits while the disk catches up.
+    */
+   void afterPendingWrites(Runnable runnable);
+
+   /**
+    * Writes the chunks still waiting to be written to disk and waits for them.
+    * @throws Exception if any chunk could not be written, the body on disk is then incomplete
+    */
+   void flushPendingWrites() throws Exception;
+
    void deleteFile() throws Exception;
 
    void incrementDelayDeletionCount();
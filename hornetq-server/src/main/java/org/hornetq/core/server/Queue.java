@@ -173,6 +173,16 @@ public interface Queue extends Bindable
 
    void cancelRedistributor() throws Exception;
 
+   /**
+    * @return the number of messages moved to other nodes of the cluster since this queue was created
+    */
+   long getMessagesRedistributed();
+
+   /**
+    * @return the messages per second moved by the current redistributor, or 0 if there is none
+    */
+   double getRedistributionRate();
+
    boolean hasMatchingConsumer(ServerMessage message);
 
    Collection<Consumer> getConsumers();
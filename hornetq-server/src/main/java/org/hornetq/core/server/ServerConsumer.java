@@ -38,6 +38,14 @@ public interface ServerConsumer extends Consumer
 
    void receiveCredits(int credits) throws Exception;
 
+   /**
+    * @return the flow control window of the consumer, as given with its first credits or last
+    *         reported by the client when it adapts it
+    */
+   int getWindowSize();
+
+   void setWindowSize(int windowSize);
+
    Queue getQueue();
 
    MessageReference removeReferenceByID(long messageID) throws Exception;
@@ -46,6 +54,8 @@ public interface ServerConsumer extends Consumer
 
    void individualAcknowledge(boolean autoCommitAcks, Transaction tx, long messageID) throws Exception;
 
+   void individualAcknowledge(boolean autoCommitAcks, Transaction tx, long[] messageIDs) throws Exception;
+
    void forceDelivery(long sequence);
 
    void setTransferring(boolean transferring);
@@ -52,6 +52,8 @@ public interface ServerSession
 
    void individualAcknowledge(long consumerID, long messageID) throws Exception;
 
+   void individualAcknowledge(long consumerID, long[] messageIDs) throws Exception;
+
    void expire(long consumerID, long messageID) throws Exception;
 
    void rollback(boolean considerLastMessageAsDelivered) throws Exception;
@@ -104,10 +106,18 @@ public interface ServerSession
 
    void receiveConsumerCredits(long consumerID, int credits) throws Exception;
 
+   void receiveConsumerWindowSize(long consumerID, int windowSize);
+
    void sendContinuations(int packetSize, long totalBodySize, byte[] body, boolean continues) throws Exception;
 
    void send(ServerMessage message, boolean direct) throws Exception;
 
+   /**
+    * Sends messages as one operation: when sends are auto-committed they are routed in a single
+    * transaction, so either all of them or none are sent.
+    */
+   void send(List<ServerMessage> messages, boolean direct) throws Exception;
+
    void sendLarge(MessageInternal msg) throws Exception;
 
    void forceConsumerDelivery(long consumerID, long sequence) throws Exception;
@@ -760,7 +760,8 @@ public final class ClusterManager implements HornetQComponent
                                                        server.getConfiguration().getClusterPassword(),
                                                        config.isAllowDirectConnectionsOnly(),
                                                        config.getClusterNotificationInterval(),
-                                                       config.getClusterNotificationAttempts());
+                                                       config.getClusterNotificationAttempts(),
+                                                       config.getLoadBalancingUpdatePeriod());
       }
       else
       {
@@ -802,7 +803,8 @@ public final class ClusterManager implements HornetQComponent
                                                        server.getConfiguration().getClusterPassword(),
                                                        config.isAllowDirectConnectionsOnly(),
                                                        config.getClusterNotificationInterval(),
-                                                       config.getClusterNotificationAttempts());
+                                                       config.getClusterNotificationAttempts(),
+                                                       config.getLoadBalancingUpdatePeriod());
       }
 
       if (defaultClusterConnection == null)
@@ -270,6 +270,12 @@ public class ClusterConnectionBridge extends BridgeImpl
                                                 NotificationType.PROPOSAL +
                                                 "','" +
                                                 NotificationType.PROPOSAL_RESPONSE +
+                                                "','" +
+                                                NotificationType.QUEUE_LOAD +
+                                                "','" +
+                                                NotificationType.UNPROPOSAL +
+                                                "','" +
+                                                NotificationType.PROPOSAL_RENEWAL +
                                                 "') AND " +
                                                 ManagementHelper.HDR_DISTANCE +
                                                 "<" +
@@ -15,12 +15,14 @@ package org.hornetq.core.server.cluster.impl;
 
 import static org.hornetq.api.core.management.NotificationType.CONSUMER_CLOSED;
 import static org.hornetq.api.core.management.NotificationType.CONSUMER_CREATED;
+import static org.hornetq.api.core.management.NotificationType.QUEUE_LOAD;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -29,6 +31,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.hornetq.api.core.DiscoveryGroupConfiguration;
@@ -50,6 +53,8 @@ import org.hornetq.core.client.impl.TopologyMemberImpl;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.Bindings;
 import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.postoffice.QueueLoad;
+import org.hornetq.core.postoffice.impl.LocalQueueBinding;
 import org.hornetq.core.postoffice.impl.PostOfficeImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.NodeAnnounceMessage;
 import org.hornetq.core.server.HornetQMessageBundle;
@@ -63,6 +68,7 @@ import org.hornetq.core.server.cluster.ClusterManager;
 import org.hornetq.core.server.cluster.MessageFlowRecord;
 import org.hornetq.core.server.cluster.RemoteQueueBinding;
 import org.hornetq.core.server.group.impl.Proposal;
+import org.hornetq.core.server.group.impl.RemoteGroupingHandler;
 import org.hornetq.core.server.group.impl.Response;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
@@ -166,11 +172,15 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
    private LiveNotifier liveNotifier = null;
    private final long clusterNotificationInterval;
    private final int clusterNotificationAttempts;
+   private final long loadBalancingUpdatePeriod;
+   private ScheduledFuture<?> loadUpdaterFuture;
 
    /**
     * @param staticTranspConfigs notice if {@code null} this is a cluster which won't connect to
     *           anyone, but that can still accept incoming connections.
     * @param clusterNotificationInterval
+    * @param loadBalancingUpdatePeriod how often the load of the local queues is gossiped to the
+    *           cluster, {@code -1} to balance the messages round robin
     */
    public ClusterConnectionImpl(final ClusterManager manager, final TransportConfiguration[] staticTranspConfigs,
                                 final TransportConfiguration connector,
@@ -201,7 +211,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
                                 final String clusterPassword,
                                 final boolean allowDirectConnectionsOnly,
                                 final long clusterNotificationInterval,
-                                final int clusterNotificationAttempts) throws Exception
+                                final int clusterNotificationAttempts,
+                                final long loadBalancingUpdatePeriod) throws Exception
    {
       this.nodeManager = nodeManager;
 
@@ -235,6 +246,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
       this.clusterNotificationAttempts = clusterNotificationAttempts;
 
+      this.loadBalancingUpdatePeriod = loadBalancingUpdatePeriod;
+
       this.executor = executorFactory.getExecutor();
 
       this.threadPool = threadPool;
@@ -299,6 +312,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
     * @param dg discovery group, notice if {@code null} this is a cluster which won't connect to
     *           anyone, but that can still accept incoming connections.
     * @param clusterNotificationInterval
+    * @param loadBalancingUpdatePeriod how often the load of the local queues is gossiped to the
+    *           cluster, {@code -1} to balance the messages round robin
     */
    public ClusterConnectionImpl(final ClusterManager manager,
                                 DiscoveryGroupConfiguration dg,
@@ -330,7 +345,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
                                 final String clusterPassword,
                                 final boolean allowDirectConnectionsOnly,
                                 final long clusterNotificationInterval,
-                                final int clusterNotificationAttempts) throws Exception
+                                final int clusterNotificationAttempts,
+                                final long loadBalancingUpdatePeriod) throws Exception
    {
       this.nodeManager = nodeManager;
 
@@ -370,6 +386,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
       this.clusterNotificationAttempts = clusterNotificationAttempts;
 
+      this.loadBalancingUpdatePeriod = loadBalancingUpdatePeriod;
+
       this.executor = executorFactory.getExecutor();
 
       this.threadPool = threadPool;
@@ -455,6 +473,13 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
       synchronized (this)
       {
+         if (loadUpdaterFuture != null)
+         {
+            loadUpdaterFuture.cancel(false);
+
+            loadUpdaterFuture = null;
+         }
+
          for (MessageFlowRecord record : records.values())
          {
             try
@@ -711,6 +736,14 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
       liveNotifier.updateAsLive();
       liveNotifier.schedule();
 
+      if (loadBalancingUpdatePeriod > 0 && loadUpdaterFuture == null)
+      {
+         loadUpdaterFuture = scheduledExecutor.scheduleWithFixedDelay(new LoadUpdater(),
+                                                                      loadBalancingUpdatePeriod,
+                                                                      loadBalancingUpdatePeriod,
+                                                                      TimeUnit.MILLISECONDS);
+      }
+
       if (backupServerLocator != null)
       {
          // todo we could use the topology of this to preempt it arriving from the cc
@@ -1298,6 +1331,24 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
                   break;
                }
+               case QUEUE_LOAD:
+               {
+                  doQueueLoad(message);
+
+                  break;
+               }
+               case UNPROPOSAL:
+               {
+                  doUnproposalReceived(message);
+
+                  break;
+               }
+               case PROPOSAL_RENEWAL:
+               {
+                  doProposalRenewalReceived(message);
+
+                  break;
+               }
                default:
                {
                   throw HornetQMessageBundle.BUNDLE.invalidType(ntype);
@@ -1354,6 +1405,36 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
          server.getGroupingHandler().send(response, hops + 1);
       }
 
+      /*
+      * Inform the grouping handler that the local handler unbound a group
+      * */
+      private synchronized void doUnproposalReceived(final ClientMessage message) throws Exception
+      {
+         if (!message.containsProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID))
+         {
+            throw new IllegalStateException("proposal type is null");
+         }
+
+         SimpleString groupId = message.getSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID);
+         Integer hops = message.getIntProperty(ManagementHelper.HDR_DISTANCE);
+         server.getGroupingHandler().remove(groupId, hops + 1);
+      }
+
+      /*
+      * Inform the grouping handler of the groups still in use on another node
+      * */
+      private synchronized void doProposalRenewalReceived(final ClientMessage message) throws Exception
+      {
+         if (!message.containsProperty(ManagementHelper.HDR_PROPOSAL_GROUP_IDS))
+         {
+            throw new IllegalStateException("proposal group ids are null");
+         }
+
+         List<SimpleString> groupIds = RemoteGroupingHandler.decodeGroupIds(message.getSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_IDS));
+         Integer hops = message.getIntProperty(ManagementHelper.HDR_DISTANCE);
+         server.getGroupingHandler().renew(groupIds, hops + 1);
+      }
+
       private synchronized void clearBindings() throws Exception
       {
          HornetQServerLogger.LOGGER.debug(ClusterConnectionImpl.this + " clearing bindings");
@@ -1446,6 +1527,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
          theBindings.setRouteWhenNoConsumers(routeWhenNoConsumers);
 
+         theBindings.setLoadBalanced(loadBalancingUpdatePeriod > 0);
+
       }
 
       private void doBindingRemoved(final ClientMessage message) throws Exception
@@ -1536,6 +1619,54 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
          managementService.sendNotification(notification);
       }
 
+      private synchronized void doQueueLoad(final ClientMessage message) throws Exception
+      {
+         if (!message.containsProperty(ManagementHelper.HDR_DISTANCE))
+         {
+            throw new IllegalStateException("distance is null");
+         }
+
+         if (!message.containsProperty(ManagementHelper.HDR_CLUSTER_NAME))
+         {
+            throw new IllegalStateException("clusterName is null");
+         }
+
+         Integer distance = message.getIntProperty(ManagementHelper.HDR_DISTANCE);
+
+         SimpleString clusterName = message.getSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME);
+
+         RemoteQueueBinding binding = bindings.get(clusterName);
+
+         if (binding == null)
+         {
+            // The load can be gossiped before the binding is known here, the next update will do
+            return;
+         }
+
+         long backlog = message.getLongProperty(ManagementHelper.HDR_MESSAGE_COUNT);
+
+         double consumerRate = message.getDoubleProperty(ManagementHelper.HDR_CONSUMER_RATE);
+
+         binding.getLoad().update(backlog, consumerRate);
+
+         // Need to propagate the load to the nodes further away
+         TypedProperties props = new TypedProperties();
+
+         props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, binding.getAddress());
+
+         props.putSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME, clusterName);
+
+         props.putSimpleStringProperty(ManagementHelper.HDR_ROUTING_NAME, binding.getRoutingName());
+
+         props.putIntProperty(ManagementHelper.HDR_DISTANCE, distance + 1);
+
+         props.putLongProperty(ManagementHelper.HDR_MESSAGE_COUNT, backlog);
+
+         props.putDoubleProperty(ManagementHelper.HDR_CONSUMER_RATE, consumerRate);
+
+         managementService.sendNotification(new Notification(null, QUEUE_LOAD, props));
+      }
+
       private synchronized void doConsumerClosed(final ClientMessage message) throws Exception
       {
          if (HornetQServerLogger.LOGGER.isTraceEnabled())
@@ -1692,6 +1823,65 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
       return clusterUser.equals(clusterUser0) && clusterPassword.equals(clusterPassword0);
    }
 
+   /**
+    * Samples the load of the local queues under the cluster address and gossips it to the other
+    * nodes, which balance the messages they route to these queues accordingly.
+    */
+   private final class LoadUpdater implements Runnable
+   {
+      public void run()
+      {
+         if (!started || stopping || managementService == null)
+         {
+            return;
+         }
+
+         try
+         {
+            for (Binding binding : postOffice.getAllBindings().values())
+            {
+               if (!(binding instanceof LocalQueueBinding) || !binding.getAddress().startsWith(address))
+               {
+                  continue;
+               }
+
+               LocalQueueBinding queueBinding = (LocalQueueBinding)binding;
+
+               Queue queue = queueBinding.getQueue();
+
+               if (queue.isInternalQueue())
+               {
+                  continue;
+               }
+
+               QueueLoad load = queueBinding.getLoad();
+
+               load.sample(queue.getInstantMessagesAdded(), queue.getInstantMessageCount());
+
+               TypedProperties props = new TypedProperties();
+
+               props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, binding.getAddress());
+
+               props.putSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME, binding.getClusterName());
+
+               props.putSimpleStringProperty(ManagementHelper.HDR_ROUTING_NAME, binding.getRoutingName());
+
+               props.putIntProperty(ManagementHelper.HDR_DISTANCE, binding.getDistance());
+
+               props.putLongProperty(ManagementHelper.HDR_MESSAGE_COUNT, load.getBacklog());
+
+               props.putDoubleProperty(ManagementHelper.HDR_CONSUMER_RATE, load.getConsumerRate());
+
+               managementService.sendNotification(new Notification(null, QUEUE_LOAD, props));
+            }
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+         }
+      }
+   }
+
    private final class LiveNotifier implements Runnable
    {
       int notificationsSent = 0;
@@ -13,8 +13,17 @@
 
 package org.hornetq.core.server.cluster.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.Pair;
@@ -27,6 +36,7 @@ import org.hornetq.core.server.HandleStatus;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.RouteContextList;
 import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.transaction.Transaction;
@@ -40,10 +50,19 @@ import org.hornetq.utils.ReusableLatch;
  *
  * Created 8 Feb 2009 14:23:41
  *
+ * With a transaction batch size above one, messages are moved in batches sharing a transaction.
+ * Before a batch is started, the store and forward queues the previous batch went to must have
+ * forwarded most of it: their backlog only drains as fast as the cluster bridges get credits from
+ * the remote consumers, so this is what keeps a large backlog from piling up on the bridges.
  *
  */
 public class Redistributor implements Consumer
 {
+   /**
+    * How long to wait (in ms) before checking again the backlog of the store and forward queues.
+    */
+   public static final long CREDIT_CHECK_INTERVAL = 100;
+
    private boolean active;
 
    private final StorageManager storageManager;
@@ -58,6 +77,24 @@ public class Redistributor implements Consumer
 
    private int count;
 
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private final int transactionBatchSize;
+
+   private Transaction batchTx;
+
+   private int batchCount;
+
+   private final Set<Queue> batchTargets = new HashSet<Queue>();
+
+   private Collection<Queue> previousTargets = Collections.emptyList();
+
+   private ScheduledFuture<?> creditCheckFuture;
+
+   private final AtomicLong messagesRedistributed = new AtomicLong();
+
+   private volatile long startTime;
+
    // a Flush executor here is happening inside another executor.
    // what may cause issues under load. Say you are running out of executors for cases where you don't need to wait at all.
    // So, instead of using a future we will use a plain ReusableLatch here
@@ -67,7 +104,9 @@ public class Redistributor implements Consumer
                         final StorageManager storageManager,
                         final PostOffice postOffice,
                         final Executor executor,
-                        final int batchSize)
+                        final ScheduledExecutorService scheduledExecutor,
+                        final int batchSize,
+                        final int transactionBatchSize)
    {
       this.queue = queue;
 
@@ -78,6 +117,10 @@ public class Redistributor implements Consumer
       this.executor = executor;
 
       this.batchSize = batchSize;
+
+      this.scheduledExecutor = scheduledExecutor;
+
+      this.transactionBatchSize = transactionBatchSize;
    }
 
    public Filter getFilter()
@@ -98,12 +141,18 @@ public class Redistributor implements Consumer
    public synchronized void start()
    {
       active = true;
+
+      startTime = System.currentTimeMillis();
    }
 
    public synchronized void stop() throws Exception
    {
       active = false;
 
+      cancelCreditCheck();
+
+      commitBatch();
+
       boolean ok = flushExecutor();
 
       if (!ok)
@@ -119,6 +168,17 @@ public class Redistributor implements Consumer
 
    public synchronized void close()
    {
+      cancelCreditCheck();
+
+      try
+      {
+         commitBatch();
+      }
+      catch (Exception e)
+      {
+         HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+      }
+
       boolean ok = flushExecutor();
 
       if (!ok)
@@ -155,6 +215,22 @@ public class Redistributor implements Consumer
          return HandleStatus.NO_MATCH;
       }
 
+      if (transactionBatchSize > 1)
+      {
+         if (!reference.getMessage().isLargeMessage())
+         {
+            return handleBatched(reference);
+         }
+
+         // Large messages are copied in the background, one at a time
+         commitBatch();
+
+         if (!active)
+         {
+            return HandleStatus.BUSY;
+         }
+      }
+
       final Transaction tx = new TransactionImpl(storageManager);
 
       final Pair<RoutingContext, ServerMessage> routingInfo = postOffice.redistribute(reference.getMessage(), queue, tx);
@@ -222,6 +298,172 @@ public class Redistributor implements Consumer
       // no op
    }
 
+   public int getTransactionBatchSize()
+   {
+      return transactionBatchSize;
+   }
+
+   /**
+    * @return the number of messages this redistributor moved to other nodes
+    */
+   public long getMessagesRedistributed()
+   {
+      return messagesRedistributed.get();
+   }
+
+   /**
+    * @return the messages moved per second since this redistributor was started
+    */
+   public double getRedistributionRate()
+   {
+      long elapsed = System.currentTimeMillis() - startTime;
+
+      return elapsed > 0 ? messagesRedistributed.get() * 1000d / elapsed : 0;
+   }
+
+   private HandleStatus handleBatched(final MessageReference reference) throws Exception
+   {
+      if (batchTx == null)
+      {
+         if (!hasCredits())
+         {
+            active = false;
+
+            creditCheckFuture = scheduledExecutor.schedule(new Runnable()
+            {
+               public void run()
+               {
+                  executor.execute(new Prompter());
+               }
+            }, CREDIT_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+
+            return HandleStatus.BUSY;
+         }
+
+         batchTx = new TransactionImpl(storageManager);
+
+         // Whatever the delivery loop added to the batch is committed once it gives back the executor
+         executor.execute(new BatchFlusher());
+      }
+
+      Pair<RoutingContext, ServerMessage> routingInfo = postOffice.redistribute(reference.getMessage(), queue, batchTx);
+
+      if (routingInfo == null)
+      {
+         return HandleStatus.BUSY;
+      }
+
+      routingInfo.getB().finishCopy();
+
+      postOffice.processRoute(routingInfo.getB(), routingInfo.getA(), false);
+
+      for (RouteContextList targets : routingInfo.getA().getContexListing().values())
+      {
+         batchTargets.addAll(targets.getDurableQueues());
+         batchTargets.addAll(targets.getNonDurableQueues());
+      }
+
+      reference.handled();
+
+      queue.acknowledge(batchTx, reference);
+
+      if (++batchCount >= transactionBatchSize)
+      {
+         commitBatch();
+      }
+
+      return HandleStatus.HANDLED;
+   }
+
+   /**
+    * @return {@code false} while a store and forward queue still holds a batch's worth of messages
+    *         not forwarded yet
+    */
+   private boolean hasCredits()
+   {
+      for (Queue target : previousTargets)
+      {
+         if (target.getInstantMessageCount() >= transactionBatchSize)
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private void commitBatch() throws Exception
+   {
+      if (batchTx == null)
+      {
+         return;
+      }
+
+      Transaction tx = batchTx;
+
+      final int messages = batchCount;
+
+      batchTx = null;
+
+      batchCount = 0;
+
+      previousTargets = new ArrayList<Queue>(batchTargets);
+
+      batchTargets.clear();
+
+      try
+      {
+         tx.commit();
+      }
+      catch (Exception e)
+      {
+         try
+         {
+            tx.rollback();
+         }
+         catch (Exception e2)
+         {
+            HornetQServerLogger.LOGGER.warn(e2.getMessage(), e2);
+         }
+
+         throw e;
+      }
+
+      if (messages == 0)
+      {
+         return;
+      }
+
+      // The next batch waits for this one to be stored, and starts on a different thread so as not to
+      // keep the delivery thread busy
+      active = false;
+
+      storageManager.afterCompleteOperations(new IOAsyncTask()
+      {
+         public void onError(final int errorCode, final String errorMessage)
+         {
+            HornetQServerLogger.LOGGER.ioErrorRedistributing(errorCode, errorMessage);
+         }
+
+         public void done()
+         {
+            messagesRedistributed.addAndGet(messages);
+
+            executor.execute(new Prompter());
+         }
+      });
+   }
+
+   private void cancelCreditCheck()
+   {
+      if (creditCheckFuture != null)
+      {
+         creditCheckFuture.cancel(false);
+
+         creditCheckFuture = null;
+      }
+   }
+
 
    private void internalExecute(final Runnable runnable)
    {
@@ -260,6 +502,8 @@ public class Redistributor implements Consumer
 
          public void done()
          {
+            messagesRedistributed.incrementAndGet();
+
             execPrompter();
          }
       });
@@ -296,4 +540,26 @@ public class Redistributor implements Consumer
          }
       }
    }
+
+   private class BatchFlusher implements Runnable
+   {
+      public void run()
+      {
+         // The queue is locked first, as it is when the delivery calls handle
+         synchronized (queue)
+         {
+            synchronized (Redistributor.this)
+            {
+               try
+               {
+                  commitBatch();
+               }
+               catch (Exception e)
+               {
+                  HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+               }
+            }
+         }
+      }
+   }
 }
@@ -25,6 +25,7 @@ import org.hornetq.core.filter.Filter;
 import org.hornetq.core.filter.impl.FilterImpl;
 import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.postoffice.BindingType;
+import org.hornetq.core.postoffice.QueueLoad;
 import org.hornetq.core.server.Bindable;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.Queue;
@@ -67,6 +68,8 @@ public class RemoteQueueBindingImpl implements RemoteQueueBinding
 
    private final int distance;
 
+   private final QueueLoad load = new QueueLoad();
+
    public RemoteQueueBindingImpl(final long id,
                                  final SimpleString address,
                                  final SimpleString uniqueName,
@@ -116,6 +119,11 @@ public class RemoteQueueBindingImpl implements RemoteQueueBinding
       return storeAndForwardQueue;
    }
 
+   public QueueLoad getLoad()
+   {
+      return load;
+   }
+
    public SimpleString getRoutingName()
    {
       return routingName;
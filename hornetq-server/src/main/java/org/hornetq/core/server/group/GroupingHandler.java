@@ -12,7 +12,10 @@
  */
 package org.hornetq.core.server.group;
 
+import java.util.List;
+
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.core.server.group.impl.GroupBinding;
 import org.hornetq.core.server.group.impl.Proposal;
 import org.hornetq.core.server.group.impl.Response;
@@ -21,7 +24,7 @@ import org.hornetq.core.server.management.NotificationListener;
 /**
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
  */
-public interface GroupingHandler extends NotificationListener
+public interface GroupingHandler extends NotificationListener, HornetQComponent
 {
    SimpleString getName();
 
@@ -36,4 +39,14 @@ public interface GroupingHandler extends NotificationListener
    void addGroupBinding(GroupBinding groupBinding);
 
    Response getProposal(SimpleString fullID);
+
+   /**
+    * Renews the leases of groups still in use on another node.
+    */
+   void renew(List<SimpleString> groupIds, int distance) throws Exception;
+
+   /**
+    * Forgets a group whose lease expired on the local handler.
+    */
+   void remove(SimpleString groupId, int distance) throws Exception;
 }
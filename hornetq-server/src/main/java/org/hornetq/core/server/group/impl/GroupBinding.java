@@ -28,6 +28,8 @@ public class GroupBinding
 
    private final SimpleString clusterName;
 
+   private volatile long timeUsed = System.currentTimeMillis();
+
    public GroupBinding(final SimpleString groupId, final SimpleString clusterName)
    {
       this.groupId = groupId;
@@ -61,6 +63,19 @@ public class GroupBinding
       return clusterName;
    }
 
+   /**
+    * @return the last time a message of the group was routed, or its lease renewed
+    */
+   public long getTimeUsed()
+   {
+      return timeUsed;
+   }
+
+   public void use()
+   {
+      timeUsed = System.currentTimeMillis();
+   }
+
    @Override
    public String toString()
    {
@@ -15,6 +15,7 @@ package org.hornetq.core.server.group.impl;
 import java.io.Serializable;
 
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.HornetQMessageBundle;
 
 /**
  * A remote Grouping handler configuration
@@ -33,8 +34,16 @@ public final class GroupingHandlerConfiguration implements Serializable
 
    private final long timeout;
 
+   private final long groupTimeout;
+
+   private final long reaperPeriod;
+
    public static final int DEFAULT_TIMEOUT = 5000;
 
+   public static final long DEFAULT_GROUP_TIMEOUT = -1;
+
+   public static final long DEFAULT_REAPER_PERIOD = 30000;
+
    public GroupingHandlerConfiguration(final SimpleString name, final TYPE type, final SimpleString address)
    {
       this(name, type, address, GroupingHandlerConfiguration.DEFAULT_TIMEOUT);
@@ -44,11 +53,34 @@ public final class GroupingHandlerConfiguration implements Serializable
                                        final TYPE type,
                                        final SimpleString address,
                                        final int timeout)
+   {
+      this(name, type, address, timeout, DEFAULT_GROUP_TIMEOUT, DEFAULT_REAPER_PERIOD);
+   }
+
+   /**
+    * @param groupTimeout how long (in milliseconds) a group can go unused before it is unbound from
+    *           its queue, -1 to keep the groups bound forever
+    * @param reaperPeriod how often (in milliseconds) the handlers expire the unused groups and renew
+    *           the ones in use, which must be shorter than the group timeout
+    */
+   public GroupingHandlerConfiguration(final SimpleString name,
+                                       final TYPE type,
+                                       final SimpleString address,
+                                       final int timeout,
+                                       final long groupTimeout,
+                                       final long reaperPeriod)
    {
       this.type = type;
       this.name = name;
       this.address = address;
       this.timeout = timeout;
+      this.groupTimeout = groupTimeout;
+      this.reaperPeriod = reaperPeriod;
+
+      if (groupTimeout > 0 && groupTimeout <= reaperPeriod)
+      {
+         throw HornetQMessageBundle.BUNDLE.groupTimeoutNotGreaterThanReaperPeriod(groupTimeout, reaperPeriod);
+      }
    }
 
    public SimpleString getName()
@@ -71,6 +103,16 @@ public final class GroupingHandlerConfiguration implements Serializable
       return timeout;
    }
 
+   public long getGroupTimeout()
+   {
+      return groupTimeout;
+   }
+
+   public long getReaperPeriod()
+   {
+      return reaperPeriod;
+   }
+
    public enum TYPE
    {
       LOCAL("LOCAL"), REMOTE("REMOTE");
@@ -96,6 +138,8 @@ public final class GroupingHandlerConfiguration implements Serializable
       result = prime * result + ((address == null) ? 0 : address.hashCode());
       result = prime * result + ((name == null) ? 0 : name.hashCode());
       result = prime * result + (int) (timeout ^ (timeout >>> 32));
+      result = prime * result + (int) (groupTimeout ^ (groupTimeout >>> 32));
+      result = prime * result + (int) (reaperPeriod ^ (reaperPeriod >>> 32));
       result = prime * result + ((type == null) ? 0 : type.hashCode());
       return result;
    }
@@ -126,6 +170,10 @@ public final class GroupingHandlerConfiguration implements Serializable
          return false;
       if (timeout != other.timeout)
          return false;
+      if (groupTimeout != other.groupTimeout)
+         return false;
+      if (reaperPeriod != other.reaperPeriod)
+         return false;
       if (type != other.type)
          return false;
       return true;
@@ -12,9 +12,13 @@
  */
 package org.hornetq.core.server.group.impl;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.management.ManagementHelper;
@@ -31,6 +35,9 @@ import org.hornetq.utils.TypedProperties;
 
 /**
  * A Local Grouping handler. All the Remote handlers will talk with us
+ * <p>
+ * With a group timeout, each group binding is a lease: the groups which no node routed a message
+ * to for that long are unbound, and the remote handlers told to forget them.
  *
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
  */
@@ -38,7 +45,7 @@ public final class LocalGroupingHandler implements GroupingHandler
 {
    private final ConcurrentHashMap<SimpleString, GroupBinding> map = new ConcurrentHashMap<SimpleString, GroupBinding>();
 
-   private final ConcurrentHashMap<SimpleString, List<GroupBinding>> groupMap = new ConcurrentHashMap<SimpleString, List<GroupBinding>>();
+   private final ConcurrentHashMap<SimpleString, Set<GroupBinding>> groupMap = new ConcurrentHashMap<SimpleString, Set<GroupBinding>>();
 
    private final SimpleString name;
 
@@ -50,17 +57,84 @@ public final class LocalGroupingHandler implements GroupingHandler
 
    private final long timeout;
 
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private final long groupTimeout;
+
+   private final long reaperPeriod;
+
+   private ScheduledFuture<?> reaperFuture;
+
+   private boolean started;
+
    public LocalGroupingHandler(final ManagementService managementService,
                                final SimpleString name,
                                final SimpleString address,
                                final StorageManager storageManager,
                                final long timeout)
+   {
+      this(managementService,
+           name,
+           address,
+           storageManager,
+           timeout,
+           null,
+           GroupingHandlerConfiguration.DEFAULT_GROUP_TIMEOUT,
+           GroupingHandlerConfiguration.DEFAULT_REAPER_PERIOD);
+   }
+
+   public LocalGroupingHandler(final ManagementService managementService,
+                               final SimpleString name,
+                               final SimpleString address,
+                               final StorageManager storageManager,
+                               final long timeout,
+                               final ScheduledExecutorService scheduledExecutor,
+                               final long groupTimeout,
+                               final long reaperPeriod)
    {
       this.managementService = managementService;
       this.name = name;
       this.address = address;
       this.storageManager = storageManager;
       this.timeout = timeout;
+      this.scheduledExecutor = scheduledExecutor;
+      this.groupTimeout = groupTimeout;
+      this.reaperPeriod = reaperPeriod;
+   }
+
+   public synchronized void start() throws Exception
+   {
+      if (started)
+      {
+         return;
+      }
+
+      if (groupTimeout > 0 && scheduledExecutor != null)
+      {
+         reaperFuture = scheduledExecutor.scheduleWithFixedDelay(new GroupReaper(),
+                                                                 reaperPeriod,
+                                                                 reaperPeriod,
+                                                                 TimeUnit.MILLISECONDS);
+      }
+
+      started = true;
+   }
+
+   public synchronized void stop() throws Exception
+   {
+      if (reaperFuture != null)
+      {
+         reaperFuture.cancel(false);
+
+         reaperFuture = null;
+      }
+
+      started = false;
+   }
+
+   public synchronized boolean isStarted()
+   {
+      return started;
    }
 
    public SimpleString getName()
@@ -80,30 +154,34 @@ public final class LocalGroupingHandler implements GroupingHandler
          if (proposal.getClusterName() == null)
          {
             GroupBinding original = map.get(proposal.getGroupId());
-            return original == null ? null : new Response(proposal.getGroupId(), original.getClusterName());
+            if (original == null)
+            {
+               return null;
+            }
+            original.use();
+            return new Response(proposal.getGroupId(), original.getClusterName());
          }
          GroupBinding groupBinding = new GroupBinding(proposal.getGroupId(), proposal.getClusterName());
-         if (map.putIfAbsent(groupBinding.getGroupId(), groupBinding) == null)
+         while (true)
          {
-            groupBinding.setId(storageManager.generateUniqueID());
-            List<GroupBinding> newList = new ArrayList<GroupBinding>();
-            List<GroupBinding> oldList = groupMap.putIfAbsent(groupBinding.getClusterName(), newList);
-            if (oldList != null)
+            GroupBinding original = map.putIfAbsent(groupBinding.getGroupId(), groupBinding);
+            if (original == null)
             {
-               newList = oldList;
+               groupBinding.setId(storageManager.generateUniqueID());
+               getBindings(groupBinding.getClusterName()).add(groupBinding);
+               storageManager.addGrouping(groupBinding);
+               if (!storageManager.waitOnOperations(timeout))
+               {
+                  throw HornetQMessageBundle.BUNDLE.ioTimeout();
+               }
+               return new Response(groupBinding.getGroupId(), groupBinding.getClusterName());
             }
-            newList.add(groupBinding);
-            storageManager.addGrouping(groupBinding);
-            if (!storageManager.waitOnOperations(timeout))
+            original.use();
+            // the reaper may have unbound the group in the meantime, in which case we propose it again
+            if (map.get(original.getGroupId()) == original)
             {
-               throw HornetQMessageBundle.BUNDLE.ioTimeout();
+               return new Response(original.getGroupId(), proposal.getClusterName(), original.getClusterName());
             }
-            return new Response(groupBinding.getGroupId(), groupBinding.getClusterName());
-         }
-         else
-         {
-            groupBinding = map.get(proposal.getGroupId());
-            return new Response(groupBinding.getGroupId(), proposal.getClusterName(), groupBinding.getClusterName());
          }
       }
       finally
@@ -138,19 +216,36 @@ public final class LocalGroupingHandler implements GroupingHandler
    public void addGroupBinding(final GroupBinding groupBinding)
    {
       map.put(groupBinding.getGroupId(), groupBinding);
-      List<GroupBinding> newList = new ArrayList<GroupBinding>();
-      List<GroupBinding> oldList = groupMap.putIfAbsent(groupBinding.getClusterName(), newList);
-      if (oldList != null)
-      {
-         newList = oldList;
-      }
-      newList.add(groupBinding);
+      getBindings(groupBinding.getClusterName()).add(groupBinding);
    }
 
    public Response getProposal(final SimpleString fullID)
    {
       GroupBinding original = map.get(fullID);
-      return original == null ? null : new Response(fullID, original.getClusterName());
+      if (original == null)
+      {
+         return null;
+      }
+      original.use();
+      return new Response(fullID, original.getClusterName());
+   }
+
+   public void renew(final List<SimpleString> groupIds, final int distance) throws Exception
+   {
+      for (SimpleString groupId : groupIds)
+      {
+         GroupBinding groupBinding = map.get(groupId);
+
+         if (groupBinding != null)
+         {
+            groupBinding.use();
+         }
+      }
+   }
+
+   public void remove(final SimpleString groupId, final int distance) throws Exception
+   {
+      // NO-OP, we are the ones unbinding the groups
    }
 
    public void onNotification(final Notification notification)
@@ -160,10 +255,10 @@ public final class LocalGroupingHandler implements GroupingHandler
          SimpleString clusterName = notification.getProperties()
                                                 .getSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME);
 
-         List<GroupBinding> list = groupMap.remove(clusterName);
-         if (list != null)
+         Set<GroupBinding> bindings = groupMap.remove(clusterName);
+         if (bindings != null)
          {
-            for (GroupBinding val : list)
+            for (GroupBinding val : bindings)
             {
                if (val != null)
                {
@@ -181,4 +276,67 @@ public final class LocalGroupingHandler implements GroupingHandler
          }
       }
    }
+
+   /**
+    * The bindings of a queue are added to by the proposals and removed from by the reaper
+    * concurrently, hence the concurrent set.
+    */
+   private Set<GroupBinding> getBindings(final SimpleString clusterName)
+   {
+      Set<GroupBinding> bindings = groupMap.get(clusterName);
+      if (bindings == null)
+      {
+         bindings = Collections.newSetFromMap(new ConcurrentHashMap<GroupBinding, Boolean>());
+         Set<GroupBinding> oldBindings = groupMap.putIfAbsent(clusterName, bindings);
+         if (oldBindings != null)
+         {
+            bindings = oldBindings;
+         }
+      }
+      return bindings;
+   }
+
+   /**
+    * Unbinds the groups whose lease expired, and tells the remote handlers about it.
+    */
+   private final class GroupReaper implements Runnable
+   {
+      public void run()
+      {
+         long expiry = System.currentTimeMillis() - groupTimeout;
+
+         for (GroupBinding groupBinding : map.values())
+         {
+            if (groupBinding.getTimeUsed() >= expiry || !map.remove(groupBinding.getGroupId(), groupBinding))
+            {
+               continue;
+            }
+
+            Set<GroupBinding> bindings = groupMap.get(groupBinding.getClusterName());
+
+            if (bindings != null)
+            {
+               bindings.remove(groupBinding);
+            }
+
+            try
+            {
+               storageManager.deleteGrouping(groupBinding);
+
+               TypedProperties props = new TypedProperties();
+               props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, groupBinding.getGroupId());
+               props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, groupBinding.getClusterName());
+               props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
+               props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
+               props.putIntProperty(ManagementHelper.HDR_DISTANCE, 0);
+               Notification notification = new Notification(null, NotificationType.UNPROPOSAL, props);
+               managementService.sendNotification(notification);
+            }
+            catch (Exception e)
+            {
+               HornetQServerLogger.LOGGER.unableToDeleteGroupBindings(e, groupBinding.getGroupId());
+            }
+         }
+      }
+   }
 }
@@ -13,15 +13,21 @@
 package org.hornetq.core.server.group.impl;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.management.ManagementHelper;
 import org.hornetq.api.core.management.NotificationType;
@@ -36,11 +42,20 @@ import org.hornetq.utils.TypedProperties;
  * A remote Grouping handler.
  * <p>
  * This will use management notifications to communicate with the node that has the Local Grouping
- * handler to make proposals.
+ * handler to make proposals. The responses are kept, so the messages of a group already bound are
+ * routed without asking the local handler again, whichever node proposed the group.
+ * <p>
+ * With a group timeout, the groups in use here have their lease renewed with the local handler
+ * every reaper period, in batches, and the ones unused for that long are forgotten.
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
  */
 public final class RemoteGroupingHandler implements GroupingHandler
 {
+   /**
+    * The maximum number of groups renewed by a single notification.
+    */
+   private static final int RENEWAL_BATCH_SIZE = 1000;
+
    private final SimpleString name;
 
    private final ManagementService managementService;
@@ -57,15 +72,90 @@ public final class RemoteGroupingHandler implements GroupingHandler
 
    private final ConcurrentMap<SimpleString, List<SimpleString>> groupMap = new ConcurrentHashMap<SimpleString, List<SimpleString>>();
 
+   /**
+    * The groups proposed and waiting for a response, guarded by {@link #lock}.
+    */
+   private final Set<SimpleString> pendingProposals = new HashSet<SimpleString>();
+
+   /**
+    * When each group was last used here, only kept with a group timeout.
+    */
+   private final ConcurrentMap<SimpleString, Long> timesUsed = new ConcurrentHashMap<SimpleString, Long>();
+
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private final long groupTimeout;
+
+   private final long reaperPeriod;
+
+   private ScheduledFuture<?> reaperFuture;
+
+   private boolean started;
+
    public RemoteGroupingHandler(final ManagementService managementService,
                                 final SimpleString name,
                                 final SimpleString address,
                                 final long timeout)
+   {
+      this(managementService,
+           name,
+           address,
+           timeout,
+           null,
+           GroupingHandlerConfiguration.DEFAULT_GROUP_TIMEOUT,
+           GroupingHandlerConfiguration.DEFAULT_REAPER_PERIOD);
+   }
+
+   public RemoteGroupingHandler(final ManagementService managementService,
+                                final SimpleString name,
+                                final SimpleString address,
+                                final long timeout,
+                                final ScheduledExecutorService scheduledExecutor,
+                                final long groupTimeout,
+                                final long reaperPeriod)
    {
       this.name = name;
       this.address = address;
       this.managementService = managementService;
       this.timeout = timeout;
+      this.scheduledExecutor = scheduledExecutor;
+      this.groupTimeout = groupTimeout;
+      this.reaperPeriod = reaperPeriod;
+   }
+
+   public synchronized void start() throws Exception
+   {
+      if (started)
+      {
+         return;
+      }
+
+      if (groupTimeout > 0 && scheduledExecutor != null)
+      {
+         reaperFuture = scheduledExecutor.scheduleWithFixedDelay(new GroupReaper(),
+                                                                 reaperPeriod,
+                                                                 reaperPeriod,
+                                                                 TimeUnit.MILLISECONDS);
+      }
+
+      started = true;
+   }
+
+   public synchronized void stop() throws Exception
+   {
+      if (reaperFuture != null)
+      {
+         reaperFuture.cancel(false);
+
+         reaperFuture = null;
+      }
+
+      started = false;
+   }
+
+   public synchronized boolean isStarted()
+   {
+      return started;
    }
 
    public SimpleString getName()
@@ -82,33 +172,57 @@ public final class RemoteGroupingHandler implements GroupingHandler
          return response;
       }
 
+      boolean proposer = false;
+
       try
       {
          lock.lock();
 
-         TypedProperties props = new TypedProperties();
+         // Concurrent proposals of the same group wait for the same response
+         proposer = pendingProposals.add(proposal.getGroupId());
+
+         if (proposer)
+         {
+            TypedProperties props = new TypedProperties();
+
+            props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, proposal.getGroupId());
+
+            props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, proposal.getClusterName());
 
-         props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, proposal.getGroupId());
+            props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
 
-         props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, proposal.getClusterName());
+            props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
 
-         props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
+            props.putIntProperty(ManagementHelper.HDR_DISTANCE, 0);
 
-         props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
+            Notification notification = new Notification(null, NotificationType.PROPOSAL, props);
 
-         props.putIntProperty(ManagementHelper.HDR_DISTANCE, 0);
+            managementService.sendNotification(notification);
+         }
 
-         Notification notification = new Notification(null, NotificationType.PROPOSAL, props);
+         // Other groups are proposed concurrently, wait until the response is the one for this group
+         long deadline = System.currentTimeMillis() + timeout;
 
-         managementService.sendNotification(notification);
+         while ((response = responses.get(proposal.getGroupId())) == null)
+         {
+            long toWait = deadline - System.currentTimeMillis();
 
-         if (!sendCondition.await(timeout, TimeUnit.MILLISECONDS))
-            HornetQServerLogger.LOGGER.groupHandlerSendTimeout();
-         response = responses.get(proposal.getGroupId());
+            if (toWait <= 0)
+            {
+               HornetQServerLogger.LOGGER.groupHandlerSendTimeout();
+               break;
+            }
 
+            sendCondition.await(toWait, TimeUnit.MILLISECONDS);
+         }
       }
       finally
       {
+         if (proposer)
+         {
+            pendingProposals.remove(proposal.getGroupId());
+         }
+
          lock.unlock();
       }
       if (response == null)
@@ -120,7 +234,14 @@ public final class RemoteGroupingHandler implements GroupingHandler
 
    public Response getProposal(final SimpleString fullID)
    {
-      return responses.get(fullID);
+      Response response = responses.get(fullID);
+
+      if (response != null && groupTimeout > 0)
+      {
+         timesUsed.put(fullID, System.currentTimeMillis());
+      }
+
+      return response;
    }
 
    public void proposed(final Response response) throws Exception
@@ -136,7 +257,11 @@ public final class RemoteGroupingHandler implements GroupingHandler
             newList = oldList;
          }
          newList.add(response.getGroupId());
-         sendCondition.signal();
+         if (groupTimeout > 0)
+         {
+            timesUsed.put(response.getGroupId(), System.currentTimeMillis());
+         }
+         sendCondition.signalAll();
       }
       finally
       {
@@ -162,6 +287,68 @@ public final class RemoteGroupingHandler implements GroupingHandler
       // NO-OP
    }
 
+   public void renew(final List<SimpleString> groupIds, final int distance) throws Exception
+   {
+      TypedProperties props = new TypedProperties();
+      props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_IDS, encodeGroupIds(groupIds));
+      props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
+      props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
+      props.putIntProperty(ManagementHelper.HDR_DISTANCE, distance);
+      Notification notification = new Notification(null, NotificationType.PROPOSAL_RENEWAL, props);
+      managementService.sendNotification(notification);
+   }
+
+   public void remove(final SimpleString groupId, final int distance) throws Exception
+   {
+      try
+      {
+         lock.lock();
+         forget(groupId);
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Packs a list of group ids in a single string, the notifications being sent as messages whose
+    * properties can't be byte arrays.
+    */
+   public static SimpleString encodeGroupIds(final List<SimpleString> groupIds)
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(groupIds.size() * 64);
+
+      buffer.writeInt(groupIds.size());
+
+      for (SimpleString groupId : groupIds)
+      {
+         buffer.writeSimpleString(groupId);
+      }
+
+      byte[] bytes = new byte[buffer.writerIndex()];
+
+      buffer.readBytes(bytes);
+
+      return new SimpleString(bytes);
+   }
+
+   public static List<SimpleString> decodeGroupIds(final SimpleString encoded)
+   {
+      HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(encoded.getData());
+
+      int count = buffer.readInt();
+
+      List<SimpleString> groupIds = new ArrayList<SimpleString>(count);
+
+      for (int i = 0; i < count; i++)
+      {
+         groupIds.add(buffer.readSimpleString());
+      }
+
+      return groupIds;
+   }
+
    public void addGroupBinding(final GroupBinding groupBinding)
    {
       // NO-OP
@@ -188,4 +375,77 @@ public final class RemoteGroupingHandler implements GroupingHandler
 
       }
    }
+
+   /**
+    * Should be called holding {@link #lock}.
+    */
+   private void forget(final SimpleString groupId)
+   {
+      timesUsed.remove(groupId);
+
+      Response response = responses.remove(groupId);
+
+      if (response != null)
+      {
+         List<SimpleString> list = groupMap.get(response.getChosenClusterName());
+
+         if (list != null)
+         {
+            list.remove(groupId);
+         }
+      }
+   }
+
+   /**
+    * Renews the groups used since the last run, and forgets the ones unused for longer than the
+    * group timeout.
+    */
+   private final class GroupReaper implements Runnable
+   {
+      private long lastRun = System.currentTimeMillis();
+
+      public void run()
+      {
+         long now = System.currentTimeMillis();
+
+         long expiry = now - groupTimeout;
+
+         List<SimpleString> renewals = new ArrayList<SimpleString>();
+
+         try
+         {
+            for (Map.Entry<SimpleString, Long> entry : timesUsed.entrySet())
+            {
+               long timeUsed = entry.getValue();
+
+               if (timeUsed < expiry)
+               {
+                  remove(entry.getKey(), 0);
+               }
+               else if (timeUsed >= lastRun)
+               {
+                  renewals.add(entry.getKey());
+
+                  if (renewals.size() == RENEWAL_BATCH_SIZE)
+                  {
+                     renew(renewals, 0);
+
+                     renewals.clear();
+                  }
+               }
+            }
+
+            if (!renewals.isEmpty())
+            {
+               renew(renewals, 0);
+            }
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+         }
+
+         lastRun = now;
+      }
+   }
 }
@@ -584,6 +584,7 @@ public class HornetQServerImpl implements HornetQServer
          if (groupingHandler != null)
          {
             managementService.removeNotificationListener(groupingHandler);
+            stopComponent(groupingHandler);
             groupingHandler = null;
          }
          stopComponent(clusterManager);
@@ -1449,7 +1450,8 @@ public class HornetQServerImpl implements HornetQServer
          configuration.isSecurityEnabled(),
          configuration.getClusterUser(),
          configuration.getClusterPassword(),
-         managementService);
+         managementService,
+         executorFactory.getExecutor());
 
       queueFactory = new QueueFactoryImpl(executorFactory, scheduledPool, addressSettingsRepository, storageManager);
 
@@ -1902,7 +1904,10 @@ public class HornetQServerImpl implements HornetQServer
                config.getName(),
                config.getAddress(),
                getStorageManager(),
-               config.getTimeout());
+               config.getTimeout(),
+               scheduledPool,
+               config.getGroupTimeout(),
+               config.getReaperPeriod());
          }
          else
          {
@@ -1910,12 +1915,17 @@ public class HornetQServerImpl implements HornetQServer
                      new RemoteGroupingHandler(managementService,
                config.getName(),
                config.getAddress(),
-               config.getTimeout());
+               config.getTimeout(),
+               scheduledPool,
+               config.getGroupTimeout(),
+               config.getReaperPeriod());
          }
 
          this.groupingHandler = groupingHandler1;
 
          managementService.addNotificationListener(groupingHandler1);
+
+         groupingHandler1.start();
       }
    }
 
@@ -31,6 +31,7 @@ import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.core.transaction.Transaction;
+import org.hornetq.utils.LinkedListImpl;
 
 /**
  * A queue that will discard messages if a newer message with the same
@@ -101,6 +102,18 @@ public class LastValueQueue extends QueueImpl
 
             hr.setReference(ref);
 
+            long expiration = ref.getMessage().getExpiration();
+
+            long oldExpiration = oldRef.getMessage().getExpiration();
+
+            if (expiration != 0 && (oldExpiration == 0 || expiration < oldExpiration) && hr.node != null &&
+                !hr.node.isRemoved())
+            {
+               // the expiry index only knows when the replaced message expires
+               addToExpiryIndex(hr.node, hr.priority);
+            }
+
+            refChanged(hr);
          }
          else
          {
@@ -154,12 +167,30 @@ public class LastValueQueue extends QueueImpl
       }
    }
 
+   @Override
+   protected void nodeAdded(final LinkedListImpl.Node<MessageReference> node, final int priority)
+   {
+      if (node.getValue() instanceof HolderReference)
+      {
+         HolderReference hr = (HolderReference)node.getValue();
+
+         hr.node = node;
+
+         hr.priority = priority;
+      }
+   }
+
    private class HolderReference implements MessageReference
    {
       private final SimpleString prop;
 
       private volatile MessageReference ref;
 
+      // the node holding this reference in the queue, guarded by the queue lock
+      private LinkedListImpl.Node<MessageReference> node;
+
+      private int priority;
+
       HolderReference(final SimpleString prop, final MessageReference ref)
       {
          this.prop = prop;
@@ -74,7 +74,7 @@ public class QueueFactoryImpl implements QueueFactory
                             final boolean durable,
                             final boolean temporary)
    {
-      AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
+      AddressSettings addressSettings = addressSettingsRepository.getMatch(address);
 
       Queue queue;
       if (addressSettings.isLastValueQueue())
@@ -92,6 +92,22 @@ public class QueueFactoryImpl implements QueueFactory
                                     addressSettingsRepository,
                                     executorFactory.getExecutor());
       }
+      else if (addressSettings.getQueueShards() > 1)
+      {
+         queue = new ShardedQueue(persistenceID,
+                                  address,
+                                  name,
+                                  filter,
+                                  pageSubscription,
+                                  durable,
+                                  temporary,
+                                  scheduledExecutor,
+                                  postOffice,
+                                  storageManager,
+                                  addressSettingsRepository,
+                                  executorFactory,
+                                  addressSettings.getQueueShards());
+      }
       else
       {
          queue = new QueueImpl(persistenceID,
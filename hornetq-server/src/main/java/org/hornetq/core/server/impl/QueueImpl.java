@@ -16,12 +16,16 @@ package org.hornetq.core.server.impl;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -60,8 +64,8 @@ import org.hornetq.core.transaction.impl.BindingsTransactionImpl;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.FutureLatch;
+import org.hornetq.utils.LinkedListImpl;
 import org.hornetq.utils.LinkedListIterator;
-import org.hornetq.utils.PriorityLinkedList;
 import org.hornetq.utils.PriorityLinkedListImpl;
 import org.hornetq.utils.ReusableLatch;
 
@@ -86,6 +90,14 @@ public class QueueImpl implements Queue
 
    public static final int MAX_DELIVERIES_IN_LOOP = 1000;
 
+   public static final int MAX_EXPIRIES_IN_LOOP = 1000;
+
+   /** The expiry index isn't cleaned up of the references consumed from the queue below this size */
+   private static final int MIN_EXPIRY_INDEX_COMPACT_SIZE = 1024;
+
+   /** The references a consumer didn't match aren't cleaned up of the consumed ones below this size */
+   private static final int MIN_NON_MATCHING_PURGE_SIZE = 1024;
+
    public static final int CHECK_QUEUE_SIZE_PERIOD = 100;
 
    /** If The system gets slow for any reason, this is the maximum time an Delivery or
@@ -119,7 +131,11 @@ public class QueueImpl implements Queue
    private final ConcurrentLinkedQueue<MessageReference> intermediateMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
 
    // This is where messages are stored
-   private final PriorityLinkedList<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
+   private final PriorityLinkedListImpl<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
+
+   // The references of messageReferences with an expiration, earliest first, so the expiry scanner doesn't go through
+   // the whole queue. References consumed from the queue are dropped when they come up or when the index is compacted
+   private final PriorityQueue<ExpiryEntry> expiryIndex = new PriorityQueue<ExpiryEntry>(11, ExpiryEntry.COMPARATOR);
 
    // The quantity of pagedReferences on messageReferences priority list
    private final AtomicInteger pagedReferences = new AtomicInteger(0);
@@ -161,6 +177,8 @@ public class QueueImpl implements Queue
 
    private Redistributor redistributor;
 
+   private long messagesRedistributed;
+
    private final Set<ScheduledFuture<?>> futures = new ConcurrentHashSet<ScheduledFuture<?>>();
 
    private ScheduledFuture<?> redistributorFuture;
@@ -175,6 +193,12 @@ public class QueueImpl implements Queue
 
    private volatile SimpleString expiryAddress;
 
+   /**
+    * The settings matching the address of this queue, resolved again only when the repository
+    * changes.
+    */
+   private volatile AddressSettings addressSettings;
+
    private int pos;
 
    private final Executor executor;
@@ -308,7 +332,8 @@ public class QueueImpl implements Queue
 
       if (addressSettingsRepository != null)
       {
-         expiryAddress = addressSettingsRepository.getMatch(address.toString()).getExpiryAddress();
+         addressSettings = addressSettingsRepository.getMatch(address);
+         expiryAddress = addressSettings.getExpiryAddress();
          addressSettingsRepositoryListener = new AddressSettingsRepositoryListener();
          addressSettingsRepository.registerListener(addressSettingsRepositoryListener);
       }
@@ -461,8 +486,8 @@ public class QueueImpl implements Queue
 
              if (intermediateMessageReferences.isEmpty() &&
                  messageReferences.isEmpty() &&
-                 !pageIterator.hasNext() &&
-                 !pageSubscription.isPaging())
+                 (pageIterator == null || !pageIterator.hasNext()) &&
+                 (pageSubscription == null || !pageSubscription.isPaging()))
              {
                 // We must block on the executor to ensure any async deliveries have completed or we might get out of order
                 // deliveries
@@ -732,6 +757,7 @@ public class QueueImpl implements Queue
       if (redistributor != null)
       {
          redistributor.stop();
+         messagesRedistributed += redistributor.getMessagesRedistributed();
          Redistributor redistributorToRemove = redistributor;
          redistributor = null;
 
@@ -746,6 +772,16 @@ public class QueueImpl implements Queue
       }
    }
 
+   public synchronized long getMessagesRedistributed()
+   {
+      return messagesRedistributed + (redistributor != null ? redistributor.getMessagesRedistributed() : 0);
+   }
+
+   public synchronized double getRedistributionRate()
+   {
+      return redistributor != null ? redistributor.getRedistributionRate() : 0;
+   }
+
    @Override
    protected void finalize() throws Throwable
    {
@@ -943,7 +979,7 @@ public class QueueImpl implements Queue
    {
       if (ref.isPaged())
       {
-         pageSubscription.ack((PagedReference) ref);
+         getPageSubscription().ack((PagedReference) ref);
          postAcknowledge(ref);
       }
       else
@@ -965,7 +1001,7 @@ public class QueueImpl implements Queue
    {
       if (ref.isPaged())
       {
-         pageSubscription.ackTx(tx, (PagedReference)ref);
+         getPageSubscription().ackTx(tx, (PagedReference)ref);
 
          getRefsOperation(tx).addAck(ref);
       }
@@ -1088,7 +1124,8 @@ public class QueueImpl implements Queue
       }
       else
       {
-         return messagesAdded;
+         // references read back from the pages by another queue are counted on its subscription
+         return messagesAdded - pagedReferences.get();
       }
     }
 
@@ -1405,57 +1442,87 @@ public class QueueImpl implements Queue
 
       public void run()
       {
+         boolean rescheduled = false;
+
          synchronized (QueueImpl.this)
          {
-            if (queueDestroyed)
-            {
-               return;
-            }
-
-            LinkedListIterator<MessageReference> iter = iterator();
-
             try
             {
-               boolean expired = false;
-               boolean hasElements = false;
-               while (postOffice.isStarted() && iter.hasNext())
+               if (queueDestroyed)
                {
-                  hasElements = true;
-                  MessageReference ref = iter.next();
-                  try
+                  return;
+               }
+
+               long now = System.currentTimeMillis();
+               int expired = 0;
+               List<ExpiryEntry> failed = null;
+               ExpiryEntry entry;
+               while (postOffice.isStarted() && (entry = expiryIndex.peek()) != null && entry.expiration <= now)
+               {
+                  if (expired == MAX_EXPIRIES_IN_LOOP)
+                  {
+                     // let the deliveries go on before the next batch
+                     getExecutor().execute(this);
+                     rescheduled = true;
+                     break;
+                  }
+
+                  expiryIndex.poll();
+
+                  MessageReference ref = entry.node.getValue();
+
+                  if (entry.node.isRemoved())
+                  {
+                     continue;
+                  }
+
+                  if (!ref.getMessage().isExpired())
                   {
-                     if (ref.getMessage().isExpired())
+                     // a last value queue may have replaced the message since it was indexed
+                     if (ref.getMessage().getExpiration() != 0)
                      {
-                        deliveringCount.incrementAndGet();
-                        expired = true;
-                        expire(ref);
-                        iter.remove();
-                        refRemoved(ref);
+                        expiryIndex.add(new ExpiryEntry(ref.getMessage().getExpiration(), entry.node, entry.priority));
                      }
+                     continue;
+                  }
+
+                  try
+                  {
+                     deliveringCount.incrementAndGet();
+                     expired++;
+                     expire(ref);
+                     messageReferences.removeNode(entry.node, entry.priority);
+                     refRemoved(ref);
                   }
                   catch (Exception e)
                   {
                      HornetQServerLogger.LOGGER.errorExpiringReferencesOnQueue(e, ref);
+                     if (failed == null)
+                     {
+                        failed = new ArrayList<ExpiryEntry>();
+                     }
+                     // to be tried again on the next scan
+                     failed.add(entry);
                   }
+               }
 
+               if (failed != null)
+               {
+                  expiryIndex.addAll(failed);
                }
 
                // If empty we need to schedule depaging to make sure we would depage expired messages as well
-               if ((!hasElements || expired) && pageIterator != null && pageIterator.hasNext())
+               if ((messageReferences.isEmpty() || expired > 0) && pageIterator != null && pageIterator.hasNext())
                {
                   scheduleDepage(true);
                }
             }
             finally
             {
-               try
-               {
-                  iter.close();
-               }
-               catch (Throwable ignored)
+               if (!rescheduled)
                {
+                  scannerRunning.decrementAndGet();
                }
-               scannerRunning.decrementAndGet();
             }
          }
       }
@@ -1742,7 +1809,13 @@ public class QueueImpl implements Queue
    private synchronized void internalAddTail(final MessageReference ref)
    {
       refAdded(ref);
-      messageReferences.addTail(ref, ref.getMessage().getPriority());
+      int priority = ref.getMessage().getPriority();
+      LinkedListImpl.Node<MessageReference> node = messageReferences.addTailNode(ref, priority);
+      if (ref.getMessage().getExpiration() != 0)
+      {
+         addToExpiryIndex(node, priority);
+      }
+      nodeAdded(node, priority);
    }
 
    /**
@@ -1755,7 +1828,42 @@ public class QueueImpl implements Queue
    {
       queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
       refAdded(ref);
-      messageReferences.addHead(ref, ref.getMessage().getPriority());
+      int priority = ref.getMessage().getPriority();
+      LinkedListImpl.Node<MessageReference> node = messageReferences.addHeadNode(ref, priority);
+      if (ref.getMessage().getExpiration() != 0)
+      {
+         addToExpiryIndex(node, priority);
+      }
+      nodeAdded(node, priority);
+   }
+
+   /**
+    * Called with the node holding a reference each time it is added to the queue, under the queue
+    * lock.
+    */
+   protected void nodeAdded(final LinkedListImpl.Node<MessageReference> node, final int priority)
+   {
+   }
+
+   /**
+    * The caller of this method requires synchronized on the queue.
+    */
+   protected void addToExpiryIndex(final LinkedListImpl.Node<MessageReference> node, final int priority)
+   {
+      if (expiryIndex.size() >= MIN_EXPIRY_INDEX_COMPACT_SIZE && expiryIndex.size() > 2 * messageReferences.size())
+      {
+         // most of the index is made of references already consumed
+         Iterator<ExpiryEntry> iter = expiryIndex.iterator();
+         while (iter.hasNext())
+         {
+            if (iter.next().node.isRemoved())
+            {
+               iter.remove();
+            }
+         }
+      }
+
+      expiryIndex.add(new ExpiryEntry(node.getValue().getMessage().getExpiration(), node, priority));
    }
 
    private synchronized void doInternalPoll()
@@ -1869,14 +1977,21 @@ public class QueueImpl implements Queue
                holder.iter = messageReferences.iterator();
             }
 
-            if (holder.iter.hasNext())
-            {
-               ref = holder.iter.next();
-            }
-            else
+            ref = null;
+
+            // references the consumer already didn't match are walked over without offering them again
+            while (holder.iter.hasNext())
             {
-               ref = null;
+               MessageReference candidate = holder.iter.next();
+
+               if (holder.nonMatching == null || !holder.nonMatching.contains(candidate))
+               {
+                  ref = candidate;
+
+                  break;
+               }
             }
+
             if (ref == null)
             {
                noDelivery++;
@@ -1947,7 +2062,12 @@ public class QueueImpl implements Queue
                }
                else if (status == HandleStatus.NO_MATCH)
                {
-                  // nothing to be done on this case, the iterators will just jump next
+                  // the iterators will just jump next, but a reset would have the consumer go through the
+                  // reference again, and whether it matches only depends on the message
+                  if (consumer == holder.consumer)
+                  {
+                     holder.addNonMatching(ref, messageReferences.size());
+                  }
                }
             }
 
@@ -2019,6 +2139,35 @@ public class QueueImpl implements Queue
       }
    }
 
+   /**
+    * Called when a queued reference now refers to another message, so the consumers that didn't
+    * match the previous message are offered the new one.
+    */
+   protected synchronized void refChanged(final MessageReference ref)
+   {
+      boolean offerAgain = false;
+
+      for (ConsumerHolder holder : consumerList)
+      {
+         if (holder.nonMatching != null && holder.nonMatching.remove(ref))
+         {
+            // the iterator of the consumer is already past the reference
+            if (holder.iter != null)
+            {
+               holder.iter.close();
+            }
+            holder.iter = null;
+
+            offerAgain = true;
+         }
+      }
+
+      if (offerAgain)
+      {
+         deliverAsync();
+      }
+   }
+
    private void scheduleDepage(final boolean scheduleExpiry)
    {
       if (!depagePending)
@@ -2032,6 +2181,15 @@ public class QueueImpl implements Queue
       }
    }
 
+   /**
+    * @return the memory taken by the references held in memory, depaging stops once it reaches the
+    *         page size
+    */
+   protected long getQueueMemorySize()
+   {
+      return queueMemorySize.get();
+   }
+
    private void depage(final boolean scheduleExpiry)
    {
       depagePending = false;
@@ -2057,7 +2215,7 @@ public class QueueImpl implements Queue
       this.directDeliver = false;
 
       int depaged = 0;
-      while (timeout > System.currentTimeMillis() && queueMemorySize.get() < maxSize && pageIterator.hasNext())
+      while (timeout > System.currentTimeMillis() && getQueueMemorySize() < maxSize && pageIterator.hasNext())
       {
          depaged++;
          PagedReference reference = pageIterator.next();
@@ -2071,7 +2229,7 @@ public class QueueImpl implements Queue
 
       if (HornetQServerLogger.LOGGER.isDebugEnabled())
       {
-         if (depaged == 0 && queueMemorySize.get() >= maxSize)
+         if (depaged == 0 && getQueueMemorySize() >= maxSize)
          {
             HornetQServerLogger.LOGGER.debug("Couldn't depage any message as the maxSize on the queue was achieved. " + "There are too many pending messages to be acked in reference to the page configuration");
          }
@@ -2105,11 +2263,16 @@ public class QueueImpl implements Queue
       // create the redistributor only once if there are no local consumers
       if (consumerSet.isEmpty() && redistributor == null)
       {
+         int transactionBatchSize = addressSettings != null ? addressSettings.getRedistributionBatchSize()
+                                                            : AddressSettings.DEFAULT_REDISTRIBUTION_BATCH_SIZE;
+
          redistributor = new Redistributor(this,
                                            storageManager,
                                            postOffice,
                                            executor,
-                                           QueueImpl.REDISTRIBUTOR_BATCH_SIZE);
+                                           scheduledExecutor,
+                                           QueueImpl.REDISTRIBUTOR_BATCH_SIZE,
+                                           transactionBatchSize);
 
          consumerList.add(new ConsumerHolder(redistributor));
 
@@ -2140,7 +2303,7 @@ public class QueueImpl implements Queue
          storageManager.updateDeliveryCount(reference);
       }
 
-      AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
+      AddressSettings addressSettings = this.addressSettings;
 
       int maxDeliveries = addressSettings.getMaxDeliveryAttempts();
       long redeliveryDelay = addressSettings.getRedeliveryDelay();
@@ -2225,7 +2388,7 @@ public class QueueImpl implements Queue
 
    private void expire(final Transaction tx, final MessageReference ref) throws Exception
    {
-      SimpleString expiryAddress = addressSettingsRepository.getMatch(address.toString()).getExpiryAddress();
+      SimpleString expiryAddress = addressSettings.getExpiryAddress();
 
       if (expiryAddress != null)
       {
@@ -2251,7 +2414,7 @@ public class QueueImpl implements Queue
 
    private void sendToDeadLetterAddress(final MessageReference ref) throws Exception
    {
-      sendToDeadLetterAddress(ref, addressSettingsRepository.getMatch(address.toString()).getDeadLetterAddress());
+      sendToDeadLetterAddress(ref, addressSettings.getDeadLetterAddress());
    }
 
    private void sendToDeadLetterAddress(final MessageReference ref, final  SimpleString deadLetterAddress) throws Exception
@@ -2560,6 +2723,30 @@ public class QueueImpl implements Queue
    // Inner classes
    // --------------------------------------------------------------------------
 
+   private static final class ExpiryEntry
+   {
+      static final Comparator<ExpiryEntry> COMPARATOR = new Comparator<ExpiryEntry>()
+      {
+         public int compare(final ExpiryEntry entry1, final ExpiryEntry entry2)
+         {
+            return entry1.expiration < entry2.expiration ? -1 : entry1.expiration == entry2.expiration ? 0 : 1;
+         }
+      };
+
+      final long expiration;
+
+      final LinkedListImpl.Node<MessageReference> node;
+
+      final int priority;
+
+      ExpiryEntry(final long expiration, final LinkedListImpl.Node<MessageReference> node, final int priority)
+      {
+         this.expiration = expiration;
+         this.node = node;
+         this.priority = priority;
+      }
+   }
+
    private static class ConsumerHolder
    {
       ConsumerHolder(final Consumer consumer)
@@ -2571,6 +2758,23 @@ public class QueueImpl implements Queue
 
       LinkedListIterator<MessageReference> iter;
 
+      /** The references the consumer returned NO_MATCH for, including some already consumed by others */
+      Set<MessageReference> nonMatching;
+
+      void addNonMatching(final MessageReference ref, final int queueSize)
+      {
+         if (nonMatching == null)
+         {
+            nonMatching = Collections.newSetFromMap(new IdentityHashMap<MessageReference, Boolean>());
+         }
+         else if (nonMatching.size() >= MIN_NON_MATCHING_PURGE_SIZE && nonMatching.size() > 2 * queueSize)
+         {
+            // mostly references consumed by other consumers, the ones still queued will be matched again
+            nonMatching.clear();
+         }
+
+         nonMatching.add(ref);
+      }
    }
 
    private final class RefsOperation extends TransactionOperationAbstract
@@ -2885,7 +3089,8 @@ public class QueueImpl implements Queue
       @Override
       public void onChange()
       {
-         expiryAddress = addressSettingsRepository.getMatch(address.toString()).getExpiryAddress();
+         addressSettings = addressSettingsRepository.getMatch(address);
+         expiryAddress = addressSettings.getExpiryAddress();
       }
    }
 }
@@ -13,10 +13,15 @@
 
 package org.hornetq.core.server.impl;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -31,6 +36,7 @@ import org.hornetq.api.core.management.ManagementHelper;
 import org.hornetq.api.core.management.NotificationType;
 import org.hornetq.core.client.impl.ClientConsumerImpl;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.postoffice.Binding;
@@ -96,13 +102,21 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private volatile AtomicInteger availableCredits = new AtomicInteger(0);
 
+   /**
+    * 0 until the first credits are received
+    */
+   private volatile int windowSize;
+
    private boolean started;
 
    private volatile LargeMessageDeliverer largeMessageDeliverer = null;
 
    public String debug()
    {
-      return toString() + "::Delivering " + this.deliveringRefs.size();
+      synchronized (deliveringRefs)
+      {
+         return toString() + "::Delivering " + this.deliveringRefs.size();
+      }
    }
 
    /**
@@ -117,7 +131,11 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private final StorageManager storageManager;
 
-   private final java.util.Queue<MessageReference> deliveringRefs = new ConcurrentLinkedQueue<MessageReference>();
+   /**
+    * The references delivered and not acknowledged yet, in delivery order and indexed by message ID
+    * so individual acknowledgements don't have to go through all of them. Guarded by itself.
+    */
+   private final LinkedHashMap<Long, MessageReference> deliveringRefs = new LinkedHashMap<Long, MessageReference>();
 
    private final SessionCallback callback;
 
@@ -137,6 +155,20 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private final long creationTime;
 
+   /**
+    * When set, standard messages handed by the queue are encoded and written on this ordered
+    * executor instead of by the thread delivering the queue
+    */
+   private final Executor deliveryExecutor;
+
+   /**
+    * The messages handed to the delivery executor and not written yet. Large messages are written
+    * by the queue, so they wait for this to be 0 to stay in order
+    */
+   private final AtomicInteger pendingDeliveries = new AtomicInteger(0);
+
+   private volatile boolean largeMessageWaiting;
+
    // Constructors ---------------------------------------------------------------------------------
 
    public ServerConsumerImpl(final long id,
@@ -167,6 +199,24 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
                              final boolean strictUpdateDeliveryCount,
                              final ManagementService managementService,
                              final boolean supportLargeMessage) throws Exception
+   {
+      this(id, session, binding, filter, started, browseOnly, storageManager, callback,
+            preAcknowledge, strictUpdateDeliveryCount, managementService, supportLargeMessage, null);
+   }
+
+   public ServerConsumerImpl(final long id,
+                             final ServerSession session,
+                             final QueueBinding binding,
+                             final Filter filter,
+                             final boolean started,
+                             final boolean browseOnly,
+                             final StorageManager storageManager,
+                             final SessionCallback callback,
+                             final boolean preAcknowledge,
+                             final boolean strictUpdateDeliveryCount,
+                             final ManagementService managementService,
+                             final boolean supportLargeMessage,
+                             final Executor deliveryExecutor) throws Exception
    {
       this.id = id;
 
@@ -194,6 +244,8 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       this.strictUpdateDeliveryCount = strictUpdateDeliveryCount;
 
+      this.deliveryExecutor = browseOnly ? null : deliveryExecutor;
+
       this.callback.addReadyListener(this);
 
       this.creationTime = System.currentTimeMillis();
@@ -241,7 +293,10 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
    {
       synchronized(lock)
       {
-         refList.addAll(deliveringRefs);
+         synchronized (deliveringRefs)
+         {
+            refList.addAll(deliveringRefs.values());
+         }
       }
    }
 
@@ -291,6 +346,19 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
          }
          final ServerMessage message = ref.getMessage();
 
+         if (message.isLargeMessage() && supportLargeMessage && pendingDeliveries.get() > 0)
+         {
+            // prompted again once the delivery executor is done
+            largeMessageWaiting = true;
+
+            if (pendingDeliveries.get() > 0)
+            {
+               return HandleStatus.BUSY;
+            }
+
+            largeMessageWaiting = false;
+         }
+
          if (filter != null && !filter.match(message))
          {
             if (HornetQServerLogger.LOGGER.isTraceEnabled())
@@ -309,7 +377,10 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
          {
             if (!preAcknowledge)
             {
-               deliveringRefs.add(ref);
+               synchronized (deliveringRefs)
+               {
+                  deliveringRefs.put(ref.getMessage().getMessageID(), ref);
+               }
             }
 
             ref.handled();
@@ -372,9 +443,24 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             // as it would return busy if there is anything pending
             largeMessageDeliverer.deliver();
          }
+         else if (deliveryExecutor != null)
+         {
+            // The packet size is only known once encoded, meanwhile the encode size is taken from the credits so
+            // the queue won't hand this consumer more than its window
+            int reservedCredits = message.getEncodeSize();
+
+            if (availableCredits != null)
+            {
+               availableCredits.addAndGet(-reservedCredits);
+            }
+
+            pendingDeliveries.incrementAndGet();
+
+            deliveryExecutor.execute(new StandardMessageDeliverer(reference, message, reservedCredits));
+         }
          else
          {
-            deliverStandardMessage(reference, message);
+            deliverStandardMessage(reference, message, 0);
          }
       }
       finally
@@ -498,7 +584,7 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
                      forcedDeliveryMessage.putLongProperty(ClientConsumerImpl.FORCED_DELIVERY_MESSAGE, sequence);
                      forcedDeliveryMessage.setAddress(messageQueue.getName());
 
-                     callback.sendMessage(forcedDeliveryMessage, id, 0);
+                     sendForcedDeliveryMessage(forcedDeliveryMessage);
                   }
                }
             }
@@ -535,9 +621,16 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       LinkedList<MessageReference> refs = new LinkedList<MessageReference>();
 
-      if (!deliveringRefs.isEmpty())
+      List<MessageReference> delivering;
+
+      synchronized (deliveringRefs)
+      {
+         delivering = new ArrayList<MessageReference>(deliveringRefs.values());
+      }
+
+      if (!delivering.isEmpty())
       {
-         for (MessageReference ref : deliveringRefs)
+         for (MessageReference ref : delivering)
          {
             if (isTrace)
             {
@@ -563,7 +656,10 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             }
          }
 
-         deliveringRefs.clear();
+         synchronized (deliveringRefs)
+         {
+            deliveringRefs.clear();
+         }
       }
 
       return refs;
@@ -591,6 +687,10 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       {
          promptDelivery();
       }
+      else
+      {
+         flushDeliveryExecutor();
+      }
    }
 
    public void setTransferring(final boolean transferring)
@@ -613,6 +713,8 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       // Outside the lock
       if (transferring)
       {
+         flushDeliveryExecutor();
+
          // And we must wait for any force delivery to be executed - this is executed async so we add a future to the
          // executor and
          // wait for it to complete
@@ -637,6 +739,12 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    public void receiveCredits(final int credits) throws Exception
    {
+      if (windowSize == 0)
+      {
+         // the first credits are the whole window
+         windowSize = credits;
+      }
+
       if (credits == -1)
       {
          if (HornetQServerLogger.LOGGER.isDebugEnabled())
@@ -680,6 +788,16 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    }
 
+   public int getWindowSize()
+   {
+      return windowSize;
+   }
+
+   public void setWindowSize(final int windowSize)
+   {
+      this.windowSize = windowSize;
+   }
+
    public Queue getQueue()
    {
       return messageQueue;
@@ -712,7 +830,7 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
          MessageReference ref;
          do
          {
-            ref = deliveringRefs.poll();
+            ref = pollDeliveringRef();
 
             if (HornetQServerLogger.LOGGER.isTraceEnabled())
             {
@@ -785,6 +903,44 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    }
 
+   public void individualAcknowledge(final boolean autoCommitAcks, final Transaction tx, final long[] messageIDs) throws Exception
+   {
+      if (browseOnly)
+      {
+         return;
+      }
+
+      // the whole set is acknowledged in one transaction so it is stored at once
+      Transaction ackTX = autoCommitAcks ? new TransactionImpl(storageManager) : tx;
+
+      long missingID = -1;
+
+      for (long messageID : messageIDs)
+      {
+         MessageReference ref = removeReferenceByID(messageID);
+
+         if (ref == null)
+         {
+            // the others are still acknowledged, as if they had been sent one by one
+            missingID = messageID;
+         }
+         else
+         {
+            ref.getQueue().acknowledge(ackTX, ref);
+         }
+      }
+
+      if (autoCommitAcks)
+      {
+         ackTX.commit();
+      }
+
+      if (missingID != -1)
+      {
+         throw new IllegalStateException("Cannot find ref to ack " + missingID);
+      }
+   }
+
    public MessageReference removeReferenceByID(final long messageID) throws Exception
    {
       if (browseOnly)
@@ -794,25 +950,29 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       // Expiries can come in out of sequence with respect to delivery order
 
-      Iterator<MessageReference> iter = deliveringRefs.iterator();
-
-      MessageReference ref = null;
+      synchronized (deliveringRefs)
+      {
+         return deliveringRefs.remove(messageID);
+      }
+   }
 
-      while (iter.hasNext())
+   private MessageReference pollDeliveringRef()
+   {
+      synchronized (deliveringRefs)
       {
-         MessageReference theRef = iter.next();
+         Iterator<MessageReference> iter = deliveringRefs.values().iterator();
 
-         if (theRef.getMessage().getMessageID() == messageID)
+         if (!iter.hasNext())
          {
-            iter.remove();
+            return null;
+         }
 
-            ref = theRef;
+         MessageReference ref = iter.next();
 
-            break;
-         }
-      }
+         iter.remove();
 
-      return ref;
+         return ref;
+      }
    }
 
    public void readyForWriting(final boolean ready)
@@ -886,13 +1046,15 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
     * @param ref
     * @param message
     */
-   private void deliverStandardMessage(final MessageReference ref, final ServerMessage message)
+   private void deliverStandardMessage(final MessageReference ref,
+                                       final ServerMessage message,
+                                       final int reservedCredits)
    {
       int packetSize = callback.sendMessage(message, id, ref.getDeliveryCount());
 
       if (availableCredits != null)
       {
-         availableCredits.addAndGet(-packetSize);
+         availableCredits.addAndGet(reservedCredits - packetSize);
 
          if (HornetQServerLogger.LOGGER.isTraceEnabled())
          {
@@ -904,9 +1066,104 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    }
 
+   private void sendForcedDeliveryMessage(final ServerMessage forcedDeliveryMessage)
+   {
+      if (deliveryExecutor == null)
+      {
+         callback.sendMessage(forcedDeliveryMessage, id, 0);
+      }
+      else
+      {
+         // after the messages still on the delivery executor
+         deliveryExecutor.execute(new Runnable()
+         {
+            public void run()
+            {
+               callback.sendMessage(forcedDeliveryMessage, id, 0);
+            }
+         });
+      }
+   }
+
+   /**
+    * Waits for the messages handed to the delivery executor before the consumer was stopped to be
+    * written, as the write lock does for the ones delivered by the queue
+    */
+   private void flushDeliveryExecutor()
+   {
+      if (deliveryExecutor != null)
+      {
+         FutureLatch future = new FutureLatch();
+
+         deliveryExecutor.execute(future);
+
+         if (!future.await(10000))
+         {
+            HornetQServerLogger.LOGGER.timeoutFlushInTransit(messageQueue.getName().toString(),
+                                                             messageQueue.getAddress().toString());
+         }
+      }
+   }
+
    // Inner classes
    // ------------------------------------------------------------------------
 
+   private final class StandardMessageDeliverer implements Runnable
+   {
+      private final MessageReference ref;
+
+      private final ServerMessage message;
+
+      private final int reservedCredits;
+
+      StandardMessageDeliverer(final MessageReference ref, final ServerMessage message, final int reservedCredits)
+      {
+         this.ref = ref;
+         this.message = message;
+         this.reservedCredits = reservedCredits;
+      }
+
+      public void run()
+      {
+         lockDelivery.readLock().lock();
+         try
+         {
+            deliverStandardMessage(ref, message, reservedCredits);
+         }
+         catch (Throwable t)
+         {
+            HornetQServerLogger.LOGGER.removingBadConsumer(t, ServerConsumerImpl.this, ref);
+
+            synchronized (messageQueue)
+            {
+               // If the consumer throws an exception we remove the consumer
+               try
+               {
+                  messageQueue.removeConsumer(ServerConsumerImpl.this);
+               }
+               catch (Exception e)
+               {
+                  HornetQServerLogger.LOGGER.errorRemovingConsumer(e);
+               }
+
+               // The message failed to be delivered, hence we try again
+               messageQueue.addHead(ref);
+            }
+         }
+         finally
+         {
+            lockDelivery.readLock().unlock();
+
+            if (pendingDeliveries.decrementAndGet() == 0 && largeMessageWaiting)
+            {
+               largeMessageWaiting = false;
+
+               promptDelivery();
+            }
+         }
+      }
+   }
+
    private final Runnable resumeLargeMessageRunnable = new Runnable()
    {
       public void run()
@@ -945,6 +1202,20 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       private BodyEncoder context;
 
+      /** The body is sent straight from this file when the transport supports it, otherwise null */
+      private FileChannel fileRegion;
+
+      // One reference per continuation still being written from the file, plus one released on finish
+      private final AtomicInteger fileRegionReferences = new AtomicInteger(1);
+
+      private final Runnable fileRegionWritten = new Runnable()
+      {
+         public void run()
+         {
+            releaseFileRegion();
+         }
+      };
+
       public LargeMessageDeliverer(final LargeServerMessage message, final MessageReference ref) throws Exception
       {
          largeMessage = message;
@@ -981,7 +1252,12 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                sizePendingLargeMessage = context.getLargeBodySize();
 
-               context.open();
+               fileRegion = openFileRegion();
+
+               if (fileRegion == null)
+               {
+                  context.open();
+               }
 
                sentInitialPacket = true;
 
@@ -1028,18 +1304,33 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                localChunkLen = (int)Math.min(sizePendingLargeMessage - positionPendingLargeMessage, minLargeMessageSize);
 
-               HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
+               boolean continues = positionPendingLargeMessage + localChunkLen < sizePendingLargeMessage;
 
-               context.encode(bodyBuffer, localChunkLen);
+               int packetSize;
 
-               byte[] body = bodyBuffer.toByteBuffer().array();
+               if (fileRegion != null)
+               {
+                  fileRegionReferences.incrementAndGet();
+
+                  packetSize = callback.sendLargeMessageContinuation(id,
+                                                                     fileRegion,
+                                                                     positionPendingLargeMessage,
+                                                                     localChunkLen,
+                                                                     continues,
+                                                                     fileRegionWritten);
+               }
+               else
+               {
+                  HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
 
-               int packetSize = callback.sendLargeMessageContinuation(id,
-                                                                      body,
-                                                                      positionPendingLargeMessage + localChunkLen < sizePendingLargeMessage,
-                                                                      false);
+                  context.encode(bodyBuffer, localChunkLen);
 
-               int chunkLen = body.length;
+                  byte[] body = bodyBuffer.toByteBuffer().array();
+
+                  packetSize = callback.sendLargeMessageContinuation(id, body, continues, false);
+               }
+
+               int chunkLen = localChunkLen;
 
                if (availableCredits != null)
                {
@@ -1095,6 +1386,11 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
                context.close();
             }
 
+            if (fileRegion != null)
+            {
+               releaseFileRegion();
+            }
+
             largeMessage.releaseResources();
 
             largeMessage.decrementDelayDeletionCount();
@@ -1110,6 +1406,49 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             largeMessage = null;
          }
       }
+
+      private FileChannel openFileRegion()
+      {
+         if (!callback.isFileRegionSupported())
+         {
+            return null;
+         }
+
+         try
+         {
+            SequentialFile file = largeMessage.getFile();
+
+            if (file == null)
+            {
+               return null;
+            }
+
+            // The file may still be needed by the transport after the delivery has finished, so it
+            // is opened apart from the message's own file
+            return new RandomAccessFile(file.getJavaFile(), "r").getChannel();
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.debug("Can't send " + largeMessage + " from its file, copying it instead", e);
+
+            return null;
+         }
+      }
+
+      private void releaseFileRegion()
+      {
+         if (fileRegionReferences.decrementAndGet() == 0)
+         {
+            try
+            {
+               fileRegion.close();
+            }
+            catch (IOException e)
+            {
+               HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+            }
+         }
+      }
    }
 
    private class BrowserDeliverer implements Runnable
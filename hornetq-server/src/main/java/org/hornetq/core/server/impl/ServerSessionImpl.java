@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.transaction.xa.XAException;
@@ -361,6 +362,13 @@ public class ServerSessionImpl implements ServerSession, FailureListener
 
       Filter filter = FilterImpl.createFilter(filterString);
 
+      Executor deliveryExecutor = null;
+
+      if (!browseOnly && server.getAddressSettingsRepository().getMatch(binding.getAddress()).isParallelDelivery())
+      {
+         deliveryExecutor = server.getExecutorFactory().getExecutor();
+      }
+
       ServerConsumer consumer = new ServerConsumerImpl(consumerID,
                                                        this,
                                                        (QueueBinding)binding,
@@ -372,7 +380,8 @@ public class ServerSessionImpl implements ServerSession, FailureListener
                                                        preAcknowledge,
                                                        strictUpdateDeliveryCount,
                                                        managementService,
-                                                       supportLargeMessage);
+                                                       supportLargeMessage,
+                                                       deliveryExecutor);
 
       consumers.put(consumer.getID(), consumer);
 
@@ -670,6 +679,28 @@ public class ServerSessionImpl implements ServerSession, FailureListener
 
    }
 
+   public void individualAcknowledge(final long consumerID, final long[] messageIDs) throws Exception
+   {
+      ServerConsumer consumer = consumers.get(consumerID);
+
+      if (this.xa && tx == null)
+      {
+         throw new HornetQXAException(XAException.XAER_PROTO, "Invalid transaction state");
+      }
+
+      if (tx != null && tx.getState() == State.ROLLEDBACK)
+      {
+         // JBPAPP-8845 - same as for a single message
+         Transaction newTX = newTransaction();
+         consumer.individualAcknowledge(false, newTX, messageIDs);
+         newTX.rollback();
+      }
+      else
+      {
+         consumer.individualAcknowledge(autoCommitAcks, tx, messageIDs);
+      }
+   }
+
    public void expire(final long consumerID, final long messageID) throws Exception
    {
       MessageReference ref = consumers.get(consumerID).removeReferenceByID(messageID);
@@ -1217,6 +1248,16 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       consumer.receiveCredits(credits);
    }
 
+   public void receiveConsumerWindowSize(final long consumerID, final int windowSize)
+   {
+      ServerConsumer consumer = consumers.get(consumerID);
+
+      if (consumer != null)
+      {
+         consumer.setWindowSize(windowSize);
+      }
+   }
+
    public void sendLarge(final MessageInternal message) throws Exception
    {
       // need to create the LargeMessage before continue
@@ -1238,6 +1279,75 @@ public class ServerSessionImpl implements ServerSession, FailureListener
    }
 
    public void send(final ServerMessage message, final boolean direct) throws Exception
+   {
+      send(message, autoCommitSends ? null : tx, direct);
+   }
+
+   public void send(final List<ServerMessage> messages, final boolean direct) throws Exception
+   {
+      if (!autoCommitSends)
+      {
+         for (ServerMessage message : messages)
+         {
+            send(message, tx, direct);
+         }
+
+         return;
+      }
+
+      // a single transaction makes a single journal commit for the durable messages of the batch
+      Transaction batchTx = newTransaction();
+
+      Set<Pair<SimpleString, SimpleString>> batchDuplicateIDs = null;
+
+      try
+      {
+         for (ServerMessage message : messages)
+         {
+            byte[] duplicateID = message.getDuplicateIDBytes();
+
+            if (duplicateID == null)
+            {
+               send(message, batchTx, direct);
+
+               continue;
+            }
+
+            // a duplicate is dropped on its own as it would be if sent alone, instead of rolling back the batch
+            SimpleString address = message.getAddress() == null ? defaultAddress : message.getAddress();
+
+            if (batchDuplicateIDs == null)
+            {
+               batchDuplicateIDs = new HashSet<Pair<SimpleString, SimpleString>>();
+            }
+
+            if (!batchDuplicateIDs.add(new Pair<SimpleString, SimpleString>(address, new SimpleString(duplicateID))))
+            {
+               // the ID is only added to the duplicate ID cache when the batch commits
+               HornetQServerLogger.LOGGER.duplicateMessageDetected(message);
+            }
+            else if (address != null && postOffice.getDuplicateIDCache(address).contains(duplicateID))
+            {
+               // the post office drops it without a transaction to roll back
+               send(message, null, direct);
+            }
+            else
+            {
+               send(message, batchTx, direct);
+            }
+         }
+      }
+      catch (Exception e)
+      {
+         batchTx.rollback();
+
+         throw e;
+      }
+
+      batchTx.commit();
+   }
+
+   private void send(final ServerMessage message, final Transaction sendTx, final boolean direct) throws Exception
    {
       //large message may come from StompSession directly, in which
       //case the id header already generated.
@@ -1290,7 +1400,7 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       }
       else
       {
-         doSend(message, direct);
+         doSend(message, sendTx, direct);
       }
    }
 
@@ -1307,7 +1417,33 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       // Immediately release the credits for the continuations- these don't contribute to the in-memory size
       // of the message
 
-      currentLargeMessage.addBytes(body);
+      try
+      {
+         currentLargeMessage.addBytes(body);
+
+         if (!continues)
+         {
+            // a chunk that failed to be written behind would leave the body incomplete
+            currentLargeMessage.flushPendingWrites();
+         }
+      }
+      catch (Exception e)
+      {
+         LargeServerMessage largeMessage = currentLargeMessage;
+
+         currentLargeMessage = null;
+
+         try
+         {
+            largeMessage.deleteFile();
+         }
+         catch (Throwable error)
+         {
+            HornetQServerLogger.LOGGER.errorDeletingLargeMessageFile(error);
+         }
+
+         throw e;
+      }
 
       if (!continues)
       {
@@ -1318,7 +1454,7 @@ public class ServerSessionImpl implements ServerSession, FailureListener
             currentLargeMessage.putLongProperty(Message.HDR_LARGE_BODY_SIZE, messageBodySize);
          }
 
-         doSend(currentLargeMessage, false);
+         doSend(currentLargeMessage, autoCommitSends ? null : tx, false);
 
          currentLargeMessage = null;
       }
@@ -1328,11 +1464,27 @@ public class ServerSessionImpl implements ServerSession, FailureListener
    {
       PagingStore store = server.getPagingManager().getPageStore(address);
 
+      final LargeServerMessage largeMessage = currentLargeMessage;
+
       if (!store.checkMemory(new Runnable()
       {
          public void run()
          {
-            callback.sendProducerCreditsMessage(credits, address);
+            if (largeMessage == null)
+            {
+               callback.sendProducerCreditsMessage(credits, address);
+            }
+            else
+            {
+               // chunks still waiting to be written to disk hold the credits back
+               largeMessage.afterPendingWrites(new Runnable()
+               {
+                  public void run()
+                  {
+                     callback.sendProducerCreditsMessage(credits, address);
+                  }
+               });
+            }
          }
       })) {
          callback.sendProducerCreditsFailMessage(credits, address);
@@ -1538,7 +1690,7 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       {
          reply.setAddress(replyTo);
 
-         doSend(reply, direct);
+         doSend(reply, autoCommitSends ? null : tx, direct);
       }
    }
 
@@ -1583,7 +1735,7 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       theTx.rollback();
    }
 
-   private void doSend(final ServerMessage msg, final boolean direct) throws Exception
+   private void doSend(final ServerMessage msg, final Transaction sendTx, final boolean direct) throws Exception
    {
       // check the user has write access to this address.
       try
@@ -1599,12 +1751,9 @@ public class ServerSessionImpl implements ServerSession, FailureListener
          throw e;
       }
 
-      if (tx == null || autoCommitSends)
-      {
-      }
-      else
+      if (sendTx != null)
       {
-         routingContext.setTransaction(tx);
+         routingContext.setTransaction(sendTx);
       }
 
       postOffice.route(msg, routingContext, direct);
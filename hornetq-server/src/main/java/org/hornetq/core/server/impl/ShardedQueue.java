@@ -0,0 +1,1198 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.paging.cursor.PageSubscription;
+import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.server.Consumer;
+import org.hornetq.core.server.HandleStatus;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.settings.HierarchicalRepository;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.utils.ExecutorFactory;
+import org.hornetq.utils.LinkedListIterator;
+
+/**
+ * A queue split into several {@link QueueImpl}s, each with its own lock and executor, so that a
+ * very busy queue isn't limited to the throughput of a single delivery thread.
+ * <p>
+ * Every message is routed to one of the shards: the messages of a group always go to the same
+ * shard, and the other messages go to the shard of the session sending them, so the messages of a
+ * producer keep their order. The key of the session is kept on the message, which goes back to the
+ * same shard when it is reloaded or read back from the pages. Consumers are added to all the
+ * shards, and management operations are applied to all of them, with the results summed up.
+ * <p>
+ * A consumer sends each reference a shard hands it before another shard can hand it the next one,
+ * as acknowledgements rely on the consumer getting its references in the order it was handed them.
+ * A shard finding the consumer busy with a reference of another shard moves on, and is prompted to
+ * deliver again once the consumer is done.
+ * <p>
+ * The shards share the ID, name and page subscription of the queue. Only the first shard reads
+ * messages back from the page subscription, and passes each reference on to the shard of its key.
+ */
+public class ShardedQueue implements Queue
+{
+   /**
+    * The key of the session a message was sent by, see {@link #getShard(ServerMessage)}
+    */
+   public static final SimpleString HDR_SHARD_KEY = new SimpleString("_HQ_SHARD_KEY");
+
+   private final long id;
+
+   private final SimpleString address;
+
+   private final SimpleString name;
+
+   private final Filter filter;
+
+   private final PageSubscription pageSubscription;
+
+   private final boolean durable;
+
+   private final boolean temporary;
+
+   private final QueueImpl[] shards;
+
+   private final Map<Consumer, ShardConsumer> consumers = new ConcurrentHashMap<Consumer, ShardConsumer>();
+
+   private final Executor executor = new ShardsExecutor();
+
+   public ShardedQueue(final long id,
+                       final SimpleString address,
+                       final SimpleString name,
+                       final Filter filter,
+                       final PageSubscription pageSubscription,
+                       final boolean durable,
+                       final boolean temporary,
+                       final ScheduledExecutorService scheduledExecutor,
+                       final PostOffice postOffice,
+                       final StorageManager storageManager,
+                       final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                       final ExecutorFactory executorFactory,
+                       final int shardCount)
+   {
+      this.id = id;
+
+      this.address = address;
+
+      this.name = name;
+
+      this.filter = filter;
+
+      this.pageSubscription = pageSubscription;
+
+      this.durable = durable;
+
+      this.temporary = temporary;
+
+      shards = new QueueImpl[shardCount];
+
+      for (int i = 0; i < shardCount; i++)
+      {
+         shards[i] = new Shard(i,
+                               scheduledExecutor,
+                               postOffice,
+                               storageManager,
+                               addressSettingsRepository,
+                               executorFactory.getExecutor());
+      }
+   }
+
+   // Bindable implementation -------------------------------------------------------------------------------------
+
+   public void route(final ServerMessage message, final RoutingContext context) throws Exception
+   {
+      context.addQueue(address, shards[getShardIndex(message, context)]);
+   }
+
+   // Queue implementation ----------------------------------------------------------------------------------------
+
+   public SimpleString getName()
+   {
+      return name;
+   }
+
+   public long getID()
+   {
+      return id;
+   }
+
+   public Filter getFilter()
+   {
+      return filter;
+   }
+
+   public PageSubscription getPageSubscription()
+   {
+      return pageSubscription;
+   }
+
+   public boolean isDurable()
+   {
+      return durable;
+   }
+
+   public boolean isTemporary()
+   {
+      return temporary;
+   }
+
+   public SimpleString getAddress()
+   {
+      return address;
+   }
+
+   public int getShardCount()
+   {
+      return shards.length;
+   }
+
+   /**
+    * @return the shard a message already routed to the queue goes to, by group ID or else by the key
+    *         of the session it was sent by. Messages without either go to the first shard.
+    */
+   public Queue getShard(final ServerMessage message)
+   {
+      return shards[getShardIndex(message, null)];
+   }
+
+   public void addConsumer(final Consumer consumer) throws Exception
+   {
+      ShardConsumer shardConsumer = new ShardConsumer(consumer);
+
+      consumers.put(consumer, shardConsumer);
+
+      for (QueueImpl shard : shards)
+      {
+         shard.addConsumer(shardConsumer);
+      }
+   }
+
+   public void removeConsumer(final Consumer consumer)
+   {
+      ShardConsumer shardConsumer = consumers.remove(consumer);
+
+      if (shardConsumer != null)
+      {
+         for (QueueImpl shard : shards)
+         {
+            shard.removeConsumer(shardConsumer);
+         }
+      }
+   }
+
+   public int getConsumerCount()
+   {
+      return consumers.size();
+   }
+
+   public Collection<Consumer> getConsumers()
+   {
+      return consumers.keySet();
+   }
+
+   public boolean hasMatchingConsumer(final ServerMessage message)
+   {
+      return shards[0].hasMatchingConsumer(message);
+   }
+
+   public void reload(final MessageReference ref)
+   {
+      getShard(ref).reload(ref);
+   }
+
+   public void addTail(final MessageReference ref)
+   {
+      getShard(ref).addTail(ref);
+   }
+
+   public void addTail(final MessageReference ref, final boolean direct)
+   {
+      getShard(ref).addTail(ref, direct);
+   }
+
+   public void addHead(final MessageReference ref)
+   {
+      getShard(ref).addHead(ref);
+   }
+
+   public void addHead(final List<MessageReference> refs)
+   {
+      Map<QueueImpl, List<MessageReference>> refsByShard = new HashMap<QueueImpl, List<MessageReference>>();
+
+      for (MessageReference ref : refs)
+      {
+         QueueImpl shard = getShard(ref);
+
+         List<MessageReference> shardRefs = refsByShard.get(shard);
+
+         if (shardRefs == null)
+         {
+            shardRefs = new LinkedList<MessageReference>();
+
+            refsByShard.put(shard, shardRefs);
+         }
+
+         shardRefs.add(ref);
+      }
+
+      for (Map.Entry<QueueImpl, List<MessageReference>> entry : refsByShard.entrySet())
+      {
+         entry.getKey().addHead(entry.getValue());
+      }
+   }
+
+   public void acknowledge(final MessageReference ref) throws Exception
+   {
+      getShard(ref).acknowledge(ref);
+   }
+
+   public void acknowledge(final Transaction tx, final MessageReference ref) throws Exception
+   {
+      getShard(ref).acknowledge(tx, ref);
+   }
+
+   public void reacknowledge(final Transaction tx, final MessageReference ref) throws Exception
+   {
+      getShard(ref).reacknowledge(tx, ref);
+   }
+
+   public void cancel(final Transaction tx, final MessageReference ref)
+   {
+      getShard(ref).cancel(tx, ref);
+   }
+
+   public void cancel(final MessageReference ref, final long timeBase) throws Exception
+   {
+      getShard(ref).cancel(ref, timeBase);
+   }
+
+   public boolean checkRedelivery(final MessageReference ref, final long timeBase) throws Exception
+   {
+      return getShard(ref).checkRedelivery(ref, timeBase);
+   }
+
+   public void expire(final MessageReference ref) throws Exception
+   {
+      getShard(ref).expire(ref);
+   }
+
+   public void referenceHandled()
+   {
+      // references are handled on the queue they belong to, which is always a shard
+   }
+
+   public void deliverAsync()
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.deliverAsync();
+      }
+   }
+
+   public void forceDelivery()
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.forceDelivery();
+      }
+   }
+
+   public void deleteQueue() throws Exception
+   {
+      // removes the binding and the paging of the whole queue
+      shards[0].deleteQueue();
+
+      for (int i = 1; i < shards.length; i++)
+      {
+         shards[i].deleteAllReferences();
+      }
+   }
+
+   public void destroyPaging() throws Exception
+   {
+      shards[0].destroyPaging();
+   }
+
+   public long getMessageCount()
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getMessageCount();
+      }
+
+      return count;
+   }
+
+   public long getMessageCount(final long timeout)
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getMessageCount(timeout);
+      }
+
+      return count;
+   }
+
+   public long getInstantMessageCount()
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getInstantMessageCount();
+      }
+
+      return count;
+   }
+
+   public int getDeliveringCount()
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getDeliveringCount();
+      }
+
+      return count;
+   }
+
+   public int getScheduledCount()
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getScheduledCount();
+      }
+
+      return count;
+   }
+
+   public List<MessageReference> getScheduledMessages()
+   {
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (QueueImpl shard : shards)
+      {
+         refs.addAll(shard.getScheduledMessages());
+      }
+
+      return refs;
+   }
+
+   public Map<String, List<MessageReference>> getDeliveringMessages()
+   {
+      Map<String, List<MessageReference>> mapReturn = new HashMap<String, List<MessageReference>>();
+
+      for (QueueImpl shard : shards)
+      {
+         for (Map.Entry<String, List<MessageReference>> entry : shard.getDeliveringMessages().entrySet())
+         {
+            // consumers list all the references they are delivering, whichever shard they come from
+            if (!mapReturn.containsKey(entry.getKey()))
+            {
+               mapReturn.put(entry.getKey(), entry.getValue());
+            }
+         }
+      }
+
+      return mapReturn;
+   }
+
+   public long getMessagesAdded()
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getMessagesAdded();
+      }
+
+      return count;
+   }
+
+   public long getMessagesAdded(final long timeout)
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getMessagesAdded(timeout);
+      }
+
+      return count;
+   }
+
+   public long getInstantMessagesAdded()
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getInstantMessagesAdded();
+      }
+
+      return count;
+   }
+
+   public void resetMessagesAdded()
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.resetMessagesAdded();
+      }
+   }
+
+   public MessageReference removeReferenceWithID(final long messageID) throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         MessageReference ref = shard.removeReferenceWithID(messageID);
+
+         if (ref != null)
+         {
+            return ref;
+         }
+      }
+
+      return null;
+   }
+
+   public MessageReference getReference(final long messageID)
+   {
+      for (QueueImpl shard : shards)
+      {
+         MessageReference ref = shard.getReference(messageID);
+
+         if (ref != null)
+         {
+            return ref;
+         }
+      }
+
+      return null;
+   }
+
+   public int deleteAllReferences() throws Exception
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.deleteAllReferences();
+      }
+
+      return count;
+   }
+
+   public boolean deleteReference(final long messageID) throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         if (shard.deleteReference(messageID))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int deleteMatchingReferences(final Filter filter) throws Exception
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.deleteMatchingReferences(filter);
+      }
+
+      return count;
+   }
+
+   public boolean expireReference(final long messageID) throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         if (shard.expireReference(messageID))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int expireReferences(final Filter filter) throws Exception
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.expireReferences(filter);
+      }
+
+      return count;
+   }
+
+   public void expireReferences() throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.expireReferences();
+      }
+   }
+
+   public boolean sendMessageToDeadLetterAddress(final long messageID) throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         if (shard.sendMessageToDeadLetterAddress(messageID))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int sendMessagesToDeadLetterAddress(final Filter filter) throws Exception
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.sendMessagesToDeadLetterAddress(filter);
+      }
+
+      return count;
+   }
+
+   public boolean changeReferencePriority(final long messageID, final byte newPriority) throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         if (shard.changeReferencePriority(messageID, newPriority))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int changeReferencesPriority(final Filter filter, final byte newPriority) throws Exception
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.changeReferencesPriority(filter, newPriority);
+      }
+
+      return count;
+   }
+
+   public boolean moveReference(final long messageID, final SimpleString toAddress) throws Exception
+   {
+      return moveReference(messageID, toAddress, false);
+   }
+
+   public boolean moveReference(final long messageID, final SimpleString toAddress, final boolean rejectDuplicates) throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         if (shard.moveReference(messageID, toAddress, rejectDuplicates))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int moveReferences(final Filter filter, final SimpleString toAddress) throws Exception
+   {
+      return moveReferences(filter, toAddress, false);
+   }
+
+   public int moveReferences(final Filter filter, final SimpleString toAddress, final boolean rejectDuplicates) throws Exception
+   {
+      int count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.moveReferences(filter, toAddress, rejectDuplicates);
+      }
+
+      return count;
+   }
+
+   public void addRedistributor(final long delay)
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.addRedistributor(delay);
+      }
+   }
+
+   public void cancelRedistributor() throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.cancelRedistributor();
+      }
+   }
+
+   public long getMessagesRedistributed()
+   {
+      long count = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         count += shard.getMessagesRedistributed();
+      }
+
+      return count;
+   }
+
+   public double getRedistributionRate()
+   {
+      double rate = 0;
+
+      for (QueueImpl shard : shards)
+      {
+         rate += shard.getRedistributionRate();
+      }
+
+      return rate;
+   }
+
+   public LinkedListIterator<MessageReference> iterator()
+   {
+      List<LinkedListIterator<MessageReference>> iterators = new ArrayList<LinkedListIterator<MessageReference>>(shards.length);
+
+      for (QueueImpl shard : shards)
+      {
+         iterators.add(shard.iterator());
+      }
+
+      return new ShardsIterator(iterators);
+   }
+
+   public LinkedListIterator<MessageReference> totalIterator()
+   {
+      List<LinkedListIterator<MessageReference>> iterators = new ArrayList<LinkedListIterator<MessageReference>>(shards.length);
+
+      for (QueueImpl shard : shards)
+      {
+         iterators.add(shard.totalIterator());
+      }
+
+      return new ShardsIterator(iterators);
+   }
+
+   public void setExpiryAddress(final SimpleString expiryAddress)
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.setExpiryAddress(expiryAddress);
+      }
+   }
+
+   public void pause()
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.pause();
+      }
+   }
+
+   public void resume()
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.resume();
+      }
+   }
+
+   public boolean isPaused()
+   {
+      return shards[0].isPaused();
+   }
+
+   /**
+    * @return an executor running tasks once all the tasks given to the executors of the shards
+    *         before them have run
+    */
+   public Executor getExecutor()
+   {
+      return executor;
+   }
+
+   public void resetAllIterators()
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.resetAllIterators();
+      }
+   }
+
+   public boolean flushExecutor()
+   {
+      boolean ok = true;
+
+      for (QueueImpl shard : shards)
+      {
+         ok &= shard.flushExecutor();
+      }
+
+      return ok;
+   }
+
+   public void close() throws Exception
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.close();
+      }
+   }
+
+   public boolean isDirectDeliver()
+   {
+      return shards[0].isDirectDeliver();
+   }
+
+   public boolean isInternalQueue()
+   {
+      return shards[0].isInternalQueue();
+   }
+
+   public void setInternalQueue(final boolean internalQueue)
+   {
+      for (QueueImpl shard : shards)
+      {
+         shard.setInternalQueue(internalQueue);
+      }
+   }
+
+   // Public
+   // -----------------------------------------------------------------------------
+
+   @Override
+   public boolean equals(final Object other)
+   {
+      if (this == other)
+      {
+         return true;
+      }
+      if (!(other instanceof ShardedQueue)) return false;
+
+      ShardedQueue qother = (ShardedQueue)other;
+
+      return name.equals(qother.name);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return name.hashCode();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ShardedQueue[name=" + name.toString() + ", shards=" + shards.length + "]@" + Integer.toHexString(System.identityHashCode(this));
+   }
+
+   // Private
+   // -----------------------------------------------------------------------------
+
+   /**
+    * @param context the context the message is routed with, or null when it was already routed
+    */
+   private int getShardIndex(final ServerMessage message, final RoutingContext context)
+   {
+      SimpleString groupID = message.getSimpleStringProperty(Message.HDR_GROUP_ID);
+
+      int hash;
+
+      if (groupID != null)
+      {
+         hash = groupID.hashCode();
+      }
+      else if (message.containsProperty(HDR_SHARD_KEY))
+      {
+         hash = message.getIntProperty(HDR_SHARD_KEY);
+      }
+      else if (context != null)
+      {
+         // sessions route all their messages with the same context
+         hash = System.identityHashCode(context);
+
+         message.putIntProperty(HDR_SHARD_KEY, hash);
+      }
+      else
+      {
+         return 0;
+      }
+
+      hash ^= hash >>> 16;
+
+      return (hash & Integer.MAX_VALUE) % shards.length;
+   }
+
+   private QueueImpl getShard(final MessageReference ref)
+   {
+      Queue queue = ref.getQueue();
+
+      for (QueueImpl shard : shards)
+      {
+         if (shard == queue)
+         {
+            return shard;
+         }
+      }
+
+      return shards[0];
+   }
+
+   // Inner classes
+   // -----------------------------------------------------------------------------
+
+   private final class Shard extends QueueImpl
+   {
+      private final int index;
+
+      Shard(final int index,
+            final ScheduledExecutorService scheduledExecutor,
+            final PostOffice postOffice,
+            final StorageManager storageManager,
+            final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+            final Executor executor)
+      {
+         super(ShardedQueue.this.id,
+               ShardedQueue.this.address,
+               ShardedQueue.this.name,
+               ShardedQueue.this.filter,
+               index == 0 ? ShardedQueue.this.pageSubscription : null,
+               ShardedQueue.this.durable,
+               ShardedQueue.this.temporary,
+               scheduledExecutor,
+               postOffice,
+               storageManager,
+               addressSettingsRepository,
+               executor);
+
+         this.index = index;
+      }
+
+      @Override
+      public PageSubscription getPageSubscription()
+      {
+         // messages paged while routed to this shard are counted on the subscription of the queue
+         return ShardedQueue.this.pageSubscription;
+      }
+
+      @Override
+      public void addTail(final MessageReference ref, final boolean direct)
+      {
+         // references read back from the pages by the first shard go on to the shard of their key
+         if (ref.isPaged() && ref.getQueue() == this)
+         {
+            QueueImpl shard = shards[getShardIndex(ref.getMessage(), null)];
+
+            if (shard != this)
+            {
+               shard.addTail(ref.copy(shard), direct);
+
+               return;
+            }
+         }
+
+         super.addTail(ref, direct);
+      }
+
+      @Override
+      protected long getQueueMemorySize()
+      {
+         if (index > 0)
+         {
+            return super.getQueueMemorySize();
+         }
+
+         // the first shard depages for all of them
+         long size = super.getQueueMemorySize();
+
+         for (int i = 1; i < shards.length; i++)
+         {
+            size += shards[i].getQueueMemorySize();
+         }
+
+         return size;
+      }
+
+      @Override
+      public void deliverAsync()
+      {
+         super.deliverAsync();
+
+         // the first shard has to be prompted to read the messages routed here back from the pages
+         PageSubscription subscription = ShardedQueue.this.pageSubscription;
+
+         if (index > 0 && subscription != null && subscription.isPaging())
+         {
+            shards[0].deliverAsync();
+         }
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         // the shards share the name of the queue
+         return this == other;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return System.identityHashCode(this);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "ShardedQueue[name=" + getName() + ", shard=" + index + "]@" + Integer.toHexString(System.identityHashCode(this));
+      }
+   }
+
+   private static final class ShardConsumer implements Consumer
+   {
+      private final Consumer consumer;
+
+      // held from the time a reference is handled until it has been sent
+      private final ReentrantLock deliveryLock = new ReentrantLock();
+
+      // shards that found the consumer busy with a reference of another shard
+      private final Set<Queue> busyShards = Collections.newSetFromMap(new ConcurrentHashMap<Queue, Boolean>());
+
+      ShardConsumer(final Consumer consumer)
+      {
+         this.consumer = consumer;
+      }
+
+      public HandleStatus handle(final MessageReference reference) throws Exception
+      {
+         // the shard handing the reference delivers under its own lock, it can't wait for another shard
+         if (!deliveryLock.tryLock())
+         {
+            busyShards.add(reference.getQueue());
+
+            // the lock may have been released before the shard was registered to be prompted
+            if (!deliveryLock.tryLock())
+            {
+               return HandleStatus.BUSY;
+            }
+
+            busyShards.remove(reference.getQueue());
+         }
+
+         boolean handled = false;
+
+         try
+         {
+            HandleStatus status = consumer.handle(reference);
+
+            handled = status == HandleStatus.HANDLED;
+
+            return status;
+         }
+         finally
+         {
+            if (!handled)
+            {
+               unlock();
+            }
+         }
+      }
+
+      public void proceedDeliver(final MessageReference reference) throws Exception
+      {
+         try
+         {
+            consumer.proceedDeliver(reference);
+         }
+         finally
+         {
+            if (deliveryLock.isHeldByCurrentThread())
+            {
+               unlock();
+            }
+         }
+      }
+
+      private void unlock()
+      {
+         deliveryLock.unlock();
+
+         Iterator<Queue> iterator = busyShards.iterator();
+
+         while (iterator.hasNext())
+         {
+            Queue shard = iterator.next();
+
+            iterator.remove();
+
+            shard.deliverAsync();
+         }
+      }
+
+      public Filter getFilter()
+      {
+         return consumer.getFilter();
+      }
+
+      public void getDeliveringMessages(final List<MessageReference> refList)
+      {
+         consumer.getDeliveringMessages(refList);
+      }
+
+      public String debug()
+      {
+         return consumer.debug();
+      }
+
+      public String toManagementString()
+      {
+         return consumer.toManagementString();
+      }
+
+      @Override
+      public String toString()
+      {
+         return consumer.toString();
+      }
+   }
+
+   private final class ShardsExecutor implements Executor
+   {
+      public void execute(final Runnable command)
+      {
+         final AtomicInteger pending = new AtomicInteger(shards.length);
+
+         Runnable countDown = new Runnable()
+         {
+            public void run()
+            {
+               if (pending.decrementAndGet() == 0)
+               {
+                  command.run();
+               }
+            }
+         };
+
+         for (QueueImpl shard : shards)
+         {
+            shard.getExecutor().execute(countDown);
+         }
+      }
+   }
+
+   private static final class ShardsIterator implements LinkedListIterator<MessageReference>
+   {
+      private final List<LinkedListIterator<MessageReference>> iterators;
+
+      private int current;
+
+      private int last;
+
+      ShardsIterator(final List<LinkedListIterator<MessageReference>> iterators)
+      {
+         this.iterators = iterators;
+      }
+
+      public boolean hasNext()
+      {
+         while (current < iterators.size())
+         {
+            if (iterators.get(current).hasNext())
+            {
+               return true;
+            }
+
+            current++;
+         }
+
+         return false;
+      }
+
+      public MessageReference next()
+      {
+         hasNext();
+
+         last = Math.min(current, iterators.size() - 1);
+
+         return iterators.get(last).next();
+      }
+
+      public void remove()
+      {
+         iterators.get(last).remove();
+      }
+
+      public void repeat()
+      {
+         iterators.get(last).repeat();
+
+         current = last;
+      }
+
+      public void close()
+      {
+         for (LinkedListIterator<MessageReference> iterator : iterators)
+         {
+            iterator.close();
+         }
+      }
+   }
+}
@@ -13,6 +13,8 @@
 
 package org.hornetq.core.settings;
 
+import org.hornetq.api.core.SimpleString;
+
 /**
  * allows objects to be mapped against a regex pattern and held in order in a list
  *
@@ -36,6 +38,12 @@ public interface HierarchicalRepository<T>
     */
    T getMatch(String match);
 
+   /**
+    * Same as {@link #getMatch(String)}, with the string kept by {@code match} so that looking up
+    * the same address again does not convert it.
+    */
+   T getMatch(SimpleString match);
+
    /**
     * set the default value to fallback to if none found
     * @param defaultValue the value
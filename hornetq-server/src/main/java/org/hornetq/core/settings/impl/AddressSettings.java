@@ -55,6 +55,12 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    public static final long DEFAULT_REDISTRIBUTION_DELAY = -1;
 
+   public static final int DEFAULT_REDISTRIBUTION_BATCH_SIZE = 1;
+
+   public static final boolean DEFAULT_PARALLEL_DELIVERY = false;
+
+   public static final int DEFAULT_QUEUE_SHARDS = 1;
+
    public static final long DEFAULT_EXPIRY_DELAY = -1;
 
    public static final boolean DEFAULT_SEND_TO_DLA_ON_NO_ROUTE = false;
@@ -89,6 +95,12 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    private Long redistributionDelay = null;
 
+   private Integer redistributionBatchSize = null;
+
+   private Boolean parallelDelivery = null;
+
+   private Integer queueShards = null;
+
    private Boolean sendToDLAOnNoRoute = null;
 
    public boolean isLastValueQueue()
@@ -243,6 +255,37 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       this.redistributionDelay = redistributionDelay;
    }
 
+   public int getRedistributionBatchSize()
+   {
+      return redistributionBatchSize != null ? redistributionBatchSize
+                                            : AddressSettings.DEFAULT_REDISTRIBUTION_BATCH_SIZE;
+   }
+
+   public void setRedistributionBatchSize(final int redistributionBatchSize)
+   {
+      this.redistributionBatchSize = redistributionBatchSize;
+   }
+
+   public boolean isParallelDelivery()
+   {
+      return parallelDelivery != null ? parallelDelivery : AddressSettings.DEFAULT_PARALLEL_DELIVERY;
+   }
+
+   public void setParallelDelivery(final boolean parallelDelivery)
+   {
+      this.parallelDelivery = parallelDelivery;
+   }
+
+   public int getQueueShards()
+   {
+      return queueShards != null ? queueShards : AddressSettings.DEFAULT_QUEUE_SHARDS;
+   }
+
+   public void setQueueShards(final int queueShards)
+   {
+      this.queueShards = queueShards;
+   }
+
    /**
     * merge 2 objects in to 1
     * @param merged
@@ -301,6 +344,18 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       {
          redistributionDelay = merged.redistributionDelay;
       }
+      if (redistributionBatchSize == null)
+      {
+         redistributionBatchSize = merged.redistributionBatchSize;
+      }
+      if (parallelDelivery == null)
+      {
+         parallelDelivery = merged.parallelDelivery;
+      }
+      if (queueShards == null)
+      {
+         queueShards = merged.queueShards;
+      }
       if (sendToDLAOnNoRoute == null)
       {
          sendToDLAOnNoRoute = merged.sendToDLAOnNoRoute;
@@ -354,6 +409,16 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       redistributionDelay = BufferHelper.readNullableLong(buffer);
 
       sendToDLAOnNoRoute = BufferHelper.readNullableBoolean(buffer);
+
+      // Settings stored by previous versions end here
+      if (buffer.readable())
+      {
+         redistributionBatchSize = BufferHelper.readNullableInteger(buffer);
+
+         parallelDelivery = BufferHelper.readNullableBoolean(buffer);
+
+         queueShards = BufferHelper.readNullableInteger(buffer);
+      }
    }
 
    @Override
@@ -375,7 +440,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
              BufferHelper.sizeOfNullableLong(expiryDelay) +
              BufferHelper.sizeOfNullableBoolean(lastValueQueue) +
              BufferHelper.sizeOfNullableLong(redistributionDelay) +
-             BufferHelper.sizeOfNullableBoolean(sendToDLAOnNoRoute);
+             BufferHelper.sizeOfNullableBoolean(sendToDLAOnNoRoute) +
+             BufferHelper.sizeOfNullableInteger(redistributionBatchSize) +
+             BufferHelper.sizeOfNullableBoolean(parallelDelivery) +
+             BufferHelper.sizeOfNullableInteger(queueShards);
    }
 
    @Override
@@ -413,6 +481,12 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       BufferHelper.writeNullableLong(buffer, redistributionDelay);
 
       BufferHelper.writeNullableBoolean(buffer, sendToDLAOnNoRoute);
+
+      BufferHelper.writeNullableInteger(buffer, redistributionBatchSize);
+
+      BufferHelper.writeNullableBoolean(buffer, parallelDelivery);
+
+      BufferHelper.writeNullableInteger(buffer, queueShards);
    }
 
    /* (non-Javadoc)
@@ -439,6 +513,9 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       result = prime * result + ((redeliveryMultiplier == null) ? 0 : redeliveryMultiplier.hashCode());
       result = prime * result + ((maxRedeliveryDelay == null) ? 0 : maxRedeliveryDelay.hashCode());
       result = prime * result + ((redistributionDelay == null) ? 0 : redistributionDelay.hashCode());
+      result = prime * result + ((redistributionBatchSize == null) ? 0 : redistributionBatchSize.hashCode());
+      result = prime * result + ((parallelDelivery == null) ? 0 : parallelDelivery.hashCode());
+      result = prime * result + ((queueShards == null) ? 0 : queueShards.hashCode());
       result = prime * result + ((sendToDLAOnNoRoute == null) ? 0 : sendToDLAOnNoRoute.hashCode());
       return result;
    }
@@ -561,6 +638,27 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       }
       else if (!redistributionDelay.equals(other.redistributionDelay))
          return false;
+      if (redistributionBatchSize == null)
+      {
+         if (other.redistributionBatchSize != null)
+            return false;
+      }
+      else if (!redistributionBatchSize.equals(other.redistributionBatchSize))
+         return false;
+      if (parallelDelivery == null)
+      {
+         if (other.parallelDelivery != null)
+            return false;
+      }
+      else if (!parallelDelivery.equals(other.parallelDelivery))
+         return false;
+      if (queueShards == null)
+      {
+         if (other.queueShards != null)
+            return false;
+      }
+      else if (!queueShards.equals(other.queueShards))
+         return false;
       if (sendToDLAOnNoRoute == null)
       {
          if (other.sendToDLAOnNoRoute != null)
@@ -606,6 +704,12 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
             maxRedeliveryDelay +
              ", redistributionDelay=" +
              redistributionDelay +
+             ", redistributionBatchSize=" +
+             redistributionBatchSize +
+             ", parallelDelivery=" +
+             parallelDelivery +
+             ", queueShards=" +
+             queueShards +
              ", sendToDLAOnNoRoute=" +
              sendToDLAOnNoRoute +
              "]";
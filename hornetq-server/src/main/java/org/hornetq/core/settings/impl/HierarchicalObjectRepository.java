@@ -25,8 +25,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.HierarchicalRepositoryChangeListener;
@@ -40,6 +42,11 @@ import org.hornetq.core.settings.Mergeable;
  */
 public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T>
 {
+   /**
+    * The most lookups kept in the cache, the values used on every message are kept by their users
+    * (e.g. the paging store of an address) so this only needs to hold the recent ones.
+    */
+   public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
 
    /**
     * The default Match to fall back to
@@ -66,10 +73,12 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
    private final MatchComparator matchComparator = new MatchComparator();
 
    /**
-    * a cache
+    * a cache, bounded to {@link #maxCacheSize} entries
     */
    private final Map<String, T> cache = new ConcurrentHashMap<String, T>();
 
+   private final int maxCacheSize;
+
    /**
     * Need a lock instead of using multiple {@link ConcurrentHashMap}s.
     * <p>
@@ -89,8 +98,17 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
    /**
     * any registered listeners, these get fired on changes to the repository
     */
-   private final ArrayList<HierarchicalRepositoryChangeListener> listeners = new ArrayList<HierarchicalRepositoryChangeListener>();
+   private final List<HierarchicalRepositoryChangeListener> listeners = new CopyOnWriteArrayList<HierarchicalRepositoryChangeListener>();
 
+   public HierarchicalObjectRepository()
+   {
+      this(DEFAULT_MAX_CACHE_SIZE);
+   }
+
+   public HierarchicalObjectRepository(final int maxCacheSize)
+   {
+      this.maxCacheSize = maxCacheSize;
+   }
 
    public void addMatch(final String match, final T value)
    {
@@ -138,6 +156,12 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     * @param match the match to look for
     * @return the value
     */
+   public T getMatch(final SimpleString match)
+   {
+      // the string is kept by the SimpleString, only the first lookup of an instance converts it
+      return getMatch(match.toString());
+   }
+
    public T getMatch(final String match)
    {
       T cacheResult = cache.get(match);
@@ -155,6 +179,12 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
          T value = actualMatch != null ? actualMatch : defaultmatch;
          if (value != null)
          {
+            if (cache.size() >= maxCacheSize)
+            {
+               // start over rather than keeping the order of the lookups, which would make the
+               // cache hits contend on it; the entries still in use are looked up again
+               cache.clear();
+            }
             cache.put(match, value);
          }
          return value;
@@ -13,6 +13,8 @@
 
 package org.hornetq.spi.core.protocol;
 
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.spi.core.remoting.ReadyListener;
@@ -36,6 +38,24 @@ public interface SessionCallback
 
    int sendLargeMessageContinuation(long consumerID, byte[] body, boolean continues, boolean requiresResponse);
 
+   /**
+    * @return true if the body of large messages can be sent straight from their files through
+    *         {@link #sendLargeMessageContinuation(long, FileChannel, long, int, boolean, Runnable)}
+    */
+   boolean isFileRegionSupported();
+
+   /**
+    * Sends {@code length} bytes of the file starting at {@code position} as a continuation.
+    *
+    * @param afterWrite called once the file is no longer needed by the send
+    */
+   int sendLargeMessageContinuation(long consumerID,
+                                    FileChannel file,
+                                    long position,
+                                    int length,
+                                    boolean continues,
+                                    Runnable afterWrite);
+
    void closed();
 
    void addReadyListener(ReadyListener listener);
@@ -15,14 +15,17 @@ import org.junit.Before;
 
 import org.junit.Test;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQIllegalStateException;
 import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.ClientConsumer;
 import org.hornetq.api.core.client.ClientMessage;
@@ -31,10 +34,12 @@ import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.client.impl.ClientConsumerInternal;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.Queue;
+import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.tests.util.ServiceTestBase;
 
@@ -269,6 +274,186 @@ public class ConsumerTest extends ServiceTestBase
       locator.close();
    }
 
+   @Test
+   public void testIndividualAcksSentInOnePacket() throws Exception
+   {
+      final AtomicInteger individualAcks = new AtomicInteger();
+      final AtomicInteger rangeAcks = new AtomicInteger();
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE)
+            {
+               individualAcks.incrementAndGet();
+            }
+            else if (packet.getType() == PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_RANGES)
+            {
+               rangeAcks.incrementAndGet();
+            }
+            return true;
+         }
+      });
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = sf.createSession(false, true, true);
+
+      session.createQueue(QUEUE, QUEUE, null, false);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      final int numMessages = 100;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         producer.send(createTextMessage(session, "m" + i));
+      }
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+      session.start();
+
+      // the acks are held back while there are buffered messages
+      long timeout = System.currentTimeMillis() + 5000;
+      while (((ClientConsumerInternal)consumer).getBufferSize() < numMessages && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = consumer.receive(1000);
+         Assert.assertNotNull(message);
+         Assert.assertEquals("m" + i, message.getBodyBuffer().readString());
+         if (i % 2 == 0)
+         {
+            message.individualAcknowledge();
+         }
+      }
+
+      // the consumer waiting for more messages sends the pending acks
+      Assert.assertNull(consumer.receiveImmediate());
+
+      Queue queue = (Queue)server.getPostOffice().getBinding(QUEUE).getBindable();
+      Assert.assertEquals(numMessages / 2, queue.getDeliveringCount());
+      Assert.assertEquals(0, individualAcks.get());
+      Assert.assertEquals(1, rangeAcks.get());
+
+      session.close();
+
+      Assert.assertEquals(numMessages / 2, queue.getMessageCount());
+
+      session = sf.createSession(false, true, true);
+      consumer = session.createConsumer(QUEUE);
+      session.start();
+      for (int i = 1; i < numMessages; i += 2)
+      {
+         ClientMessage message = consumer.receive(1000);
+         Assert.assertNotNull(message);
+         Assert.assertEquals("m" + i, message.getBodyBuffer().readString());
+      }
+      session.close();
+   }
+
+   @Test
+   public void testParallelDeliveryKeepsOrderAndGroups() throws Exception
+   {
+      AddressSettings settings = new AddressSettings();
+      settings.setParallelDelivery(true);
+      server.getAddressSettingsRepository().addMatch(QUEUE.toString(), settings);
+
+      locator.setConsumerWindowSize(10 * 1024);
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = sf.createSession(false, true, true);
+
+      session.createQueue(QUEUE, QUEUE, null, false);
+
+      final int numConsumers = 5;
+
+      final int numGroups = 10;
+
+      final int numMessages = 2000;
+
+      final CountDownLatch latch = new CountDownLatch(numMessages);
+
+      final AtomicInteger errors = new AtomicInteger(0);
+
+      final ConcurrentHashMap<String, Integer> groupOwners = new ConcurrentHashMap<String, Integer>();
+
+      for (int i = 0; i < numConsumers; i++)
+      {
+         final int consumerIndex = i;
+
+         ClientConsumer consumer = session.createConsumer(QUEUE);
+
+         consumer.setMessageHandler(new MessageHandler()
+         {
+            int lastCount = -1;
+
+            public void onMessage(final ClientMessage message)
+            {
+               int count = message.getIntProperty("count");
+
+               // each consumer still gets its messages in queue order
+               if (count <= lastCount)
+               {
+                  errors.incrementAndGet();
+               }
+
+               lastCount = count;
+
+               String group = message.getStringProperty(Message.HDR_GROUP_ID);
+
+               if (group != null)
+               {
+                  Integer owner = groupOwners.putIfAbsent(group, consumerIndex);
+
+                  if (owner != null && owner != consumerIndex)
+                  {
+                     errors.incrementAndGet();
+                  }
+               }
+
+               try
+               {
+                  message.acknowledge();
+               }
+               catch (HornetQException e)
+               {
+                  errors.incrementAndGet();
+               }
+
+               latch.countDown();
+            }
+         });
+      }
+
+      session.start();
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = createTextMessage(session, "m" + i);
+         message.putIntProperty("count", i);
+         if (i % 2 == 0)
+         {
+            message.putStringProperty(Message.HDR_GROUP_ID, new SimpleString("group" + i % numGroups));
+         }
+         producer.send(message);
+      }
+
+      Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+      Assert.assertEquals(0, errors.get());
+
+      session.close();
+
+      Assert.assertEquals(0, ((Queue)server.getPostOffice().getBinding(QUEUE).getBindable()).getMessageCount());
+   }
+
    // https://jira.jboss.org/browse/HORNETQ-410
    @Test
    public void testConsumeWithNoConsumerFlowControl() throws Exception
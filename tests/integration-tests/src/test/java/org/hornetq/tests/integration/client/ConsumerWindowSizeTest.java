@@ -310,6 +310,73 @@ public class ConsumerWindowSizeTest extends ServiceTestBase
       senderSession.close();
    }
 
+   @Test
+   public void testAdaptiveWindowStaysWithinBounds() throws Exception
+   {
+      HornetQServer server = createServer(false, isNetty());
+
+      server.start();
+
+      int minWindow = 16 * 1024;
+
+      int maxWindow = 256 * 1024;
+
+      locator.setConsumerWindowSize(64 * 1024);
+      locator.setConsumerMinWindowSize(minWindow);
+      locator.setConsumerMaxWindowSize(maxWindow);
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = sf.createSession(false, true, true);
+
+      session.createQueue(addressA, queueA, false);
+
+      ClientProducer producer = session.createProducer(addressA);
+
+      int numberOfMessages = 500;
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage msg = session.createMessage(false);
+         msg.getBodyBuffer().writeBytes(new byte[1024]);
+         msg.putIntProperty("count", i);
+         producer.send(msg);
+      }
+
+      ClientConsumerInternal consumer = (ClientConsumerInternal)session.createConsumer(queueA);
+
+      session.start();
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage msg = consumer.receive(5000);
+         Assert.assertNotNull(msg);
+         Assert.assertEquals(i, msg.getIntProperty("count").intValue());
+         msg.acknowledge();
+
+         // credits are given back every half window
+         Assert.assertTrue(consumer.getClientWindowSize() >= minWindow / 2);
+         Assert.assertTrue(consumer.getClientWindowSize() <= maxWindow / 2);
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      ServerConsumerImpl serverConsumer = (ServerConsumerImpl)server.locateQueue(queueA)
+                                                                    .getConsumers()
+                                                                    .iterator()
+                                                                    .next();
+
+      long timeout = System.currentTimeMillis() + 5000;
+      while (timeout > System.currentTimeMillis() && serverConsumer.getWindowSize() != consumer.getClientWindowSize() * 2)
+      {
+         Thread.sleep(10);
+      }
+
+      Assert.assertEquals(consumer.getClientWindowSize() * 2, serverConsumer.getWindowSize());
+
+      session.close();
+   }
+
    @Test
    public void testMultipleImmediate() throws Exception
    {
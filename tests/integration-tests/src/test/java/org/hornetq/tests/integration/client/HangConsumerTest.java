@@ -18,6 +18,7 @@ import org.junit.After;
 import org.junit.Test;
 
 import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
 import java.util.LinkedList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
@@ -585,6 +586,23 @@ public class HangConsumerTest extends ServiceTestBase
          return targetCallback.sendLargeMessageContinuation(consumerID, body, continues, requiresResponse);
       }
 
+      @Override
+      public boolean isFileRegionSupported()
+      {
+         return targetCallback.isFileRegionSupported();
+      }
+
+      @Override
+      public int sendLargeMessageContinuation(long consumerID,
+                                              FileChannel file,
+                                              long position,
+                                              int length,
+                                              boolean continues,
+                                              Runnable afterWrite)
+      {
+         return targetCallback.sendLargeMessageContinuation(consumerID, file, position, length, continues, afterWrite);
+      }
+
       /* (non-Javadoc)
        * @see org.hornetq.spi.core.protocol.SessionCallback#closed()
        */
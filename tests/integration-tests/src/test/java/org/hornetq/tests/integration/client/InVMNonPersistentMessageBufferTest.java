@@ -18,6 +18,7 @@ import org.junit.Test;
 
 import org.junit.Assert;
 
+import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.api.core.client.ClientConsumer;
 import org.hornetq.api.core.client.ClientMessage;
 import org.hornetq.api.core.client.ClientProducer;
@@ -25,6 +26,7 @@ import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.ServerLocator;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.remoting.impl.invm.TransportConstants;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.tests.util.RandomUtil;
 import org.hornetq.tests.util.ServiceTestBase;
@@ -211,6 +213,66 @@ public class InVMNonPersistentMessageBufferTest extends ServiceTestBase
 
    }
 
+   @Test
+   public void testChangeBodyAfterSendBeforeReceive() throws Exception
+   {
+      ClientMessage message = session.createMessage(false);
+
+      final String body = RandomUtil.randomString();
+
+      message.getBodyBuffer().writeString(body);
+
+      producer.send(message);
+
+      message.getBodyBuffer().clear();
+
+      message.getBodyBuffer().writeString(RandomUtil.randomString());
+
+      message.putStringProperty("changed", "true");
+
+      ClientMessage received = consumer.receive(10000);
+
+      Assert.assertNotNull(received);
+
+      Assert.assertEquals(body, received.getBodyBuffer().readString());
+
+      Assert.assertFalse(received.containsProperty("changed"));
+   }
+
+   @Test
+   public void testChangeReceivedBodyDoesNotChangeOtherQueues() throws Exception
+   {
+      final String otherQueueName = "otherqueue";
+
+      session.createQueue(InVMNonPersistentMessageBufferTest.address, otherQueueName);
+
+      ClientConsumer otherConsumer = session.createConsumer(otherQueueName);
+
+      ClientMessage message = session.createMessage(false);
+
+      final String body = RandomUtil.randomString();
+
+      message.getBodyBuffer().writeString(body);
+
+      ClientMessage received = sendAndReceive(message);
+
+      Assert.assertNotNull(received);
+
+      received.getBodyBuffer().clear();
+
+      received.getBodyBuffer().writeString(RandomUtil.randomString());
+
+      ClientMessage otherReceived = otherConsumer.receive(10000);
+
+      Assert.assertNotNull(otherReceived);
+
+      Assert.assertEquals(body, otherReceived.getBodyBuffer().readString());
+
+      otherConsumer.close();
+
+      session.deleteQueue(otherQueueName);
+   }
+
    protected ServerLocator createFactory() throws Exception
    {
       if (isNetty())
@@ -219,7 +281,12 @@ public class InVMNonPersistentMessageBufferTest extends ServiceTestBase
       }
       else
       {
-         return createInVMNonHALocator();
+         ServerLocator locator = createInVMNonHALocator();
+
+         locator.getStaticTransportConfigurations()[0].getParams()
+                .put(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME, true);
+
+         return locator;
       }
    }
 
@@ -241,6 +308,15 @@ public class InVMNonPersistentMessageBufferTest extends ServiceTestBase
 
       server = createServer(isPersistent(), isNetty());
 
+      if (!isNetty())
+      {
+         // the in-VM tests also cover the packets passed by reference
+         for (TransportConfiguration acceptor : server.getConfiguration().getAcceptorConfigurations())
+         {
+            acceptor.getParams().put(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME, true);
+         }
+      }
+
       server.start();
 
       ServerLocator locator = createFactory();
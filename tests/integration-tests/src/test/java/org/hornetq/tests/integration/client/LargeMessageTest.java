@@ -33,11 +33,15 @@ import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.api.core.client.ServerLocator;
 import org.hornetq.core.client.impl.ClientConsumerInternal;
 import org.hornetq.core.config.Configuration;
+import org.hornetq.core.config.DivertConfiguration;
 import org.hornetq.core.message.impl.MessageImpl;
+import org.hornetq.core.persistence.impl.journal.JournalRecordIds;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager;
 import org.hornetq.core.persistence.impl.journal.LargeServerMessageImpl;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.cluster.Transformer;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.tests.integration.IntegrationTestLogger;
 import org.hornetq.tests.integration.largemessage.LargeMessageTestBase;
@@ -432,6 +436,340 @@ public class LargeMessageTest extends LargeMessageTestBase
       validateNoFilesOnLargeDir();
    }
 
+   @Test
+   public void testDLALargeMessageSharesBody() throws Exception
+   {
+      final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      HornetQServer server = createServer(true, isNetty());
+
+      server.start();
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(locator));
+
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+
+      SimpleString ADDRESS_DLA = ADDRESS.concat("-dla");
+
+      AddressSettings addressSettings = new AddressSettings();
+
+      addressSettings.setDeadLetterAddress(ADDRESS_DLA);
+      addressSettings.setMaxDeliveryAttempts(1);
+
+      server.getAddressSettingsRepository().addMatch("*", addressSettings);
+
+      session.createQueue(ADDRESS, ADDRESS, true);
+      session.createQueue(ADDRESS, ADDRESS.concat("-2"), true);
+      session.createQueue(ADDRESS_DLA, ADDRESS_DLA, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      producer.send(createLargeClientMessage(session, messageSize, true));
+
+      session.commit();
+
+      session.start();
+
+      ClientConsumer consumerRollback = session.createConsumer(ADDRESS);
+      ClientMessage msg1 = consumerRollback.receive(1000);
+      Assert.assertNotNull(msg1);
+      msg1.acknowledge();
+      session.rollback();
+      consumerRollback.close();
+
+      // the copy sent to the DLA reads its body from the file of the original message
+      validateNoFilesOnLargeDir(isCompressedTest ? 0 : 1);
+
+      session.close();
+      server.stop();
+
+      server = createServer(true, isNetty());
+
+      server.start();
+
+      sf = createSessionFactory(locator);
+
+      session = sf.createSession(false, false, false);
+
+      session.start();
+
+      // the original is removed first, the file must survive while the DLA copy is still using it
+      ClientConsumer consumer = session.createConsumer(ADDRESS.concat("-2"));
+      msg1 = consumer.receive(10000);
+      Assert.assertNotNull(msg1);
+      msg1.acknowledge();
+      session.commit();
+      consumer.close();
+
+      validateNoFilesOnLargeDir(isCompressedTest ? 0 : 1);
+
+      consumer = session.createConsumer(ADDRESS_DLA);
+
+      msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+   }
+
+   @Test
+   public void testLargeMessageBodyFromFileOverNetty() throws Exception
+   {
+      final int messageSize = (int)(10.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      final int numberOfMessages = 5;
+
+      HornetQServer server = createServer(true, true);
+
+      server.start();
+
+      ServerLocator nettyLocator = addServerLocator(createFactory(true));
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(nettyLocator));
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(ADDRESS, ADDRESS, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = createLargeClientMessage(session, messageSize, true);
+         message.putIntProperty("count", i);
+         producer.send(message);
+      }
+
+      ClientConsumer consumer = session.createConsumer(ADDRESS);
+
+      session.start();
+
+      // the continuations are written straight from the file, framed the same way as regular packets
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = consumer.receive(10000);
+
+         Assert.assertNotNull(message);
+
+         Assert.assertEquals(i, message.getIntProperty("count").intValue());
+
+         Assert.assertEquals(messageSize, message.getBodySize());
+
+         for (int j = 0; j < messageSize; j++)
+         {
+            Assert.assertEquals(UnitTestCase.getSamplebyte(j), message.getBodyBuffer().readByte());
+         }
+
+         message.acknowledge();
+      }
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+   }
+
+   @Test
+   public void testRolledBackDivertedLargeMessageRemovesBodyLinks() throws Exception
+   {
+      testDivertedLargeMessageBodyLinks(false);
+   }
+
+   @Test
+   public void testExclusiveDivertedLargeMessageRemovesBodyLinks() throws Exception
+   {
+      // the original is never stored, its link is removed when the journal is loaded
+      testDivertedLargeMessageBodyLinks(true);
+   }
+
+   private void testDivertedLargeMessageBodyLinks(final boolean exclusive) throws Exception
+   {
+      final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      SimpleString ADDRESS_DIVERTED = ADDRESS.concat("-diverted");
+
+      HornetQServer server = createServer(true, isNetty());
+
+      server.start();
+
+      server.deployDivert(new DivertConfiguration("divert",
+                                                  "divert",
+                                                  ADDRESS.toString(),
+                                                  ADDRESS_DIVERTED.toString(),
+                                                  exclusive,
+                                                  null,
+                                                  null));
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(locator));
+
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+
+      session.createQueue(ADDRESS, ADDRESS, true);
+      session.createQueue(ADDRESS_DIVERTED, ADDRESS_DIVERTED, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      if (!exclusive)
+      {
+         // the copy is linked to the body of the original, on the transaction that is rolled back
+         producer.send(createLargeClientMessage(session, messageSize, true));
+
+         session.rollback();
+
+         validateNoFilesOnLargeDir();
+      }
+
+      producer.send(createLargeClientMessage(session, messageSize, true));
+
+      session.commit();
+
+      session.close();
+
+      server.stop();
+
+      HashMap<Integer, AtomicInteger> counts = countJournalLivingRecords(server.getConfiguration());
+
+      if (!isCompressedTest)
+      {
+         // the original and the copy are both linked to the committed body
+         Assert.assertEquals(2, counts.get((int)JournalRecordIds.LARGE_MESSAGE_BODY_LINK).get());
+      }
+
+      server = createServer(true, isNetty());
+
+      server.start();
+
+      sf = addSessionFactory(createSessionFactory(locator));
+
+      session = addClientSession(sf.createSession(false, false, false));
+
+      session.start();
+
+      SimpleString[] queues = exclusive ? new SimpleString[] { ADDRESS_DIVERTED }
+                                        : new SimpleString[] { ADDRESS, ADDRESS_DIVERTED };
+
+      for (SimpleString queue : queues)
+      {
+         ClientConsumer consumer = session.createConsumer(queue);
+
+         ClientMessage msg1 = consumer.receive(10000);
+
+         Assert.assertNotNull(msg1);
+
+         for (int i = 0; i < messageSize; i++)
+         {
+            Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+         }
+
+         msg1.acknowledge();
+
+         Assert.assertNull(consumer.receiveImmediate());
+
+         consumer.close();
+      }
+
+      session.commit();
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+
+      server.stop();
+
+      counts = countJournalLivingRecords(server.getConfiguration());
+
+      Assert.assertNull(counts.get((int)JournalRecordIds.LARGE_MESSAGE_BODY_LINK));
+   }
+
+   @Test
+   public void testNonDurableCopyReadsDurableBody() throws Exception
+   {
+      final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      SimpleString ADDRESS_DIVERTED = ADDRESS.concat("-diverted");
+
+      SimpleString ADDRESS_DLA = ADDRESS.concat("-dla");
+
+      HornetQServer server = createServer(true, isNetty());
+
+      server.start();
+
+      AddressSettings addressSettings = new AddressSettings();
+
+      addressSettings.setDeadLetterAddress(ADDRESS_DLA);
+
+      server.getAddressSettingsRepository().addMatch("#", addressSettings);
+
+      server.deployDivert(new DivertConfiguration("divert",
+                                                  "divert",
+                                                  ADDRESS.toString(),
+                                                  ADDRESS_DIVERTED.toString(),
+                                                  false,
+                                                  null,
+                                                  NonDurableTransformer.class.getName()));
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(locator));
+
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+
+      session.createQueue(ADDRESS, ADDRESS, true);
+      session.createQueue(ADDRESS_DIVERTED, ADDRESS_DIVERTED, false);
+      session.createQueue(ADDRESS_DLA, ADDRESS_DLA, false);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      producer.send(createLargeClientMessage(session, messageSize, true));
+
+      session.commit();
+
+      // the diverted copy is added to its queue once the commit is done
+      Queue divertedQueue = server.locateQueue(ADDRESS_DIVERTED);
+      long timeout = System.currentTimeMillis() + 5000;
+      while (divertedQueue.getMessageCount() != 1 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(100);
+      }
+
+      // the copy of the non durable copy still reads the body file of the durable original
+      Assert.assertEquals(1, divertedQueue.sendMessagesToDeadLetterAddress(null));
+
+      session.start();
+
+      for (SimpleString queue : new SimpleString[]{ADDRESS, ADDRESS_DLA})
+      {
+         ClientConsumer consumer = session.createConsumer(queue);
+
+         ClientMessage msg1 = consumer.receive(10000);
+
+         Assert.assertNotNull(msg1);
+
+         for (int i = 0; i < messageSize; i++)
+         {
+            Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+         }
+
+         msg1.acknowledge();
+
+         consumer.close();
+      }
+
+      session.commit();
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+   }
+
    @Test
    public void testDeliveryCount() throws Exception
    {
@@ -3093,4 +3431,13 @@ public class LargeMessageTest extends LargeMessageTestBase
 
    // Inner classes -------------------------------------------------
 
+   public static class NonDurableTransformer implements Transformer
+   {
+      public ServerMessage transform(final ServerMessage message)
+      {
+         message.setDurable(false);
+         return message;
+      }
+   }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.LargeServerMessage;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the chunks of large messages written behind the session receiving them.
+ *
+ * @see org.hornetq.core.config.Configuration#getLargeMessageWriteBufferSize()
+ */
+public class LargeMessageWriteBehindTest extends ServiceTestBase
+{
+   private static final int WRITE_BUFFER_SIZE = 1024;
+
+   private HornetQServer server;
+
+   private StorageManager storageManager;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(true);
+
+      server.getConfiguration().setLargeMessageWriteBufferSize(WRITE_BUFFER_SIZE);
+
+      server.start();
+
+      storageManager = server.getStorageManager();
+   }
+
+   @Test
+   public void testPendingWritesHoldCredits() throws Exception
+   {
+      LargeServerMessage message = createLargeMessage();
+
+      message.addBytes(new byte[10]);
+
+      SequentialFile file = message.getFile();
+
+      final CountDownLatch credits = new CountDownLatch(1);
+
+      // the writes behind need the monitor of the file, holding it keeps them pending
+      synchronized (file)
+      {
+         message.addBytes(new byte[10 * WRITE_BUFFER_SIZE]);
+
+         message.afterPendingWrites(new Runnable()
+         {
+            public void run()
+            {
+               credits.countDown();
+            }
+         });
+
+         Assert.assertFalse(credits.await(100, TimeUnit.MILLISECONDS));
+      }
+
+      Assert.assertTrue(credits.await(10, TimeUnit.SECONDS));
+
+      message.flushPendingWrites();
+
+      Assert.assertEquals(10 + 10 * WRITE_BUFFER_SIZE, file.size());
+
+      message.deleteFile();
+
+      validateNoFilesOnLargeDir();
+   }
+
+   @Test
+   public void testCreditsGivenWithoutPendingWrites() throws Exception
+   {
+      LargeServerMessage message = createLargeMessage();
+
+      message.addBytes(new byte[WRITE_BUFFER_SIZE / 2]);
+
+      final CountDownLatch credits = new CountDownLatch(1);
+
+      message.afterPendingWrites(new Runnable()
+      {
+         public void run()
+         {
+            credits.countDown();
+         }
+      });
+
+      Assert.assertEquals(0, credits.getCount());
+
+      message.deleteFile();
+
+      validateNoFilesOnLargeDir();
+   }
+
+   @Test
+   public void testFailedWriteIsReportedOnFlush() throws Exception
+   {
+      LargeServerMessage message = createLargeMessage();
+
+      message.addBytes(new byte[10]);
+
+      SequentialFile file = message.getFile();
+
+      synchronized (file)
+      {
+         message.addBytes(new byte[2 * WRITE_BUFFER_SIZE]);
+
+         // the writes pending find the file closed
+         file.close();
+      }
+
+      try
+      {
+         message.flushPendingWrites();
+
+         Assert.fail("the body of the message is incomplete");
+      }
+      catch (HornetQException expected)
+      {
+         // the session deletes the message instead of routing it
+      }
+
+      message.deleteFile();
+
+      validateNoFilesOnLargeDir();
+   }
+
+   private LargeServerMessage createLargeMessage() throws Exception
+   {
+      ServerMessage header = new ServerMessageImpl(storageManager.generateUniqueID(), 50);
+
+      header.setDurable(true);
+
+      return storageManager.createLargeMessage(storageManager.generateUniqueID(), header);
+   }
+}
@@ -17,8 +17,13 @@ import org.junit.After;
 import org.junit.Test;
 
 import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.HornetQClient;
 import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.client.impl.ClientSessionFactoryImpl;
 import org.hornetq.core.config.Configuration;
 import org.hornetq.core.remoting.impl.netty.NettyConnector;
@@ -66,6 +71,75 @@ public class NettyConnectorTest extends ServiceTestBase
       locator.close();
    }
 
+   @Test
+   public void testBuffersAreReleasedToThePool() throws Exception
+   {
+      ServerLocator locator = HornetQClient.createServerLocatorWithoutHA(new TransportConfiguration(NETTY_CONNECTOR_FACTORY));
+      locator.setMinLargeMessageSize(1024);
+      locator.setConsumerWindowSize(1024);
+
+      ClientSessionFactoryImpl factory = (ClientSessionFactoryImpl)locator.createSessionFactory();
+      BufferPool pool = ((NettyConnector)factory.getConnector()).getBufferPool();
+
+      assertNotNull(pool);
+
+      pool.setLeakDetection(true);
+
+      ClientSession session = factory.createSession(false, true, true);
+      session.createQueue("address", "queue", true);
+
+      ClientProducer producer = session.createProducer("address");
+
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeBytes(new byte[i % 2 == 0 ? 100 : 10 * 1024]);
+         producer.send(message);
+      }
+
+      ClientConsumer consumer = session.createConsumer("queue");
+      session.start();
+
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         assertNotNull(message);
+         assertEquals(i % 2 == 0 ? 100 : 10 * 1024, message.getBodySize());
+         message.acknowledge();
+      }
+
+      session.close();
+
+      // The last buffers are released when their write completes
+      long timeout = System.currentTimeMillis() + 5000;
+      while (!pool.getLeaks().isEmpty() && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      assertEquals(pool.getLeaks().toString(), 0, pool.getLeaks().size());
+      assertTrue(pool.toString(), pool.getReusedCount() > pool.getCreatedCount());
+
+      factory.close();
+      locator.close();
+   }
+
+   @Test
+   public void testBufferPoolDisabled() throws Exception
+   {
+      TransportConfiguration transport = new TransportConfiguration(NETTY_CONNECTOR_FACTORY);
+      transport.getParams().put(TransportConstants.USE_BUFFER_POOL_PROP_NAME, false);
+
+      ServerLocator locator = HornetQClient.createServerLocatorWithoutHA(transport);
+
+      ClientSessionFactoryImpl factory = (ClientSessionFactoryImpl)locator.createSessionFactory();
+
+      assertNull(((NettyConnector)factory.getConnector()).getBufferPool());
+
+      factory.close();
+      locator.close();
+   }
+
    @Override
    @After
    public void tearDown() throws Exception
@@ -15,13 +15,17 @@ import org.junit.Before;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.*;
 import org.hornetq.core.protocol.core.Packet;
@@ -81,6 +85,142 @@ public class ProducerTest extends ServiceTestBase
       locator.close();
    }
 
+   @Test
+   public void testSendBatch() throws Exception
+   {
+      final AtomicInteger sends = new AtomicInteger();
+      final AtomicInteger batches = new AtomicInteger();
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND)
+            {
+               sends.incrementAndGet();
+            }
+            else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+            {
+               batches.incrementAndGet();
+            }
+            return true;
+         }
+      });
+      ServerLocator locator = createInVMNonHALocator();
+      locator.setBlockOnDurableSend(true);
+      locator.setMinLargeMessageSize(10 * 1024);
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = addClientSession(cf.createSession(false, true, true));
+      session.createQueue(QUEUE, QUEUE, null, true);
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      List<ClientMessage> messages = new ArrayList<ClientMessage>();
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.putIntProperty("count", i);
+         // the large one splits the batch in two
+         message.getBodyBuffer().writeBytes(new byte[i == 50 ? 20 * 1024 : 10]);
+         messages.add(message);
+      }
+      producer.send(messages);
+
+      Assert.assertEquals(0, sends.get());
+      Assert.assertEquals(2, batches.get());
+      Assert.assertEquals(100, getMessageCount(server, QUEUE.toString()));
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+      session.start();
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty("count").intValue());
+         Assert.assertEquals(i == 50 ? 20 * 1024 : 10, message.getBodySize());
+         message.acknowledge();
+      }
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+
+   @Test
+   public void testSendBatchDropsOnlyDuplicates() throws Exception
+   {
+      ServerLocator locator = createInVMNonHALocator();
+      locator.setBlockOnDurableSend(true);
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = addClientSession(cf.createSession(false, true, true));
+      session.createQueue(QUEUE, QUEUE, null, true);
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      ClientMessage message = session.createMessage(true);
+      message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup"));
+      producer.send(message);
+
+      List<ClientMessage> messages = new ArrayList<ClientMessage>();
+      for (int i = 0; i < 10; i++)
+      {
+         message = session.createMessage(true);
+         message.putIntProperty("i", i);
+         if (i == 5)
+         {
+            message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup"));
+         }
+         messages.add(message);
+      }
+
+      producer.send(messages);
+
+      // the first message and the 9 others of the batch
+      Assert.assertEquals(10, getMessageCount(server, QUEUE.toString()));
+   }
+
+   @Test
+   public void testSendBatchWithDuplicateInside() throws Exception
+   {
+      ServerLocator locator = createInVMNonHALocator();
+      locator.setBlockOnDurableSend(true);
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = addClientSession(cf.createSession(false, true, true));
+      session.createQueue(QUEUE, QUEUE, null, true);
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      List<ClientMessage> messages = new ArrayList<ClientMessage>();
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.putIntProperty("i", i);
+         if (i == 2 || i == 7)
+         {
+            message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup"));
+         }
+         messages.add(message);
+      }
+
+      producer.send(messages);
+
+      Assert.assertEquals(9, getMessageCount(server, QUEUE.toString()));
+
+      // the ID is cached once the batch is committed
+      ClientMessage message = session.createMessage(true);
+      message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup"));
+      producer.send(message);
+
+      Assert.assertEquals(9, getMessageCount(server, QUEUE.toString()));
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+      session.start();
+      for (int i = 0; i < 10; i++)
+      {
+         if (i == 7)
+         {
+            continue;
+         }
+         ClientMessage received = consumer.receive(5000);
+         Assert.assertNotNull(received);
+         Assert.assertEquals(i, received.getIntProperty("i").intValue());
+         received.acknowledge();
+      }
+      Assert.assertNull(consumer.receiveImmediate());
+   }
 
    @Test
    public void testProducerMultiThread() throws Exception
@@ -856,6 +856,21 @@ public abstract class ClusterTestBase extends ServiceTestBase
                                                                                      timeout));
    }
 
+   protected void setUpGroupHandler(final GroupingHandlerConfiguration.TYPE type,
+                                    final int node,
+                                    final int timeout,
+                                    final long groupTimeout,
+                                    final long reaperPeriod)
+   {
+      servers[node].getConfiguration()
+                   .setGroupingHandlerConfiguration(new GroupingHandlerConfiguration(new SimpleString("grouparbitrator"),
+                                                                                     type,
+                                                                                     new SimpleString("queues"),
+                                                                                     timeout,
+                                                                                     groupTimeout,
+                                                                                     reaperPeriod));
+   }
+
    protected void setUpGroupHandler(final GroupingHandler groupingHandler, final int node)
    {
       servers[node].setGroupingHandler(groupingHandler);
@@ -15,6 +15,7 @@ import org.junit.After;
 
 import org.junit.Test;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -84,6 +85,96 @@ public class ClusteredGroupingTest extends ClusterTestBase
 
    }
 
+   @Test
+   public void testGroupingLeases() throws Exception
+   {
+      setupServer(0, isFileStorage(), isNetty());
+      setupServer(1, isFileStorage(), isNetty());
+      setupServer(2, isFileStorage(), isNetty());
+
+      setupClusterConnection("cluster0", "queues", false, 1, isNetty(), 0, 1, 2);
+
+      setupClusterConnection("cluster1", "queues", false, 1, isNetty(), 1, 0, 2);
+
+      setupClusterConnection("cluster2", "queues", false, 1, isNetty(), 2, 0, 1);
+
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.LOCAL, 0, 5000, 1000, 100);
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.REMOTE, 1, 5000, 1000, 100);
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.REMOTE, 2, 5000, 1000, 100);
+
+      startServers(0, 1, 2);
+
+      setupSessionFactory(0, isNetty());
+      setupSessionFactory(1, isNetty());
+      setupSessionFactory(2, isNetty());
+
+      createQueue(0, "queues.testaddress", "queue0", null, false);
+      createQueue(1, "queues.testaddress", "queue0", null, false);
+      createQueue(2, "queues.testaddress", "queue0", null, false);
+
+      addConsumer(0, 0, "queue0", null);
+      addConsumer(1, 1, "queue0", null);
+      addConsumer(2, 2, "queue0", null);
+
+      waitForBindings(0, "queues.testaddress", 1, 1, true);
+      waitForBindings(1, "queues.testaddress", 1, 1, true);
+      waitForBindings(2, "queues.testaddress", 1, 1, true);
+
+      waitForBindings(0, "queues.testaddress", 2, 2, false);
+      waitForBindings(1, "queues.testaddress", 2, 2, false);
+      waitForBindings(2, "queues.testaddress", 2, 2, false);
+
+      final CountDownLatch unproposed = new CountDownLatch(1);
+
+      NotificationListener listener = new NotificationListener()
+      {
+         public void onNotification(final Notification notification)
+         {
+            if (NotificationType.UNPROPOSAL == notification.getType())
+            {
+               unproposed.countDown();
+            }
+         }
+      };
+
+      getServer(0).getManagementService().addNotificationListener(listener);
+
+      sendInRange(1, "queues.testaddress", 0, 10, false, Message.HDR_GROUP_ID, new SimpleString("id1"));
+
+      // Only node 2 uses the group from now on, renewing its lease well past the group timeout
+      for (int i = 1; i < 10; i++)
+      {
+         Thread.sleep(200);
+
+         sendInRange(2, "queues.testaddress", 10 * i, 10 * (i + 1), false, Message.HDR_GROUP_ID, new SimpleString("id1"));
+      }
+
+      assertEquals(1, unproposed.getCount());
+
+      SimpleString fullID = new SimpleString("id1.queue0");
+
+      assertNotNull(getServer(2).getGroupingHandler().getProposal(fullID));
+
+      verifyReceiveAllOnSingleConsumer(0, 100, 0, 1, 2);
+
+      // Once nobody uses the group, it is unbound everywhere
+      assertTrue(unproposed.await(5, TimeUnit.SECONDS));
+
+      long timeout = System.currentTimeMillis() + 5000;
+
+      while (getServer(1).getGroupingHandler().getProposal(fullID) != null ||
+             getServer(2).getGroupingHandler().getProposal(fullID) != null)
+      {
+         assertTrue(System.currentTimeMillis() < timeout);
+
+         Thread.sleep(10);
+      }
+
+      assertNull(getServer(0).getGroupingHandler().getProposal(fullID));
+
+      getServer(0).getManagementService().removeNotificationListener(listener);
+   }
+
    @Test
    public void testGroupingTimeout() throws Exception
    {
@@ -144,6 +235,29 @@ public class ClusteredGroupingTest extends ClusterTestBase
          {
             return null;
          }
+
+         public void renew(final List<SimpleString> groupIds, final int distance)
+         {
+            System.out.println("ClusteredGroupingTest.renew");
+         }
+
+         public void remove(final SimpleString groupId, final int distance)
+         {
+            System.out.println("ClusteredGroupingTest.remove");
+         }
+
+         public void start()
+         {
+         }
+
+         public void stop()
+         {
+         }
+
+         public boolean isStarted()
+         {
+            return true;
+         }
       }, 0);
 
       setupSessionFactory(0, isNetty());
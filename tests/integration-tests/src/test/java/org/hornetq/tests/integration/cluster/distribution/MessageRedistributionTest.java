@@ -31,6 +31,7 @@ import org.hornetq.api.core.client.ClientProducer;
 import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.server.Bindable;
+import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.cluster.impl.Redistributor;
 import org.hornetq.core.server.group.impl.GroupingHandlerConfiguration;
 import org.hornetq.core.server.impl.QueueImpl;
@@ -952,6 +953,60 @@ public class MessageRedistributionTest extends ClusterTestBase
       verifyReceiveAll(QueueImpl.REDISTRIBUTOR_BATCH_SIZE * 2, 1);
    }
 
+   @Test
+   public void testBatchedRedistribution() throws Exception
+   {
+      setupCluster(false);
+
+      AddressSettings as = new AddressSettings();
+      as.setRedistributionDelay(0);
+      as.setRedistributionBatchSize(50);
+
+      getServer(0).getAddressSettingsRepository().addMatch("queues.*", as);
+      getServer(1).getAddressSettingsRepository().addMatch("queues.*", as);
+      getServer(2).getAddressSettingsRepository().addMatch("queues.*", as);
+
+      startServers(0, 1, 2);
+
+      setupSessionFactory(0, isNetty());
+      setupSessionFactory(1, isNetty());
+      setupSessionFactory(2, isNetty());
+
+      createQueue(0, "queues.testaddress", "queue0", null, false);
+      createQueue(1, "queues.testaddress", "queue0", null, false);
+      createQueue(2, "queues.testaddress", "queue0", null, false);
+
+      addConsumer(0, 0, "queue0", null);
+
+      waitForBindings(0, "queues.testaddress", 1, 1, true);
+      waitForBindings(1, "queues.testaddress", 1, 0, true);
+      waitForBindings(2, "queues.testaddress", 1, 0, true);
+
+      waitForBindings(0, "queues.testaddress", 2, 0, false);
+      waitForBindings(1, "queues.testaddress", 2, 1, false);
+      waitForBindings(2, "queues.testaddress", 2, 1, false);
+
+      // Not a multiple of the batch size, so the last batch is committed partially filled
+      send(0, "queues.testaddress", 1025, false, null);
+
+      removeConsumer(0);
+      addConsumer(1, 1, "queue0", null);
+
+      verifyReceiveAll(1025, 1);
+
+      Queue queue = (Queue)getServer(0).getPostOffice().getBinding(new SimpleString("queue0")).getBindable();
+
+      // The count is updated once each batch is stored
+      long timeout = System.currentTimeMillis() + 5000;
+
+      while (queue.getMessagesRedistributed() < 1025 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      assertEquals(1025, queue.getMessagesRedistributed());
+   }
+
    /*
     * Start one node with no consumers and send some messages
     * Start another node add a consumer and verify all messages are redistribute
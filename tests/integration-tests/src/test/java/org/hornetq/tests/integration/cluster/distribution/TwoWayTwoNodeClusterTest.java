@@ -17,6 +17,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.core.server.Queue;
 import org.hornetq.tests.integration.IntegrationTestLogger;
 
 /**
@@ -207,4 +210,74 @@ public class TwoWayTwoNodeClusterTest extends ClusterTestBase
 
       stopServers(0, 1);
    }
+
+   @Test
+   public void testLoadBalancing() throws Exception
+   {
+      servers[0].getConfiguration().getClusterConfigurations().get(0).setLoadBalancingUpdatePeriod(100);
+      servers[1].getConfiguration().getClusterConfigurations().get(0).setLoadBalancingUpdatePeriod(100);
+
+      startServers(0, 1);
+
+      setupSessionFactory(0, isNetty());
+      setupSessionFactory(1, isNetty());
+
+      createQueue(0, "queues", "queue0", null, false);
+      createQueue(1, "queues", "queue0", null, false);
+
+      addConsumer(0, 0, "queue0", null);
+      addConsumer(1, 1, "queue0", null);
+
+      waitForBindings(0, "queues", 1, 1, true);
+      waitForBindings(1, "queues", 1, 1, true);
+
+      waitForBindings(0, "queues", 1, 1, false);
+      waitForBindings(1, "queues", 1, 1, false);
+
+      // Nothing is known about the load yet, the messages are spread evenly
+      send(0, "queues", 20, false, null);
+
+      Queue queue0 = servers[0].locateQueue(new SimpleString("queue0"));
+
+      // Only the consumer on node 1 gets through its messages
+      int received = 0;
+
+      ClientMessage message;
+
+      while ((message = getConsumer(1).receive(1000)) != null)
+      {
+         message.acknowledge();
+
+         received++;
+      }
+
+      consumers[1].getSession().commit();
+
+      assertEquals(20, received + queue0.getMessageCount());
+
+      long backlog = queue0.getMessageCount();
+
+      assertTrue(backlog > 0);
+
+      // Wait for the loads to be gossiped
+      Thread.sleep(1000);
+
+      // Node 1 has nothing left to deliver, it takes the messages until its backlog catches up
+      sendInRange(0, "queues", 20, 20 + (int)backlog - 1, false, null);
+
+      for (int i = 0; i < backlog - 1; i++)
+      {
+         message = getConsumer(1).receive(5000);
+
+         assertNotNull(message);
+
+         message.acknowledge();
+      }
+
+      assertNull(getConsumer(1).receiveImmediate());
+
+      assertEquals(backlog, queue0.getMessageCount());
+
+      stopServers(0, 1);
+   }
 }
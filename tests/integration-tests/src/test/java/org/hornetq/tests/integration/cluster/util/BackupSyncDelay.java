@@ -15,6 +15,7 @@ import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationStartSyncMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveFileContinuationMessage;
 import org.hornetq.core.replication.ReplicationEndpoint;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.spi.core.protocol.RemotingConnection;
@@ -239,6 +240,12 @@ public class BackupSyncDelay implements Interceptor
          throw new UnsupportedOperationException();
       }
 
+      @Override
+      public boolean sendFileRegion(SessionReceiveFileContinuationMessage packet)
+      {
+         throw new UnsupportedOperationException();
+      }
+
       @Override
       public Packet sendBlocking(Packet packet, byte expected) throws HornetQException
       {
@@ -918,6 +918,197 @@ public class JMSBridgeTest extends BridgeTestBase
       }
    }
 
+   @Test
+   public void testLanes() throws Exception
+   {
+      JMSBridgeImpl bridge = null;
+
+      Connection connSource = null;
+
+      Connection connTarget = null;
+
+      try
+      {
+         final int NUM_GROUPS = 5;
+
+         final int NUM_MESSAGES = 100;
+
+         bridge = new JMSBridgeImpl(cff0,
+                                    cff1,
+                                    sourceQueueFactory,
+                                    targetQueueFactory,
+                                    null,
+                                    null,
+                                    null,
+                                    null,
+                                    null,
+                                    5000,
+                                    10,
+                                    QualityOfServiceMode.DUPLICATES_OK,
+                                    10,
+                                    100,
+                                    null,
+                                    null,
+                                    false);
+         bridge.setTransactionManager(newTransactionManager());
+         bridge.setLanes(4);
+
+         bridge.start();
+
+         connSource = cf0.createConnection();
+
+         Session sessSend = connSource.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+         MessageProducer prod = sessSend.createProducer(sourceQueue);
+
+         for (int i = 0; i < NUM_MESSAGES; i++)
+         {
+            TextMessage tm = sessSend.createTextMessage("message" + i);
+
+            tm.setStringProperty("JMSXGroupID", "group" + i % NUM_GROUPS);
+            tm.setIntProperty("count", i);
+
+            prod.send(tm);
+         }
+
+         connTarget = cf1.createConnection();
+
+         Session sessRec = connTarget.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+         MessageConsumer cons = sessRec.createConsumer(targetQueue);
+
+         connTarget.start();
+
+         int[] lastCount = new int[NUM_GROUPS];
+
+         for (int i = 0; i < NUM_GROUPS; i++)
+         {
+            lastCount[i] = -1;
+         }
+
+         for (int i = 0; i < NUM_MESSAGES; i++)
+         {
+            TextMessage tm = (TextMessage)cons.receive(10000);
+
+            Assert.assertNotNull(tm);
+
+            int count = tm.getIntProperty("count");
+
+            int group = count % NUM_GROUPS;
+
+            Assert.assertEquals("group" + group, tm.getStringProperty("JMSXGroupID"));
+
+            // Each group is forwarded by a single lane, in order
+            Assert.assertTrue(count > lastCount[group]);
+
+            lastCount[group] = count;
+         }
+
+         Assert.assertNull(cons.receiveNoWait());
+
+         // The metrics are updated right after each batch is committed
+         long timeout = System.currentTimeMillis() + 5000;
+
+         while (bridge.getMessagesForwarded() < NUM_MESSAGES && System.currentTimeMillis() < timeout)
+         {
+            Thread.sleep(10);
+         }
+
+         Assert.assertEquals(4, bridge.getLanes());
+         Assert.assertEquals(NUM_MESSAGES, bridge.getMessagesForwarded());
+         Assert.assertTrue(bridge.getBatchesForwarded() > 0);
+         Assert.assertTrue(bridge.getThroughput() > 0);
+      }
+      finally
+      {
+         if (connSource != null)
+         {
+            connSource.close();
+         }
+
+         if (connTarget != null)
+         {
+            connTarget.close();
+         }
+
+         if (bridge != null)
+         {
+            bridge.stop();
+         }
+
+         removeAllMessages(sourceQueue.getQueueName(), 0);
+      }
+   }
+
+   @Test
+   public void testTopicForwardedByOneLane() throws Exception
+   {
+      JMSBridgeImpl bridge = null;
+
+      Connection connTarget = null;
+
+      try
+      {
+         final int NUM_MESSAGES = 10;
+
+         bridge = new JMSBridgeImpl(cff0,
+                                    cff1,
+                                    sourceTopicFactory,
+                                    targetQueueFactory,
+                                    null,
+                                    null,
+                                    null,
+                                    null,
+                                    null,
+                                    5000,
+                                    10,
+                                    QualityOfServiceMode.DUPLICATES_OK,
+                                    1,
+                                    -1,
+                                    null,
+                                    null,
+                                    false);
+         bridge.setTransactionManager(newTransactionManager());
+         bridge.setLanes(4);
+
+         bridge.start();
+
+         sendMessages(cf0, sourceTopic, 0, NUM_MESSAGES, false, false);
+
+         connTarget = cf1.createConnection();
+
+         Session sessRec = connTarget.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+         MessageConsumer cons = sessRec.createConsumer(targetQueue);
+
+         connTarget.start();
+
+         for (int i = 0; i < NUM_MESSAGES; i++)
+         {
+            TextMessage tm = (TextMessage)cons.receive(10000);
+
+            Assert.assertNotNull(tm);
+
+            Assert.assertEquals("message" + i, tm.getText());
+         }
+
+         // Each lane would have forwarded every message of its own subscription
+         Assert.assertNull(cons.receive(1000));
+      }
+      finally
+      {
+         if (connTarget != null)
+         {
+            connTarget.close();
+         }
+
+         if (bridge != null)
+         {
+            bridge.stop();
+         }
+      }
+   }
+
    @Test
    public void testMaskPassword() throws Exception
    {
@@ -213,6 +213,8 @@ public class JMSServerDeployerTest extends ServiceTestBase
          Assert.assertEquals(1234, cf.getClientFailureCheckPeriod());
          Assert.assertEquals(5678, cf.getCallTimeout());
          Assert.assertEquals(12345, cf.getConsumerWindowSize());
+         Assert.assertEquals(23456, cf.getConsumerMinWindowSize());
+         Assert.assertEquals(345678, cf.getConsumerMaxWindowSize());
          Assert.assertEquals(6789, cf.getConsumerMaxRate());
          Assert.assertEquals(123456, cf.getConfirmationWindowSize());
          Assert.assertEquals(7712652, cf.getProducerWindowSize());
@@ -72,6 +72,8 @@ public class JMSServerConfigParserTest extends ServiceTestBase
       assertEquals(1234, cfConfig.getClientFailureCheckPeriod());
       assertEquals(5678, cfConfig.getCallTimeout());
       assertEquals(12345, cfConfig.getConsumerWindowSize());
+      assertEquals(23456, cfConfig.getConsumerMinWindowSize());
+      assertEquals(345678, cfConfig.getConsumerMaxWindowSize());
       assertEquals(6789, cfConfig.getConsumerMaxRate());
       assertEquals(123456, cfConfig.getConfirmationWindowSize());
       assertEquals(7712652, cfConfig.getProducerWindowSize());
@@ -85,6 +85,35 @@ public class ConnectionFactoryControlTest extends ManagementTestBase
 
    }
 
+   @Test
+   public void testConsumerWindowBounds() throws Exception
+   {
+      JMSServerControl control = createJMSControl();
+      control.createConnectionFactory("test", false, false, 0, "invm", "test");
+
+      ConnectionFactoryControl controlCF = createCFControl("test");
+
+      controlCF.setConsumerMinWindowSize(1024);
+      controlCF.setConsumerMaxWindowSize(4096);
+
+      assertEquals(1024, controlCF.getConsumerMinWindowSize());
+      assertEquals(4096, controlCF.getConsumerMaxWindowSize());
+
+      HornetQConnectionFactory cf = (HornetQConnectionFactory)ctx.lookup("test");
+      assertEquals(1024, cf.getConsumerMinWindowSize());
+      assertEquals(4096, cf.getConsumerMaxWindowSize());
+
+      stopServer();
+
+      Thread.sleep(500);
+
+      startServer();
+
+      cf = (HornetQConnectionFactory)ctx.lookup("test");
+      assertEquals(1024, cf.getConsumerMinWindowSize());
+      assertEquals(4096, cf.getConsumerMaxWindowSize());
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -1266,6 +1266,256 @@ public class NIOJournalCompactTest extends JournalImplTestBase
 
    }
 
+   @Test
+   public void testIncrementalCompacting() throws Exception
+   {
+      setup(2, 60 * 1024, false);
+
+      createJournal();
+      startJournal();
+      load();
+
+      ArrayList<Long> liveIDs = new ArrayList<Long>();
+
+      long transactionID = 0;
+
+      // 20 files with a couple of live records on each
+      for (int i = 0; i < 20; i++)
+      {
+         for (int j = 0; j < 10; j++)
+         {
+            long id = idGenerator.generateID();
+            add(id);
+            if (j < 8)
+            {
+               delete(id);
+            }
+            else
+            {
+               liveIDs.add(id);
+            }
+         }
+
+         long txID = transactionID++;
+         long id = idGenerator.generateID();
+         addTx(txID, id);
+         commit(txID);
+         liveIDs.add(id);
+
+         journal.forceMoveNextFile();
+      }
+
+      // updates and deletes on files after the ones being compacted
+      update(liveIDs.get(0), liveIDs.get(1));
+      delete(liveIDs.remove(2));
+
+      journal.forceMoveNextFile();
+
+      JournalImpl journalImpl = (JournalImpl)journal;
+
+      int numberOfFiles = journal.getDataFilesCount();
+
+      journalImpl.setCompactFilesPerPass(5);
+
+      journalImpl.scheduleCompactAndBlock(60, true);
+
+      Assert.assertEquals(1, journalImpl.getCompactCount());
+      Assert.assertTrue(journalImpl.getLastCompactPauseTime() > 0);
+      Assert.assertEquals(journalImpl.getLastCompactPauseTime(), journalImpl.getMaxCompactPauseTime());
+      Assert.assertTrue(journal.getDataFilesCount() < numberOfFiles);
+
+      // records on the compacted files need to be updated and deleted properly
+      update(liveIDs.get(0), liveIDs.get(3));
+      delete(liveIDs.remove(1));
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+
+      journalImpl = (JournalImpl)journal;
+
+      journalImpl.setCompactFilesPerPass(5);
+
+      journalImpl.scheduleCompactAndBlock(60, true);
+
+      Assert.assertEquals(1, journalImpl.getCompactCount());
+
+      for (long id : liveIDs)
+      {
+         delete(id);
+      }
+
+      journal.forceMoveNextFile();
+
+      checkAndReclaimFiles();
+
+      Assert.assertEquals(0, journal.getDataFilesCount());
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
+   @Test
+   public void testIncrementalCompactingWithOpenTransaction() throws Exception
+   {
+      setup(2, 60 * 1024, false);
+
+      createJournal();
+      startJournal();
+      load();
+
+      // the transaction is open until the sixth file, so the first five files can't be compacted
+      addTx(1, idGenerator.generateID());
+
+      for (int i = 0; i < 10; i++)
+      {
+         for (int j = 0; j < 10; j++)
+         {
+            long id = idGenerator.generateID();
+            add(id);
+            if (j > 0)
+            {
+               delete(id);
+            }
+         }
+
+         if (i == 5)
+         {
+            commit(1);
+         }
+
+         journal.forceMoveNextFile();
+      }
+
+      JournalImpl journalImpl = (JournalImpl)journal;
+
+      int numberOfFiles = journal.getDataFilesCount();
+
+      journalImpl.setCompactFilesPerPass(5);
+
+      journalImpl.scheduleCompactAndBlock(60, true);
+
+      Assert.assertEquals(0, journalImpl.getCompactCount());
+      Assert.assertEquals(numberOfFiles, journal.getDataFilesCount());
+
+      journalImpl.setCompactFilesPerPass(10);
+
+      journalImpl.scheduleCompactAndBlock(60, true);
+
+      Assert.assertEquals(1, journalImpl.getCompactCount());
+      Assert.assertTrue(journal.getDataFilesCount() < numberOfFiles);
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
+   @Test
+   public void testIncrementalCompactingWithConcurrentOperations() throws Exception
+   {
+      setup(2, 60 * 1024, false);
+
+      final CountDownLatch latchDone = new CountDownLatch(1);
+      final CountDownLatch latchWait = new CountDownLatch(1);
+
+      journal = new JournalImpl(fileSize, minFiles, 0, 0, fileFactory, filePrefix, fileExtension, maxAIO)
+      {
+         @Override
+         public void onCompactDone()
+         {
+            latchDone.countDown();
+            try
+            {
+               UnitTestCase.waitForLatch(latchWait);
+            }
+            catch (InterruptedException e)
+            {
+               e.printStackTrace();
+            }
+         }
+      };
+
+      journal.setAutoReclaim(false);
+
+      startJournal();
+      load();
+
+      ArrayList<Long> liveIDs = new ArrayList<Long>();
+
+      for (int i = 0; i < 10; i++)
+      {
+         for (int j = 0; j < 10; j++)
+         {
+            long id = idGenerator.generateID();
+            add(id);
+            if (j < 7)
+            {
+               delete(id);
+            }
+            else
+            {
+               liveIDs.add(id);
+               update(id);
+            }
+         }
+         journal.forceMoveNextFile();
+      }
+
+      final JournalImpl journalImpl = (JournalImpl)journal;
+
+      journalImpl.setCompactFilesPerPass(5);
+
+      Thread compactThread = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               journalImpl.scheduleCompactAndBlock(60, true);
+            }
+            catch (Exception e)
+            {
+               e.printStackTrace();
+            }
+         }
+      };
+
+      compactThread.start();
+
+      Assert.assertTrue(latchDone.await(10, TimeUnit.SECONDS));
+
+      // the first records are on the files being compacted
+      update(liveIDs.get(0));
+      delete(liveIDs.remove(1));
+
+      addTx(1000, idGenerator.generateID());
+      updateTx(1000, liveIDs.get(2));
+      deleteTx(1000, liveIDs.remove(3));
+      commit(1000);
+
+      updateTx(1001, liveIDs.get(4));
+      rollback(1001);
+
+      latchWait.countDown();
+
+      compactThread.join();
+
+      Assert.assertEquals(1, journalImpl.getCompactCount());
+
+      update(liveIDs.get(2));
+      delete(liveIDs.remove(0));
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
    @Test
    public void testLiveSize() throws Exception
    {
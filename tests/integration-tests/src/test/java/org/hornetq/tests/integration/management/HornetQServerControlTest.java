@@ -43,6 +43,7 @@ import org.hornetq.api.core.management.QueueControl;
 import org.hornetq.api.core.management.RoleInfo;
 import org.hornetq.core.asyncio.impl.AsynchronousFileImpl;
 import org.hornetq.core.config.Configuration;
+import org.hornetq.core.journal.impl.JournalImpl;
 import org.hornetq.core.messagecounter.impl.MessageCounterManagerImpl;
 import org.hornetq.core.remoting.impl.invm.InVMAcceptorFactory;
 import org.hornetq.core.remoting.impl.invm.InVMConnectorFactory;
@@ -954,6 +955,32 @@ public class HornetQServerControlTest extends ManagementTestBase
 
       System.out.println("HornetQServerControlTest.testCommitPreparedTransactions");
    }
+
+   @Test
+   public void testJournalCompactMetrics() throws Exception
+   {
+      HornetQServerControl serverControl = createManagementControl();
+
+      long count = serverControl.getJournalCompactCount();
+
+      server.getStorageManager().getMessageJournal().scheduleCompactAndBlock(60);
+
+      Assert.assertEquals(count + 1, serverControl.getJournalCompactCount());
+      Assert.assertTrue(serverControl.getJournalLastCompactPauseTime() > 0);
+      Assert.assertTrue(serverControl.getJournalMaxCompactPauseTime() >= serverControl.getJournalLastCompactPauseTime());
+      Assert.assertTrue(serverControl.getJournalTotalCompactPauseTime() >= serverControl.getJournalMaxCompactPauseTime());
+   }
+
+   @Test
+   public void testJournalFileWaitMetrics() throws Exception
+   {
+      HornetQServerControl serverControl = createManagementControl();
+
+      JournalImpl journal = (JournalImpl)server.getStorageManager().getMessageJournal();
+
+      Assert.assertEquals(journal.getFileWaitCount(), serverControl.getJournalFileWaitCount());
+      Assert.assertEquals(journal.getFileWaitTime(), serverControl.getJournalFileWaitTime());
+   }
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -479,6 +479,36 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Integer)proxy.retrieveAttributeValue("JournalCompactPercentage");
          }
 
+         public long getJournalCompactCount()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalCompactCount", Long.class);
+         }
+
+         public long getJournalLastCompactPauseTime()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalLastCompactPauseTime", Long.class);
+         }
+
+         public long getJournalMaxCompactPauseTime()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalMaxCompactPauseTime", Long.class);
+         }
+
+         public long getJournalTotalCompactPauseTime()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalTotalCompactPauseTime", Long.class);
+         }
+
+         public long getJournalFileWaitCount()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalFileWaitCount", Long.class);
+         }
+
+         public long getJournalFileWaitTime()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalFileWaitTime", Long.class);
+         }
+
          public boolean isPersistenceEnabled()
          {
             return (Boolean)proxy.retrieveAttributeValue("PersistenceEnabled");
@@ -107,6 +107,16 @@ public class QueueControlUsingCoreTest extends QueueControlTest
          {
             return (Integer)proxy.retrieveAttributeValue("messagesAdded");
          }
+
+         public long getMessagesRedistributed()
+         {
+            return (Long)proxy.retrieveAttributeValue("messagesRedistributed", Long.class);
+         }
+
+         public double getRedistributionRate()
+         {
+            return ((Number)proxy.retrieveAttributeValue("redistributionRate")).doubleValue();
+         }
          
          public void resetMessagesAdded() throws Exception
          {
@@ -17,8 +17,10 @@ import org.junit.Test;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Message;
+import javax.resource.ResourceException;
 import javax.resource.spi.ActivationSpec;
 
 import org.hornetq.api.core.HornetQException;
@@ -31,6 +33,7 @@ import org.hornetq.api.core.client.SessionFailureListener;
 import org.hornetq.core.client.impl.ClientSessionFactoryInternal;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.impl.LocalQueueBinding;
+import org.hornetq.core.server.Queue;
 import org.hornetq.ra.HornetQResourceAdapter;
 import org.hornetq.ra.inflow.HornetQActivation;
 import org.hornetq.ra.inflow.HornetQActivationSpec;
@@ -294,6 +297,135 @@ public class HornetQMessageHandlerTest extends HornetQRATestBase
       qResourceAdapter.stop();
    }
 
+   @Test
+   public void testDeliveryBatchSize() throws Exception
+   {
+      HornetQResourceAdapter qResourceAdapter = newResourceAdapter();
+      qResourceAdapter.setUseLocalTx(true);
+      MyBootstrapContext ctx = new MyBootstrapContext();
+      qResourceAdapter.start(ctx);
+      HornetQActivationSpec spec = new HornetQActivationSpec();
+      spec.setMaxSession(1);
+      spec.setDeliveryBatchSize(10);
+      spec.setResourceAdapter(qResourceAdapter);
+      spec.setUseJNDI(false);
+      spec.setDestinationType("javax.jms.Queue");
+      spec.setDestination(MDBQUEUE);
+      qResourceAdapter.setConnectorClassName(INVM_CONNECTOR_FACTORY);
+
+      ClientSession session = locator.createSessionFactory().createSession();
+      ClientProducer clientProducer = session.createProducer(MDBQUEUEPREFIXED);
+      for (int i = 0; i < 20; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeString("teststring" + i);
+         clientProducer.send(message);
+      }
+      session.close();
+
+      final CountDownLatch latch = new CountDownLatch(20);
+      final AtomicInteger afterDeliveries = new AtomicInteger();
+      DummyMessageEndpoint endpoint = new DummyMessageEndpoint(null)
+      {
+         @Override
+         public void onMessage(Message message)
+         {
+            super.onMessage(message);
+            latch.countDown();
+         }
+
+         @Override
+         public void afterDelivery() throws ResourceException
+         {
+            afterDeliveries.incrementAndGet();
+         }
+      };
+      DummyMessageEndpointFactory endpointFactory = new DummyMessageEndpointFactory(endpoint, false);
+      qResourceAdapter.endpointActivation(endpointFactory, spec);
+
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+      // The messages already buffered are delivered in batches, each committed as one transaction
+      assertTrue("one transaction per message", afterDeliveries.get() < 20);
+
+      qResourceAdapter.endpointDeactivation(endpointFactory, spec);
+
+      Binding binding = server.getPostOffice().getBinding(MDBQUEUEPREFIXEDSIMPLE);
+      assertEquals(0, ((LocalQueueBinding) binding).getQueue().getMessageCount());
+
+      qResourceAdapter.stop();
+   }
+
+   @Test
+   public void testAdaptiveSessions() throws Exception
+   {
+      HornetQResourceAdapter qResourceAdapter = newResourceAdapter();
+      MyBootstrapContext ctx = new MyBootstrapContext();
+      qResourceAdapter.start(ctx);
+      HornetQActivationSpec spec = new HornetQActivationSpec();
+      spec.setAdaptiveSessions(true);
+      spec.setMinSession(1);
+      spec.setMaxSession(5);
+      spec.setAdaptiveSessionsInterval(100L);
+      spec.setResourceAdapter(qResourceAdapter);
+      spec.setUseJNDI(false);
+      spec.setDestinationType("javax.jms.Queue");
+      spec.setDestination(MDBQUEUE);
+      qResourceAdapter.setConnectorClassName(INVM_CONNECTOR_FACTORY);
+
+      final CountDownLatch latch = new CountDownLatch(200);
+      DummyMessageEndpoint endpoint = new DummyMessageEndpoint(null)
+      {
+         @Override
+         public void onMessage(Message message)
+         {
+            super.onMessage(message);
+            try
+            {
+               Thread.sleep(10);
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            latch.countDown();
+         }
+      };
+      DummyMessageEndpointFactory endpointFactory = new DummyMessageEndpointFactory(endpoint, false);
+      qResourceAdapter.endpointActivation(endpointFactory, spec);
+
+      Binding binding = server.getPostOffice().getBinding(MDBQUEUEPREFIXEDSIMPLE);
+      Queue queue = ((LocalQueueBinding) binding).getQueue();
+      assertEquals(1, queue.getConsumerCount());
+
+      ClientSession session = locator.createSessionFactory().createSession();
+      ClientProducer clientProducer = session.createProducer(MDBQUEUEPREFIXED);
+      for (int i = 0; i < 200; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeString("teststring" + i);
+         clientProducer.send(message);
+      }
+      session.close();
+
+      // The backlog takes two seconds with one session, more sessions are added to drain it
+      long timeout = System.currentTimeMillis() + 5000;
+      int maxConsumers = 1;
+      while (latch.getCount() > 0 && System.currentTimeMillis() < timeout)
+      {
+         maxConsumers = Math.max(maxConsumers, queue.getConsumerCount());
+         Thread.sleep(10);
+      }
+
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertTrue("sessions were not added", maxConsumers > 1);
+      assertTrue(maxConsumers <= 5);
+
+      qResourceAdapter.endpointDeactivation(endpointFactory, spec);
+      assertEquals(0, queue.getConsumerCount());
+      qResourceAdapter.stop();
+   }
+
    @Test
    public void testSimpleTopic() throws Exception
    {
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.security.auth.Subject;
 import javax.security.auth.callback.Callback;
@@ -43,11 +44,13 @@ import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.ServerLocator;
 import org.hornetq.core.config.Configuration;
+import org.hornetq.core.security.CheckType;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.spi.core.security.HornetQSecurityManager;
+import org.hornetq.spi.core.security.HornetQSecurityManagerImpl;
 import org.hornetq.spi.core.security.JAASSecurityManager;
 import org.hornetq.tests.util.CreateMessage;
 import org.hornetq.tests.util.ServiceTestBase;
@@ -707,6 +710,90 @@ public class SecurityTest extends ServiceTestBase
       senSession.close();
    }
 
+   @Test
+   public void testSendMessageUpdateRoleCheckedInBackground() throws Exception
+   {
+      final AtomicInteger authentications = new AtomicInteger();
+      final AtomicInteger checks = new AtomicInteger();
+      HornetQSecurityManagerImpl securityManager = new HornetQSecurityManagerImpl()
+      {
+         @Override
+         public boolean validateUser(final String user, final String password)
+         {
+            authentications.incrementAndGet();
+            return super.validateUser(user, password);
+         }
+
+         @Override
+         public boolean validateUserAndRole(final String user,
+                                            final String password,
+                                            final Set<Role> roles,
+                                            final CheckType checkType)
+         {
+            checks.incrementAndGet();
+            return super.validateUserAndRole(user, password, roles, checkType);
+         }
+      };
+      Configuration configuration = createDefaultConfig(false);
+      configuration.setSecurityEnabled(true);
+      configuration.setSecurityInvalidationInterval(1000);
+      HornetQServer server = createServer(false, configuration, securityManager);
+      server.start();
+      HierarchicalRepository<Set<Role>> securityRepository = server.getSecurityRepository();
+      securityManager.addUser("auser", "pass");
+      securityManager.addRole("auser", "receiver");
+      Set<Role> roles = new HashSet<Role>();
+      roles.add(new Role("receiver", false, true, true, false, false, false, false));
+      securityRepository.addMatch(SecurityTest.addressA, roles);
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = cf.createSession("auser", "pass", false, true, true, false, -1);
+      session.createQueue(SecurityTest.addressA, SecurityTest.queueA, true);
+      session.createConsumer(SecurityTest.queueA).close();
+
+      // the authentication and the permission are cached
+      int authenticated = authentications.get();
+      cf.createSession("auser", "pass", false, true, true, false, -1).close();
+      session.createConsumer(SecurityTest.queueA).close();
+      assertEquals(authenticated, authentications.get());
+      assertEquals(2, checks.get());
+
+      // a wrong password doesn't use the cached authentication
+      try
+      {
+         cf.createSession("auser", "wrong", false, true, true, false, -1);
+         fail("Expected exception");
+      }
+      catch (HornetQSecurityException e)
+      {
+         // ok
+      }
+
+      Thread.sleep(1100);
+
+      // the expired permission is still used while it's checked again
+      securityManager.removeRole("auser", "receiver");
+      session.createConsumer(SecurityTest.queueA).close();
+
+      long timeout = System.currentTimeMillis() + 5000;
+      while (checks.get() < 3 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+      assertEquals(3, checks.get());
+
+      try
+      {
+         session.createConsumer(SecurityTest.queueA);
+         fail("Expected exception");
+      }
+      catch (HornetQSecurityException se)
+      {
+         // ok
+      }
+
+      session.close();
+   }
+
    @Test
    public void testSendMessageUpdateSender() throws Exception
    {
@@ -37,6 +37,7 @@ import org.hornetq.core.config.impl.ConfigurationImpl;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.HornetQServers;
 import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.impl.QueueImpl;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.tests.util.UnitTestCase;
 
@@ -121,6 +122,32 @@ public class ExpiryRunnerTest extends UnitTestCase
       Assert.assertEquals(0, ((Queue)server.getPostOffice().getBinding(qName).getBindable()).getDeliveringCount());
    }
 
+   @Test
+   public void testExpireSeveralBatches() throws Exception
+   {
+      ClientProducer producer = clientSession.createProducer(qName);
+      int numMessages = QueueImpl.MAX_EXPIRIES_IN_LOOP * 3;
+      long expiration = System.currentTimeMillis();
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage m = createTextMessage(clientSession, "m" + i);
+         if (i % 3 != 0)
+         {
+            m.setExpiration(expiration);
+         }
+         else
+         {
+            // expiring long after the test
+            m.setExpiration(expiration + 3600000);
+         }
+         producer.send(m);
+      }
+      Thread.sleep(1600);
+      Assert.assertEquals(numMessages / 3,
+                          ((Queue)server.getPostOffice().getBinding(qName).getBindable()).getMessageCount());
+      Assert.assertEquals(0, ((Queue)server.getPostOffice().getBinding(qName).getBindable()).getDeliveringCount());
+   }
+
    @Test
    public void testExpireConsumeHalf() throws Exception
    {
@@ -32,6 +32,7 @@ import org.hornetq.api.core.client.ServerLocator;
 import org.hornetq.core.config.impl.ConfigurationImpl;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.HornetQServers;
+import org.hornetq.core.server.Queue;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.tests.util.UnitTestCase;
 
@@ -101,6 +102,29 @@ public class LVQTest extends UnitTestCase
       Assert.assertEquals(m.getBodyBuffer().readString(), "m4");
    }
 
+   @Test
+   public void testLastValueMatchesSelectorAfterPreviousValueDidNot() throws Exception
+   {
+      ClientProducer producer = clientSession.createProducer(address);
+      ClientConsumer consumer = clientSession.createConsumer(qName1, new SimpleString("color = 'red'"));
+      clientSession.start();
+      SimpleString rh = new SimpleString("SMID1");
+      ClientMessage m1 = createTextMessage(clientSession, "m1");
+      m1.putStringProperty(Message.HDR_LAST_VALUE_NAME, rh);
+      m1.putStringProperty("color", "blue");
+      producer.send(m1);
+      Assert.assertNull(consumer.receive(500));
+      // the consumer already didn't match the previous value for this key
+      ClientMessage m2 = createTextMessage(clientSession, "m2");
+      m2.putStringProperty(Message.HDR_LAST_VALUE_NAME, rh);
+      m2.putStringProperty("color", "red");
+      producer.send(m2);
+      ClientMessage m = consumer.receive(1000);
+      Assert.assertNotNull(m);
+      m.acknowledge();
+      Assert.assertEquals(m.getBodyBuffer().readString(), "m2");
+   }
+
    @Test
    public void testFirstMessageReceivedButAckedAfter() throws Exception
    {
@@ -551,6 +575,27 @@ public class LVQTest extends UnitTestCase
       clientSessionTxReceives.commit();
    }
 
+   @Test
+   public void testReplacedByMessageWithExpiration() throws Exception
+   {
+      ClientProducer producer = clientSession.createProducer(address);
+      SimpleString rh = new SimpleString("SMID1");
+      ClientMessage m1 = createTextMessage(clientSession, "m1");
+      m1.putStringProperty(Message.HDR_LAST_VALUE_NAME, rh);
+      ClientMessage m2 = createTextMessage(clientSession, "m2");
+      m2.putStringProperty(Message.HDR_LAST_VALUE_NAME, rh);
+      m2.setExpiration(System.currentTimeMillis() + 500);
+      producer.send(m1);
+      producer.send(m2);
+      Queue queue = server.locateQueue(qName1);
+      long timeout = System.currentTimeMillis() + 5000;
+      while (queue.getMessageCount() != 0 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(100);
+      }
+      Assert.assertEquals(0, queue.getMessageCount());
+   }
+
    @Override
    @After
    public void tearDown() throws Exception
@@ -615,6 +660,7 @@ public class LVQTest extends UnitTestCase
 
       ConfigurationImpl configuration = createBasicConfig();
       configuration.setSecurityEnabled(false);
+      configuration.setMessageExpiryScanPeriod(100);
       TransportConfiguration transportConfig = new TransportConfiguration(UnitTestCase.INVM_ACCEPTOR_FACTORY);
       configuration.getAcceptorConfigurations().add(transportConfig);
       server = HornetQServers.newHornetQServer(configuration, false);
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.api.core.management.QueueControl;
+import org.hornetq.api.core.management.ResourceNames;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.impl.ShardedQueue;
+import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.hornetq.utils.LinkedListIterator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedQueueTest extends ServiceTestBase
+{
+   private static final int SHARDS = 4;
+
+   private final SimpleString QUEUE = new SimpleString("ShardedQueueTestQueue");
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   private AddressSettings settings;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(true);
+
+      settings = new AddressSettings();
+      settings.setQueueShards(SHARDS);
+      server.getAddressSettingsRepository().addMatch(QUEUE.toString(), settings);
+
+      server.start();
+
+      locator = createInVMNonHALocator();
+      locator.setBlockOnNonDurableSend(true);
+      locator.setBlockOnDurableSend(true);
+   }
+
+   @Test
+   public void testProducersKeepTheirOrder() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(QUEUE, QUEUE, null, true);
+
+      Queue queue = getQueue();
+
+      Assert.assertTrue(queue instanceof ShardedQueue);
+
+      final int numProducers = 10;
+
+      final int numMessages = 100;
+
+      for (int i = 0; i < numProducers; i++)
+      {
+         ClientSession producerSession = addClientSession(sf.createSession(false, true, true));
+
+         ClientProducer producer = producerSession.createProducer(QUEUE);
+
+         for (int j = 0; j < numMessages; j++)
+         {
+            ClientMessage message = session.createMessage(true);
+            message.putIntProperty("producer", i);
+            message.putIntProperty("count", j);
+            producer.send(message);
+         }
+
+         producerSession.close();
+      }
+
+      Assert.assertEquals(numProducers * numMessages, queue.getMessageCount());
+
+      QueueControl control = (QueueControl)server.getManagementService().getResource(ResourceNames.CORE_QUEUE + QUEUE);
+
+      Assert.assertEquals(numProducers * numMessages, control.getMessageCount());
+      Assert.assertEquals(numProducers * numMessages, control.getMessagesAdded());
+      Assert.assertEquals(numProducers * numMessages, control.listMessages(null).length);
+      Assert.assertEquals(numMessages, control.countMessages("producer = 3"));
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      session.start();
+
+      int[] lastCounts = new int[numProducers];
+
+      for (int i = 0; i < numProducers * numMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         message.acknowledge();
+
+         int producer = message.getIntProperty("producer");
+         int count = message.getIntProperty("count");
+
+         Assert.assertEquals(lastCounts[producer], count);
+         lastCounts[producer]++;
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      Assert.assertEquals(1, control.getConsumerCount());
+
+      consumer.close();
+
+      Assert.assertEquals(0, control.getConsumerCount());
+      Assert.assertEquals(0, control.getMessageCount());
+   }
+
+   @Test
+   public void testGroupsStayWithOneConsumer() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(QUEUE, QUEUE, null, true);
+
+      final int numGroups = 20;
+
+      final int numMessages = 200;
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.putStringProperty(Message.HDR_GROUP_ID, new SimpleString("group" + i % numGroups));
+         message.putIntProperty("count", i);
+         producer.send(message);
+      }
+
+      ClientConsumer consumer1 = session.createConsumer(QUEUE);
+      ClientConsumer consumer2 = session.createConsumer(QUEUE);
+
+      session.start();
+
+      Map<String, ClientConsumer> groupOwners = new HashMap<String, ClientConsumer>();
+
+      Map<String, Integer> lastCounts = new HashMap<String, Integer>();
+
+      int received = 0;
+
+      for (ClientConsumer consumer : new ClientConsumer[] { consumer1, consumer2 })
+      {
+         ClientMessage message;
+
+         while ((message = consumer.receive(500)) != null)
+         {
+            message.acknowledge();
+
+            received++;
+
+            String group = message.getStringProperty(Message.HDR_GROUP_ID);
+            int count = message.getIntProperty("count");
+
+            ClientConsumer owner = groupOwners.get(group);
+
+            if (owner == null)
+            {
+               groupOwners.put(group, consumer);
+            }
+            else
+            {
+               Assert.assertSame(owner, consumer);
+               Assert.assertTrue(lastCounts.get(group) < count);
+            }
+
+            lastCounts.put(group, count);
+         }
+      }
+
+      Assert.assertEquals(numMessages, received);
+      Assert.assertEquals(numGroups, groupOwners.size());
+   }
+
+   @Test
+   public void testSessionsSpreadOverTheShards() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(QUEUE, QUEUE, null, true);
+
+      final int numProducers = 10 * SHARDS;
+
+      for (int i = 0; i < numProducers; i++)
+      {
+         ClientSession producerSession = addClientSession(sf.createSession(false, true, true));
+
+         ClientProducer producer = producerSession.createProducer(QUEUE);
+
+         for (int j = 0; j < 10; j++)
+         {
+            producer.send(session.createMessage(true));
+         }
+
+         producerSession.close();
+      }
+
+      Map<Queue, Integer> shardCounts = getShardCounts();
+
+      // the messages of a session are on one shard
+      Assert.assertTrue(shardCounts.size() > 1);
+
+      for (Integer count : shardCounts.values())
+      {
+         Assert.assertEquals(0, count % 10);
+      }
+   }
+
+   @Test
+   public void testMessagesReloadedAfterRestart() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(QUEUE, QUEUE, null, true);
+
+      final int numMessages = 100;
+
+      for (int i = 0; i < 5; i++)
+      {
+         ClientSession producerSession = addClientSession(sf.createSession(false, true, true));
+
+         ClientProducer producer = producerSession.createProducer(QUEUE);
+
+         for (int j = 0; j < numMessages / 5; j++)
+         {
+            ClientMessage message = session.createMessage(true);
+            message.putIntProperty("producer", i);
+            message.putIntProperty("count", j);
+            producer.send(message);
+         }
+
+         producerSession.close();
+      }
+
+      Map<Long, String> shards = getShardsByMessageID();
+
+      session.close();
+
+      sf.close();
+
+      server.stop();
+
+      server.start();
+
+      Assert.assertTrue(getQueue() instanceof ShardedQueue);
+
+      Assert.assertEquals(numMessages, getQueue().getMessageCount());
+
+      // the messages are reloaded on the shard they were sent to
+      Assert.assertEquals(shards, getShardsByMessageID());
+
+      sf = createSessionFactory(locator);
+
+      session = addClientSession(sf.createSession(false, true, true));
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      session.start();
+
+      int[] lastCounts = new int[5];
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         message.acknowledge();
+
+         int producer = message.getIntProperty("producer");
+
+         Assert.assertEquals(lastCounts[producer]++, message.getIntProperty("count").intValue());
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      consumer.close();
+
+      Assert.assertEquals(0, getQueue().getMessageCount());
+   }
+
+   @Test
+   public void testPaging() throws Exception
+   {
+      settings.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      settings.setMaxSizeBytes(100 * 1024);
+      settings.setPageSizeBytes(10 * 1024);
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(QUEUE, QUEUE, null, true);
+
+      final int numProducers = 10;
+
+      final int numMessages = 500;
+
+      for (int i = 0; i < numProducers; i++)
+      {
+         ClientSession producerSession = addClientSession(sf.createSession(false, true, true));
+
+         ClientProducer producer = producerSession.createProducer(QUEUE);
+
+         for (int j = 0; j < numMessages / numProducers; j++)
+         {
+            ClientMessage message = session.createMessage(true);
+            message.getBodyBuffer().writeBytes(new byte[1024]);
+            message.putIntProperty("producer", i);
+            message.putIntProperty("count", j);
+            producer.send(message);
+         }
+
+         producerSession.close();
+      }
+
+      Assert.assertTrue(server.getPagingManager().getPageStore(QUEUE).isPaging());
+
+      Assert.assertEquals(numMessages, getQueue().getMessageCount());
+
+      // without a window the references stay on their shard until they are received
+      ClientConsumer consumer = session.createConsumer(QUEUE, null, 0, -1, false);
+
+      session.start();
+
+      int[] lastCounts = new int[numProducers];
+
+      boolean depagedOnOtherShards = false;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         message.acknowledge();
+
+         int producer = message.getIntProperty("producer");
+
+         // the messages read back from the pages go to the shard of their producer too
+         Assert.assertEquals(lastCounts[producer]++, message.getIntProperty("count").intValue());
+
+         depagedOnOtherShards |= hasPagedReferenceOffTheFirstShard();
+      }
+
+      Assert.assertTrue(depagedOnOtherShards);
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      consumer.close();
+
+      Assert.assertEquals(0, getQueue().getMessageCount());
+   }
+
+   private Queue getQueue()
+   {
+      return (Queue)server.getPostOffice().getBinding(QUEUE).getBindable();
+   }
+
+   private Map<Queue, Integer> getShardCounts()
+   {
+      Map<Queue, Integer> counts = new HashMap<Queue, Integer>();
+
+      LinkedListIterator<MessageReference> iterator = getQueue().iterator();
+
+      try
+      {
+         while (iterator.hasNext())
+         {
+            Queue shard = iterator.next().getQueue();
+
+            Integer count = counts.get(shard);
+
+            counts.put(shard, count == null ? 1 : count + 1);
+         }
+      }
+      finally
+      {
+         iterator.close();
+      }
+
+      return counts;
+   }
+
+   private boolean hasPagedReferenceOffTheFirstShard()
+   {
+      LinkedListIterator<MessageReference> iterator = getQueue().iterator();
+
+      try
+      {
+         while (iterator.hasNext())
+         {
+            MessageReference ref = iterator.next();
+
+            if (ref.isPaged() && !ref.getQueue().toString().contains("shard=0]"))
+            {
+               return true;
+            }
+         }
+      }
+      finally
+      {
+         iterator.close();
+      }
+
+      return false;
+   }
+
+   private Map<Long, String> getShardsByMessageID()
+   {
+      Map<Long, String> shards = new HashMap<Long, String>();
+
+      LinkedListIterator<MessageReference> iterator = getQueue().iterator();
+
+      try
+      {
+         while (iterator.hasNext())
+         {
+            MessageReference ref = iterator.next();
+
+            // the shards are recreated on restart, they are told apart by their name and index
+            shards.put(ref.getMessage().getMessageID(), ref.getQueue().toString().replaceAll("@.*", ""));
+         }
+      }
+      finally
+      {
+         iterator.close();
+      }
+
+      return shards;
+   }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.remoting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.remoting.impl.invm.TransportConstants;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the in-VM transport passing packets by reference with the same transport encoding,
+ * copying and decoding every packet.
+ */
+public class MeasureInVMTransportTest extends ServiceTestBase
+{
+   private static final SimpleString ADDRESS = new SimpleString("test-adr");
+
+   private static final int NUMBER_OF_MESSAGES = 100000;
+
+   private static final int SIZE_OF_MESSAGE = 1024;
+
+   private static final int ROUNDS = 5;
+
+   @Test
+   public void testPassByReferenceVersusEncoding() throws Exception
+   {
+      // The first rounds of each are there to warm up the VM
+      for (int i = 0; i < ROUNDS; i++)
+      {
+         long encoded = measure(false);
+
+         long byReference = measure(true);
+
+         System.out.println("Round " + i +
+                            ": encoded " +
+                            encoded +
+                            " messages per second, passed by reference " +
+                            byReference +
+                            " messages per second");
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final boolean passByReference) throws Exception
+   {
+      Map<String, Object> params = new HashMap<String, Object>();
+
+      params.put(TransportConstants.PASS_PACKETS_BY_REFERENCE_PROP_NAME, passByReference);
+
+      Configuration config = createDefaultConfig();
+
+      config.getAcceptorConfigurations().clear();
+
+      config.getAcceptorConfigurations().add(new TransportConfiguration(INVM_ACCEPTOR_FACTORY, params));
+
+      HornetQServer server = createServer(false, config);
+
+      server.start();
+
+      ServerLocator locator =
+         addServerLocator(HornetQClient.createServerLocatorWithoutHA(new TransportConfiguration(INVM_CONNECTOR_FACTORY,
+                                                                                                params)));
+      try
+      {
+         ClientSessionFactory factory = createSessionFactory(locator);
+
+         ClientSession session = factory.createSession(false, true, true);
+
+         session.createQueue(ADDRESS, ADDRESS, false);
+
+         ClientProducer producer = session.createProducer(ADDRESS);
+
+         ClientConsumer consumer = session.createConsumer(ADDRESS);
+
+         session.start();
+
+         byte[] body = new byte[SIZE_OF_MESSAGE];
+
+         long start = System.currentTimeMillis();
+
+         for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+         {
+            ClientMessage message = session.createMessage(false);
+
+            message.getBodyBuffer().writeBytes(body);
+
+            message.putIntProperty("count", i);
+
+            producer.send(message);
+         }
+
+         for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+         {
+            ClientMessage message = consumer.receive(5000);
+
+            Assert.assertNotNull(message);
+
+            Assert.assertEquals(i, message.getIntProperty("count").intValue());
+
+            message.acknowledge();
+         }
+
+         long end = System.currentTimeMillis();
+
+         session.close();
+
+         return NUMBER_OF_MESSAGES * 1000L / Math.max(1, end - start);
+      }
+      finally
+      {
+         locator.close();
+
+         server.stop();
+      }
+   }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.util;
+
+import java.lang.management.ManagementFactory;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.utils.TypedProperties;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Measures setting, getting, encoding and decoding a typical set of ten message properties, and the
+ * memory allocated to set them.
+ */
+public class MeasureTypedPropertiesTest
+{
+   private static final int NUMBER_OF_PROPERTIES = 10;
+
+   private static final int ITERATIONS = 1000000;
+
+   private static final int ROUNDS = 5;
+
+   private static final SimpleString[] KEYS = new SimpleString[NUMBER_OF_PROPERTIES];
+
+   static
+   {
+      for (int i = 0; i < NUMBER_OF_PROPERTIES; i++)
+      {
+         KEYS[i] = new SimpleString("property" + i);
+      }
+   }
+
+   private static final SimpleString STRING_VALUE = new SimpleString("value");
+
+   // Keeps the results alive so the measured work isn't optimized away
+   private long sink;
+
+   @Test
+   public void testSetGetEncodeDecode() throws Exception
+   {
+      // The first rounds are there to warm up the VM
+      for (int i = 0; i < ROUNDS; i++)
+      {
+         System.out.println("Round " + i +
+                            ": set " +
+                            measureSet() +
+                            ", get " +
+                            measureGet() +
+                            ", encode " +
+                            measureEncode() +
+                            ", decode " +
+                            measureDecode() +
+                            " properties per second, " +
+                            measureAllocatedBytes() +
+                            " bytes allocated per message");
+      }
+
+      Assert.assertTrue(sink != 0);
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measureSet()
+   {
+      long start = System.nanoTime();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         sink += createProperties(i).getEncodeSize();
+      }
+
+      return perSecond(start);
+   }
+
+   private long measureGet()
+   {
+      TypedProperties properties = createProperties(1);
+
+      long start = System.nanoTime();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         for (int j = 0; j < NUMBER_OF_PROPERTIES; j += 2)
+         {
+            sink += properties.getIntProperty(KEYS[j]);
+            sink += properties.getSimpleStringProperty(KEYS[j + 1]).length();
+         }
+      }
+
+      return perSecond(start);
+   }
+
+   private long measureEncode()
+   {
+      TypedProperties properties = createProperties(1);
+
+      HornetQBuffer buffer = HornetQBuffers.fixedBuffer(properties.getEncodeSize());
+
+      long start = System.nanoTime();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         buffer.clear();
+         properties.encode(buffer);
+         sink += buffer.writerIndex();
+      }
+
+      return perSecond(start);
+   }
+
+   /**
+    * Decodes the properties and reads each of them, as a consumer of the message would.
+    */
+   private long measureDecode()
+   {
+      TypedProperties properties = createProperties(1);
+
+      HornetQBuffer buffer = HornetQBuffers.fixedBuffer(properties.getEncodeSize());
+
+      properties.encode(buffer);
+
+      long start = System.nanoTime();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         buffer.readerIndex(0);
+
+         TypedProperties decoded = new TypedProperties();
+         decoded.decode(buffer);
+
+         for (int j = 0; j < NUMBER_OF_PROPERTIES; j += 2)
+         {
+            sink += decoded.getIntProperty(KEYS[j]);
+            sink += decoded.getSimpleStringProperty(KEYS[j + 1]).length();
+         }
+      }
+
+      return perSecond(start);
+   }
+
+   private long measureAllocatedBytes()
+   {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+      long threadId = Thread.currentThread().getId();
+
+      long before = threads.getThreadAllocatedBytes(threadId);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         sink += createProperties(i).getEncodeSize();
+      }
+
+      return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+   }
+
+   private static TypedProperties createProperties(final int value)
+   {
+      TypedProperties properties = new TypedProperties();
+
+      for (int j = 0; j < NUMBER_OF_PROPERTIES; j += 2)
+      {
+         properties.putIntProperty(KEYS[j], value);
+         properties.putSimpleStringProperty(KEYS[j + 1], STRING_VALUE);
+      }
+
+      return properties;
+   }
+
+   private static long perSecond(final long start)
+   {
+      long elapsed = Math.max(1, System.nanoTime() - start);
+
+      return ITERATIONS * NUMBER_OF_PROPERTIES * 1000000000L / elapsed;
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.core.client.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.core.client.impl.ConsumerWindowSizer;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsumerWindowSizerTest extends UnitTestCase
+{
+   private static final int MIN = 64 * 1024;
+
+   private static final int MAX = 8 * 1024 * 1024;
+
+   private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+   @Test
+   public void testInitialWindowIsBounded()
+   {
+      Assert.assertEquals(MIN, new ConsumerWindowSizer(1024, MIN, MAX, MILLI, 0).getWindowSize());
+      Assert.assertEquals(MAX, new ConsumerWindowSizer(MAX * 2, MIN, MAX, MILLI, 0).getWindowSize());
+      Assert.assertEquals(1024 * 1024, new ConsumerWindowSizer(1024 * 1024, MIN, MAX, MILLI, 0).getWindowSize());
+   }
+
+   @Test
+   public void testFastConsumerGrowsUpToMax()
+   {
+      ConsumerWindowSizer sizer = new ConsumerWindowSizer(1024 * 1024, MIN, MAX, 10 * MILLI, 0);
+
+      // 10 MiB in 100 ms with a 10 ms round trip needs a 4 MiB window, but it only doubles at once
+      Assert.assertEquals(2 * 1024 * 1024, sizer.update(10 * 1024 * 1024, 100 * MILLI));
+
+      Assert.assertEquals(4 * 1024 * 1024, sizer.update(10 * 1024 * 1024, 200 * MILLI));
+
+      long now = 200 * MILLI;
+
+      for (int i = 0; i < 10; i++)
+      {
+         now += 10 * MILLI;
+
+         sizer.update(100 * 1024 * 1024, now);
+      }
+
+      Assert.assertEquals(MAX, sizer.getWindowSize());
+   }
+
+   @Test
+   public void testSlowConsumerShrinksDownToMin()
+   {
+      ConsumerWindowSizer sizer = new ConsumerWindowSizer(1024 * 1024, MIN, MAX, MILLI, 0);
+
+      Assert.assertEquals(512 * 1024, sizer.update(1024, 1000 * MILLI));
+
+      long now = 1000 * MILLI;
+
+      for (int i = 0; i < 10; i++)
+      {
+         now += 1000 * MILLI;
+
+         sizer.update(1024, now);
+      }
+
+      Assert.assertEquals(MIN, sizer.getWindowSize());
+   }
+
+   @Test
+   public void testRoundTripSampledOnlyWhenStarving()
+   {
+      ConsumerWindowSizer sizer = new ConsumerWindowSizer(1024 * 1024, MIN, MAX, 0, 0);
+
+      sizer.creditsSent(false, 0);
+      sizer.messageReceived(8 * MILLI);
+      Assert.assertEquals(0, sizer.getRoundTrip());
+
+      sizer.creditsSent(true, 10 * MILLI);
+      sizer.messageReceived(18 * MILLI);
+      Assert.assertEquals(MILLI, sizer.getRoundTrip());
+
+      // only the first message after the credits is a sample
+      sizer.messageReceived(100 * MILLI);
+      Assert.assertEquals(MILLI, sizer.getRoundTrip());
+   }
+}
@@ -866,6 +866,11 @@ public class LargeMessageBufferTest extends UnitTestCase
          return 0;
       }
 
+      public ClientMessage receiveBuffered() throws HornetQException
+      {
+         return null;
+      }
+
       public int getClientWindowSize()
       {
 
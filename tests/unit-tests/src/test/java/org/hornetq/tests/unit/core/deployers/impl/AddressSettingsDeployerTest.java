@@ -45,6 +45,9 @@ public class AddressSettingsDeployerTest extends UnitTestCase
                                + "      <message-counter-history-day-limit>1000</message-counter-history-day-limit>\n"
                                + "      <last-value-queue>true</last-value-queue>\n"
                                + "      <redistribution-delay>38383</redistribution-delay>\n"
+                               + "      <redistribution-batch-size>50</redistribution-batch-size>\n"
+                               + "      <parallel-delivery>true</parallel-delivery>\n"
+                               + "      <queue-shards>4</queue-shards>\n"
                                + "      <redelivery-delay-multiplier>2</redelivery-delay-multiplier>\n"
                                + "      <max-redelivery-delay>12000</max-redelivery-delay>\n"
                                + "      <send-to-dla-on-no-route>true</send-to-dla-on-no-route>\n"
@@ -81,6 +84,9 @@ public class AddressSettingsDeployerTest extends UnitTestCase
       Assert.assertEquals(1000, as.getMessageCounterHistoryDayLimit());
       Assert.assertTrue(as.isLastValueQueue());
       Assert.assertEquals(38383, as.getRedistributionDelay());
+      Assert.assertEquals(50, as.getRedistributionBatchSize());
+      Assert.assertTrue(as.isParallelDelivery());
+      Assert.assertEquals(4, as.getQueueShards());
       Assert.assertEquals(2.0, as.getRedeliveryMultiplier(), 0.000001);
       Assert.assertEquals(12000, as.getMaxRedeliveryDelay());
       Assert.assertTrue(as.isSendToDLAOnNoRoute());
@@ -115,6 +121,9 @@ public class AddressSettingsDeployerTest extends UnitTestCase
       Assert.assertEquals(1000, as.getMessageCounterHistoryDayLimit());
       Assert.assertTrue(as.isLastValueQueue());
       Assert.assertEquals(38383, as.getRedistributionDelay());
+      Assert.assertEquals(50, as.getRedistributionBatchSize());
+      Assert.assertTrue(as.isParallelDelivery());
+      Assert.assertEquals(4, as.getQueueShards());
       Assert.assertTrue(as.isSendToDLAOnNoRoute());
    }
 
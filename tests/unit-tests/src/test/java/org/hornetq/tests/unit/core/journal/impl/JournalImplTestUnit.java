@@ -776,6 +776,47 @@ public abstract class JournalImplTestUnit extends JournalImplTestBase
       stopJournal();
    }
 
+   @Test
+   public void testReclaimWithPoolFiles() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      ((JournalImpl)journal).setPoolFiles(6);
+      startJournal();
+      load();
+
+      int addRecordsPerFile = calculateRecordsPerFile(10 * 1024,
+                                                      journal.getAlignment(),
+                                                      JournalImpl.SIZE_ADD_RECORD + 1 + recordLength);
+
+      int numberOfRecords = addRecordsPerFile * 10;
+      for (int i = 0; i < numberOfRecords; i++)
+      {
+         add(i);
+      }
+
+      Assert.assertEquals(9, journal.getDataFilesCount());
+      Assert.assertTrue(journal.getFreeFilesCount() <= 6);
+
+      for (int i = 0; i < numberOfRecords; i++)
+      {
+         delete(i);
+      }
+
+      // Make sure the deletes aren't in the current file
+      journal.forceMoveNextFile();
+
+      checkAndReclaimFiles();
+
+      Assert.assertEquals(0, journal.getDataFilesCount());
+
+      // The reclaimed files are kept up to the size of the pool instead of journal-min-files
+      Assert.assertEquals(6, journal.getFreeFilesCount());
+      Assert.assertEquals(1, journal.getOpenedFilesCount());
+
+      stopJournal();
+   }
+
    @Test
    public void testReclaimAddUpdateDeleteDifferentFiles1() throws Exception
    {
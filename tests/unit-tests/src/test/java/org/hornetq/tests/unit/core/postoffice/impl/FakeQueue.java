@@ -178,6 +178,16 @@ public class FakeQueue implements Queue
 
    }
 
+   public long getMessagesRedistributed()
+   {
+      return 0;
+   }
+
+   public double getRedistributionRate()
+   {
+      return 0;
+   }
+
    @Override
    public boolean changeReferencePriority(final long messageID, final byte newPriority) throws Exception
    {
@@ -17,6 +17,8 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
@@ -24,6 +26,7 @@ import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.BindingType;
 import org.hornetq.core.postoffice.Bindings;
 import org.hornetq.core.postoffice.BindingsFactory;
+import org.hornetq.core.postoffice.impl.AddressImpl;
 import org.hornetq.core.postoffice.impl.WildcardAddressManager;
 import org.hornetq.core.server.Bindable;
 import org.hornetq.core.server.Queue;
@@ -76,6 +79,113 @@ public class WildcardAddressManagerUnitTest extends UnitTestCase
       assertEquals("Exception happened during the process", 0, errors);
    }
 
+   @Test
+   public void testRoutingMatchesEveryWildcard() throws Exception
+   {
+      String[] wildcards = {"a.*", "a.#", "#", "*.b.*", "a.#.c", "#.c", "a.*.c.#", "x.y"};
+      String[] addresses = {"a", "a.b", "a.b.c", "a.x.c", "a.b.c.d", "b.b.b", "c", "x.y", "x.y.z"};
+
+      WildcardAddressManager ad = new WildcardAddressManager(new BindingFactoryFake());
+
+      // half the wildcards are bound before the addresses are routed to, half after
+      for (int i = 0; i < wildcards.length / 2; i++)
+      {
+         ad.addBinding(new BindingFake(wildcards[i], wildcards[i]));
+      }
+      for (String address : addresses)
+      {
+         ad.getBindingsForRoutingAddress(SimpleString.toSimpleString(address));
+      }
+      for (int i = wildcards.length / 2; i < wildcards.length; i++)
+      {
+         ad.addBinding(new BindingFake(wildcards[i], wildcards[i]));
+      }
+
+      assertRouting(ad, wildcards, addresses);
+
+      ad.removeBinding(SimpleString.toSimpleString("#"), null);
+      ad.removeBinding(SimpleString.toSimpleString("a.#.c"), null);
+
+      assertRouting(ad, new String[]{"a.*", "a.#", "*.b.*", "#.c", "a.*.c.#", "x.y"}, addresses);
+   }
+
+   @Test
+   public void testRoutingToNoBindings() throws Exception
+   {
+      WildcardAddressManager ad = new WildcardAddressManager(new BindingFactoryFake());
+      ad.addBinding(new BindingFake("a.*", "one"));
+
+      for (int i = 0; i < 100; i++)
+      {
+         assertNull(ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("b." + i)));
+      }
+
+      // an address dropped while nothing matched it is linked again once something does
+      ad.addBinding(new BindingFake("b.#", "two"));
+
+      Bindings bindings = ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("b.1"));
+      assertNotNull(bindings);
+      assertEquals(1, bindings.getBindings().size());
+      assertEquals(SimpleString.toSimpleString("two"), bindings.getBindings().iterator().next().getUniqueName());
+   }
+
+   @Test
+   public void testRoutedAddressesAreEvicted() throws Exception
+   {
+      WildcardAddressManager ad = new WildcardAddressManager(new BindingFactoryFake(), 10);
+      ad.addBinding(new BindingFake("a.#", "a.#"));
+      ad.addBinding(new BindingFake("a.direct", "direct"));
+
+      for (int i = 0; i < 100; i++)
+      {
+         assertNotNull(ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("a." + i)));
+      }
+
+      // the address with a binding of its own is never evicted, the others are linked again when routed to
+      assertEquals(2, ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("a.direct")).getBindings().size());
+      assertRouting(ad, new String[]{"a.#"}, new String[]{"a.0", "a.50", "a.99"});
+
+      // once its own binding is gone the address is evicted like any other
+      ad.removeBinding(SimpleString.toSimpleString("direct"), null);
+      for (int i = 100; i < 200; i++)
+      {
+         ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("a." + i));
+      }
+      assertRouting(ad, new String[]{"a.#"}, new String[]{"a.direct", "a.0", "a.199"});
+
+      ad.removeBinding(SimpleString.toSimpleString("a.#"), null);
+      assertRouting(ad, new String[]{}, new String[]{"a.direct", "a.0", "a.199"});
+   }
+
+   private void assertRouting(WildcardAddressManager ad, String[] wildcards, String[] addresses) throws Exception
+   {
+      for (String address : addresses)
+      {
+         AddressImpl add = new AddressImpl(SimpleString.toSimpleString(address));
+
+         Set<SimpleString> expected = new HashSet<SimpleString>();
+         for (String wildcard : wildcards)
+         {
+            if (add.matches(new AddressImpl(SimpleString.toSimpleString(wildcard))))
+            {
+               expected.add(SimpleString.toSimpleString(wildcard));
+            }
+         }
+
+         Set<SimpleString> routed = new HashSet<SimpleString>();
+         Bindings bindings = ad.getBindingsForRoutingAddress(add.getAddress());
+         if (bindings != null)
+         {
+            for (Binding binding : bindings.getBindings())
+            {
+               routed.add(binding.getUniqueName());
+            }
+         }
+
+         assertEquals(address, expected, routed);
+      }
+   }
+
    class BindingFactoryFake implements BindingsFactory
    {
       public Bindings createBindings(SimpleString address) throws Exception
@@ -215,6 +325,12 @@ public class WildcardAddressManagerUnitTest extends UnitTestCase
 
       }
 
+      @Override
+      public void setLoadBalanced(boolean loadBalanced)
+      {
+
+      }
+
       @Override
       public boolean redistribute(ServerMessage message, Queue originatingQueue, RoutingContext context) throws Exception
       {
@@ -16,6 +16,7 @@ import org.junit.Test;
 
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,6 +27,7 @@ import org.junit.Assert;
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.remoting.impl.netty.NettyConnection;
 import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.spi.core.protocol.ProtocolType;
@@ -33,11 +35,13 @@ import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.tests.util.RandomUtil;
 import org.hornetq.tests.util.UnitTestCase;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelConfig;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.Channels;
 
 /**
  *
@@ -87,12 +91,181 @@ public class NettyConnectionTest extends UnitTestCase
 
    }
 
+   @Test
+   public void testPooledBuffersAreReleasedOnceWritten() throws Exception
+   {
+      BufferPool pool = new BufferPool(false, 64 * 1024, 10);
+      pool.setLeakDetection(true);
+
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), false, false, pool);
+
+      HornetQBuffer buff = conn.createBuffer(100);
+      Assert.assertTrue(BufferPool.isPooled(buff));
+      buff.writeLong(1);
+
+      conn.write(buff);
+
+      Assert.assertEquals(1, channel.getWritten().size());
+      Assert.assertTrue(pool.getLeaks().isEmpty());
+
+      conn.write(conn.createBuffer(100));
+
+      Assert.assertEquals(1, pool.getReusedCount());
+   }
+
+   @Test
+   public void testPooledBuffersAreReleasedOnceBatched() throws Exception
+   {
+      BufferPool pool = new BufferPool(false, 64 * 1024, 10);
+      pool.setLeakDetection(true);
+
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), true, false, pool);
+
+      HornetQBuffer buff = conn.createBuffer(100);
+      buff.writeLong(1);
+
+      conn.write(buff, false, true);
+
+      Assert.assertEquals(0, channel.getWritten().size());
+
+      // Only the batch buffer is in use
+      Assert.assertEquals(1, pool.getLeaks().size());
+
+      conn.checkFlushBatchBuffer();
+
+      Assert.assertEquals(1, channel.getWritten().size());
+
+      // The batch buffer written was released, and a new one was taken
+      Assert.assertEquals(1, pool.getLeaks().size());
+      Assert.assertEquals(1, pool.getInUseCount());
+   }
+
+   @Test
+   public void testAdaptiveBatchingHoldsWritesWhileWriting() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      channel.pendingWrites = new ArrayList<ChannelFuture>();
+
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), true, false, null, true);
+
+      Assert.assertTrue(conn.isAdaptiveBatching());
+
+      // Nothing is being written, no need to wait
+      conn.write(createPacket(100), false, true);
+
+      Assert.assertEquals(1, channel.getWritten().size());
+
+      for (int i = 0; i < 3; i++)
+      {
+         conn.write(createPacket(100), false, true);
+      }
+
+      Assert.assertEquals(1, channel.getWritten().size());
+
+      // The batch goes out as soon as the write in progress completes
+      channel.completeWrites();
+
+      Assert.assertEquals(2, channel.getWritten().size());
+      Assert.assertEquals(300, ((ChannelBuffer)channel.getWritten().get(1)).readableBytes());
+
+      Assert.assertEquals(2, conn.getFlushCount());
+      Assert.assertEquals(4, conn.getFlushedPackets());
+      Assert.assertEquals(400, conn.getFlushedBytes());
+      Assert.assertEquals(2, conn.getPacketsPerFlush(), 0);
+      Assert.assertEquals(200, conn.getBytesPerFlush(), 0);
+
+      // Flushing doesn't wait
+      conn.write(createPacket(100), false, true);
+      conn.write(createPacket(100), false, false);
+
+      Assert.assertEquals(3, channel.getWritten().size());
+      Assert.assertEquals(200, ((ChannelBuffer)channel.getWritten().get(2)).readableBytes());
+   }
+
+   @Test
+   public void testAdaptiveBatchSize() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      channel.pendingWrites = new ArrayList<ChannelFuture>();
+
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), true, false, null, true);
+
+      int initialSize = conn.getBatchSize();
+
+      conn.write(createPacket(100), false, true);
+
+      int batchSize = conn.getBatchSize();
+
+      // The batches fill up while writing, they get larger
+      int written = channel.getWritten().size();
+
+      while (channel.getWritten().size() == written)
+      {
+         conn.write(createPacket(100), false, true);
+      }
+
+      Assert.assertEquals(batchSize * 2, conn.getBatchSize());
+
+      channel.completeWrites();
+
+      // Small batches written as the channel drains, they get smaller
+      for (int i = 0; i < 10; i++)
+      {
+         conn.write(createPacket(100), false, true);
+
+         channel.completeWrites();
+      }
+
+      Assert.assertTrue(conn.getBatchSize() < initialSize);
+   }
+
+   @Test
+   public void testBatchingStatistics() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), true, false);
+
+      Assert.assertFalse(conn.isAdaptiveBatching());
+
+      for (int i = 0; i < 5; i++)
+      {
+         conn.write(createPacket(10), false, true);
+      }
+
+      Assert.assertEquals(0, channel.getWritten().size());
+      Assert.assertEquals(0, conn.getFlushCount());
+
+      conn.checkFlushBatchBuffer();
+
+      conn.write(createPacket(10), false, false);
+
+      Assert.assertEquals(2, channel.getWritten().size());
+      Assert.assertEquals(2, conn.getFlushCount());
+      Assert.assertEquals(6, conn.getFlushedPackets());
+      Assert.assertEquals(60, conn.getFlushedBytes());
+   }
+
+   private static HornetQBuffer createPacket(final int size)
+   {
+      HornetQBuffer buffer = HornetQBuffers.fixedBuffer(size);
+      buffer.writeBytes(new byte[size]);
+      return buffer;
+   }
+
    private final class SimpleChannel implements Channel
    {
       private final int id;
 
       private final List<Object> written = new LinkedList<Object>();
 
+      // Futures of the writes not completed yet, if writes are not completed right away
+      private List<ChannelFuture> pendingWrites;
+
+      private boolean writable = true;
+
       private SimpleChannel(final int id)
       {
          this.id = id;
@@ -110,14 +283,32 @@ public class NettyConnectionTest extends UnitTestCase
 
       public ChannelFuture write(final Object arg0, final SocketAddress arg1)
       {
-         written.add(arg0);
-         return null;
+         return write(arg0);
       }
 
       public ChannelFuture write(final Object arg0)
       {
          written.add(arg0);
-         return null;
+
+         if (pendingWrites == null)
+         {
+            return Channels.succeededFuture(this);
+         }
+
+         ChannelFuture future = Channels.future(this);
+         pendingWrites.add(future);
+         return future;
+      }
+
+      private void completeWrites()
+      {
+         List<ChannelFuture> futures = new ArrayList<ChannelFuture>(pendingWrites);
+         pendingWrites.clear();
+
+         for (ChannelFuture future : futures)
+         {
+            future.setSuccess();
+         }
       }
 
       public ChannelFuture unbind()
@@ -137,7 +328,7 @@ public class NettyConnectionTest extends UnitTestCase
 
       public boolean isWritable()
       {
-         return false;
+         return writable;
       }
 
       public boolean isReadable()
@@ -25,6 +25,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 
@@ -810,6 +811,93 @@ public class QueueImplTest extends UnitTestCase
       testConsumerWithFilters(false);
    }
 
+   @Test
+   public void testConsumerNotOfferedNonMatchingReferencesAgain() throws Exception
+   {
+      QueueImpl queue = new QueueImpl(1,
+                                      QueueImplTest.address1,
+                                      QueueImplTest.queue1,
+                                      null,
+                                      false,
+                                      true,
+                                      scheduledExecutor,
+                                      new FakePostOffice(),
+                                      null,
+                                      null,
+                                      executor);
+
+      final AtomicInteger evaluations = new AtomicInteger(0);
+
+      Filter filter = new FakeFilter("fruit", "orange")
+      {
+         @Override
+         public boolean match(final ServerMessage message)
+         {
+            evaluations.incrementAndGet();
+
+            return super.match(message);
+         }
+      };
+
+      FakeConsumer consumer = new FakeConsumer(filter);
+
+      final int numMessages = 50;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         ref.getMessage().putStringProperty(new SimpleString("fruit"), new SimpleString("banana"));
+
+         queue.addTail(ref);
+      }
+
+      MessageReference orange1 = generateReference(queue, numMessages);
+
+      orange1.getMessage().putStringProperty(new SimpleString("fruit"), new SimpleString("orange"));
+
+      queue.addTail(orange1);
+
+      queue.addConsumer(consumer);
+
+      queue.deliverNow();
+
+      awaitExecution();
+
+      Assert.assertEquals(1, consumer.getReferences().size());
+
+      Assert.assertEquals(numMessages + 1, evaluations.get());
+
+      // a reset (as after a rollback) has the consumer go through the queue again from its head
+      queue.resetAllIterators();
+
+      queue.deliverNow();
+
+      awaitExecution();
+
+      Assert.assertEquals(numMessages + 1, evaluations.get());
+
+      MessageReference orange2 = generateReference(queue, numMessages + 1);
+
+      orange2.getMessage().putStringProperty(new SimpleString("fruit"), new SimpleString("orange"));
+
+      List<MessageReference> cancelled = new ArrayList<MessageReference>();
+
+      cancelled.add(orange2);
+
+      queue.addHead(cancelled);
+
+      queue.deliverNow();
+
+      awaitExecution();
+
+      Assert.assertEquals(2, consumer.getReferences().size());
+
+      Assert.assertEquals(numMessages + 2, evaluations.get());
+
+      Assert.assertEquals(numMessages + 2, queue.getMessageCount());
+   }
+
    @Test
    public void testConsumerWithFilterAddAndRemove()
    {
@@ -21,6 +21,7 @@ import java.util.HashSet;
 
 import org.junit.Assert;
 
+import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.Mergeable;
@@ -190,6 +191,31 @@ public class RepositoryTest extends UnitTestCase
       }
    }
 
+   @Test
+   public void testCacheIsBounded()
+   {
+      HierarchicalObjectRepository<String> repository = new HierarchicalObjectRepository<String>(10);
+      repository.addMatch("queues.*", "queues");
+      repository.addMatch("queues.aq", "aq");
+
+      for (int i = 0; i < 100; i++)
+      {
+         Assert.assertEquals("queues", repository.getMatch(new SimpleString("queues.q" + i)));
+         Assert.assertTrue(repository.getCacheSize() <= 10);
+      }
+
+      // a full cache is cleared rather than evicting an arbitrary entry
+      Assert.assertEquals(10, repository.getCacheSize());
+      Assert.assertEquals("queues", repository.getMatch("queues.q100"));
+      Assert.assertEquals(1, repository.getCacheSize());
+
+      Assert.assertEquals("aq", repository.getMatch(new SimpleString("queues.aq")));
+      Assert.assertEquals("aq", repository.getMatch("queues.aq"));
+
+      repository.addMatch("queues.q1", "q1");
+      Assert.assertEquals("q1", repository.getMatch(new SimpleString("queues.q1")));
+   }
+
    static class DummyMergeable implements Mergeable
    {
       static int timesMerged = 0;
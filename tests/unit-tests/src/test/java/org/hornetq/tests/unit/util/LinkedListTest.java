@@ -1244,6 +1244,54 @@ public class LinkedListTest extends UnitTestCase
 
    }
 
+   @Test
+   public void testRemoveNode()
+   {
+      List<LinkedListImpl.Node<Integer>> nodes = new LinkedList<LinkedListImpl.Node<Integer>>();
+
+      for (int i = 0; i < 10; i++)
+      {
+         nodes.add(list.addTailNode(i));
+      }
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      assertEquals(0, iter.next().intValue());
+      assertEquals(1, iter.next().intValue());
+
+      // the node the iterator is on, one behind it and one ahead of it
+      assertTrue(list.removeNode(nodes.get(1)));
+      assertTrue(list.removeNode(nodes.get(0)));
+      assertTrue(list.removeNode(nodes.get(5)));
+
+      assertTrue(nodes.get(5).isRemoved());
+      assertFalse(nodes.get(6).isRemoved());
+      assertFalse(list.removeNode(nodes.get(5)));
+
+      assertEquals(7, list.size());
+
+      for (int i : new int[]{2, 3, 4, 6, 7, 8, 9})
+      {
+         assertTrue(iter.hasNext());
+         assertEquals(i, iter.next().intValue());
+      }
+
+      assertFalse(iter.hasNext());
+
+      // removed through the iterator, the node knows it
+      iter.remove();
+
+      assertTrue(nodes.get(9).isRemoved());
+      assertFalse(list.removeNode(nodes.get(9)));
+
+      iter.close();
+
+      assertTrue(list.removeNode(nodes.get(2)));
+      assertEquals(list.addHeadNode(10).getValue().intValue(), list.poll().intValue());
+      assertEquals(3, list.poll().intValue());
+      assertEquals(4, list.size());
+   }
+
    @Test
    public void testResizing()
    {